@@ -1,6 +1,8 @@
 package com.knowledgegraph.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.knowledgegraph.service.NeighborhoodCacheIndex;
+import com.knowledgegraph.service.RelatedNodesService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
@@ -26,17 +28,33 @@ public class CacheConfig {
     private int cacheMaxSize;
     
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(GraphConfig graphConfig, NeighborhoodCacheIndex neighborhoodCacheIndex) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager(
-            "neighborhoods",    // Graph neighborhoods
-            "graphStats",      // Graph statistics
             "searchResults",   // Search results
             "nodeDetails",     // Node details
             "paths"           // Path queries
         );
         
         cacheManager.setCaffeine(caffeineConfig());
-        log.info("Cache manager configured with TTL={}s, maxSize={}", cacheTtl, cacheMaxSize);
+        
+        // Graph neighborhoods: evicted by graph changes through the reverse index, so the TTL is only a backstop
+        GraphConfig.NeighborhoodCache neighborhoods = graphConfig.getNeighborhoodCache();
+        cacheManager.registerCustomCache(NeighborhoodCacheIndex.CACHE_NAME, Caffeine.newBuilder()
+            .expireAfterWrite(neighborhoods.getTtlSeconds(), TimeUnit.SECONDS)
+            .maximumSize(neighborhoods.getMaxSize())
+            .evictionListener((key, value, cause) -> neighborhoodCacheIndex.forget(key, value))
+            .recordStats()
+            .build());
+        
+        GraphConfig.Related related = graphConfig.getRelated();
+        cacheManager.registerCustomCache(RelatedNodesService.CACHE_NAME, Caffeine.newBuilder()
+            .expireAfterWrite(related.getCacheTtlSeconds(), TimeUnit.SECONDS)
+            .maximumSize(cacheMaxSize)
+            .recordStats()
+            .build());
+        
+        log.info("Cache manager configured with TTL={}s, maxSize={}; neighborhoods TTL={}s, maxSize={}",
+            cacheTtl, cacheMaxSize, neighborhoods.getTtlSeconds(), neighborhoods.getMaxSize());
         
         return cacheManager;
     }
@@ -0,0 +1,211 @@
+package com.knowledgegraph.config;
+
+import com.knowledgegraph.model.EdgeType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Centralized configuration for graph traversal and analytics
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "graph")
+public class GraphConfig {
+
+    private Snapshot snapshot = new Snapshot();
+    private Traversal traversal = new Traversal();
+    private NeighborhoodCache neighborhoodCache = new NeighborhoodCache();
+    private Subgraph subgraph = new Subgraph();
+    private Export export = new Export();
+    private Paths paths = new Paths();
+    private Components components = new Components();
+    private Analytics analytics = new Analytics();
+    private Communities communities = new Communities();
+    private Related related = new Related();
+    private Embeddings embeddings = new Embeddings();
+    private Stats stats = new Stats();
+    private History history = new History();
+    private Reachability reachability = new Reachability();
+    private Supernodes supernodes = new Supernodes();
+    private Compressed compressed = new Compressed();
+    private Query query = new Query();
+
+    @Data
+    public static class Snapshot {
+        private boolean enabled = true;
+        private int fetchSize = 10000;
+        private long refreshIntervalMs = 300000; // 5 minutes
+        private String file = "./data/graph-snapshot.bin";  // mapped snapshot file; empty keeps snapshots on the heap
+        private boolean verifyChecksum = true;  // check the file's data checksum when restoring at startup
+        private int maxReplayChanges = 1000000;  // more changes since the file was written trigger a full build
+        private long replayOverlapMs = 60000;  // replay changes from this long before the file's scan began
+    }
+
+    @Data
+    public static class Traversal {
+        private int maxHops = 3;
+        private int maxNodes = 5000;  // default and ceiling for the neighborhood node budget
+        private int maxSeeds = 1000;  // seeds accepted by one batched neighborhood request
+    }
+
+    @Data
+    public static class NeighborhoodCache {
+        private long ttlSeconds = 21600;  // 6 hours; changes evict entries precisely
+        private long maxSize = 5000;
+    }
+
+    @Data
+    public static class Subgraph {
+        private int maxNodes = 1000;            // /graph/subgraph, answered as one JSON document
+        private int maxStreamedNodes = 100000;  // /graph/subgraph/stream, answered as NDJSON
+        private int fetchSize = 1000;
+    }
+
+    @Data
+    public static class Export {
+        private int fetchSize = 10000;  // rows per cursor round trip
+    }
+
+    @Data
+    public static class Paths {
+        private int maxExpansions = 200000;
+        private int maxK = 20;
+        private int maxLength = 8;
+        private long timeoutMs = 2000;
+        private double heuristicWeight = 0.5;     // estimate = cheapest edge cost * min(1, weight * (1 - cosine))
+        private int heuristicBatchSize = 2000;    // node vectors fetched per A* round trip
+        private double defaultEdgeCost = 1.0;
+        private Map<EdgeType, Double> edgeTypeCosts = new HashMap<>();
+        private int maxRegularResults = 1000;      // matches streamed by one regular path query
+        private int maxAutomatonStates = 256;      // states of a compiled path expression
+    }
+
+    @Data
+    public static class Components {
+        private boolean enabled = true;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int writeBatchSize = 10000;
+        private long incrementalIntervalMs = 10000;
+        private long overlapMs = 60000;           // re-scan window for edges committed late
+        private int maxIncrementalEdges = 100000; // beyond this a full relabel is cheaper
+        private String relabelCron = "0 0 3 * * *";
+        private int maxPageSize = 1000;
+    }
+
+    @Data
+    public static class Analytics {
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int writeBatchSize = 10000;
+        private double damping = 0.85;
+        private double tolerance = 1e-6;          // L1 change between iterations
+        private int maxIterations = 100;
+        private int personalizedMaxIterations = 30;
+        private String pagerankCron = "0 30 3 * * *";
+        private double betweennessEpsilon = 0.05;  // additive error on normalized betweenness
+        private double betweennessDelta = 0.1;     // probability of exceeding it
+        private int betweennessMaxSamples = 2000;
+        private long betweennessTimeoutMs = 600000;
+        private String betweennessCron = "0 0 4 * * *";
+    }
+
+    @Data
+    public static class Communities {
+        private int maxIterations = 20;
+        private double minChangeFraction = 0.001;  // stop when fewer nodes change label per sweep
+        private boolean useConfidence = true;
+        private double defaultEdgeWeight = 1.0;
+        private Map<EdgeType, Double> edgeTypeWeights = new HashMap<>();
+        private String cron = "0 30 4 * * *";
+        private int maxPageSize = 1000;
+    }
+
+    @Data
+    public static class Related {
+        private double alpha = 0.15;
+        private double epsilon = 1e-4;
+        private int maxPushes = 100000;
+        private long timeoutMs = 100;
+        private int maxLimit = 100;
+        private long cacheTtlSeconds = 600;  // 10 minutes
+    }
+
+    @Data
+    public static class Embeddings {
+        private int dimensions = 64;
+        private int walkLength = 40;
+        private int walksPerNode = 10;
+        private int windowSize = 5;
+        private int negativeSamples = 5;
+        private double returnParameter = 1.0;   // node2vec p
+        private double inOutParameter = 1.0;    // node2vec q
+        private double learningRate = 0.025;
+        private long timeoutMs = 1800000;       // 30 minutes
+        private int writeBatchSize = 5000;
+        private String cron = "0 0 5 * * *";
+        private double structuralWeight = 0.5;  // default blend for hybrid similarity
+        private int similarCandidates = 100;    // nearest nodes taken from each model before blending
+    }
+
+    @Data
+    public static class Stats {
+        private long checkpointIntervalMs = 60000;  // 1 minute
+        private String reconcileCron = "0 15 * * * *";
+    }
+
+    @Data
+    public static class History {
+        private int retentionDays = 0;          // 0 keeps replaced and deleted versions forever
+        private String purgeCron = "0 30 4 * * *";
+    }
+
+    @Data
+    public static class Reachability {
+        private boolean enabled = true;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int maxLandmarks = 0;               // 0 uses every node; fewer leaves more pairs to a search
+        private long maxLabelEntries = 50000000;    // 4 bytes each
+        private long buildTimeoutMs = 600000;
+        private int maxHops = 32;
+        private int maxBatchPairs = 10000;
+        private long incrementalIntervalMs = 10000;
+        private long overlapMs = 60000;             // re-scan window for edges committed late
+        private int maxIncrementalEdges = 10000;    // beyond this a rebuild is cheaper
+        private String rebuildCron = "0 45 3 * * *";
+    }
+
+    @Data
+    public static class Supernodes {
+        private int degreeThreshold = 1000;         // edges in both directions
+        private int pageSize = 100;
+        private int maxPageSize = 1000;
+        private int defaultFanOut = 100;            // per-hub cap in traversals that set no fanOut
+        private long incrementalIntervalMs = 10000;
+        private long overlapMs = 60000;             // re-scan window for edges committed late
+        private int maxIncrementalEdges = 100000;   // beyond this a full recount is cheaper
+        private String recountCron = "0 15 3 * * *";
+    }
+
+    @Data
+    public static class Compressed {
+        private boolean enabled = false;
+        private String file = "./data/graph-compressed.bin";
+        private boolean verifyChecksum = false;     // reads the whole file at startup
+        private boolean reorder = true;             // renumber nodes in BFS order; smaller gaps, one more pass
+        private long cacheEntries = 10000000;       // neighbors kept decoded for hub nodes, 4 bytes each
+        private int cacheMinDegree = 64;            // shortest neighbor list worth caching decoded
+        private String rebuildCron = "0 0 2 * * *";
+    }
+
+    @Data
+    public static class Query {
+        private int defaultLimit = 100;             // rows of a pattern query without LIMIT
+        private int maxResults = 1000;
+        private int maxPatternNodes = 16;
+        private long maxExpansions = 10000000;      // candidates and adjacency entries examined
+        private long timeoutMs = 5000;
+    }
+}
@@ -16,6 +16,7 @@ public class IngestionConfig {
     private Upload upload = new Upload();
     private Processing processing = new Processing();
     private Pdf pdf = new Pdf();
+    private Bulk bulk = new Bulk();
     
     @Data
     public static class Upload {
@@ -31,6 +32,16 @@ public class IngestionConfig {
         private int workerThreads = 3;
     }
     
+    @Data
+    public static class Bulk {
+        private long maxFileSize = 10737418240L;     // raw uploads bypass the multipart limit
+        private int copyBufferSize = 65536;
+        private String workMem = "256MB";           // session work_mem while merging staged rows
+        private long deferIndexesMinRows = 100000;  // below this, index maintenance is cheaper than a rebuild
+        private long progressIntervalBytes = 8388608;
+        private int maxReportedErrors = 100;
+    }
+    
     @Data
     public static class Pdf {
         private int chunkSize = 1000;
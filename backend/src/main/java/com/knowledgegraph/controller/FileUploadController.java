@@ -1,5 +1,7 @@
 package com.knowledgegraph.controller;
 
+import com.knowledgegraph.config.IngestionConfig;
+import com.knowledgegraph.dto.BulkImportOptions;
 import com.knowledgegraph.dto.FileUploadResponse;
 import com.knowledgegraph.dto.IngestionJob;
 import com.knowledgegraph.service.FileStorageService;
@@ -7,12 +9,16 @@ import com.knowledgegraph.service.IngestionJobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FilenameUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +33,7 @@ public class FileUploadController {
 
     private final FileStorageService fileStorageService;
     private final IngestionJobService ingestionJobService;
+    private final IngestionConfig ingestionConfig;
 
     @PostMapping("/upload")
     public ResponseEntity<FileUploadResponse> uploadFile(
@@ -106,6 +113,79 @@ public class FileUploadController {
         );
     }
 
+    /**
+     * Bulk load nodes, edges or embeddings from a CSV or NDJSON request body, e.g.
+     * curl --data-binary @nodes.csv -H 'Content-Type: text/csv' '/files/bulk-import?kind=NODES'.
+     * The body is sent raw rather than as multipart so multi-gigabyte files stream to disk.
+     */
+    @PostMapping("/bulk-import")
+    public ResponseEntity<FileUploadResponse> bulkImport(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(defaultValue = "NODES") BulkImportOptions.Kind kind,
+            @RequestParam(required = false) BulkImportOptions.Format format,
+            @RequestParam(defaultValue = "false") boolean deferIndexes,
+            @RequestParam(defaultValue = "bulk-import") String fileName) {
+        
+        BulkImportOptions.Format resolvedFormat = format != null ? format
+            : contentType != null && contentType.contains("ndjson") ? BulkImportOptions.Format.NDJSON
+            : BulkImportOptions.Format.CSV;
+        BulkImportOptions options = BulkImportOptions.builder()
+                .kind(kind)
+                .format(resolvedFormat)
+                .deferIndexes(deferIndexes)
+                .build();
+        log.info("Received bulk import request: {} {} {}", fileName, kind, resolvedFormat);
+        
+        try {
+            String storedFilePath = fileStorageService.storeStream(body,
+                resolvedFormat.name().toLowerCase(), ingestionConfig.getBulk().getMaxFileSize());
+            long fileSize = Files.size(Path.of(storedFilePath));
+            
+            IngestionJob job = ingestionJobService.createJob(
+                IngestionJob.JobType.BULK_IMPORT,
+                fileName,
+                storedFilePath,
+                contentType,
+                fileSize,
+                Map.of(BulkImportOptions.METADATA_KEY, options)
+            );
+            
+            return ResponseEntity.ok(FileUploadResponse.builder()
+                    .fileId(UUID.randomUUID())
+                    .fileName(fileName)
+                    .contentType(contentType)
+                    .fileSize(fileSize)
+                    .status("UPLOADED")
+                    .uploadedAt(LocalDateTime.now())
+                    .message("File uploaded successfully and queued for bulk import")
+                    .storagePath(storedFilePath)
+                    .jobId(job.getJobId())
+                    .build());
+            
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid bulk import: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(
+                FileUploadResponse.builder()
+                    .fileName(fileName)
+                    .status("FAILED")
+                    .message(e.getMessage())
+                    .uploadedAt(LocalDateTime.now())
+                    .build()
+            );
+        } catch (IOException e) {
+            log.error("Error storing bulk import: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                FileUploadResponse.builder()
+                    .fileName(fileName)
+                    .status("ERROR")
+                    .message("Failed to store file: " + e.getMessage())
+                    .uploadedAt(LocalDateTime.now())
+                    .build()
+            );
+        }
+    }
+
     @GetMapping("/jobs")
     public ResponseEntity<List<IngestionJob>> getAllJobs() {
         return ResponseEntity.ok(ingestionJobService.getAllJobs());
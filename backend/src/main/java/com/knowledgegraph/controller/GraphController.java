@@ -1,15 +1,49 @@
 package com.knowledgegraph.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.dto.CommunityDTO;
+import com.knowledgegraph.dto.CommunityLinkDTO;
+import com.knowledgegraph.dto.ConnectedComponentDTO;
+import com.knowledgegraph.dto.ExportFormat;
 import com.knowledgegraph.dto.GraphNeighborhoodDTO;
+import com.knowledgegraph.dto.NeighborhoodQuery;
+import com.knowledgegraph.dto.NodePair;
+import com.knowledgegraph.dto.PatternMatchDTO;
+import com.knowledgegraph.dto.PatternQueryRequest;
+import com.knowledgegraph.dto.ReachabilityDTO;
+import com.knowledgegraph.dto.SupernodeDTO;
+import com.knowledgegraph.dto.WeightedPathDTO;
+import com.knowledgegraph.graph.CentralityMeasure;
+import com.knowledgegraph.graph.NeighborRanking;
+import com.knowledgegraph.graph.PathCostMode;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import com.knowledgegraph.service.CommunityService;
+import com.knowledgegraph.service.ConnectedComponentService;
+import com.knowledgegraph.service.GraphAnalyticsService;
+import com.knowledgegraph.service.GraphExportService;
+import com.knowledgegraph.service.GraphHistoryService;
+import com.knowledgegraph.service.GraphStatisticsService;
 import com.knowledgegraph.service.GraphTraversalService;
+import com.knowledgegraph.service.PatternQueryService;
+import com.knowledgegraph.service.ReachabilityService;
+import com.knowledgegraph.service.SupernodeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
 import java.util.*;
 
 @RestController
@@ -20,94 +54,448 @@ import java.util.*;
 public class GraphController {
     
     private final GraphTraversalService graphTraversalService;
+    private final ConnectedComponentService connectedComponentService;
+    private final GraphAnalyticsService graphAnalyticsService;
+    private final CommunityService communityService;
+    private final GraphStatisticsService graphStatisticsService;
+    private final GraphExportService graphExportService;
+    private final GraphHistoryService graphHistoryService;
+    private final ReachabilityService reachabilityService;
+    private final SupernodeService supernodeService;
+    private final PatternQueryService patternQueryService;
+    private final ObjectMapper objectMapper;
     
     @GetMapping("/neighborhood/{nodeId}")
     @Operation(summary = "Get node neighborhood", 
-               description = "Retrieve n-hop neighborhood around a node")
+               description = "Retrieve n-hop neighborhood around a node, optionally capped per node and "
+                   + "filtered by type. Truncation counts tell the UI where more neighbors can be expanded.")
     public ResponseEntity<GraphNeighborhoodDTO> getNeighborhood(
             @Parameter(description = "Center node ID") 
             @PathVariable UUID nodeId,
             
-            @Parameter(description = "Number of hops (1-3)") 
-            @RequestParam(defaultValue = "1") int hops) {
+            @Parameter(description = "Number of hops (1 to graph.traversal.max-hops, default limit 3)") 
+            @RequestParam(defaultValue = "1") int hops,
+            
+            @Parameter(description = "Max new edges followed per node and hop (no cap if omitted)")
+            @RequestParam(required = false) Integer fanOut,
+            
+            @Parameter(description = "Which neighbors a fan-out cap keeps: CONFIDENCE or DEGREE")
+            @RequestParam(defaultValue = "CONFIDENCE") NeighborRanking rankBy,
+            
+            @RequestParam(required = false) Set<EdgeType> edgeTypes,
+            @RequestParam(required = false) Set<EdgeType> excludeEdgeTypes,
+            @RequestParam(required = false) Set<NodeType> nodeTypes,
+            @RequestParam(required = false) Set<NodeType> excludeNodeTypes,
+            
+            @Parameter(description = "Total node budget (default and ceiling graph.traversal.max-nodes)")
+            @RequestParam(required = false) Integer maxNodes,
+            
+            @Parameter(description = "Expand the graph as it was at this ISO-8601 instant")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf) {
         
         log.info("Getting {}-hop neighborhood for node: {}", hops, nodeId);
         
-        GraphNeighborhoodDTO neighborhood = graphTraversalService.getNeighborhood(nodeId, hops);
+        NeighborhoodQuery query = NeighborhoodQuery.builder()
+            .hops(hops)
+            .fanOut(fanOut)
+            .rankBy(rankBy)
+            .edgeTypes(edgeTypes)
+            .excludeEdgeTypes(excludeEdgeTypes)
+            .nodeTypes(nodeTypes)
+            .excludeNodeTypes(excludeNodeTypes)
+            .maxNodes(maxNodes)
+            .asOf(asOf != null ? asOf.toInstant() : null)
+            .build();
+        GraphNeighborhoodDTO neighborhood = graphTraversalService.getNeighborhood(nodeId, query);
         
         return ResponseEntity.ok(neighborhood);
     }
     
+    @PostMapping("/neighborhood")
+    @Operation(summary = "Get merged neighborhood of several nodes", 
+               description = "Expand many seed nodes (up to graph.traversal.max-seeds) in one multi-source BFS. "
+                   + "Nodes shared by several seeds are expanded once; each node is tagged with its nearest seed "
+                   + "and hop distance. Caps, filters and the node budget apply to the merged graph.")
+    public ResponseEntity<GraphNeighborhoodDTO> getNeighborhood(
+            @RequestBody List<UUID> seedIds,
+            
+            @Parameter(description = "Number of hops (1 to graph.traversal.max-hops, default limit 3)") 
+            @RequestParam(defaultValue = "1") int hops,
+            
+            @Parameter(description = "Max new edges followed per node and hop (no cap if omitted)")
+            @RequestParam(required = false) Integer fanOut,
+            
+            @Parameter(description = "Which neighbors a fan-out cap keeps: CONFIDENCE or DEGREE")
+            @RequestParam(defaultValue = "CONFIDENCE") NeighborRanking rankBy,
+            
+            @RequestParam(required = false) Set<EdgeType> edgeTypes,
+            @RequestParam(required = false) Set<EdgeType> excludeEdgeTypes,
+            @RequestParam(required = false) Set<NodeType> nodeTypes,
+            @RequestParam(required = false) Set<NodeType> excludeNodeTypes,
+            
+            @Parameter(description = "Total node budget, seeds included (default and ceiling graph.traversal.max-nodes)")
+            @RequestParam(required = false) Integer maxNodes,
+            
+            @Parameter(description = "Expand the graph as it was at this ISO-8601 instant")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf) {
+        
+        log.info("Getting {}-hop neighborhood for {} seeds", hops, seedIds.size());
+        
+        NeighborhoodQuery query = NeighborhoodQuery.builder()
+            .hops(hops)
+            .fanOut(fanOut)
+            .rankBy(rankBy)
+            .edgeTypes(edgeTypes)
+            .excludeEdgeTypes(excludeEdgeTypes)
+            .nodeTypes(nodeTypes)
+            .excludeNodeTypes(excludeNodeTypes)
+            .maxNodes(maxNodes)
+            .asOf(asOf != null ? asOf.toInstant() : null)
+            .build();
+        
+        return ResponseEntity.ok(graphTraversalService.getNeighborhood(seedIds, query));
+    }
+    
     @GetMapping("/path")
     @Operation(summary = "Find path between nodes", 
-               description = "Find shortest path between two nodes")
+               description = "Find shortest path between two nodes, optionally over the graph as it was at an instant")
     public ResponseEntity<Map<String, Object>> findPath(
             @RequestParam UUID from,
             @RequestParam UUID to,
-            @RequestParam(defaultValue = "5") int maxHops) {
+            @RequestParam(defaultValue = "5") int maxHops,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf) {
         
-        log.info("Finding path from {} to {} (max {} hops)", from, to, maxHops);
+        log.info("Finding path from {} to {} (max {} hops, as of {})", from, to, maxHops, asOf);
         
-        List<UUID> path = graphTraversalService.findShortestPath(from, to, maxHops);
+        List<UUID> path = graphTraversalService.findShortestPath(from, to, maxHops,
+            asOf != null ? asOf.toInstant() : null);
         
-        return ResponseEntity.ok(Map.of(
+        Map<String, Object> result = new HashMap<>(Map.of(
             "from", from,
             "to", to,
             "path", path,
             "distance", path.isEmpty() ? -1 : path.size() - 1,
             "found", !path.isEmpty()
         ));
+        if (asOf != null) {
+            result.put("asOf", asOf.toInstant());
+        }
+        return ResponseEntity.ok(result);
+    }
+    
+    @GetMapping("/path/weighted")
+    @Operation(summary = "Find weighted path between nodes", 
+               description = "Find the cheapest path using edge confidence or edge-type costs, optionally guided by embedding distance (A*)")
+    public ResponseEntity<WeightedPathDTO> findWeightedPath(
+            @RequestParam UUID from,
+            @RequestParam UUID to,
+            
+            @Parameter(description = "Cost model: HOPS, CONFIDENCE or EDGE_TYPE") 
+            @RequestParam(defaultValue = "CONFIDENCE") PathCostMode mode,
+            
+            @Parameter(description = "Use embedding distance to the target as A* heuristic (no effect for CONFIDENCE, where edges may cost 0)") 
+            @RequestParam(defaultValue = "false") boolean heuristic) {
+        
+        log.info("Finding {} path from {} to {} (heuristic: {})", mode, from, to, heuristic);
+        
+        return ResponseEntity.ok(graphTraversalService.findWeightedPath(from, to, mode, heuristic));
+    }
+    
+    @GetMapping(value = "/paths", produces = "application/x-ndjson")
+    @Operation(summary = "Find top-k paths between nodes", 
+               description = "Stream up to k loopless paths in order of increasing cost as NDJSON, one path per line, followed by a summary line")
+    public ResponseEntity<StreamingResponseBody> findKShortestPaths(
+            @RequestParam UUID from,
+            @RequestParam UUID to,
+            
+            @Parameter(description = "Number of paths") 
+            @RequestParam(defaultValue = "3") int k,
+            
+            @Parameter(description = "Cost model: HOPS, CONFIDENCE or EDGE_TYPE") 
+            @RequestParam(defaultValue = "HOPS") PathCostMode mode,
+            
+            @Parameter(description = "Only follow edges of these types") 
+            @RequestParam(required = false) Set<EdgeType> edgeTypes,
+            
+            @Parameter(description = "Maximum path length in edges (capped by graph.paths.max-length)") 
+            @RequestParam(required = false) Integer maxLength) {
+        
+        log.info("Finding top-{} {} paths from {} to {}", k, mode, from, to);
+        
+        GraphTraversalService.PathEnumeration enumeration =
+            graphTraversalService.prepareKShortestPaths(from, to, k, mode, edgeTypes, maxLength);
+        
+        StreamingResponseBody body = out -> {
+            Map<String, Object> summary = enumeration.stream(path -> writeLine(out, path));
+            writeLine(out, summary);
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
+    }
+    
+    @GetMapping(value = "/paths/regular", produces = "application/x-ndjson")
+    @Operation(summary = "Find paths matching an edge-type expression", 
+               description = "Stream, as NDJSON, every node reachable from a node along a walk whose edge types match a "
+                   + "regular path expression, e.g. WORKS_AT/LOCATED_IN or CITES+, nearest first with one shortest "
+                   + "matching walk each, followed by a summary line")
+    public ResponseEntity<StreamingResponseBody> findRegularPaths(
+            @RequestParam UUID from,
+            
+            @Parameter(description = "Edge types joined by / (then) and | (or), with *, +, ?, {m,n} and parentheses; "
+                + "^TYPE follows an edge backwards, ~TYPE either way, _ is any type. URL-encode + as %2B") 
+            @RequestParam String expression,
+            
+            @Parameter(description = "Only look for walks ending at this node") 
+            @RequestParam(required = false) UUID to,
+            
+            @Parameter(description = "Maximum matches (capped by graph.paths.max-regular-results)") 
+            @RequestParam(required = false) Integer limit,
+            
+            @Parameter(description = "Maximum walk length in edges (capped by graph.paths.max-length)") 
+            @RequestParam(required = false) Integer maxLength) {
+        
+        log.info("Finding paths matching {} from {}", expression, from);
+        
+        GraphTraversalService.PathEnumeration enumeration =
+            graphTraversalService.prepareRegularPaths(from, expression, to, limit, maxLength);
+        
+        StreamingResponseBody body = out -> {
+            Map<String, Object> summary = enumeration.stream(path -> writeLine(out, path));
+            writeLine(out, summary);
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
+    }
+    
+    @PostMapping("/query")
+    @Operation(summary = "Match a graph pattern", 
+               description = "Run a Cypher-like MATCH ... [WHERE ...] [RETURN ...] [LIMIT n] pattern against the graph "
+                   + "and return the matching rows with the query plan (estimated and actual rows per step)")
+    public ResponseEntity<PatternMatchDTO> matchPattern(
+            @RequestBody PatternQueryRequest request,
+            
+            @Parameter(description = "Only plan the query and return the plan, without running it") 
+            @RequestParam(defaultValue = "false") boolean explain) {
+        
+        log.info("Pattern query{}: {}", explain ? " (explain)" : "", request.getQuery());
+        
+        return ResponseEntity.ok(patternQueryService.query(request.getQuery(), explain));
     }
     
     @PostMapping("/subgraph")
     @Operation(summary = "Extract subgraph", 
-               description = "Extract subgraph for given node IDs")
+               description = "Extract subgraph for given node IDs (up to graph.subgraph.max-nodes)")
     public ResponseEntity<GraphNeighborhoodDTO> extractSubgraph(@RequestBody Set<UUID> nodeIds) {
         log.info("Extracting subgraph for {} nodes", nodeIds.size());
         
-        if (nodeIds.isEmpty() || nodeIds.size() > 100) {
-            throw new IllegalArgumentException("Node count must be between 1 and 100");
-        }
-        
         return ResponseEntity.ok(graphTraversalService.extractSubgraph(nodeIds));
     }
     
+    @PostMapping(value = "/subgraph/stream", produces = "application/x-ndjson")
+    @Operation(summary = "Stream subgraph", 
+               description = "Stream the subgraph for a large selection as NDJSON: one {\"node\": ...} line per node, "
+                   + "then one {\"edge\": ...} line per edge, followed by a summary line")
+    public ResponseEntity<StreamingResponseBody> streamSubgraph(@RequestBody Set<UUID> nodeIds) {
+        log.info("Streaming subgraph for {} nodes", nodeIds.size());
+        
+        GraphTraversalService.SubgraphStream subgraph = graphTraversalService.prepareSubgraphStream(nodeIds);
+        
+        StreamingResponseBody body = out -> {
+            Map<String, Object> summary = subgraph.stream(
+                node -> writeLine(out, Map.of("node", node)),
+                edge -> writeLine(out, Map.of("edge", edge)));
+            writeLine(out, summary);
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
+    }
+    
+    @GetMapping("/export")
+    @Operation(summary = "Export the graph", 
+               description = "Stream all nodes and edges, optionally filtered by type, as GraphML, NDJSON or a "
+                   + "compact binary edge list. Rows are read through a database cursor and written as they arrive.")
+    public ResponseEntity<StreamingResponseBody> exportGraph(
+            @Parameter(description = "GRAPHML, NDJSON or EDGELIST (binary)") 
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            
+            @Parameter(description = "Only export nodes of these types, and edges between them") 
+            @RequestParam(required = false) Set<NodeType> nodeTypes,
+            
+            @Parameter(description = "Only export edges of these types") 
+            @RequestParam(required = false) Set<EdgeType> edgeTypes) {
+        
+        log.info("Exporting graph as {} (node types: {}, edge types: {})", format, nodeTypes, edgeTypes);
+        
+        GraphExportService.GraphExport export = graphExportService.prepareExport(format, nodeTypes, edgeTypes);
+        
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(format.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"graph." + format.getExtension() + "\"")
+            .body(export::writeTo);
+    }
+    
     @GetMapping("/component/{nodeId}")
     @Operation(summary = "Get connected component", 
-               description = "Find all nodes in the connected component containing this node")
-    public ResponseEntity<Map<String, Object>> getConnectedComponent(@PathVariable UUID nodeId) {
+               description = "Look up the connected component containing this node, with its size and one page of members")
+    public ResponseEntity<ConnectedComponentDTO> getConnectedComponent(
+            @PathVariable UUID nodeId,
+            
+            @Parameter(description = "Zero-based page of members") 
+            @RequestParam(defaultValue = "0") int page,
+            
+            @Parameter(description = "Members per page (capped by graph.components.max-page-size)") 
+            @RequestParam(defaultValue = "100") int size) {
         log.info("Finding connected component for node: {}", nodeId);
         
-        Set<UUID> component = graphTraversalService.getConnectedComponent(nodeId);
+        return ResponseEntity.ok(connectedComponentService.getComponent(nodeId, page, size));
+    }
+    
+    @GetMapping("/supernodes")
+    @Operation(summary = "List supernodes", 
+               description = "Nodes with at least graph.supernodes.degree-threshold edges, largest first, "
+                   + "with their edge counts per direction and type")
+    public ResponseEntity<List<SupernodeDTO>> getSupernodes(
+            @Parameter(description = "Zero-based page") 
+            @RequestParam(defaultValue = "0") int page,
+            
+            @Parameter(description = "Supernodes per page (capped by graph.supernodes.max-page-size)") 
+            @RequestParam(defaultValue = "50") int size) {
+        log.info("Listing supernodes: page={}, size={}", page, size);
         
-        return ResponseEntity.ok(Map.of(
-            "nodeId", nodeId,
-            "componentSize", component.size(),
-            "nodeIds", component
-        ));
+        return ResponseEntity.ok(supernodeService.listSupernodes(page, size));
+    }
+    
+    @GetMapping("/reachable")
+    @Operation(summary = "Check reachability", 
+               description = "Whether two nodes are connected within maxHops edges, ignoring direction, with their "
+                   + "distance. Answered from the reachability labels where possible, otherwise by a search.")
+    public ResponseEntity<ReachabilityDTO> isReachable(
+            @RequestParam UUID from,
+            @RequestParam UUID to,
+            
+            @Parameter(description = "Hop limit (0 to graph.reachability.max-hops)") 
+            @RequestParam(defaultValue = "5") int maxHops) {
+        log.debug("Checking reachability from {} to {} within {} hops", from, to, maxHops);
+        
+        return ResponseEntity.ok(reachabilityService.isReachable(from, to, maxHops));
+    }
+    
+    @PostMapping("/reachable")
+    @Operation(summary = "Check reachability in batch", 
+               description = "Reachability for many pairs at once (up to graph.reachability.max-batch-pairs), in request order")
+    public ResponseEntity<List<ReachabilityDTO>> areReachable(
+            @RequestBody List<NodePair> pairs,
+            
+            @Parameter(description = "Hop limit (0 to graph.reachability.max-hops)") 
+            @RequestParam(defaultValue = "5") int maxHops) {
+        log.info("Checking reachability for {} pairs within {} hops", pairs.size(), maxHops);
+        
+        return ResponseEntity.ok(reachabilityService.areReachable(pairs, maxHops));
     }
     
     @PostMapping("/centrality")
     @Operation(summary = "Calculate centrality", 
-               description = "Calculate centrality scores for given nodes")
-    public ResponseEntity<Map<UUID, Double>> calculateCentrality(@RequestBody Set<UUID> nodeIds) {
-        log.info("Calculating centrality for {} nodes", nodeIds.size());
+               description = "Centrality scores for given nodes: stored PageRank or betweenness, PageRank personalized to the given set, or neighbor degree")
+    public ResponseEntity<Map<UUID, Double>> calculateCentrality(
+            @RequestBody Set<UUID> nodeIds,
+            
+            @Parameter(description = "PAGERANK, BETWEENNESS, PERSONALIZED_PAGERANK or DEGREE") 
+            @RequestParam(defaultValue = "PAGERANK") CentralityMeasure measure) {
+        log.info("Calculating {} centrality for {} nodes", measure, nodeIds.size());
         
         if (nodeIds.isEmpty() || nodeIds.size() > 1000) {
             throw new IllegalArgumentException("Node count must be between 1 and 1000");
         }
         
-        return ResponseEntity.ok(graphTraversalService.calculateCentrality(nodeIds));
+        return ResponseEntity.ok(graphAnalyticsService.calculateCentrality(nodeIds, measure));
+    }
+    
+    @GetMapping("/centrality/top")
+    @Operation(summary = "Top nodes by centrality", 
+               description = "Nodes with the highest stored PageRank or betweenness, best first")
+    public ResponseEntity<Map<UUID, Double>> getTopCentrality(
+            @Parameter(description = "PAGERANK or BETWEENNESS") 
+            @RequestParam(defaultValue = "PAGERANK") CentralityMeasure measure,
+            
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > 1000) {
+            throw new IllegalArgumentException("Limit must be between 1 and 1000");
+        }
+        
+        return ResponseEntity.ok(graphAnalyticsService.getTopNodes(measure, limit));
+    }
+    
+    @GetMapping("/communities")
+    @Operation(summary = "List communities", 
+               description = "Communities from the latest label propagation run, largest first")
+    public ResponseEntity<List<CommunityDTO>> listCommunities(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(communityService.listCommunities(page, size));
+    }
+    
+    @GetMapping("/communities/{communityId}")
+    @Operation(summary = "Get community", 
+               description = "Community size with one page of its members")
+    public ResponseEntity<CommunityDTO> getCommunity(
+            @PathVariable UUID communityId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(communityService.getCommunity(communityId, page, size));
+    }
+    
+    @GetMapping("/communities/links")
+    @Operation(summary = "Inter-community edges", 
+               description = "Edge counts between pairs of communities, strongest first, optionally for one community")
+    public ResponseEntity<List<CommunityLinkDTO>> getCommunityLinks(
+            @RequestParam(required = false) UUID communityId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(communityService.getLinks(communityId, limit));
+    }
+    
+    @GetMapping("/community/{nodeId}")
+    @Operation(summary = "Get community of node", 
+               description = "The community containing this node, with one page of its members")
+    public ResponseEntity<CommunityDTO> getCommunityOf(
+            @PathVariable UUID nodeId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        log.info("Finding community for node: {}", nodeId);
+        
+        return ResponseEntity.ok(communityService.getCommunityOf(nodeId, page, size));
     }
     
     @GetMapping("/stats")
     @Operation(summary = "Get graph statistics", 
-               description = "Retrieve overall graph statistics and metrics")
-    public ResponseEntity<Map<String, Object>> getGraphStatistics() {
-        log.info("Getting graph statistics");
+               description = "Retrieve overall graph statistics and metrics from incrementally maintained counters, "
+                   + "or counted from the tables as the graph was at asOf")
+    public ResponseEntity<Map<String, Object>> getGraphStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime asOf) {
+        log.info("Getting graph statistics (as of {})", asOf);
         
-        Map<String, Object> stats = graphTraversalService.getGraphStatistics();
+        Map<String, Object> stats = asOf != null
+            ? graphHistoryService.getStatistics(asOf.toInstant())
+            : graphStatisticsService.getStatistics();
         
         return ResponseEntity.ok(stats);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Write one NDJSON line and flush so clients see results as they are produced
+     */
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
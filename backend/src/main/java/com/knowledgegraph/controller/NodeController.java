@@ -1,14 +1,19 @@
 package com.knowledgegraph.controller;
 
+import com.knowledgegraph.config.GraphConfig;
 import com.knowledgegraph.dto.NodeDetailDTO;
+import com.knowledgegraph.dto.NodeEdgesDTO;
 import com.knowledgegraph.dto.SearchResultDTO;
 import com.knowledgegraph.model.Edge;
+import com.knowledgegraph.model.EdgeType;
 import com.knowledgegraph.model.Embedding;
 import com.knowledgegraph.model.Node;
 import com.knowledgegraph.model.NodeType;
 import com.knowledgegraph.repository.EdgeRepository;
 import com.knowledgegraph.repository.EmbeddingRepository;
 import com.knowledgegraph.repository.NodeRepository;
+import com.knowledgegraph.service.RelatedNodesService;
+import com.knowledgegraph.service.SupernodeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -36,6 +41,9 @@ public class NodeController {
     private final NodeRepository nodeRepository;
     private final EdgeRepository edgeRepository;
     private final EmbeddingRepository embeddingRepository;
+    private final RelatedNodesService relatedNodesService;
+    private final SupernodeService supernodeService;
+    private final GraphConfig graphConfig;
     
     @GetMapping("/{id}")
     @Operation(summary = "Get node details", 
@@ -111,25 +119,45 @@ public class NodeController {
     
     @GetMapping("/{id}/related")
     @Operation(summary = "Get related nodes", 
-               description = "Find nodes connected to this node")
+               description = "Find the nodes most related to this node across several hops, ranked by personalized PageRank")
     public ResponseEntity<List<SearchResultDTO>> getRelatedNodes(
             @PathVariable UUID id,
             
-            @Parameter(description = "Maximum number of related nodes") 
+            @Parameter(description = "Maximum number of related nodes (up to graph.related.max-limit)") 
             @RequestParam(defaultValue = "10") int limit) {
         
         log.info("Getting related nodes for: {}, limit={}", id, limit);
         
+        int maxLimit = graphConfig.getRelated().getMaxLimit();
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxLimit);
+        }
+        
         Node node = nodeRepository.findById(id)
             .orElseThrow(() -> new ResponseStatusException(
                 HttpStatus.NOT_FOUND, "Node not found: " + id
             ));
         
-        List<Node> connectedNodes = nodeRepository.findConnectedNodes(id);
+        Map<UUID, Double> ranking = relatedNodesService.getRelatedNodes(id);
+        if (ranking.isEmpty()) {
+            // Not in the snapshot yet: direct neighbors, unranked
+            return ResponseEntity.ok(nodeRepository.findConnectedNodes(id).stream()
+                .limit(limit)
+                .map(this::convertToSearchResult)
+                .collect(Collectors.toList()));
+        }
         
-        List<SearchResultDTO> related = connectedNodes.stream()
-            .limit(limit)
-            .map(this::convertToSearchResult)
+        List<UUID> topIds = ranking.keySet().stream().limit(limit).collect(Collectors.toList());
+        Map<UUID, Node> nodesById = nodeRepository.findAllById(topIds).stream()
+            .collect(Collectors.toMap(Node::getId, related -> related));
+        
+        List<SearchResultDTO> related = topIds.stream()
+            .filter(nodesById::containsKey)
+            .map(relatedId -> {
+                SearchResultDTO result = convertToSearchResult(nodesById.get(relatedId));
+                result.setScore(ranking.get(relatedId));
+                return result;
+            })
             .collect(Collectors.toList());
         
         return ResponseEntity.ok(related);
@@ -137,26 +165,58 @@ public class NodeController {
     
     @GetMapping("/{id}/edges")
     @Operation(summary = "Get node edges", 
-               description = "Get all edges connected to this node")
-    public ResponseEntity<Map<String, List<NodeDetailDTO.EdgeDTO>>> getNodeEdges(
-            @PathVariable UUID id) {
+               description = "Get the edges connected to this node. Supernodes (graph.supernodes.degree-threshold) "
+                   + "return one page per direction with per-type counts; follow a cursor with its direction "
+                   + "for more, optionally restricted to one edge type.")
+    public ResponseEntity<NodeEdgesDTO> getNodeEdges(
+            @PathVariable UUID id,
+            
+            @Parameter(description = "Only this direction: outgoing or incoming") 
+            @RequestParam(required = false) String direction,
+            
+            @Parameter(description = "Only edges of this type") 
+            @RequestParam(required = false) EdgeType type,
+            
+            @Parameter(description = "Next-page cursor returned for the given direction") 
+            @RequestParam(required = false) String cursor,
+            
+            @Parameter(description = "Edges per direction (up to graph.supernodes.max-page-size); "
+                + "defaults to graph.supernodes.page-size for supernodes") 
+            @RequestParam(required = false) Integer size) {
         
         log.info("Getting edges for node: {}", id);
         
-        Node node = nodeRepository.findById(id)
-            .orElseThrow(() -> new ResponseStatusException(
-                HttpStatus.NOT_FOUND, "Node not found: " + id
-            ));
-        
-        List<Edge> outgoingEdges = edgeRepository.findBySourceId(id);
-        List<Edge> incomingEdges = edgeRepository.findByTargetId(id);
+        if (!nodeRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Node not found: " + id);
+        }
+        if (direction != null && !SupernodeService.OUTGOING.equals(direction)
+                && !SupernodeService.INCOMING.equals(direction)) {
+            throw new IllegalArgumentException("Direction must be outgoing or incoming");
+        }
+        if (cursor != null && direction == null) {
+            throw new IllegalArgumentException("A cursor needs the direction it was returned for");
+        }
         
-        Map<String, List<NodeDetailDTO.EdgeDTO>> edges = Map.of(
-            "outgoing", convertEdges(outgoingEdges, "outgoing"),
-            "incoming", convertEdges(incomingEdges, "incoming")
-        );
+        GraphConfig.Supernodes limits = graphConfig.getSupernodes();
+        boolean supernode = supernodeService.isSupernode(id);
+        // Other nodes are below the threshold, so one page of that size normally holds all their edges
+        int pageSize = Optional.ofNullable(size)
+            .orElse(supernode ? limits.getPageSize() : Math.min(limits.getDegreeThreshold(), limits.getMaxPageSize()));
+        
+        NodeEdgesDTO.NodeEdgesDTOBuilder edges = NodeEdgesDTO.builder()
+            .nodeId(id)
+            .supernode(supernode)
+            .edgeCounts(supernode ? supernodeService.getEdgeCounts(id) : null);
+        if (direction == null || SupernodeService.OUTGOING.equals(direction)) {
+            SupernodeService.EdgePage page = supernodeService.getEdges(id, SupernodeService.OUTGOING, type, cursor, pageSize);
+            edges.outgoing(page.getEdges()).outgoingCursor(page.getNextCursor());
+        }
+        if (direction == null || SupernodeService.INCOMING.equals(direction)) {
+            SupernodeService.EdgePage page = supernodeService.getEdges(id, SupernodeService.INCOMING, type, cursor, pageSize);
+            edges.incoming(page.getEdges()).incomingCursor(page.getNextCursor());
+        }
         
-        return ResponseEntity.ok(edges);
+        return ResponseEntity.ok(edges.build());
     }
     
     @PostMapping
@@ -218,6 +278,10 @@ public class NodeController {
      * Build complete node details DTO
      */
     private NodeDetailDTO buildNodeDetails(Node node) {
+        if (supernodeService.isSupernode(node.getId())) {
+            return buildSupernodeDetails(node);
+        }
+        
         List<Edge> outgoingEdges = edgeRepository.findBySourceId(node.getId());
         List<Edge> incomingEdges = edgeRepository.findByTargetId(node.getId());
         
@@ -236,6 +300,38 @@ public class NodeController {
             .embeddings(convertEmbeddings(embeddingRepository.findByNode_Id(node.getId())))
             .totalConnections(outgoingEdges.size() + incomingEdges.size())
             .connectionsByType(countConnectionsByType(outgoingEdges))
+            .edgesPaged(false)
+            .build();
+    }
+    
+    /**
+     * Node details for a supernode: the first page of edges per direction, counts from its buckets
+     */
+    private NodeDetailDTO buildSupernodeDetails(Node node) {
+        int pageSize = graphConfig.getSupernodes().getPageSize();
+        Map<String, Map<String, Long>> counts = supernodeService.getEdgeCounts(node.getId());
+        long total = counts.values().stream()
+            .flatMap(byType -> byType.values().stream())
+            .mapToLong(Long::longValue)
+            .sum();
+        
+        return NodeDetailDTO.builder()
+            .id(node.getId())
+            .type(node.getType())
+            .name(node.getName())
+            .properties(node.getProperties())
+            .sourceUri(node.getSourceUri())
+            .capturedAt(node.getCapturedAt())
+            .createdAt(node.getCreatedAt())
+            .updatedAt(node.getUpdatedAt())
+            .outgoingEdges(supernodeService.getEdges(node.getId(), SupernodeService.OUTGOING, null, null, pageSize).getEdges())
+            .incomingEdges(supernodeService.getEdges(node.getId(), SupernodeService.INCOMING, null, null, pageSize).getEdges())
+            .citations(buildCitations(node))
+            .embeddings(convertEmbeddings(embeddingRepository.findByNode_Id(node.getId())))
+            .totalConnections((int) Math.min(total, Integer.MAX_VALUE))
+            .connectionsByType(counts.get(SupernodeService.OUTGOING).entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().intValue())))
+            .edgesPaged(true)
             .build();
     }
     
@@ -1,6 +1,7 @@
 package com.knowledgegraph.controller;
 
 import com.knowledgegraph.dto.SearchResponseDTO;
+import com.knowledgegraph.dto.SimilarityMode;
 import com.knowledgegraph.model.NodeType;
 import com.knowledgegraph.service.HybridSearchService;
 import com.knowledgegraph.service.SearchService;
@@ -120,13 +121,17 @@ public class SearchController {
     
     @GetMapping("/similar/{nodeId}")
     @Operation(summary = "Find similar nodes", 
-               description = "Find nodes similar to a given node using vector similarity")
+               description = "Find nodes similar to a given node by text embeddings, graph-structure embeddings or a blend of both")
     public ResponseEntity<SearchResponseDTO> findSimilar(
             @PathVariable UUID nodeId,
-            @RequestParam(defaultValue = "10") int limit) {
-        
-        log.info("Find similar to node: {}, limit={}", nodeId, limit);
-        return ResponseEntity.ok(vectorSearchService.findSimilarNodes(nodeId, limit));
+            @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "SEMANTIC (text), STRUCTURAL (graph position) or HYBRID")
+            @RequestParam(defaultValue = "SEMANTIC") SimilarityMode mode,
+            @Parameter(description = "Weight of structural similarity in HYBRID mode, 0 to 1")
+            @RequestParam(required = false) Double structuralWeight) {
+        
+        log.info("Find similar to node: {}, limit={}, mode={}", nodeId, limit, mode);
+        return ResponseEntity.ok(vectorSearchService.findSimilarNodes(nodeId, limit, mode, structuralWeight));
     }
     
     @GetMapping("/suggest")
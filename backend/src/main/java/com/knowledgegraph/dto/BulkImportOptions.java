@@ -0,0 +1,43 @@
+package com.knowledgegraph.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Options of a bulk import job, kept in the job metadata under {@link #METADATA_KEY}
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportOptions {
+
+    public static final String METADATA_KEY = "bulkImport";
+
+    public enum Kind {
+        NODES,
+        EDGES,
+        EMBEDDINGS
+    }
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * What CSV rows and unwrapped NDJSON lines contain; NDJSON lines wrapped as
+     * {"node": ...}, {"edge": ...} or {"embedding": ...} (as written by the export) say so themselves
+     */
+    private Kind kind;
+
+    private Format format;
+
+    /**
+     * Drop secondary indexes the merge does not probe and rebuild them once at the end.
+     * Holds an exclusive lock on the tables until the import commits.
+     */
+    private boolean deferIndexes;
+}
@@ -0,0 +1,25 @@
+package com.knowledgegraph.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CommunityDTO {
+    private UUID communityId;
+    private long size;
+    
+    // Member page, only for membership lookups
+    private Integer page;
+    private Integer pageSize;
+    private List<UUID> nodeIds;
+}
@@ -0,0 +1,19 @@
+package com.knowledgegraph.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommunityLinkDTO {
+    private UUID sourceCommunityId;
+    private UUID targetCommunityId;
+    private long edgeCount;
+    private double weight;          // summed edge weights used for detection
+}
@@ -0,0 +1,23 @@
+package com.knowledgegraph.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectedComponentDTO {
+    private UUID nodeId;
+    private UUID componentId;       // null when the node has no persisted label yet
+    private long componentSize;
+    private int page;
+    private int size;
+    private List<UUID> nodeIds;     // members on this page, ordered by id
+    private boolean labelled;       // false if computed on the fly by traversal
+}
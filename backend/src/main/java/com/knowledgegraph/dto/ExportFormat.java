@@ -0,0 +1,18 @@
+package com.knowledgegraph.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Output formats of the streaming graph export
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    GRAPHML("application/graphml+xml", "graphml"),
+    NDJSON("application/x-ndjson", "ndjson"),
+    EDGELIST("application/octet-stream", "kgel");   // binary edge list over dense node numbers
+
+    private final String contentType;
+    private final String extension;
+}
@@ -1,5 +1,6 @@
 package com.knowledgegraph.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,7 +15,9 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 public class GraphNeighborhoodDTO {
-    private UUID centerNodeId;
+    private UUID centerNodeId;              // null for a multi-seed neighborhood
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<UUID> seedIds;             // seeds of a multi-seed neighborhood
     private Integer requestedHops;
     private Integer actualHops;
     private List<GraphNode> nodes;
@@ -22,6 +25,9 @@ public class GraphNeighborhoodDTO {
     private Map<Integer, Integer> nodesPerHop; // hop level -> node count
     private Long totalNodes;
     private Long totalEdges;
+    private boolean truncated;              // some neighbors were left out by a cap
+    private long truncatedByFanOut;         // edges skipped by the per-node fan-out cap
+    private long truncatedByBudget;         // edges skipped because their node would exceed the node budget
     
     @Data
     @Builder
@@ -34,6 +40,10 @@ public class GraphNeighborhoodDTO {
         private Map<String, Object> properties;
         private Integer hopLevel;
         private Double centrality; // betweenness centrality in subgraph
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Integer hiddenEdges; // edges of this node left out by caps, for "expand more"
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private UUID nearestSeedId;  // seed this node was first reached from, in a multi-seed neighborhood
     }
     
     @Data
@@ -32,7 +32,8 @@ public class IngestionJob {
         WEB_SCRAPE,
         TEXT_CHUNK,
         ENTITY_EXTRACT,
-        EMBEDDING_GENERATE
+        EMBEDDING_GENERATE,
+        BULK_IMPORT
     }
     
     private UUID jobId;
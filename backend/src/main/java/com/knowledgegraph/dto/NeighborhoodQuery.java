@@ -0,0 +1,80 @@
+package com.knowledgegraph.dto;
+
+import com.knowledgegraph.graph.NeighborRanking;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Limits and filters for a neighborhood expansion. Empty include sets allow every type.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NeighborhoodQuery {
+    private int hops;
+    private Integer fanOut;                 // max new edges followed per node and hop, null for no cap
+    @Builder.Default
+    private NeighborRanking rankBy = NeighborRanking.CONFIDENCE;
+    private Set<EdgeType> edgeTypes;
+    private Set<EdgeType> excludeEdgeTypes;
+    private Set<NodeType> nodeTypes;
+    private Set<NodeType> excludeNodeTypes;
+    private Integer maxNodes;               // total node budget, null for the configured default
+    private Instant asOf;                   // expand the graph as it was at this instant, null for now
+    
+    public static NeighborhoodQuery ofHops(int hops) {
+        return NeighborhoodQuery.builder().hops(hops).build();
+    }
+    
+    /**
+     * True if any type filter is set
+     */
+    public boolean hasFilters() {
+        return !isEmpty(edgeTypes) || !isEmpty(excludeEdgeTypes) || !isEmpty(nodeTypes) || !isEmpty(excludeNodeTypes);
+    }
+    
+    public boolean allowsEdge(EdgeType type) {
+        return allows(type, edgeTypes, excludeEdgeTypes);
+    }
+    
+    public boolean allowsNode(NodeType type) {
+        return allows(type, nodeTypes, excludeNodeTypes);
+    }
+    
+    /**
+     * Stable cache key for this query around a node; type sets are listed in name order
+     */
+    public String cacheKey(UUID nodeId) {
+        return nodeId + "_" + hops + "_" + fanOut + "_" + rankBy + "_" + maxNodes + "_" + sorted(edgeTypes) + "_" + sorted(excludeEdgeTypes)
+            + "_" + sorted(nodeTypes) + "_" + sorted(excludeNodeTypes) + "_" + asOf;
+    }
+    
+    /**
+     * Untyped rows only pass when no include set is given
+     */
+    private static <E extends Enum<E>> boolean allows(E type, Set<E> include, Set<E> exclude) {
+        if (type == null) {
+            return isEmpty(include);
+        }
+        return (isEmpty(include) || include.contains(type)) && (isEmpty(exclude) || !exclude.contains(type));
+    }
+    
+    private static boolean isEmpty(Set<?> set) {
+        return set == null || set.isEmpty();
+    }
+    
+    private static String sorted(Set<? extends Enum<?>> set) {
+        return isEmpty(set) ? "" : set.stream().map(Enum::name).collect(Collectors.toCollection(TreeSet::new)).toString();
+    }
+}
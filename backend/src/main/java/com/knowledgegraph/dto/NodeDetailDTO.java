@@ -34,6 +34,7 @@ public class NodeDetailDTO {
     // Statistics
     private Integer totalConnections;
     private Map<String, Integer> connectionsByType;
+    private Boolean edgesPaged;     // true for supernodes: the edge lists are the first page of /nodes/{id}/edges
     
     @Data
     @Builder
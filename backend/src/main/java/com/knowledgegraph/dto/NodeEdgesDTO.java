@@ -0,0 +1,24 @@
+package com.knowledgegraph.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeEdgesDTO {
+    private UUID nodeId;
+    private boolean supernode;
+    private List<NodeDetailDTO.EdgeDTO> outgoing;    // null when only incoming edges were asked for
+    private List<NodeDetailDTO.EdgeDTO> incoming;    // null when only outgoing edges were asked for
+    private String outgoingCursor;                  // next page of outgoing edges, null when done
+    private String incomingCursor;
+    private Map<String, Map<String, Long>> edgeCounts;  // direction -> edge type -> count; supernodes only
+}
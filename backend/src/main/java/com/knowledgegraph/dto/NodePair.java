@@ -0,0 +1,15 @@
+package com.knowledgegraph.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodePair {
+    private UUID from;
+    private UUID to;
+}
@@ -0,0 +1,38 @@
+package com.knowledgegraph.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatternMatchDTO {
+    private String query;
+    private List<String> columns;
+    private List<Map<String, UUID>> rows;   // column -> node or edge id
+    private int rowCount;
+    private String outcome;                 // COMPLETE, RESULT_LIMIT, EXPANSION_LIMIT, TIME_LIMIT; null if only explained
+    private boolean truncated;              // stopped by a limit before every match was found
+    private Long expandedEntries;           // candidates and adjacency entries examined
+    private Long elapsedMs;
+    private List<PlanStep> plan;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PlanStep {
+        private String variable;
+        private String access;              // how candidates are produced
+        private List<String> checks;        // filters and probes applied to each candidate
+        private double estimatedRows;
+        private Long actualRows;            // null if only explained
+    }
+}
@@ -0,0 +1,12 @@
+package com.knowledgegraph.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatternQueryRequest {
+    private String query;   // MATCH ... [WHERE ...] [RETURN ...] [LIMIT n]
+}
@@ -0,0 +1,21 @@
+package com.knowledgegraph.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReachabilityDTO {
+    private UUID from;
+    private UUID to;
+    private int maxHops;
+    private boolean reachable;      // connected by at most maxHops edges, ignoring direction
+    private Integer distance;       // hop distance when reachable, otherwise null
+    private boolean indexed;        // false if a search was needed
+}
@@ -0,0 +1,10 @@
+package com.knowledgegraph.dto;
+
+/**
+ * Which embeddings decide node-to-node similarity
+ */
+public enum SimilarityMode {
+    SEMANTIC,      // text embeddings
+    STRUCTURAL,    // graph-structure (node2vec) embeddings
+    HYBRID         // weighted blend of both
+}
@@ -0,0 +1,22 @@
+package com.knowledgegraph.dto;
+
+import com.knowledgegraph.model.NodeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupernodeDTO {
+    private UUID nodeId;
+    private String name;
+    private NodeType type;
+    private long degree;
+    private Map<String, Map<String, Long>> edgeCounts;  // direction -> edge type -> count
+}
@@ -0,0 +1,28 @@
+package com.knowledgegraph.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WeightedPathDTO {
+    private UUID from;
+    private UUID to;
+    private String mode;
+    private Integer rank;           // 1-based position when several paths are returned
+    private boolean found;
+    private List<UUID> path;        // node ids, source first
+    private List<UUID> edgeIds;     // edges between consecutive path nodes
+    private List<String> edgeTypes;
+    private Double cost;
+    private Double confidence;      // product of edge confidences along the path
+    private Integer expandedNodes;
+    private boolean truncated;      // search stopped at the expansion cap
+}
@@ -0,0 +1,38 @@
+package com.knowledgegraph.event;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Nodes whose payload or adjacency changed. An empty node set means the scope is unknown
+ * and everything derived from the graph should be treated as changed.
+ */
+@Getter
+public class GraphChangedEvent {
+
+    private final Set<UUID> nodeIds;
+
+    private GraphChangedEvent(Set<UUID> nodeIds) {
+        this.nodeIds = nodeIds;
+    }
+
+    public static GraphChangedEvent of(Collection<UUID> nodeIds) {
+        return new GraphChangedEvent(Set.copyOf(nodeIds));
+    }
+
+    public static GraphChangedEvent of(UUID... nodeIds) {
+        return new GraphChangedEvent(Set.copyOf(Arrays.asList(nodeIds)));
+    }
+
+    public static GraphChangedEvent everything() {
+        return new GraphChangedEvent(Set.of());
+    }
+
+    public boolean isEverything() {
+        return nodeIds.isEmpty();
+    }
+}
@@ -0,0 +1,15 @@
+package com.knowledgegraph.event;
+
+import com.knowledgegraph.graph.GraphSnapshot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after a new in-memory snapshot has been swapped in
+ */
+@Getter
+@AllArgsConstructor
+public class GraphSnapshotRefreshedEvent {
+
+    private final GraphSnapshot snapshot;
+}
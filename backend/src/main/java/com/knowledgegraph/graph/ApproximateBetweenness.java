@@ -0,0 +1,250 @@
+package com.knowledgegraph.graph;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Betweenness centrality estimated by running Brandes' dependency accumulation from a random
+ * sample of source nodes, treating edges as undirected and unweighted.
+ *
+ * The sample size follows from a Hoeffding bound: with k sources, every normalized score is
+ * within epsilon of the exact value with probability 1 - delta when
+ * k >= ln(2n / delta) / (2 epsilon^2). A sample cap and a deadline keep the job bounded; the
+ * epsilon actually achieved is reported with the result.
+ *
+ * Workers pull sources from a shared counter and keep all per-source state (distances, path
+ * counts, dependencies, visit order) and their score accumulator in their own primitive
+ * arrays. Only visited entries are reset between sources. Accumulators are summed at the end.
+ */
+public final class ApproximateBetweenness {
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final double[] scores;      // estimated (unnormalized) betweenness per node
+        private final int samples;          // sources actually processed
+        private final double epsilon;       // achieved error bound on normalized scores
+        private final boolean exact;        // every node was used as a source
+    }
+
+    private final GraphSnapshot graph;
+    private double epsilon = 0.05;
+    private double delta = 0.1;
+    private int maxSamples = Integer.MAX_VALUE;
+    private long deadlineNanos = Long.MAX_VALUE;
+    private long seed = 42L;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public ApproximateBetweenness(GraphSnapshot graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Target additive error on betweenness normalized to [0, 1]
+     */
+    public ApproximateBetweenness epsilon(double epsilon) {
+        this.epsilon = epsilon;
+        return this;
+    }
+
+    /**
+     * Probability that some score misses the epsilon bound
+     */
+    public ApproximateBetweenness delta(double delta) {
+        this.delta = delta;
+        return this;
+    }
+
+    public ApproximateBetweenness maxSamples(int maxSamples) {
+        this.maxSamples = maxSamples;
+        return this;
+    }
+
+    /**
+     * Stop starting new sources after this long; the estimate is scaled by the sources finished
+     */
+    public ApproximateBetweenness timeout(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+        return this;
+    }
+
+    public ApproximateBetweenness seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public ApproximateBetweenness parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * Sources needed for the configured epsilon and delta on a graph of n nodes
+     */
+    public static int requiredSamples(int nodeCount, double epsilon, double delta) {
+        if (nodeCount <= 2) {
+            return nodeCount;
+        }
+        double samples = Math.log(2.0 * nodeCount / delta) / (2.0 * epsilon * epsilon);
+        return (int) Math.min(nodeCount, Math.ceil(samples));
+    }
+
+    public Result run() {
+        int nodeCount = graph.nodeCount();
+        int target = Math.min(requiredSamples(nodeCount, epsilon, delta), maxSamples);
+        int[] sources = sample(nodeCount, target);
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger processed = new AtomicInteger();
+        List<double[]> accumulators = new ArrayList<>();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<double[]>> workers = new ArrayList<>();
+            for (int w = 0; w < parallelism; w++) {
+                workers.add(pool.submit(() -> {
+                    Worker worker = new Worker(nodeCount);
+                    for (int i = next.getAndIncrement(); i < sources.length; i = next.getAndIncrement()) {
+                        if (System.nanoTime() > deadlineNanos) {
+                            break;
+                        }
+                        worker.accumulateFrom(sources[i]);
+                        processed.incrementAndGet();
+                    }
+                    return worker.scores;
+                }));
+            }
+            workers.forEach(worker -> accumulators.add(worker.join()));
+        } finally {
+            pool.shutdown();
+        }
+
+        double[] scores = new double[nodeCount];
+        for (double[] accumulator : accumulators) {
+            for (int v = 0; v < nodeCount; v++) {
+                scores[v] += accumulator[v];
+            }
+        }
+
+        int samples = processed.get();
+        // Each undirected pair is seen from both ends when every node is a source
+        double scale = samples > 0 ? (double) nodeCount / samples / 2.0 : 0.0;
+        for (int v = 0; v < nodeCount; v++) {
+            scores[v] *= scale;
+        }
+
+        boolean exact = samples == nodeCount;
+        double achieved = 1.0;
+        if (exact) {
+            achieved = 0.0;
+        } else if (samples > 0) {
+            achieved = Math.min(1.0, Math.sqrt(Math.log(2.0 * nodeCount / delta) / (2.0 * samples)));
+        }
+        return new Result(scores, samples, achieved, exact);
+    }
+
+    /**
+     * k distinct node ids chosen uniformly (partial Fisher-Yates)
+     */
+    private int[] sample(int nodeCount, int k) {
+        int[] ids = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            ids[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(nodeCount - i);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        int[] result = new int[k];
+        System.arraycopy(ids, 0, result, 0, k);
+        return result;
+    }
+
+    /**
+     * Per-thread Brandes state
+     */
+    private final class Worker {
+
+        final double[] scores;
+        final int[] distance;
+        final double[] paths;
+        final double[] dependency;
+        final int[] order;
+
+        Worker(int nodeCount) {
+            scores = new double[nodeCount];
+            distance = new int[nodeCount];
+            paths = new double[nodeCount];
+            dependency = new double[nodeCount];
+            order = new int[nodeCount];
+            Arrays.fill(distance, -1);
+        }
+
+        void accumulateFrom(int source) {
+            // Forward BFS; order doubles as the queue and, reversed, as the Brandes stack
+            int visited = 0;
+            order[visited++] = source;
+            distance[source] = 0;
+            paths[source] = 1.0;
+            for (int head = 0; head < visited; head++) {
+                int v = order[head];
+                int next = distance[v] + 1;
+                for (int j = graph.outStart(v); j < graph.outEnd(v); j++) {
+                    visited = relax(v, graph.outNeighbor(j), next, visited);
+                }
+                for (int j = graph.inStart(v); j < graph.inEnd(v); j++) {
+                    visited = relax(v, graph.inNeighbor(j), next, visited);
+                }
+            }
+
+            // Backward accumulation; predecessors are neighbors exactly one level closer
+            for (int i = visited - 1; i > 0; i--) {
+                int w = order[i];
+                double share = (1.0 + dependency[w]) / paths[w];
+                int previous = distance[w] - 1;
+                for (int j = graph.outStart(w); j < graph.outEnd(w); j++) {
+                    int v = graph.outNeighbor(j);
+                    if (distance[v] == previous) {
+                        dependency[v] += paths[v] * share;
+                    }
+                }
+                for (int j = graph.inStart(w); j < graph.inEnd(w); j++) {
+                    int v = graph.inNeighbor(j);
+                    if (distance[v] == previous) {
+                        dependency[v] += paths[v] * share;
+                    }
+                }
+                scores[w] += dependency[w];
+            }
+
+            for (int i = 0; i < visited; i++) {
+                int v = order[i];
+                distance[v] = -1;
+                paths[v] = 0.0;
+                dependency[v] = 0.0;
+            }
+        }
+
+        private int relax(int v, int w, int next, int visited) {
+            if (distance[w] < 0) {
+                distance[w] = next;
+                order[visited++] = w;
+            }
+            if (distance[w] == next) {
+                paths[w] += paths[v];
+            }
+            return visited;
+        }
+    }
+}
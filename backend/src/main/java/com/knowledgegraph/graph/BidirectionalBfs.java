@@ -0,0 +1,104 @@
+package com.knowledgegraph.graph;
+
+/**
+ * Unweighted shortest path over a {@link NeighborGraph}, treating edges as undirected.
+ *
+ * Searches from both endpoints, always expanding one whole level of the smaller frontier.
+ * Predecessors are kept in primitive maps, so memory is proportional to the visited set
+ * rather than frontier size times path length. Because levels are expanded completely,
+ * the first node reached from both sides lies on a shortest path.
+ */
+public final class BidirectionalBfs {
+
+    private BidirectionalBfs() {
+        // Utility class
+    }
+
+    /**
+     * Dense node ids of a shortest path from source to target, or an empty array if none
+     * exists within maxHops
+     */
+    public static int[] shortestPath(NeighborGraph graph, int source, int target, int maxHops) {
+        if (source == target) {
+            return new int[] {source};
+        }
+
+        IntIntHashMap forwardParents = new IntIntHashMap();
+        IntIntHashMap backwardParents = new IntIntHashMap();
+        forwardParents.put(source, source);
+        backwardParents.put(target, target);
+
+        IntList forwardFrontier = new IntList();
+        IntList backwardFrontier = new IntList();
+        forwardFrontier.add(source);
+        backwardFrontier.add(target);
+
+        NeighborCursor neighbors = graph.cursor();
+        int depth = 0;
+        while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty() && depth < maxHops) {
+            boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+            IntList frontier = forward ? forwardFrontier : backwardFrontier;
+            IntIntHashMap own = forward ? forwardParents : backwardParents;
+            IntIntHashMap other = forward ? backwardParents : forwardParents;
+
+            IntList next = new IntList();
+            int meeting = expandLevel(neighbors, frontier, own, other, next);
+            depth++;
+
+            if (meeting >= 0) {
+                return joinPath(forwardParents, backwardParents, meeting);
+            }
+            if (forward) {
+                forwardFrontier = next;
+            } else {
+                backwardFrontier = next;
+            }
+        }
+
+        return new int[0];
+    }
+
+    /**
+     * Expand every node of the frontier once; returns the first node already seen by the
+     * other side, or -1
+     */
+    private static int expandLevel(NeighborCursor neighbors, IntList frontier,
+                                   IntIntHashMap own, IntIntHashMap other, IntList next) {
+        for (int i = 0; i < frontier.size(); i++) {
+            int current = frontier.get(i);
+            neighbors.of(current);
+            for (int neighbor = neighbors.next(); neighbor >= 0; neighbor = neighbors.next()) {
+                if (own.putIfAbsent(neighbor, current)) {
+                    if (other.containsKey(neighbor)) {
+                        return neighbor;
+                    }
+                    next.add(neighbor);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Follow forward parents back to the source and backward parents on to the target
+     */
+    private static int[] joinPath(IntIntHashMap forwardParents, IntIntHashMap backwardParents, int meeting) {
+        IntList head = new IntList();
+        for (int node = meeting; ; node = forwardParents.get(node, node)) {
+            head.add(node);
+            if (forwardParents.get(node, node) == node) {
+                break;
+            }
+        }
+
+        IntList path = new IntList(head.size() * 2);
+        for (int i = head.size() - 1; i >= 0; i--) {
+            path.add(head.get(i));
+        }
+        for (int node = meeting; backwardParents.get(node, node) != node; ) {
+            node = backwardParents.get(node, node);
+            path.add(node);
+        }
+        return path.toArray();
+    }
+}
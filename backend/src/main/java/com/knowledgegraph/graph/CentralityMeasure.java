@@ -0,0 +1,8 @@
+package com.knowledgegraph.graph;
+
+public enum CentralityMeasure {
+    DEGREE,                 // distinct neighbors, normalized by the size of the requested set
+    PAGERANK,               // stored global PageRank
+    BETWEENNESS,            // stored sampled betweenness
+    PERSONALIZED_PAGERANK   // PageRank restarting at the requested nodes, computed on demand
+}
@@ -0,0 +1,631 @@
+package com.knowledgegraph.graph;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Adjacency of a graph too large for {@link GraphSnapshot}, compressed in the style of
+ * WebGraph (Boldi and Vigna 2004) and memory-mapped from disk.
+ *
+ * Per direction, every node's neighbor list is sorted, deduplicated and stored as a record:
+ * its length, its size in bytes, the first neighbor relative to the node (zig-zag) and the
+ * gaps between successive neighbors, all as LEB128 varints. Record offsets are sampled every
+ * {@value #SAMPLE_NODES} nodes and a lookup skips the records before it by their sizes. Gaps
+ * are small when neighbors have nearby ids, so {@link #writeReordered} renumbers nodes in BFS
+ * order (Apostolico and Drovandi 2009). Only node ids and adjacency are kept; edge ids, types
+ * and payloads stay in the database.
+ *
+ * Cursors decode lists lazily, straight from the mapping, which the OS pages in and out as
+ * needed, so the graph may be larger than RAM. Lists of hub nodes, expensive to decode and
+ * read by most searches, are kept decoded in a small cache bounded by total entries. Data
+ * sections are mapped in 1 GB segments; node-indexed sections are limited to 2 GB each.
+ */
+public final class CompressedGraph implements NeighborGraph {
+
+    public static final int VERSION = 1;
+    public static final int OUT = 0;
+    public static final int IN = 1;
+
+    static final int SAMPLE_NODES = 16;
+
+    private static final int MAGIC = 0x4B474347;    // "KGCG"
+    private static final int SAMPLE_SHIFT = 4;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    // Element type per fixed section: node UUID halves, UUID lookup table, out and in record offsets
+    private static final char[] SECTION_TYPES = "LLILL".toCharArray();
+
+    private final int nodeCount;
+    private final long entryCount;
+    private final LongBuffer nodeMsb;
+    private final LongBuffer nodeLsb;
+    private final IntBuffer nodeTable;
+    private final int nodeTableMask;
+    private final LongBuffer[] recordOffsets;   // per direction, offset of every SAMPLE_NODES-th record
+    private final ByteBuffer[][] data;          // per direction, 1 GB segments
+    private final long[] dataBytes;
+    private final LocalDateTime builtAt;
+    private final Cache<Long, int[]> hubLists;
+    private final int hubMinDegree;
+
+    private CompressedGraph(int nodeCount, long entryCount, LongBuffer[] fixed, IntBuffer nodeTable,
+                            ByteBuffer[][] data, long[] dataBytes, LocalDateTime builtAt,
+                            long cacheEntries, int hubMinDegree) {
+        this.nodeCount = nodeCount;
+        this.entryCount = entryCount;
+        this.nodeMsb = fixed[0];
+        this.nodeLsb = fixed[1];
+        this.nodeTable = nodeTable;
+        this.nodeTableMask = nodeTable.capacity() - 1;
+        this.recordOffsets = new LongBuffer[] {fixed[2], fixed[3]};
+        this.data = data;
+        this.dataBytes = dataBytes;
+        this.builtAt = builtAt;
+        this.hubLists = cacheEntries > 0
+            ? Caffeine.newBuilder().maximumWeight(cacheEntries).weigher((Long key, int[] list) -> list.length).build()
+            : null;
+        this.hubMinDegree = Math.max(1, hubMinDegree);
+    }
+
+    /**
+     * Map a compressed graph file. With verify, the whole file is read once to check its checksums.
+     *
+     * @param cacheEntries total neighbors kept in decoded hub lists; 0 disables the cache
+     * @param hubMinDegree shortest list that is cached decoded
+     * @throws IOException if the file is missing, truncated, corrupt or from an incompatible writer
+     */
+    public static CompressedGraph open(Path path, boolean verify, long cacheEntries, int hubMinDegree)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(GraphSnapshotFile.HEADER_BYTES).order(ByteOrder.nativeOrder());
+            if (channel.size() < GraphSnapshotFile.HEADER_BYTES) {
+                throw new IOException("Compressed graph file is truncated");
+            }
+            GraphSnapshotFile.readFully(channel, header, 0);
+            int magic = header.getInt(0);
+            if (magic != MAGIC) {
+                throw new IOException(magic == Integer.reverseBytes(MAGIC)
+                    ? "Compressed graph file was written with another byte order" : "Not a compressed graph file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Compressed graph file has format version " + header.getInt(4)
+                    + ", expected " + VERSION);
+            }
+            if (header.getInt(GraphSnapshotFile.HEADER_CHECKSUM_OFFSET) != GraphSnapshotFile.headerChecksum(header)) {
+                throw new IOException("Compressed graph file header checksum mismatch");
+            }
+
+            int nodeCount = header.getInt(8);
+            int tableLength = header.getInt(12);
+            long entryCount = header.getLong(16);
+            long[] dataBytes = {header.getLong(24), header.getLong(32)};
+            if (nodeCount < 0 || tableLength <= 0 || Integer.bitCount(tableLength) != 1
+                    || entryCount < 0 || dataBytes[OUT] < 0 || dataBytes[IN] < 0) {
+                throw new IOException("Compressed graph file header is inconsistent");
+            }
+            long samples = samples(nodeCount);
+            long[] lengths = {nodeCount, nodeCount, tableLength, samples, samples};
+            long position = GraphSnapshotFile.HEADER_BYTES;
+            for (int s = 0; s < lengths.length; s++) {
+                position = GraphSnapshotFile.align(position) + lengths[s] * GraphSnapshotFile.elementBytes(SECTION_TYPES[s]);
+            }
+            long dataStart = GraphSnapshotFile.align(position);
+            if (dataStart + dataBytes[OUT] + dataBytes[IN] != channel.size()) {
+                throw new IOException("Compressed graph file is truncated");
+            }
+
+            CRC32C fixedChecksum = new CRC32C();
+            LongBuffer[] fixed = new LongBuffer[4];
+            IntBuffer table = null;
+            position = GraphSnapshotFile.HEADER_BYTES;
+            for (int s = 0; s < lengths.length; s++) {
+                position = GraphSnapshotFile.align(position);
+                long bytes = lengths[s] * GraphSnapshotFile.elementBytes(SECTION_TYPES[s]);
+                if (bytes > Integer.MAX_VALUE) {
+                    throw new IOException("Compressed graph has too many nodes to map");
+                }
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes)
+                    .order(ByteOrder.nativeOrder());
+                if (verify) {
+                    fixedChecksum.update(mapped.duplicate());
+                }
+                if (s == 2) {
+                    table = mapped.asIntBuffer();
+                } else {
+                    fixed[s < 2 ? s : s - 1] = mapped.asLongBuffer();
+                }
+                position += bytes;
+            }
+
+            ByteBuffer[][] data = new ByteBuffer[2][];
+            int[] dataChecksums = new int[2];
+            position = dataStart;
+            for (int direction = OUT; direction <= IN; direction++) {
+                CRC32C checksum = new CRC32C();
+                data[direction] = new ByteBuffer[(int) ((dataBytes[direction] + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+                for (int segment = 0; segment < data[direction].length; segment++) {
+                    long offset = (long) segment << SEGMENT_SHIFT;
+                    long bytes = Math.min(SEGMENT_MASK + 1, dataBytes[direction] - offset);
+                    data[direction][segment] = channel.map(FileChannel.MapMode.READ_ONLY, position + offset, bytes);
+                    if (verify) {
+                        checksum.update(data[direction][segment].duplicate());
+                    }
+                }
+                dataChecksums[direction] = (int) checksum.getValue();
+                position += dataBytes[direction];
+            }
+            if (verify && ((int) fixedChecksum.getValue() != header.getInt(64)
+                    || dataChecksums[OUT] != header.getInt(68) || dataChecksums[IN] != header.getInt(72))) {
+                throw new IOException("Compressed graph file data checksum mismatch");
+            }
+
+            return new CompressedGraph(nodeCount, entryCount, fixed, table, data, dataBytes,
+                GraphSnapshotFile.getTime(header, 40), cacheEntries, hubMinDegree);
+        }
+    }
+
+    // ---- Nodes ----
+
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int indexOf(UUID nodeId) {
+        long m = nodeId.getMostSignificantBits();
+        long l = nodeId.getLeastSignificantBits();
+        int slot = UuidIndex.hash(m, l) & nodeTableMask;
+        int entry;
+        while ((entry = nodeTable.get(slot)) != 0) {
+            int node = entry - 1;
+            if (nodeMsb.get(node) == m && nodeLsb.get(node) == l) {
+                return node;
+            }
+            slot = (slot + 1) & nodeTableMask;
+        }
+        return -1;
+    }
+
+    @Override
+    public UUID nodeId(int node) {
+        return new UUID(nodeMsb.get(node), nodeLsb.get(node));
+    }
+
+    public int outDegree(int node) {
+        return new Reader().seek(OUT, node).degree();
+    }
+
+    public int inDegree(int node) {
+        return new Reader().seek(IN, node).degree();
+    }
+
+    /**
+     * Decoded neighbor list of a node in one direction, ascending
+     */
+    public int[] neighbors(int node, int direction) {
+        Reader reader = new Reader().seek(direction, node);
+        int[] list = new int[reader.degree()];
+        if (list.length > 0) {
+            reader.varint(); // record size
+            int previous = node + unzigzag(reader.varint());
+            list[0] = previous;
+            for (int i = 1; i < list.length; i++) {
+                previous += (int) reader.varint() + 1;
+                list[i] = previous;
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new RecordCursor();
+    }
+
+    // ---- Metadata ----
+
+    /**
+     * Distinct (source, target) pairs; parallel edges are stored once
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Size of the encoded neighbor lists of both directions
+     */
+    public long getDataBytes() {
+        return dataBytes[OUT] + dataBytes[IN];
+    }
+
+    public double bytesPerEdge() {
+        return entryCount == 0 ? 0 : (double) getDataBytes() / entryCount;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * Write a copy of this graph with nodes renumbered in BFS order, so neighbors get nearby ids
+     * and gaps shrink. Needs two ints per node of heap besides the node index.
+     */
+    public void writeReordered(Path target) throws IOException {
+        int[] order = new int[nodeCount];       // new id -> old id
+        int[] renumbered = new int[nodeCount];  // old id -> new id
+        BitSet visited = new BitSet(nodeCount);
+        NeighborCursor neighbors = cursor();
+        int size = 0;
+        for (int root = 0; root < nodeCount; root++) {
+            if (visited.get(root)) {
+                continue;
+            }
+            visited.set(root);
+            order[size++] = root;
+            for (int head = size - 1; head < size; head++) {
+                neighbors.of(order[head]);
+                for (int neighbor = neighbors.next(); neighbor >= 0; neighbor = neighbors.next()) {
+                    if (!visited.get(neighbor)) {
+                        visited.set(neighbor);
+                        order[size++] = neighbor;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            renumbered[order[i]] = i;
+        }
+
+        try (Builder builder = new Builder(target.toAbsolutePath().getParent(), nodeCount)) {
+            for (int i = 0; i < nodeCount; i++) {
+                builder.addNode(nodeId(order[i]));
+            }
+            for (int direction = OUT; direction <= IN; direction++) {
+                for (int i = 0; i < nodeCount; i++) {
+                    for (int neighbor : neighbors(order[i], direction)) {
+                        builder.addNeighbor(direction, i, renumbered[neighbor]);
+                    }
+                }
+            }
+            builder.write(target, builtAt);
+        }
+    }
+
+    private static long samples(int nodeCount) {
+        return (nodeCount + SAMPLE_NODES - 1L) >>> SAMPLE_SHIFT;
+    }
+
+    private static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    private static long zigzag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Sequential varint reader over one direction's segments
+     */
+    private final class Reader {
+
+        private ByteBuffer[] segments;
+        private long position;
+        private int degree;
+
+        /**
+         * Position on a node's record, skipping the records before it in its sample block
+         */
+        Reader seek(int direction, int node) {
+            segments = data[direction];
+            position = recordOffsets[direction].get(node >>> SAMPLE_SHIFT);
+            for (int skip = node & (SAMPLE_NODES - 1); skip > 0; skip--) {
+                if (varint() > 0) {
+                    long bytes = varint();
+                    position += bytes;
+                }
+            }
+            degree = (int) varint();
+            return this;
+        }
+
+        int degree() {
+            return degree;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+                position++;
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes one neighbor per call, out list first, or walks a cached decoded hub list
+     */
+    private final class RecordCursor implements NeighborCursor {
+
+        private final Reader reader = new Reader();
+        private int node;
+        private int direction;
+        private int remaining;
+        private int previous;
+        private boolean first;
+        private int[] decoded;
+        private int decodedIndex;
+
+        @Override
+        public NeighborCursor of(int node) {
+            this.node = node;
+            start(OUT);
+            return this;
+        }
+
+        @Override
+        public int next() {
+            while (true) {
+                if (remaining > 0) {
+                    remaining--;
+                    if (decoded != null) {
+                        return decoded[decodedIndex++];
+                    }
+                    long value = reader.varint();
+                    previous = first ? node + unzigzag(value) : previous + (int) value + 1;
+                    first = false;
+                    return previous;
+                }
+                if (direction == IN) {
+                    return -1;
+                }
+                start(IN);
+            }
+        }
+
+        private void start(int direction) {
+            this.direction = direction;
+            reader.seek(direction, node);
+            remaining = reader.degree();
+            decoded = null;
+            if (hubLists != null && remaining >= hubMinDegree) {
+                decoded = hubLists.get((long) node << 1 | direction, key -> neighbors(node, direction));
+                decodedIndex = 0;
+            } else if (remaining > 0) {
+                reader.varint(); // record size
+                first = true;
+            }
+        }
+    }
+
+    /**
+     * Streams nodes and then, per direction, neighbor lists grouped by node into a compressed
+     * graph file. Only the node index and one list are held on the heap; records go to
+     * temporary files next to the target until {@link #write} assembles them.
+     */
+    public static final class Builder implements Closeable {
+
+        private final UuidIndex nodes;
+        private final Path[] dataFiles = new Path[2];
+        private final CheckedOutputStream[] streams = new CheckedOutputStream[2];
+        private final long[] dataBytes = new long[2];
+        private final long[][] offsets = {new long[16], new long[16]};
+        private final int[] written = new int[2];   // nodes whose record is written, per direction
+        private final IntList pending = new IntList();
+        private int pendingDirection = OUT;
+        private int pendingNode = -1;
+        private long entryCount;
+        private byte[] payload = new byte[64];
+        private int payloadSize;
+
+        public Builder(Path directory, int expectedNodes) throws IOException {
+            Files.createDirectories(directory);
+            this.nodes = new UuidIndex(expectedNodes);
+            for (int direction = OUT; direction <= IN; direction++) {
+                dataFiles[direction] = Files.createTempFile(directory, "compressed-graph", ".records");
+                streams[direction] = new CheckedOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(dataFiles[direction]), 1 << 16), new CRC32C());
+            }
+        }
+
+        /**
+         * Register a node and return its dense id; all nodes come before any neighbor
+         */
+        public int addNode(UUID id) {
+            if (pendingNode >= 0 || written[OUT] > 0) {
+                throw new IllegalStateException("Nodes must be added before neighbors");
+            }
+            return nodes.add(id);
+        }
+
+        /**
+         * Dense id of a registered node, or -1
+         */
+        public int indexOf(UUID id) {
+            return nodes.indexOf(id);
+        }
+
+        /**
+         * Add one neighbor. Outgoing lists come first, then incoming ones, each grouped by node in
+         * ascending order; within a list neighbors may come in any order and repeat.
+         */
+        public void addNeighbor(int direction, int node, int neighbor) throws IOException {
+            if (direction != pendingDirection || node != pendingNode) {
+                if (direction < pendingDirection || (direction == pendingDirection && node < pendingNode)
+                        || node >= nodes.size()) {
+                    throw new IllegalStateException("Neighbor lists must come grouped by direction and node");
+                }
+                flush();
+                pendingDirection = direction;
+                pendingNode = node;
+            }
+            pending.add(neighbor);
+        }
+
+        /**
+         * Finish both directions and write the graph file, replacing any previous one
+         */
+        public void write(Path target, LocalDateTime builtAt) throws IOException {
+            flush();
+            for (int direction = OUT; direction <= IN; direction++) {
+                while (written[direction] < nodes.size()) {
+                    writeRecord(direction, written[direction], new int[0], 0);
+                }
+                streams[direction].flush();
+            }
+            nodes.trim();
+
+            Path directory = target.toAbsolutePath().getParent();
+            Path temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    ByteBuffer chunk = ByteBuffer.allocateDirect(GraphSnapshotFile.CHUNK_BYTES)
+                        .order(ByteOrder.nativeOrder());
+                    CRC32C fixedChecksum = new CRC32C();
+                    int samples = (int) samples(nodes.size());
+                    java.nio.Buffer[] sections = {
+                        LongBuffer.wrap(nodes.msb()), LongBuffer.wrap(nodes.lsb()), IntBuffer.wrap(nodes.table()),
+                        LongBuffer.wrap(offsets[OUT], 0, samples).slice(),
+                        LongBuffer.wrap(offsets[IN], 0, samples).slice()
+                    };
+                    long position = GraphSnapshotFile.HEADER_BYTES;
+                    for (int s = 0; s < sections.length; s++) {
+                        position = GraphSnapshotFile.pad(channel, position);
+                        position = GraphSnapshotFile.writeSection(channel, position, sections[s], SECTION_TYPES[s],
+                            chunk, fixedChecksum);
+                    }
+                    position = GraphSnapshotFile.pad(channel, position);
+                    for (int direction = OUT; direction <= IN; direction++) {
+                        try (FileChannel records = FileChannel.open(dataFiles[direction], StandardOpenOption.READ)) {
+                            for (long copied = 0; copied < dataBytes[direction]; ) {
+                                copied += channel.transferFrom(records, position + copied, dataBytes[direction] - copied);
+                            }
+                        }
+                        position += dataBytes[direction];
+                    }
+
+                    ByteBuffer header = ByteBuffer.allocate(GraphSnapshotFile.HEADER_BYTES).order(ByteOrder.nativeOrder());
+                    header.putInt(0, MAGIC)
+                        .putInt(4, VERSION)
+                        .putInt(8, nodes.size())
+                        .putInt(12, nodes.table().length)
+                        .putLong(16, entryCount)
+                        .putLong(24, dataBytes[OUT])
+                        .putLong(32, dataBytes[IN])
+                        .putInt(64, (int) fixedChecksum.getValue())
+                        .putInt(68, (int) streams[OUT].getChecksum().getValue())
+                        .putInt(72, (int) streams[IN].getChecksum().getValue());
+                    GraphSnapshotFile.putTime(header, 40, builtAt);
+                    header.putInt(GraphSnapshotFile.HEADER_CHECKSUM_OFFSET, GraphSnapshotFile.headerChecksum(header));
+                    GraphSnapshotFile.writeFully(channel, header, 0);
+                    channel.force(true);
+                }
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (int direction = OUT; direction <= IN; direction++) {
+                streams[direction].close();
+                Files.deleteIfExists(dataFiles[direction]);
+            }
+        }
+
+        /**
+         * Write the pending list, after empty records for the nodes skipped before it
+         */
+        private void flush() throws IOException {
+            if (pendingNode < 0) {
+                return;
+            }
+            while (written[pendingDirection] < pendingNode) {
+                writeRecord(pendingDirection, written[pendingDirection], new int[0], 0);
+            }
+            int[] list = pending.toArray();
+            Arrays.sort(list);
+            int length = 0;
+            for (int i = 0; i < list.length; i++) {
+                if (i == 0 || list[i] != list[i - 1]) {
+                    list[length++] = list[i];
+                }
+            }
+            writeRecord(pendingDirection, pendingNode, list, length);
+            if (pendingDirection == OUT) {
+                entryCount += length;
+            }
+            pending.clear();
+            pendingNode = -1;
+        }
+
+        private void writeRecord(int direction, int node, int[] list, int length) throws IOException {
+            if ((node & (SAMPLE_NODES - 1)) == 0) {
+                int sample = node >>> SAMPLE_SHIFT;
+                if (sample == offsets[direction].length) {
+                    offsets[direction] = Arrays.copyOf(offsets[direction], sample * 2);
+                }
+                offsets[direction][sample] = dataBytes[direction];
+            }
+            written[direction] = node + 1;
+
+            OutputStream out = streams[direction];
+            if (length == 0) {
+                dataBytes[direction] += writeVarint(out, 0);
+                return;
+            }
+            payloadSize = 0;
+            appendVarint(zigzag(list[0] - node));
+            for (int i = 1; i < length; i++) {
+                appendVarint(list[i] - list[i - 1] - 1L);
+            }
+            dataBytes[direction] += writeVarint(out, length) + writeVarint(out, payloadSize);
+            out.write(payload, 0, payloadSize);
+            dataBytes[direction] += payloadSize;
+        }
+
+        private void appendVarint(long value) {
+            if (payloadSize + 10 > payload.length) {
+                payload = Arrays.copyOf(payload, payload.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                payload[payloadSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            payload[payloadSize++] = (byte) value;
+        }
+
+        private static int writeVarint(OutputStream out, long value) throws IOException {
+            int bytes = 1;
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+                bytes++;
+            }
+            out.write((int) value);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.knowledgegraph.graph;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free disjoint-set forest over dense ids 0..size-1, safe for concurrent unions.
+ *
+ * Roots are always linked under the smaller root with a single CAS, so parent pointers only
+ * ever decrease and the root of every set is its smallest member. Finds use path halving,
+ * also via CAS; a lost race just means another thread already shortened the path.
+ */
+public final class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parent;
+
+    public ConcurrentUnionFind(int size) {
+        this.parent = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    public int size() {
+        return parent.length();
+    }
+
+    public int find(int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x) {
+                return x;
+            }
+            int grandparent = parent.get(p);
+            if (grandparent != p) {
+                parent.compareAndSet(x, p, grandparent);
+            }
+            x = grandparent;
+        }
+    }
+
+    /**
+     * Merge the sets containing a and b; returns false if they were already one set
+     */
+    public boolean union(int a, int b) {
+        while (true) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA == rootB) {
+                return false;
+            }
+            int child = Math.max(rootA, rootB);
+            int root = Math.min(rootA, rootB);
+            if (parent.compareAndSet(child, child, root)) {
+                return true;
+            }
+            // child stopped being a root concurrently; retry from the new roots
+        }
+    }
+
+    public boolean connected(int a, int b) {
+        while (true) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA == rootB) {
+                return true;
+            }
+            if (parent.get(rootA) == rootA) {
+                return false;
+            }
+        }
+    }
+}
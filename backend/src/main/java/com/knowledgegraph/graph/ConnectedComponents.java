@@ -0,0 +1,47 @@
+package com.knowledgegraph.graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Weakly connected components of a {@link GraphSnapshot}, computed with a
+ * {@link ConcurrentUnionFind} driven by a parallel sweep over the edge arrays.
+ */
+public final class ConnectedComponents {
+
+    private ConnectedComponents() {
+        // Utility class
+    }
+
+    /**
+     * Component label per dense node id. The label is the smallest dense id in the component,
+     * so labels are deterministic for a given snapshot.
+     */
+    public static int[] label(GraphSnapshot graph, int parallelism) {
+        int nodeCount = graph.nodeCount();
+        ConcurrentUnionFind sets = new ConcurrentUnionFind(nodeCount);
+        int[] labels = new int[nodeCount];
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            pool.submit(() -> IntStream.range(0, graph.edgeCount()).parallel()
+                .forEach(edge -> sets.union(graph.edgeSource(edge), graph.edgeTarget(edge)))).join();
+            pool.submit(() -> IntStream.range(0, nodeCount).parallel()
+                .forEach(node -> labels[node] = sets.find(node))).join();
+        } finally {
+            pool.shutdown();
+        }
+        return labels;
+    }
+
+    /**
+     * Number of members per label, indexed by label
+     */
+    public static int[] sizes(int[] labels) {
+        int[] sizes = new int[labels.length];
+        for (int label : labels) {
+            sizes[label]++;
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,90 @@
+package com.knowledgegraph.graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (int value, double priority) pairs stored in parallel primitive arrays.
+ * There is no decrease-key: callers push again with the better priority and skip stale
+ * entries when they are popped.
+ */
+public final class DoubleMinHeap {
+
+    private int[] values;
+    private double[] priorities;
+    private int size;
+
+    public DoubleMinHeap() {
+        this(64);
+    }
+
+    public DoubleMinHeap(int initialCapacity) {
+        this.values = new int[Math.max(initialCapacity, 4)];
+        this.priorities = new double[values.length];
+    }
+
+    public void push(int value, double priority) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size << 1);
+            priorities = Arrays.copyOf(priorities, size << 1);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            values[i] = values[parent];
+            priorities[i] = priorities[parent];
+            i = parent;
+        }
+        values[i] = value;
+        priorities[i] = priority;
+    }
+
+    public int peekValue() {
+        return values[0];
+    }
+
+    public double peekPriority() {
+        return priorities[0];
+    }
+
+    /**
+     * Remove the minimum entry and return its value
+     */
+    public int pop() {
+        int top = values[0];
+        int lastValue = values[--size];
+        double lastPriority = priorities[size];
+
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                child++;
+            }
+            if (lastPriority <= priorities[child]) {
+                break;
+            }
+            values[i] = values[child];
+            priorities[i] = priorities[child];
+            i = child;
+        }
+        values[i] = lastValue;
+        priorities[i] = lastPriority;
+        return top;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
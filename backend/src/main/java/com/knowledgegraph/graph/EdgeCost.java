@@ -0,0 +1,65 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Non-negative traversal cost of an edge in a {@link GraphSnapshot}.
+ * Returning {@link Double#POSITIVE_INFINITY} excludes the edge.
+ */
+@FunctionalInterface
+public interface EdgeCost {
+
+    double MIN_CONFIDENCE = 1e-6;
+
+    double cost(GraphSnapshot graph, int edge);
+
+    /**
+     * Same cost, but edges whose type is not in the allowed set are excluded.
+     * An empty or null set allows every type.
+     */
+    default EdgeCost restrictedTo(Set<EdgeType> allowedTypes) {
+        if (allowedTypes == null || allowedTypes.isEmpty()) {
+            return this;
+        }
+        boolean[] allowed = new boolean[EdgeType.values().length];
+        allowedTypes.forEach(type -> allowed[type.ordinal()] = true);
+        return (graph, edge) -> {
+            int ordinal = graph.edgeTypeOrdinal(edge);
+            return ordinal >= 0 && allowed[ordinal] ? cost(graph, edge) : Double.POSITIVE_INFINITY;
+        };
+    }
+
+    /**
+     * Every edge costs one hop
+     */
+    static EdgeCost unit() {
+        return (graph, edge) -> 1.0;
+    }
+
+    /**
+     * -ln(confidence), so the cheapest path is the one with the highest product of confidences
+     */
+    static EdgeCost confidence() {
+        return (graph, edge) -> {
+            double confidence = Math.min(1.0, Math.max(MIN_CONFIDENCE, graph.edgeConfidence(edge)));
+            return -Math.log(confidence);
+        };
+    }
+
+    /**
+     * Fixed cost per edge type, falling back to a default for unlisted or unknown types
+     */
+    static EdgeCost byType(Map<EdgeType, Double> typeCosts, double defaultCost) {
+        double[] costs = new double[EdgeType.values().length];
+        Arrays.fill(costs, defaultCost);
+        typeCosts.forEach((type, cost) -> costs[type.ordinal()] = cost);
+        return (graph, edge) -> {
+            int ordinal = graph.edgeTypeOrdinal(edge);
+            return ordinal >= 0 ? costs[ordinal] : defaultCost;
+        };
+    }
+}
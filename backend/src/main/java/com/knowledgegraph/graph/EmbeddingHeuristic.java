@@ -0,0 +1,105 @@
+package com.knowledgegraph.graph;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A* heuristic based on embedding distance to the target:
+ * minEdgeCost * min(1, weight * (1 - cosine similarity)).
+ *
+ * Any node other than the target is at least one edge, so at least minEdgeCost, away from it,
+ * and the target itself estimates 0. The estimate therefore never exceeds the true remaining
+ * cost and never drops by more than one edge's cost along an edge, so A* with a closed set
+ * still returns the cheapest path. Cost models whose cheapest edge costs 0 get no guidance
+ * from it; callers should not use it there.
+ *
+ * Vectors are loaded lazily and cached for the lifetime of the search. When an expanded node
+ * has neighbors without a loaded vector, one query fetches them together with the unseen
+ * nodes breadth-first beyond them, up to a batch size, so most later expansions need no
+ * round trip.
+ * Nodes without an embedding estimate 0.
+ */
+public final class EmbeddingHeuristic implements WeightedShortestPath.Heuristic {
+
+    private static final float[] MISSING = new float[0];
+
+    private final Function<Collection<UUID>, Map<UUID, float[]>> vectorLoader;
+    private final float[] targetVector;
+    private final double targetNorm;
+    private final double weight;
+    private final double minEdgeCost;
+    private final int batchSize;
+    private final Map<Integer, float[]> vectors = new HashMap<>();
+
+    public EmbeddingHeuristic(Function<Collection<UUID>, Map<UUID, float[]>> vectorLoader,
+                              float[] targetVector, double weight, double minEdgeCost, int batchSize) {
+        if (!(minEdgeCost > 0.0)) {
+            throw new IllegalArgumentException("Embedding heuristic needs a positive minimum edge cost");
+        }
+        this.vectorLoader = vectorLoader;
+        this.targetVector = targetVector;
+        this.targetNorm = norm(targetVector);
+        this.weight = weight;
+        this.minEdgeCost = minEdgeCost;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public double estimate(int node) {
+        float[] vector = vectors.getOrDefault(node, MISSING);
+        if (vector.length != targetVector.length || targetNorm == 0.0) {
+            return 0.0;
+        }
+        double dot = 0.0;
+        for (int i = 0; i < vector.length; i++) {
+            dot += vector[i] * targetVector[i];
+        }
+        double vectorNorm = norm(vector);
+        if (vectorNorm == 0.0) {
+            return 0.0;
+        }
+        double similarity = dot / (vectorNorm * targetNorm);
+        return minEdgeCost * Math.min(1.0, weight * Math.max(0.0, 1.0 - similarity));
+    }
+
+    @Override
+    public void beforeExpand(GraphSnapshot graph, int node) {
+        Map<UUID, Integer> missing = new HashMap<>();
+        IntList queue = new IntList();
+        collectNeighbors(graph, node, missing, queue, Integer.MAX_VALUE);
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        // Prefetch breadth-first beyond them: those vectors are needed as the search moves on
+        for (int i = 0; i < queue.size() && missing.size() < batchSize; i++) {
+            collectNeighbors(graph, queue.get(i), missing, queue, batchSize);
+        }
+
+        Map<UUID, float[]> loaded = vectorLoader.apply(missing.keySet());
+        missing.forEach((id, neighbor) -> vectors.put(neighbor, loaded.getOrDefault(id, MISSING)));
+    }
+
+    private void collectNeighbors(GraphSnapshot graph, int node, Map<UUID, Integer> missing, IntList queue, int limit) {
+        for (int j = graph.outStart(node); j < graph.outEnd(node) && missing.size() < limit; j++) {
+            collectMissing(graph, graph.outNeighbor(j), missing, queue);
+        }
+        for (int j = graph.inStart(node); j < graph.inEnd(node) && missing.size() < limit; j++) {
+            collectMissing(graph, graph.inNeighbor(j), missing, queue);
+        }
+    }
+
+    private void collectMissing(GraphSnapshot graph, int neighbor, Map<UUID, Integer> missing, IntList queue) {
+        if (!vectors.containsKey(neighbor) && missing.putIfAbsent(graph.nodeId(neighbor), neighbor) == null) {
+            queue.add(neighbor);
+        }
+    }
+
+    private static double norm(float[] vector) {
+        double sum = 0.0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        return Math.sqrt(sum);
+    }
+}
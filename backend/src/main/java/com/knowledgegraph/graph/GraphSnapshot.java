@@ -0,0 +1,469 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+
+import java.nio.*;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Immutable compressed-sparse-row (CSR) snapshot of kg.nodes / kg.edges.
+ *
+ * Nodes and edges are addressed by dense int ids assigned in scan order. Each node
+ * has an outgoing and an incoming adjacency slice; a slice holds the neighbor id and
+ * the edge id so edge attributes (type, confidence, UUID) are looked up by edge id.
+ * UUIDs are only materialized when results leave the engine.
+ *
+ * Every array, including the UUID lookup table, is held as a primitive buffer: heap-backed
+ * when built from a scan, or mapped from a {@link GraphSnapshotFile} so the graph lives
+ * outside the Java heap. Readers only use absolute gets, so buffers are shared across threads.
+ */
+public final class GraphSnapshot implements NeighborGraph {
+
+    public static final float DEFAULT_CONFIDENCE = 1.0f;
+
+    private static final NodeType[] NODE_TYPES = NodeType.values();
+    private static final EdgeType[] EDGE_TYPES = EdgeType.values();
+
+    private final int nodeCount;
+    private final int edgeCount;
+
+    private final LongBuffer nodeMsb;
+    private final LongBuffer nodeLsb;
+    private final IntBuffer nodeTable;      // dense id + 1 by UUID hash, 0 = empty
+    private final int nodeTableMask;
+    private final ByteBuffer nodeTypes;
+
+    private final LongBuffer edgeMsb;
+    private final LongBuffer edgeLsb;
+    private final IntBuffer edgeSource;
+    private final IntBuffer edgeTarget;
+    private final ShortBuffer edgeTypes;
+    private final FloatBuffer edgeConfidence;
+
+    private final IntBuffer outOffsets;
+    private final IntBuffer outNeighbors;
+    private final IntBuffer outEdges;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inNeighbors;
+    private final IntBuffer inEdges;
+
+    private final LocalDateTime highWaterMark;
+    private final LocalDateTime builtAt;
+    private final LocalDateTime scannedAt;
+
+    private GraphSnapshot(Builder builder) {
+        builder.nodes.trim();
+        this.nodeCount = builder.nodes.size();
+        this.edgeCount = builder.edgeCount;
+
+        this.nodeMsb = LongBuffer.wrap(builder.nodes.msb());
+        this.nodeLsb = LongBuffer.wrap(builder.nodes.lsb());
+        this.nodeTable = IntBuffer.wrap(builder.nodes.table());
+        this.nodeTableMask = nodeTable.capacity() - 1;
+        this.nodeTypes = ByteBuffer.wrap(Arrays.copyOf(builder.nodeTypes, nodeCount));
+
+        int[] sources = Arrays.copyOf(builder.edgeSource, edgeCount);
+        int[] targets = Arrays.copyOf(builder.edgeTarget, edgeCount);
+        this.edgeMsb = LongBuffer.wrap(Arrays.copyOf(builder.edgeMsb, edgeCount));
+        this.edgeLsb = LongBuffer.wrap(Arrays.copyOf(builder.edgeLsb, edgeCount));
+        this.edgeSource = IntBuffer.wrap(sources);
+        this.edgeTarget = IntBuffer.wrap(targets);
+        this.edgeTypes = ShortBuffer.wrap(Arrays.copyOf(builder.edgeTypes, edgeCount));
+        this.edgeConfidence = FloatBuffer.wrap(Arrays.copyOf(builder.edgeConfidence, edgeCount));
+
+        int[] offsets = new int[nodeCount + 1];
+        int[] neighbors = new int[edgeCount];
+        int[] edges = new int[edgeCount];
+        fillAdjacency(sources, targets, offsets, neighbors, edges);
+        this.outOffsets = IntBuffer.wrap(offsets);
+        this.outNeighbors = IntBuffer.wrap(neighbors);
+        this.outEdges = IntBuffer.wrap(edges);
+
+        offsets = new int[nodeCount + 1];
+        neighbors = new int[edgeCount];
+        edges = new int[edgeCount];
+        fillAdjacency(targets, sources, offsets, neighbors, edges);
+        this.inOffsets = IntBuffer.wrap(offsets);
+        this.inNeighbors = IntBuffer.wrap(neighbors);
+        this.inEdges = IntBuffer.wrap(edges);
+
+        this.highWaterMark = builder.highWaterMark;
+        this.builtAt = LocalDateTime.now();
+        this.scannedAt = builder.scannedAt;
+    }
+
+    /**
+     * Snapshot over storage sections read back by {@link GraphSnapshotFile}, in {@link #sections()} order
+     */
+    GraphSnapshot(int nodeCount, int edgeCount, Buffer[] sections,
+                  LocalDateTime highWaterMark, LocalDateTime builtAt, LocalDateTime scannedAt) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.nodeMsb = (LongBuffer) sections[0];
+        this.nodeLsb = (LongBuffer) sections[1];
+        this.nodeTable = (IntBuffer) sections[2];
+        this.nodeTableMask = nodeTable.capacity() - 1;
+        this.nodeTypes = (ByteBuffer) sections[3];
+        this.edgeMsb = (LongBuffer) sections[4];
+        this.edgeLsb = (LongBuffer) sections[5];
+        this.edgeSource = (IntBuffer) sections[6];
+        this.edgeTarget = (IntBuffer) sections[7];
+        this.edgeTypes = (ShortBuffer) sections[8];
+        this.edgeConfidence = (FloatBuffer) sections[9];
+        this.outOffsets = (IntBuffer) sections[10];
+        this.outNeighbors = (IntBuffer) sections[11];
+        this.outEdges = (IntBuffer) sections[12];
+        this.inOffsets = (IntBuffer) sections[13];
+        this.inNeighbors = (IntBuffer) sections[14];
+        this.inEdges = (IntBuffer) sections[15];
+        this.highWaterMark = highWaterMark;
+        this.builtAt = builtAt;
+        this.scannedAt = scannedAt;
+    }
+
+    public static Builder builder(int expectedNodes, int expectedEdges) {
+        return new Builder(expectedNodes, expectedEdges);
+    }
+
+    // ---- Nodes ----
+
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Dense id for a node UUID, or -1 if the node is not part of this snapshot
+     */
+    @Override
+    public int indexOf(UUID nodeId) {
+        long m = nodeId.getMostSignificantBits();
+        long l = nodeId.getLeastSignificantBits();
+        int slot = UuidIndex.hash(m, l) & nodeTableMask;
+        int entry;
+        while ((entry = nodeTable.get(slot)) != 0) {
+            int node = entry - 1;
+            if (nodeMsb.get(node) == m && nodeLsb.get(node) == l) {
+                return node;
+            }
+            slot = (slot + 1) & nodeTableMask;
+        }
+        return -1;
+    }
+
+    @Override
+    public UUID nodeId(int node) {
+        return new UUID(nodeMsb.get(node), nodeLsb.get(node));
+    }
+
+    /**
+     * Node type, or null if the stored type is not a known {@link NodeType}
+     */
+    public NodeType nodeType(int node) {
+        int ordinal = nodeTypes.get(node);
+        return ordinal >= 0 ? NODE_TYPES[ordinal] : null;
+    }
+
+    public int outDegree(int node) {
+        return outOffsets.get(node + 1) - outOffsets.get(node);
+    }
+
+    public int inDegree(int node) {
+        return inOffsets.get(node + 1) - inOffsets.get(node);
+    }
+
+    public int degree(int node) {
+        return outDegree(node) + inDegree(node);
+    }
+
+    // ---- Adjacency slices: iterate i in [start, end) ----
+
+    public int outStart(int node) {
+        return outOffsets.get(node);
+    }
+
+    public int outEnd(int node) {
+        return outOffsets.get(node + 1);
+    }
+
+    public int outNeighbor(int i) {
+        return outNeighbors.get(i);
+    }
+
+    public int outEdge(int i) {
+        return outEdges.get(i);
+    }
+
+    public int inStart(int node) {
+        return inOffsets.get(node);
+    }
+
+    public int inEnd(int node) {
+        return inOffsets.get(node + 1);
+    }
+
+    public int inNeighbor(int i) {
+        return inNeighbors.get(i);
+    }
+
+    public int inEdge(int i) {
+        return inEdges.get(i);
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new SliceCursor();
+    }
+
+    // ---- Edges ----
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public UUID edgeId(int edge) {
+        return new UUID(edgeMsb.get(edge), edgeLsb.get(edge));
+    }
+
+    public int edgeSource(int edge) {
+        return edgeSource.get(edge);
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTarget.get(edge);
+    }
+
+    /**
+     * Edge type, or null if the stored type is not a known {@link EdgeType}
+     */
+    public EdgeType edgeType(int edge) {
+        int ordinal = edgeTypes.get(edge);
+        return ordinal >= 0 ? EDGE_TYPES[ordinal] : null;
+    }
+
+    public int edgeTypeOrdinal(int edge) {
+        return edgeTypes.get(edge);
+    }
+
+    public float edgeConfidence(int edge) {
+        return edgeConfidence.get(edge);
+    }
+
+    // ---- Metadata ----
+
+    /**
+     * Latest edge created_at seen while building; edges created after this are not in the snapshot
+     */
+    public LocalDateTime getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * Database time at which the scan behind this snapshot started; rows changed after it may be
+     * missing. Null if unknown.
+     */
+    public LocalDateTime getScannedAt() {
+        return scannedAt;
+    }
+
+    /**
+     * Whether the arrays are mapped from a file rather than held on the heap
+     */
+    public boolean isMapped() {
+        return outNeighbors.isDirect();
+    }
+
+    /**
+     * Builder holding this snapshot's nodes and edges minus the given ones; edges of removed
+     * nodes are dropped as well. Used to apply changes without rescanning the database.
+     */
+    public Builder toBuilder(Collection<UUID> removedNodes, Collection<UUID> removedEdges) {
+        UuidIndex droppedNodes = UuidIndex.of(removedNodes);
+        UuidIndex droppedEdges = UuidIndex.of(removedEdges);
+        Builder builder = new Builder(nodeCount, edgeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            if (droppedNodes.indexOf(nodeMsb.get(node), nodeLsb.get(node)) < 0) {
+                builder.addNode(nodeId(node), nodeType(node));
+            }
+        }
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int source = edgeSource.get(edge);
+            int target = edgeTarget.get(edge);
+            if (droppedEdges.indexOf(edgeMsb.get(edge), edgeLsb.get(edge)) < 0
+                    && droppedNodes.indexOf(nodeMsb.get(source), nodeLsb.get(source)) < 0
+                    && droppedNodes.indexOf(nodeMsb.get(target), nodeLsb.get(target)) < 0) {
+                builder.addEdge(edgeId(edge), nodeId(source), nodeId(target), edgeType(edge), edgeConfidence(edge));
+            }
+        }
+        return builder.highWaterMark(highWaterMark);
+    }
+
+    /**
+     * Storage sections in file order: node UUID halves, UUID lookup table, node types, edge UUID
+     * halves, endpoints, types, confidences, then the outgoing and incoming CSR triples
+     */
+    Buffer[] sections() {
+        return new Buffer[] {
+            nodeMsb, nodeLsb, nodeTable, nodeTypes,
+            edgeMsb, edgeLsb, edgeSource, edgeTarget, edgeTypes, edgeConfidence,
+            outOffsets, outNeighbors, outEdges, inOffsets, inNeighbors, inEdges
+        };
+    }
+
+    /**
+     * Counting sort of edges by their key endpoint into an offsets/neighbors/edges triple
+     */
+    private static void fillAdjacency(int[] keys, int[] others, int[] offsets, int[] neighbors, int[] edges) {
+        for (int key : keys) {
+            offsets[key + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] cursor = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int e = 0; e < keys.length; e++) {
+            int position = cursor[keys[e]]++;
+            neighbors[position] = others[e];
+            edges[position] = e;
+        }
+    }
+
+    /**
+     * Walks a node's outgoing slice, then its incoming slice
+     */
+    private final class SliceCursor implements NeighborCursor {
+
+        private int position;
+        private int outEnd;
+        private int inStart;
+        private int inEnd;
+
+        @Override
+        public NeighborCursor of(int node) {
+            position = outOffsets.get(node);
+            outEnd = outOffsets.get(node + 1);
+            inStart = inOffsets.get(node);
+            inEnd = inOffsets.get(node + 1);
+            return this;
+        }
+
+        @Override
+        public int next() {
+            if (position < outEnd) {
+                return outNeighbors.get(position++);
+            }
+            if (inStart < inEnd) {
+                return inNeighbors.get(inStart++);
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Accumulates nodes and edges from a streamed scan into growable primitive arrays
+     */
+    public static final class Builder {
+
+        private final UuidIndex nodes;
+        private byte[] nodeTypes;
+
+        private int edgeCount;
+        private long[] edgeMsb;
+        private long[] edgeLsb;
+        private int[] edgeSource;
+        private int[] edgeTarget;
+        private short[] edgeTypes;
+        private float[] edgeConfidence;
+
+        private LocalDateTime highWaterMark;
+        private LocalDateTime scannedAt;
+
+        private Builder(int expectedNodes, int expectedEdges) {
+            int nodeCapacity = Math.max(expectedNodes, 16);
+            int edgeCapacity = Math.max(expectedEdges, 16);
+            this.nodes = new UuidIndex(nodeCapacity);
+            this.nodeTypes = new byte[nodeCapacity];
+            this.edgeMsb = new long[edgeCapacity];
+            this.edgeLsb = new long[edgeCapacity];
+            this.edgeSource = new int[edgeCapacity];
+            this.edgeTarget = new int[edgeCapacity];
+            this.edgeTypes = new short[edgeCapacity];
+            this.edgeConfidence = new float[edgeCapacity];
+        }
+
+        /**
+         * Register a node; a null type is stored as unknown
+         */
+        public Builder addNode(UUID id, NodeType type) {
+            int node = nodes.add(id);
+            ensureNodeCapacity(node + 1);
+            nodeTypes[node] = (byte) (type != null ? type.ordinal() : -1);
+            return this;
+        }
+
+        /**
+         * Register an edge; endpoints not seen via {@link #addNode} are added with an unknown type
+         */
+        public Builder addEdge(UUID id, UUID source, UUID target, EdgeType type, float confidence) {
+            int sourceNode = nodeOf(source);
+            int targetNode = nodeOf(target);
+            if (edgeCount == edgeSource.length) {
+                int capacity = edgeCount << 1;
+                edgeMsb = Arrays.copyOf(edgeMsb, capacity);
+                edgeLsb = Arrays.copyOf(edgeLsb, capacity);
+                edgeSource = Arrays.copyOf(edgeSource, capacity);
+                edgeTarget = Arrays.copyOf(edgeTarget, capacity);
+                edgeTypes = Arrays.copyOf(edgeTypes, capacity);
+                edgeConfidence = Arrays.copyOf(edgeConfidence, capacity);
+            }
+            edgeMsb[edgeCount] = id.getMostSignificantBits();
+            edgeLsb[edgeCount] = id.getLeastSignificantBits();
+            edgeSource[edgeCount] = sourceNode;
+            edgeTarget[edgeCount] = targetNode;
+            edgeTypes[edgeCount] = (short) (type != null ? type.ordinal() : -1);
+            edgeConfidence[edgeCount] = confidence;
+            edgeCount++;
+            return this;
+        }
+
+        public Builder highWaterMark(LocalDateTime createdAt) {
+            if (createdAt != null && (highWaterMark == null || createdAt.isAfter(highWaterMark))) {
+                highWaterMark = createdAt;
+            }
+            return this;
+        }
+
+        public Builder scannedAt(LocalDateTime startedAt) {
+            this.scannedAt = startedAt;
+            return this;
+        }
+
+        public GraphSnapshot build() {
+            return new GraphSnapshot(this);
+        }
+
+        private int nodeOf(UUID id) {
+            int node = nodes.indexOf(id);
+            if (node < 0) {
+                node = nodes.add(id);
+                ensureNodeCapacity(node + 1);
+                nodeTypes[node] = -1;
+            }
+            return node;
+        }
+
+        private void ensureNodeCapacity(int required) {
+            if (required > nodeTypes.length) {
+                nodeTypes = Arrays.copyOf(nodeTypes, Math.max(required, nodeTypes.length << 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary file holding every array of a {@link GraphSnapshot}, so a restart maps the graph back
+ * in with {@link FileChannel#map} instead of rescanning the database.
+ *
+ * Layout: a fixed header (magic, format version, node / edge / lookup table sizes, a fingerprint
+ * of the node and edge type enums, the snapshot's timestamps, a CRC32C of the header and one of
+ * the section data), then the storage sections of {@link GraphSnapshot#sections()}, each aligned
+ * to 8 bytes. Values are written in native byte order and mapped as they are; a file from a
+ * machine with another byte order, another format version or other enum constants is rejected
+ * rather than converted. Each section is mapped on its own, so none may exceed 2 GB.
+ *
+ * Files are written to a temporary sibling and moved into place, so a reader never sees a
+ * partial file and snapshots still mapped from a replaced file stay valid.
+ */
+public final class GraphSnapshotFile {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4B47534E;    // "KGSN"
+    static final int HEADER_BYTES = 128;
+    static final int HEADER_CHECKSUM_OFFSET = 88;
+    static final int CHUNK_BYTES = 1 << 20;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    // Element type per section, in GraphSnapshot#sections() order
+    private static final char[] SECTION_TYPES = "LLIBLLIISFIIIIII".toCharArray();
+
+    private GraphSnapshotFile() {
+        // Utility class
+    }
+
+    /**
+     * Write a snapshot to a file, replacing any previous one
+     */
+    public static void write(GraphSnapshot snapshot, Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Buffer[] sections = snapshot.sections();
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.nativeOrder());
+                CRC32C dataChecksum = new CRC32C();
+                long position = HEADER_BYTES;
+                for (int s = 0; s < sections.length; s++) {
+                    position = pad(channel, position);
+                    position = writeSection(channel, position, sections[s], SECTION_TYPES[s], chunk, dataChecksum);
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+                header.putInt(0, MAGIC)
+                    .putInt(4, VERSION)
+                    .putInt(8, snapshot.nodeCount())
+                    .putInt(12, snapshot.edgeCount())
+                    .putInt(16, sections[2].capacity())
+                    .putLong(24, typeFingerprint())
+                    .putLong(80, position - HEADER_BYTES)
+                    .putInt(92, (int) dataChecksum.getValue());
+                putTime(header, 32, snapshot.getHighWaterMark());
+                putTime(header, 48, snapshot.getBuiltAt());
+                putTime(header, 64, snapshot.getScannedAt());
+                header.putInt(HEADER_CHECKSUM_OFFSET, headerChecksum(header));
+                writeFully(channel, header, 0);
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Map a snapshot file. With verify, every section is read once to check the data checksum,
+     * which faults the whole file into the page cache; without, pages load on first access.
+     *
+     * @throws IOException if the file is missing, truncated, corrupt or from an incompatible writer
+     */
+    public static GraphSnapshot read(Path path, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Snapshot file is truncated");
+            }
+            readFully(channel, header, 0);
+
+            int magic = header.getInt(0);
+            if (magic != MAGIC) {
+                throw new IOException(magic == Integer.reverseBytes(MAGIC)
+                    ? "Snapshot file was written with another byte order" : "Not a graph snapshot file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Snapshot file has format version " + header.getInt(4) + ", expected " + VERSION);
+            }
+            if (header.getInt(HEADER_CHECKSUM_OFFSET) != headerChecksum(header)) {
+                throw new IOException("Snapshot file header checksum mismatch");
+            }
+            if (header.getLong(24) != typeFingerprint()) {
+                throw new IOException("Snapshot file was written for other node or edge types");
+            }
+
+            int nodeCount = header.getInt(8);
+            int edgeCount = header.getInt(12);
+            int tableLength = header.getInt(16);
+            if (nodeCount < 0 || edgeCount < 0 || tableLength <= 0 || Integer.bitCount(tableLength) != 1) {
+                throw new IOException("Snapshot file header is inconsistent");
+            }
+            long[] lengths = {
+                nodeCount, nodeCount, tableLength, nodeCount,
+                edgeCount, edgeCount, edgeCount, edgeCount, edgeCount, edgeCount,
+                nodeCount + 1L, edgeCount, edgeCount, nodeCount + 1L, edgeCount, edgeCount
+            };
+            long expectedSize = HEADER_BYTES;
+            for (int s = 0; s < lengths.length; s++) {
+                expectedSize = align(expectedSize) + lengths[s] * elementBytes(SECTION_TYPES[s]);
+            }
+            if (expectedSize != HEADER_BYTES + header.getLong(80) || expectedSize != channel.size()) {
+                throw new IOException("Snapshot file is truncated");
+            }
+
+            Buffer[] sections = new Buffer[lengths.length];
+            CRC32C dataChecksum = new CRC32C();
+            long position = HEADER_BYTES;
+            for (int s = 0; s < lengths.length; s++) {
+                position = align(position);
+                long bytes = lengths[s] * elementBytes(SECTION_TYPES[s]);
+                if (bytes > Integer.MAX_VALUE) {
+                    throw new IOException("Snapshot section " + s + " is too large to map");
+                }
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes)
+                    .order(ByteOrder.nativeOrder());
+                if (verify) {
+                    dataChecksum.update(mapped.duplicate());
+                }
+                sections[s] = view(mapped, SECTION_TYPES[s]);
+                position += bytes;
+            }
+            if (verify && (int) dataChecksum.getValue() != header.getInt(92)) {
+                throw new IOException("Snapshot file data checksum mismatch");
+            }
+
+            return new GraphSnapshot(nodeCount, edgeCount, sections,
+                getTime(header, 32), getTime(header, 48), getTime(header, 64));
+        }
+    }
+
+    /**
+     * Append one section through the chunk buffer, feeding the data checksum
+     */
+    static long writeSection(FileChannel channel, long position, Buffer section, char type,
+                                     ByteBuffer chunk, CRC32C dataChecksum) throws IOException {
+        int elementBytes = elementBytes(type);
+        int perChunk = CHUNK_BYTES / elementBytes;
+        int length = section.capacity();
+        for (int from = 0; from < length; from += perChunk) {
+            int count = Math.min(perChunk, length - from);
+            chunk.clear();
+            // Slices leave the shared section buffer's position untouched
+            switch (type) {
+                case 'L' -> chunk.asLongBuffer().put(((LongBuffer) section).slice(from, count));
+                case 'I' -> chunk.asIntBuffer().put(((IntBuffer) section).slice(from, count));
+                case 'S' -> chunk.asShortBuffer().put(((ShortBuffer) section).slice(from, count));
+                case 'F' -> chunk.asFloatBuffer().put(((FloatBuffer) section).slice(from, count));
+                default -> chunk.put(((ByteBuffer) section).slice(from, count));
+            }
+            chunk.position(0).limit(count * elementBytes);
+            dataChecksum.update(chunk.duplicate());
+            position += writeFully(channel, chunk, position);
+        }
+        return position;
+    }
+
+    static Buffer view(ByteBuffer mapped, char type) {
+        return switch (type) {
+            case 'L' -> mapped.asLongBuffer();
+            case 'I' -> mapped.asIntBuffer();
+            case 'S' -> mapped.asShortBuffer();
+            case 'F' -> mapped.asFloatBuffer();
+            default -> mapped;
+        };
+    }
+
+    static int elementBytes(char type) {
+        return switch (type) {
+            case 'L' -> Long.BYTES;
+            case 'I' -> Integer.BYTES;
+            case 'S' -> Short.BYTES;
+            case 'F' -> Float.BYTES;
+            default -> Byte.BYTES;
+        };
+    }
+
+    static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    static long pad(FileChannel channel, long position) throws IOException {
+        long aligned = align(position);
+        if (aligned > position) {
+            writeFully(channel, ByteBuffer.allocate((int) (aligned - position)), position);
+        }
+        return aligned;
+    }
+
+    static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + read);
+            if (n < 0) {
+                throw new IOException("Snapshot file is truncated");
+            }
+            read += n;
+        }
+    }
+
+    static int headerChecksum(ByteBuffer header) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(header.duplicate().position(0).limit(HEADER_CHECKSUM_OFFSET));
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Types are stored by ordinal, so the file is only valid for the enum constants it was written with
+     */
+    private static long typeFingerprint() {
+        String names = Arrays.toString(NodeType.values()) + Arrays.toString(EdgeType.values());
+        long hash = 1125899906842597L;
+        for (int i = 0; i < names.length(); i++) {
+            hash = 31 * hash + names.charAt(i);
+        }
+        return hash;
+    }
+
+    static void putTime(ByteBuffer header, int offset, LocalDateTime time) {
+        header.putLong(offset, time != null ? time.toEpochSecond(ZoneOffset.UTC) : NO_TIME)
+            .putInt(offset + 8, time != null ? time.getNano() : 0);
+    }
+
+    static LocalDateTime getTime(ByteBuffer header, int offset) {
+        long seconds = header.getLong(offset);
+        return seconds == NO_TIME ? null
+            : LocalDateTime.ofEpochSecond(seconds, header.getInt(offset + 8), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,128 @@
+package com.knowledgegraph.graph;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int -> double map with linear probing, for sparse per-node scores.
+ * Keys must be non-negative (dense node ids); -1 marks a free slot.
+ */
+public final class IntDoubleHashMap {
+
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private double[] values;
+    private int mask;
+    private int size;
+
+    public IntDoubleHashMap() {
+        this(16);
+    }
+
+    public IntDoubleHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    public double get(int key) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : 0.0;
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    public void put(int key, double value) {
+        values[slotFor(key)] = value;
+    }
+
+    /**
+     * Add to a value (absent keys count as 0) and return the new value
+     */
+    public double add(int key, double delta) {
+        int slot = slotFor(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visit every entry in table order
+     */
+    public void forEach(IntDoubleConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface IntDoubleConsumer {
+        void accept(int key, double value);
+    }
+
+    private int find(int key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Slot holding the key, inserting it with value 0 if absent
+     */
+    private int slotFor(int key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash();
+            return slotFor(key);
+        }
+        keys[slot] = key;
+        values[slot] = 0.0;
+        size++;
+        return slot;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                values[slotFor(oldKeys[i])] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new double[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, FREE);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,218 @@
+package com.knowledgegraph.graph;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Yen's k-shortest loopless paths over a {@link GraphSnapshot}, treating edges as undirected.
+ *
+ * Each spur search is a {@link WeightedShortestPath} run with the root path's nodes and the
+ * already-used deviation edges priced at infinity. With a maximum path length, every search is
+ * hop-bounded (the spur gets the hops its root leaves over), so the paths are the k cheapest
+ * within the length rather than the k cheapest overall with long ones dropped. Work is also
+ * bounded by a shared node-expansion budget across all spur searches and a wall-clock deadline.
+ * The candidate set never holds more than the number of paths still wanted, so memory stays
+ * proportional to k times path length. Paths are handed to the consumer as soon as they are
+ * accepted.
+ */
+public final class KShortestPaths {
+
+    public enum Outcome {
+        COMPLETE,            // k paths found
+        EXHAUSTED,           // fewer than k loopless paths exist within the limits
+        EXPANSION_LIMIT,
+        TIME_LIMIT
+    }
+
+    private final GraphSnapshot graph;
+    private final EdgeCost edgeCost;
+    private int maxLength = Integer.MAX_VALUE;
+    private long maxExpansions = Long.MAX_VALUE;
+    private long deadlineNanos = Long.MAX_VALUE;
+
+    private long expansions;
+
+    public KShortestPaths(GraphSnapshot graph, EdgeCost edgeCost) {
+        this.graph = graph;
+        this.edgeCost = edgeCost;
+    }
+
+    /**
+     * Longest path, in edges
+     */
+    public KShortestPaths maxLength(int maxLength) {
+        this.maxLength = maxLength;
+        return this;
+    }
+
+    /**
+     * Total node expansions allowed across all spur searches
+     */
+    public KShortestPaths maxExpansions(long maxExpansions) {
+        this.maxExpansions = maxExpansions;
+        return this;
+    }
+
+    public KShortestPaths timeout(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+        return this;
+    }
+
+    public long getExpansions() {
+        return expansions;
+    }
+
+    public Outcome find(int source, int target, int k, Consumer<WeightedShortestPath.Result> consumer) {
+        List<WeightedShortestPath.Result> accepted = new ArrayList<>();
+        List<WeightedShortestPath.Result> candidates = new ArrayList<>(); // sorted by cost
+
+        WeightedShortestPath.Result first = search(source, target, edgeCost, maxLength);
+        if (first == null) {
+            return limitOutcome();
+        }
+        if (!first.isFound()) {
+            return Outcome.EXHAUSTED;
+        }
+        accepted.add(first);
+        consumer.accept(first);
+
+        while (accepted.size() < k) {
+            WeightedShortestPath.Result previous = accepted.get(accepted.size() - 1);
+            int[] nodes = previous.getNodes();
+            int[] edges = previous.getEdges();
+            double rootCost = 0.0;
+
+            for (int i = 0; i < nodes.length - 1; i++) {
+                if (System.nanoTime() > deadlineNanos) {
+                    return Outcome.TIME_LIMIT;
+                }
+
+                int spur = nodes[i];
+                IntIntHashMap bannedEdges = new IntIntHashMap();
+                for (WeightedShortestPath.Result path : accepted) {
+                    if (sharesRoot(path, edges, i)) {
+                        bannedEdges.put(path.getEdges()[i], 0);
+                    }
+                }
+                IntIntHashMap bannedNodes = new IntIntHashMap(i + 1);
+                for (int j = 0; j < i; j++) {
+                    bannedNodes.put(nodes[j], 0);
+                }
+
+                WeightedShortestPath.Result spurPath = search(
+                    spur, target, excluding(bannedNodes, bannedEdges), maxLength - i);
+                if (spurPath == null) {
+                    return limitOutcome();
+                }
+                if (spurPath.isFound()) {
+                    offer(candidates, join(nodes, edges, i, rootCost, spurPath), k - accepted.size(), accepted);
+                }
+
+                rootCost += edgeCost.cost(graph, edges[i]);
+            }
+
+            if (candidates.isEmpty()) {
+                return Outcome.EXHAUSTED;
+            }
+            WeightedShortestPath.Result next = candidates.remove(0);
+            accepted.add(next);
+            consumer.accept(next);
+        }
+
+        return Outcome.COMPLETE;
+    }
+
+    /**
+     * Run one bounded search for a path of at most maxHops edges; null when the expansion
+     * budget is spent
+     */
+    private WeightedShortestPath.Result search(int from, int to, EdgeCost cost, int maxHops) {
+        long remaining = maxExpansions - expansions;
+        if (remaining <= 0) {
+            return null;
+        }
+        int budget = (int) Math.min(remaining, Integer.MAX_VALUE);
+        WeightedShortestPath.Result result = maxHops < graph.nodeCount()
+            ? WeightedShortestPath.searchWithinHops(graph, from, to, cost, maxHops, budget)
+            : WeightedShortestPath.search(graph, from, to, cost, WeightedShortestPath.Heuristic.NONE, budget);
+        expansions += result.getExpandedNodes();
+        return result.isTruncated() ? null : result;
+    }
+
+    private Outcome limitOutcome() {
+        return System.nanoTime() > deadlineNanos ? Outcome.TIME_LIMIT : Outcome.EXPANSION_LIMIT;
+    }
+
+    private EdgeCost excluding(IntIntHashMap bannedNodes, IntIntHashMap bannedEdges) {
+        return (g, edge) -> {
+            if (bannedEdges.containsKey(edge)
+                    || bannedNodes.containsKey(g.edgeSource(edge))
+                    || bannedNodes.containsKey(g.edgeTarget(edge))) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return edgeCost.cost(g, edge);
+        };
+    }
+
+    /**
+     * True if the path continues past the first length edges of root and shares them.
+     * Edges rather than nodes are compared so parallel edges yield distinct paths.
+     */
+    private static boolean sharesRoot(WeightedShortestPath.Result path, int[] rootEdges, int length) {
+        int[] edges = path.getEdges();
+        if (edges.length <= length) {
+            return false;
+        }
+        for (int j = 0; j < length; j++) {
+            if (edges[j] != rootEdges[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static WeightedShortestPath.Result join(int[] rootNodes, int[] rootEdges, int spurIndex,
+                                                    double rootCost, WeightedShortestPath.Result spur) {
+        int[] spurNodes = spur.getNodes();
+        int[] spurEdges = spur.getEdges();
+
+        int[] nodes = new int[spurIndex + spurNodes.length];
+        System.arraycopy(rootNodes, 0, nodes, 0, spurIndex);
+        System.arraycopy(spurNodes, 0, nodes, spurIndex, spurNodes.length);
+
+        int[] edges = new int[spurIndex + spurEdges.length];
+        System.arraycopy(rootEdges, 0, edges, 0, spurIndex);
+        System.arraycopy(spurEdges, 0, edges, spurIndex, spurEdges.length);
+
+        return new WeightedShortestPath.Result(nodes, edges, rootCost + spur.getCost(), spur.getExpandedNodes(), false);
+    }
+
+    /**
+     * Insert a candidate in cost order, skipping duplicates and keeping at most capacity entries
+     */
+    private static void offer(List<WeightedShortestPath.Result> candidates, WeightedShortestPath.Result candidate,
+                              int capacity, List<WeightedShortestPath.Result> accepted) {
+        for (WeightedShortestPath.Result existing : candidates) {
+            if (Arrays.equals(existing.getEdges(), candidate.getEdges())) {
+                return;
+            }
+        }
+        for (WeightedShortestPath.Result existing : accepted) {
+            if (Arrays.equals(existing.getEdges(), candidate.getEdges())) {
+                return;
+            }
+        }
+
+        int position = 0;
+        while (position < candidates.size() && candidates.get(position).getCost() <= candidate.getCost()) {
+            position++;
+        }
+        if (position >= capacity) {
+            return;
+        }
+        candidates.add(position, candidate);
+        if (candidates.size() > capacity) {
+            candidates.remove(candidates.size() - 1);
+        }
+    }
+}
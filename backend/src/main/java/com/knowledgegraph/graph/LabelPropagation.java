@@ -0,0 +1,206 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Weighted label propagation community detection over a {@link GraphSnapshot}, treating
+ * edges as undirected.
+ *
+ * Every node repeatedly adopts the label carrying the most edge weight among its neighbors,
+ * keeping its own label on ties. Updates are applied in place while workers sweep chunks of
+ * nodes in parallel, which avoids the oscillation of fully synchronous rounds. Each worker
+ * tallies label weights in its own dense buffer, resetting only the labels it touched.
+ * Labels are dense node ids; passing the previous run's labels as the starting point lets a
+ * re-run after a small change converge in a few sweeps.
+ */
+public final class LabelPropagation {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final int[] labels;
+        private final int iterations;
+        private final int lastChanges;
+    }
+
+    private final GraphSnapshot graph;
+    private final float[] edgeWeights;
+    private int maxIterations = 20;
+    private double minChangeFraction = 0.001;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param edgeWeights non-negative weight per edge id, see {@link #weights}
+     */
+    public LabelPropagation(GraphSnapshot graph, float[] edgeWeights) {
+        this.graph = graph;
+        this.edgeWeights = edgeWeights;
+    }
+
+    public LabelPropagation maxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * Stop once fewer than this fraction of nodes changed label in a sweep
+     */
+    public LabelPropagation minChangeFraction(double minChangeFraction) {
+        this.minChangeFraction = minChangeFraction;
+        return this;
+    }
+
+    public LabelPropagation parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * Edge weight = type weight (default for unlisted types) times confidence if requested
+     */
+    public static float[] weights(GraphSnapshot graph, Map<EdgeType, Double> typeWeights,
+                                  double defaultWeight, boolean useConfidence) {
+        double[] byType = new double[EdgeType.values().length];
+        Arrays.fill(byType, defaultWeight);
+        typeWeights.forEach((type, weight) -> byType[type.ordinal()] = weight);
+
+        float[] weights = new float[graph.edgeCount()];
+        for (int edge = 0; edge < weights.length; edge++) {
+            int ordinal = graph.edgeTypeOrdinal(edge);
+            double weight = ordinal >= 0 ? byType[ordinal] : defaultWeight;
+            if (useConfidence) {
+                weight *= Math.max(0.0, Math.min(1.0, graph.edgeConfidence(edge)));
+            }
+            weights[edge] = (float) weight;
+        }
+        return weights;
+    }
+
+    /**
+     * Start from every node in its own community
+     */
+    public Result run() {
+        int[] labels = new int[graph.nodeCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = i;
+        }
+        return run(labels);
+    }
+
+    /**
+     * Start from the given labels (dense node ids), which are updated in place
+     */
+    public Result run(int[] labels) {
+        int nodeCount = graph.nodeCount();
+        int chunks = (nodeCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int threshold = (int) Math.ceil(minChangeFraction * nodeCount);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int iteration = 0;
+            int changes = Integer.MAX_VALUE;
+            while (iteration < maxIterations && changes > 0 && changes >= threshold) {
+                AtomicInteger nextChunk = new AtomicInteger();
+                AtomicInteger changed = new AtomicInteger();
+                List<ForkJoinTask<?>> workers = new ArrayList<>();
+                for (int w = 0; w < parallelism; w++) {
+                    workers.add(pool.submit(() -> {
+                        Tally tally = new Tally(nodeCount);
+                        int local = 0;
+                        for (int chunk = nextChunk.getAndIncrement(); chunk < chunks; chunk = nextChunk.getAndIncrement()) {
+                            int end = Math.min(nodeCount, (chunk + 1) * CHUNK_SIZE);
+                            for (int node = chunk * CHUNK_SIZE; node < end; node++) {
+                                if (update(node, labels, tally)) {
+                                    local++;
+                                }
+                            }
+                        }
+                        changed.addAndGet(local);
+                    }));
+                }
+                workers.forEach(ForkJoinTask::join);
+                changes = changed.get();
+                iteration++;
+            }
+            return new Result(labels, iteration, changes == Integer.MAX_VALUE ? 0 : changes);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private boolean update(int node, int[] labels, Tally tally) {
+        for (int j = graph.outStart(node); j < graph.outEnd(node); j++) {
+            int neighbor = graph.outNeighbor(j);
+            if (neighbor != node) {
+                tally.add(labels[neighbor], edgeWeights[graph.outEdge(j)]);
+            }
+        }
+        for (int j = graph.inStart(node); j < graph.inEnd(node); j++) {
+            int neighbor = graph.inNeighbor(j);
+            if (neighbor != node) {
+                tally.add(labels[neighbor], edgeWeights[graph.inEdge(j)]);
+            }
+        }
+
+        int current = labels[node];
+        int best = current;
+        double bestWeight = tally.weight[current];
+        for (int i = 0; i < tally.touched.size(); i++) {
+            int label = tally.touched.get(i);
+            double weight = tally.weight[label];
+            if (weight > bestWeight || (weight == bestWeight && weight > 0 && best != current && label < best)) {
+                best = label;
+                bestWeight = weight;
+            }
+        }
+        tally.reset();
+
+        if (best != current && bestWeight > 0) {
+            labels[node] = best;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Dense per-worker weight buffer indexed by label
+     */
+    private static final class Tally {
+
+        final double[] weight;
+        final IntList touched = new IntList();
+
+        Tally(int size) {
+            weight = new double[size];
+        }
+
+        void add(int label, float value) {
+            if (value <= 0.0f) {
+                return;
+            }
+            if (weight[label] == 0.0) {
+                touched.add(label);
+            }
+            weight[label] += value;
+        }
+
+        void reset() {
+            for (int i = 0; i < touched.size(); i++) {
+                weight[touched.get(i)] = 0.0;
+            }
+            touched.clear();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.knowledgegraph.graph;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Distance labels built by {@link PrunedLandmarkLabeling}. Every node keeps a list of
+ * (landmark, hops) entries sorted by landmark rank; the distance between two nodes is at most
+ * the smallest sum over the landmarks their labels share, and exactly that when either node is
+ * itself a landmark (every node is one when the build was not cut short).
+ *
+ * Edges inserted after the build are patched in with the incremental update of Akiba, Iwata
+ * and Yoshida (2014): for every landmark in one endpoint's label, the pruned search resumes
+ * from the other endpoint. Inserted edges and nodes the snapshot does not know are kept in an
+ * overlay. Removed edges cannot be patched; the labels must be rebuilt.
+ *
+ * Queries may run concurrently with one writer: labels are replaced, never modified in place.
+ */
+public final class LandmarkLabels {
+
+    public static final int MAX_DISTANCE = 255;
+    public static final int MAX_LANDMARKS = (1 << 23) - 1;
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    static final int[] EMPTY = new int[0];
+
+    private final GraphSnapshot graph;
+    private final int[] landmarks;                   // node per landmark rank
+    private final int[] rankOf;                      // landmark rank per snapshot node, or -1
+    private volatile AtomicReferenceArray<int[]> labels;
+    private final Map<UUID, Integer> addedIds = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> addedNeighbors = new ConcurrentHashMap<>();
+    private int nodeCount;
+    @Getter
+    private volatile long entryCount;
+    @Getter
+    private volatile int patchedEdges;
+
+    LandmarkLabels(GraphSnapshot graph, int[] landmarks, int[][] labels, long entryCount) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.rankOf = new int[graph.nodeCount()];
+        Arrays.fill(rankOf, -1);
+        for (int rank = 0; rank < landmarks.length; rank++) {
+            rankOf[landmarks[rank]] = rank;
+        }
+        this.labels = new AtomicReferenceArray<>(labels);
+        this.nodeCount = graph.nodeCount();
+        this.entryCount = entryCount;
+    }
+
+    static int entry(int rank, int distance) {
+        return rank << 8 | distance;
+    }
+
+    static int rank(int entry) {
+        return entry >>> 8;
+    }
+
+    static int distance(int entry) {
+        return entry & 0xFF;
+    }
+
+    public GraphSnapshot getGraph() {
+        return graph;
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Every snapshot node was used as a landmark, so every distance bound is exact
+     */
+    public boolean isComplete() {
+        return landmarks.length == graph.nodeCount();
+    }
+
+    /**
+     * Dense id for a node, including nodes added by patched edges, or -1
+     */
+    public int indexOf(UUID nodeId) {
+        int node = graph.indexOf(nodeId);
+        return node >= 0 ? node : addedIds.getOrDefault(nodeId, -1);
+    }
+
+    /**
+     * Whether labelDistance(source, target) is the exact distance (or exactly unreachable
+     * within {@link #MAX_DISTANCE})
+     */
+    public boolean isExact(int source, int target) {
+        return source == target || isLandmark(source) || isLandmark(target);
+    }
+
+    /**
+     * Smallest distance through a landmark both labels share, or {@link #UNREACHABLE}
+     */
+    public int labelDistance(int source, int target) {
+        if (source == target) {
+            return 0;
+        }
+        AtomicReferenceArray<int[]> current = labels;
+        return intersect(current.get(source), current.get(target));
+    }
+
+    /**
+     * Exact hop distance if at most maxHops, otherwise {@link #UNREACHABLE}, found by a
+     * bidirectional BFS over the snapshot and patched edges
+     */
+    public int searchDistance(int source, int target, int maxHops) {
+        if (source == target) {
+            return 0;
+        }
+        IntIntHashMap forwardDistances = new IntIntHashMap();
+        IntIntHashMap backwardDistances = new IntIntHashMap();
+        forwardDistances.put(source, 0);
+        backwardDistances.put(target, 0);
+        IntList forwardFrontier = new IntList();
+        IntList backwardFrontier = new IntList();
+        forwardFrontier.add(source);
+        backwardFrontier.add(target);
+        int forwardDepth = 0;
+        int backwardDepth = 0;
+
+        IntList neighbors = new IntList();
+        while (forwardDepth + backwardDepth < maxHops && !forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+            boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+            IntList frontier = forward ? forwardFrontier : backwardFrontier;
+            IntIntHashMap own = forward ? forwardDistances : backwardDistances;
+            IntIntHashMap other = forward ? backwardDistances : forwardDistances;
+            int depth = (forward ? forwardDepth : backwardDepth) + 1;
+
+            // Finish the level on a meeting: a later node of it may close a shorter path
+            int best = UNREACHABLE;
+            IntList next = new IntList();
+            for (int i = 0; i < frontier.size(); i++) {
+                neighbors.clear();
+                addNeighbors(frontier.get(i), neighbors);
+                for (int j = 0; j < neighbors.size(); j++) {
+                    int w = neighbors.get(j);
+                    if (own.putIfAbsent(w, depth)) {
+                        int remaining = other.get(w, -1);
+                        if (remaining >= 0) {
+                            best = Math.min(best, depth + remaining);
+                        }
+                        next.add(w);
+                    }
+                }
+            }
+            if (best != UNREACHABLE) {
+                return best <= maxHops ? best : UNREACHABLE;
+            }
+            if (forward) {
+                forwardFrontier = next;
+                forwardDepth = depth;
+            } else {
+                backwardFrontier = next;
+                backwardDepth = depth;
+            }
+        }
+        return UNREACHABLE;
+    }
+
+    /**
+     * Patch in an undirected edge. Endpoints unknown to the labels are added as nodes.
+     * Not safe for concurrent writers.
+     */
+    public void addEdge(UUID source, UUID target) {
+        int a = ensureNode(source);
+        int b = ensureNode(target);
+        if (a == b) {
+            return;
+        }
+        addNeighbor(a, b);
+        addNeighbor(b, a);
+
+        // Resume from both ends in rank order, as the insertion would have been seen in a full build
+        int[] labelA = labels.get(a);
+        int[] labelB = labels.get(b);
+        int i = 0;
+        int j = 0;
+        int[] rootDistance = new int[landmarks.length];
+        Arrays.fill(rootDistance, UNREACHABLE);
+        while (i < labelA.length || j < labelB.length) {
+            int rankA = i < labelA.length ? rank(labelA[i]) : Integer.MAX_VALUE;
+            int rankB = j < labelB.length ? rank(labelB[j]) : Integer.MAX_VALUE;
+            if (rankA <= rankB) {
+                resume(rankA, b, distance(labelA[i]) + 1, rootDistance);
+                i++;
+            }
+            if (rankB <= rankA) {
+                resume(rankB, a, distance(labelB[j]) + 1, rootDistance);
+                j++;
+            }
+        }
+        patchedEdges++;
+    }
+
+    private boolean isLandmark(int node) {
+        return node < rankOf.length && rankOf[node] >= 0;
+    }
+
+    /**
+     * Pruned BFS for one landmark starting at a node first reached at the given distance
+     */
+    private void resume(int rank, int start, int startDistance, int[] rootDistance) {
+        if (startDistance > MAX_DISTANCE) {
+            return;
+        }
+        int[] rootLabel = labels.get(landmarks[rank]);
+        for (int entry : rootLabel) {
+            rootDistance[rank(entry)] = distance(entry);
+        }
+
+        IntIntHashMap distances = new IntIntHashMap();
+        IntList queue = new IntList();
+        IntList neighbors = new IntList();
+        distances.put(start, startDistance);
+        queue.add(start);
+        for (int head = 0; head < queue.size(); head++) {
+            int v = queue.get(head);
+            int d = distances.get(v, UNREACHABLE);
+            if (covered(labels.get(v), rootDistance, d)) {
+                continue;
+            }
+            setEntry(v, rank, d);
+            if (d == MAX_DISTANCE) {
+                continue;
+            }
+            neighbors.clear();
+            addNeighbors(v, neighbors);
+            for (int j = 0; j < neighbors.size(); j++) {
+                if (distances.putIfAbsent(neighbors.get(j), d + 1)) {
+                    queue.add(neighbors.get(j));
+                }
+            }
+        }
+
+        for (int entry : rootLabel) {
+            rootDistance[rank(entry)] = UNREACHABLE;
+        }
+    }
+
+    private static boolean covered(int[] label, int[] rootDistance, int d) {
+        for (int entry : label) {
+            int through = rootDistance[rank(entry)];
+            if (through != UNREACHABLE && through + distance(entry) <= d) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replace the node's label with one holding (rank, distance), keeping rank order
+     */
+    private void setEntry(int node, int rank, int distance) {
+        int[] label = labels.get(node);
+        int low = 0;
+        int high = label.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midRank = rank(label[mid]);
+            if (midRank < rank) {
+                low = mid + 1;
+            } else if (midRank > rank) {
+                high = mid - 1;
+            } else {
+                int[] updated = label.clone();
+                updated[mid] = entry(rank, distance);
+                labels.set(node, updated);
+                return;
+            }
+        }
+        int[] updated = new int[label.length + 1];
+        System.arraycopy(label, 0, updated, 0, low);
+        updated[low] = entry(rank, distance);
+        System.arraycopy(label, low, updated, low + 1, label.length - low);
+        labels.set(node, updated);
+        entryCount++;
+    }
+
+    private int ensureNode(UUID nodeId) {
+        int node = indexOf(nodeId);
+        if (node >= 0) {
+            return node;
+        }
+        node = nodeCount++;
+        AtomicReferenceArray<int[]> current = labels;
+        if (node == current.length()) {
+            AtomicReferenceArray<int[]> grown = new AtomicReferenceArray<>(current.length() * 2 + 16);
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            labels = grown;
+            current = grown;
+        }
+        current.set(node, EMPTY);
+        addedIds.put(nodeId, node);
+        return node;
+    }
+
+    private void addNeighbor(int node, int neighbor) {
+        int[] neighbors = addedNeighbors.getOrDefault(node, EMPTY);
+        for (int existing : neighbors) {
+            if (existing == neighbor) {
+                return;
+            }
+        }
+        int[] updated = Arrays.copyOf(neighbors, neighbors.length + 1);
+        updated[neighbors.length] = neighbor;
+        addedNeighbors.put(node, updated);
+    }
+
+    private void addNeighbors(int node, IntList out) {
+        if (node < graph.nodeCount()) {
+            for (int j = graph.outStart(node); j < graph.outEnd(node); j++) {
+                out.add(graph.outNeighbor(j));
+            }
+            for (int j = graph.inStart(node); j < graph.inEnd(node); j++) {
+                out.add(graph.inNeighbor(j));
+            }
+        }
+        for (int neighbor : addedNeighbors.getOrDefault(node, EMPTY)) {
+            out.add(neighbor);
+        }
+    }
+
+    /**
+     * Merge-join of two rank-sorted labels
+     */
+    private static int intersect(int[] first, int[] second) {
+        int best = UNREACHABLE;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            int rankFirst = rank(first[i]);
+            int rankSecond = rank(second[j]);
+            if (rankFirst < rankSecond) {
+                i++;
+            } else if (rankFirst > rankSecond) {
+                j++;
+            } else {
+                best = Math.min(best, distance(first[i]) + distance(second[j]));
+                i++;
+                j++;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,130 @@
+package com.knowledgegraph.graph;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Personalized PageRank from a single source by local push (Andersen, Chung and Lang), treating
+ * edges as undirected.
+ *
+ * Every node holds an estimate p and a residual r, starting with all mass as residual on the
+ * source. Pushing a node moves alpha of its residual into its estimate and spreads the rest
+ * evenly over its neighbors. Only nodes whose residual exceeds epsilon times their degree are
+ * pushed, so the work is bounded by about 1 / (alpha * epsilon) edge visits regardless of graph
+ * size and only the region around the source is touched. Estimates and residuals live in sparse
+ * maps. A push cap and a deadline bound the latency; the estimate is valid at any point, only
+ * less complete.
+ */
+public final class LocalPushPageRank {
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final IntDoubleHashMap scores;  // estimated PPR mass per touched node
+        private final int pushes;
+        private final int touched;              // nodes holding estimate or residual
+        private final boolean converged;        // no residual above threshold was left
+    }
+
+    private final GraphSnapshot graph;
+    private double alpha = 0.15;
+    private double epsilon = 1e-4;
+    private int maxPushes = Integer.MAX_VALUE;
+    private long timeoutNanos = Long.MAX_VALUE;
+
+    public LocalPushPageRank(GraphSnapshot graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Restart probability; larger values keep the mass closer to the source
+     */
+    public LocalPushPageRank alpha(double alpha) {
+        this.alpha = alpha;
+        return this;
+    }
+
+    /**
+     * Residual per unit degree below which a node is not pushed
+     */
+    public LocalPushPageRank epsilon(double epsilon) {
+        this.epsilon = epsilon;
+        return this;
+    }
+
+    public LocalPushPageRank maxPushes(int maxPushes) {
+        this.maxPushes = maxPushes;
+        return this;
+    }
+
+    public LocalPushPageRank timeout(long timeoutMillis) {
+        this.timeoutNanos = timeoutMillis * 1_000_000L;
+        return this;
+    }
+
+    public Result run(int source) {
+        long start = System.nanoTime();
+        IntDoubleHashMap estimate = new IntDoubleHashMap();
+        IntDoubleHashMap residual = new IntDoubleHashMap();
+
+        // FIFO of nodes whose residual crossed the threshold; a node is queued at most once at a time
+        IntList queue = new IntList();
+        IntIntHashMap queued = new IntIntHashMap();
+        residual.put(source, 1.0);
+        queue.add(source);
+        queued.put(source, 1);
+
+        int pushes = 0;
+        int head = 0;
+        while (head < queue.size() && pushes < maxPushes) {
+            if ((pushes & 255) == 0 && System.nanoTime() - start > timeoutNanos) {
+                break;
+            }
+            int node = queue.get(head++);
+            queued.put(node, 0);
+
+            double mass = residual.get(node);
+            int degree = graph.degree(node);
+            if (degree == 0) {
+                // Isolated: the walk can only restart here
+                estimate.add(node, mass);
+                residual.put(node, 0.0);
+                continue;
+            }
+            if (mass < epsilon * degree) {
+                continue;
+            }
+
+            estimate.add(node, alpha * mass);
+            residual.put(node, 0.0);
+            double share = (1.0 - alpha) * mass / degree;
+            for (int j = graph.outStart(node); j < graph.outEnd(node); j++) {
+                spread(graph.outNeighbor(j), share, residual, queue, queued);
+            }
+            for (int j = graph.inStart(node); j < graph.inEnd(node); j++) {
+                spread(graph.inNeighbor(j), share, residual, queue, queued);
+            }
+            pushes++;
+
+            // Reclaim the consumed queue prefix now and then
+            if (head > 4096 && head * 2 > queue.size()) {
+                IntList rest = new IntList(queue.size() - head);
+                for (int i = head; i < queue.size(); i++) {
+                    rest.add(queue.get(i));
+                }
+                queue = rest;
+                head = 0;
+            }
+        }
+
+        return new Result(estimate, pushes, residual.size(), head >= queue.size());
+    }
+
+    private void spread(int neighbor, double share, IntDoubleHashMap residual, IntList queue, IntIntHashMap queued) {
+        double updated = residual.add(neighbor, share);
+        if (updated >= epsilon * graph.degree(neighbor) && queued.get(neighbor, 0) == 0) {
+            queued.put(neighbor, 1);
+            queue.add(neighbor);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.knowledgegraph.graph;
+
+/**
+ * Iterates the neighbors of one node of a {@link NeighborGraph}: the targets of its outgoing
+ * edges, then the sources of its incoming edges. Neighbors are produced as they are read, so
+ * a search that stops early never decodes the rest of a long list.
+ */
+public interface NeighborCursor {
+
+    /**
+     * Position the cursor on a node's neighbors
+     */
+    NeighborCursor of(int node);
+
+    /**
+     * Next neighbor, or -1 once the node's neighbors are exhausted
+     */
+    int next();
+}
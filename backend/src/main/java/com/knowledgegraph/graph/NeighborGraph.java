@@ -0,0 +1,24 @@
+package com.knowledgegraph.graph;
+
+import java.util.UUID;
+
+/**
+ * Undirected neighbor access shared by the in-memory {@link GraphSnapshot} and the on-disk
+ * {@link CompressedGraph}, for traversals that only need node ids and adjacency
+ */
+public interface NeighborGraph {
+
+    int nodeCount();
+
+    /**
+     * Dense id for a node UUID, or -1 if the node is not part of this graph
+     */
+    int indexOf(UUID nodeId);
+
+    UUID nodeId(int node);
+
+    /**
+     * New cursor over neighbor lists. The graph may be shared across threads; a cursor may not.
+     */
+    NeighborCursor cursor();
+}
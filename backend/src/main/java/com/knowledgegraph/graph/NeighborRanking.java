@@ -0,0 +1,9 @@
+package com.knowledgegraph.graph;
+
+/**
+ * Order in which a node's neighbors are kept when a fan-out cap applies
+ */
+public enum NeighborRanking {
+    CONFIDENCE,     // highest edge confidence first
+    DEGREE          // best-connected neighbors first
+}
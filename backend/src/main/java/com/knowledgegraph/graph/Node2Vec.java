@@ -0,0 +1,279 @@
+package com.knowledgegraph.graph;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Structural node embeddings in the style of node2vec: truncated second-order random walks
+ * over a {@link GraphSnapshot}, treating edges as undirected, fed to a {@link SkipGram} model.
+ *
+ * Walks are never materialized. Each worker pulls the next batch of start nodes, generates a
+ * walk and trains on it straight away, sharing the model without locks. The return parameter
+ * p and in-out parameter q bias each step by rejection sampling: a uniform neighbor is
+ * accepted with probability proportional to 1/p (step back), 1 (stay near the previous node)
+ * or 1/q (move away), checked by binary search in a sorted undirected adjacency built once
+ * per run. No per-edge transition tables are needed, and with p = q = 1 the walks are plain
+ * uniform walks (DeepWalk).
+ */
+public final class Node2Vec {
+
+    private static final int BATCH_SIZE = 64;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final float[] vectors;      // dimensions floats per node, L2-normalized; zero for isolated nodes
+        private final int dimensions;
+        private final long walks;           // walks trained
+        private final boolean complete;     // every planned walk was trained before the deadline
+    }
+
+    private final GraphSnapshot graph;
+    private int dimensions = 64;
+    private int walkLength = 40;
+    private int walksPerNode = 10;
+    private int windowSize = 5;
+    private int negativeSamples = 5;
+    private double returnParameter = 1.0;
+    private double inOutParameter = 1.0;
+    private double learningRate = 0.025;
+    private long timeoutNanos = Long.MAX_VALUE;
+    private long seed = 42L;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    // Undirected adjacency without self-loops, neighbors sorted per node
+    private int[] offsets;
+    private int[] neighbors;
+
+    public Node2Vec(GraphSnapshot graph) {
+        this.graph = graph;
+    }
+
+    public Node2Vec dimensions(int dimensions) {
+        this.dimensions = dimensions;
+        return this;
+    }
+
+    public Node2Vec walkLength(int walkLength) {
+        this.walkLength = walkLength;
+        return this;
+    }
+
+    public Node2Vec walksPerNode(int walksPerNode) {
+        this.walksPerNode = walksPerNode;
+        return this;
+    }
+
+    /**
+     * Maximum distance between a node and its context within a walk
+     */
+    public Node2Vec windowSize(int windowSize) {
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    public Node2Vec negativeSamples(int negativeSamples) {
+        this.negativeSamples = negativeSamples;
+        return this;
+    }
+
+    /**
+     * p: larger values make walks less likely to step straight back
+     */
+    public Node2Vec returnParameter(double returnParameter) {
+        this.returnParameter = returnParameter;
+        return this;
+    }
+
+    /**
+     * q: values above 1 keep walks local (BFS-like), below 1 push them outward (DFS-like)
+     */
+    public Node2Vec inOutParameter(double inOutParameter) {
+        this.inOutParameter = inOutParameter;
+        return this;
+    }
+
+    /**
+     * Starting learning rate, decayed linearly over the planned walks
+     */
+    public Node2Vec learningRate(double learningRate) {
+        this.learningRate = learningRate;
+        return this;
+    }
+
+    /**
+     * Stop starting new walks after this long; vectors trained so far are returned
+     */
+    public Node2Vec timeout(long timeoutMillis) {
+        this.timeoutNanos = timeoutMillis * 1_000_000L;
+        return this;
+    }
+
+    public Node2Vec seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public Node2Vec parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    public Result run() {
+        if (dimensions < 1 || walkLength < 2 || walksPerNode < 1 || windowSize < 1 || negativeSamples < 0) {
+            throw new IllegalArgumentException("Invalid node2vec parameters");
+        }
+        if (returnParameter <= 0.0 || inOutParameter <= 0.0) {
+            throw new IllegalArgumentException("p and q must be positive");
+        }
+        int nodeCount = graph.nodeCount();
+        if ((long) nodeCount * dimensions > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many nodes for " + dimensions + " dimensions");
+        }
+        long start = System.nanoTime();
+        buildAdjacency();
+
+        // Walks visit nodes roughly in proportion to degree, which stands in for counting occurrences
+        double[] frequencies = new double[nodeCount];
+        int[] starts = new int[nodeCount];
+        int startCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int degree = offsets[node + 1] - offsets[node];
+            frequencies[node] = degree;
+            if (degree > 0) {
+                starts[startCount++] = node;
+            }
+        }
+        SplittableRandom shuffle = new SplittableRandom(seed);
+        for (int i = startCount - 1; i > 0; i--) {
+            int j = shuffle.nextInt(i + 1);
+            int swap = starts[i];
+            starts[i] = starts[j];
+            starts[j] = swap;
+        }
+
+        int[] order = Arrays.copyOf(starts, startCount);
+
+        SkipGram model = new SkipGram(dimensions, frequencies, seed);
+        long planned = (long) order.length * walksPerNode;
+        AtomicLong next = new AtomicLong();
+        AtomicLong trained = new AtomicLong();
+        AtomicLong stopped = new AtomicLong();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<?>> workers = new ArrayList<>();
+            for (int w = 0; w < parallelism; w++) {
+                SplittableRandom random = shuffle.split();
+                workers.add(pool.submit(() -> {
+                    int[] walk = new int[walkLength];
+                    float[] gradient = new float[dimensions];
+                    for (long batch = next.getAndAdd(BATCH_SIZE); batch < planned; batch = next.getAndAdd(BATCH_SIZE)) {
+                        if (System.nanoTime() - start > timeoutNanos) {
+                            stopped.set(1);
+                            return;
+                        }
+                        float rate = (float) (learningRate * Math.max(0.0001, 1.0 - (double) batch / planned));
+                        long end = Math.min(planned, batch + BATCH_SIZE);
+                        for (long i = batch; i < end; i++) {
+                            int length = walk(order[(int) (i % order.length)], walk, random);
+                            model.train(walk, length, windowSize, negativeSamples, rate, random, gradient);
+                        }
+                        trained.addAndGet(end - batch);
+                    }
+                }));
+            }
+            workers.forEach(ForkJoinTask::join);
+        } finally {
+            pool.shutdown();
+        }
+
+        float[] vectors = model.normalizedVectors();
+        for (int node = 0; node < nodeCount; node++) {
+            if (frequencies[node] == 0.0) {
+                Arrays.fill(vectors, node * dimensions, (node + 1) * dimensions, 0.0f);
+            }
+        }
+        return new Result(vectors, dimensions, trained.get(), stopped.get() == 0);
+    }
+
+    private int walk(int start, int[] walk, SplittableRandom random) {
+        boolean uniform = returnParameter == 1.0 && inOutParameter == 1.0;
+        double returnWeight = 1.0 / returnParameter;
+        double outWeight = 1.0 / inOutParameter;
+        double maxWeight = Math.max(1.0, Math.max(returnWeight, outWeight));
+
+        walk[0] = start;
+        int length = 1;
+        while (length < walk.length) {
+            int current = walk[length - 1];
+            int from = offsets[current];
+            int degree = offsets[current + 1] - from;
+            if (degree == 0) {
+                break;
+            }
+            if (uniform || length == 1) {
+                walk[length++] = neighbors[from + random.nextInt(degree)];
+                continue;
+            }
+
+            int previous = walk[length - 2];
+            int candidate;
+            double weight;
+            do {
+                candidate = neighbors[from + random.nextInt(degree)];
+                if (candidate == previous) {
+                    weight = returnWeight;
+                } else if (isNeighbor(previous, candidate)) {
+                    weight = 1.0;
+                } else {
+                    weight = outWeight;
+                }
+            } while (random.nextDouble() * maxWeight >= weight);
+            walk[length++] = candidate;
+        }
+        return length;
+    }
+
+    private boolean isNeighbor(int node, int candidate) {
+        return Arrays.binarySearch(neighbors, offsets[node], offsets[node + 1], candidate) >= 0;
+    }
+
+    private void buildAdjacency() {
+        int nodeCount = graph.nodeCount();
+        offsets = new int[nodeCount + 1];
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            int source = graph.edgeSource(edge);
+            int target = graph.edgeTarget(edge);
+            if (source != target) {
+                offsets[source + 1]++;
+                offsets[target + 1]++;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+
+        neighbors = new int[offsets[nodeCount]];
+        int[] fill = Arrays.copyOf(offsets, nodeCount);
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            int source = graph.edgeSource(edge);
+            int target = graph.edgeTarget(edge);
+            if (source != target) {
+                neighbors[fill[source]++] = target;
+                neighbors[fill[target]++] = source;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            Arrays.sort(neighbors, offsets[node], offsets[node + 1]);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.knowledgegraph.graph;
+
+/**
+ * How edges are weighted when searching for a path
+ */
+public enum PathCostMode {
+    HOPS,        // every edge costs 1
+    CONFIDENCE,  // maximize the product of edge confidences
+    EDGE_TYPE    // per-type cost from graph.paths.edge-type-costs
+}
@@ -0,0 +1,456 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+
+import java.util.*;
+
+/**
+ * A regular expression over edge types, compiled to a deterministic automaton for
+ * {@link RegularPathSearch}. A path matches when the types of its edges, read in walking
+ * order, spell a word of the expression.
+ *
+ * Syntax, in the style of SPARQL property paths:
+ * <pre>
+ *   WORKS_AT          edge of that type, followed from source to target
+ *   ^LOCATED_IN       edge of that type, followed backwards (target to source)
+ *   ~COLLABORATES_WITH edge of that type, in either direction
+ *   _  ^_  ~_         edge of any type, forwards, backwards or either way
+ *   a / b             a then b
+ *   a | b             a or b
+ *   a*  a+  a?        zero or more, one or more, optional
+ *   a{2}  a{1,3}      exactly 2, between 1 and 3 (bounded repetitions are expanded)
+ *   ( ... )           grouping
+ * </pre>
+ * Type names are case-insensitive. Each symbol of the automaton is an edge type ordinal and a
+ * direction, so a step is a single array lookup per edge.
+ */
+public final class PathExpression {
+
+    public static final int MAX_LENGTH = 1000;
+    public static final int MAX_REPEAT = 20;
+    public static final int MAX_NFA_STATES = 100000;  // nested bounded repetitions multiply copies
+
+    private static final int TYPES = EdgeType.values().length;
+    private static final int SYMBOLS = TYPES * 2;
+
+    private final String source;
+    private final int[][] transitions;  // state -> symbol (ordinal * 2 + backward) -> state, -1 = none
+    private final boolean[] accepting;
+    private final boolean[] followsOut;
+    private final boolean[] followsIn;
+
+    private PathExpression(String source, int[][] transitions, boolean[] accepting) {
+        this.source = source;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.followsOut = new boolean[transitions.length];
+        this.followsIn = new boolean[transitions.length];
+        for (int state = 0; state < transitions.length; state++) {
+            for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                if (transitions[state][symbol] >= 0) {
+                    if ((symbol & 1) == 0) {
+                        followsOut[state] = true;
+                    } else {
+                        followsIn[state] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse an expression and build its automaton (Thompson construction, then subset construction)
+     *
+     * @throws IllegalArgumentException on a syntax error, an unknown edge type, an expansion past
+     *                                  {@value #MAX_NFA_STATES} NFA states, or an automaton with
+     *                                  more than maxStates states
+     */
+    public static PathExpression compile(String expression, int maxStates) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("Path expression is empty");
+        }
+        if (expression.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Path expression is longer than " + MAX_LENGTH + " characters");
+        }
+        Nfa nfa = new Nfa();
+        Parser parser = new Parser(expression, nfa);
+        int[] fragment = parser.parse();
+        nfa.accept = fragment[1];
+        return nfa.determinize(expression.trim(), fragment[0], maxStates);
+    }
+
+    public int start() {
+        return 0;
+    }
+
+    public int stateCount() {
+        return transitions.length;
+    }
+
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    /**
+     * Whether any outgoing (forward) edge can leave this state
+     */
+    public boolean followsOut(int state) {
+        return followsOut[state];
+    }
+
+    /**
+     * Whether any incoming (backward) edge can leave this state
+     */
+    public boolean followsIn(int state) {
+        return followsIn[state];
+    }
+
+    /**
+     * State after following an edge of a type ordinal, or -1 if the edge may not be taken
+     */
+    public int next(int state, int typeOrdinal, boolean backward) {
+        return typeOrdinal < 0 ? -1 : transitions[state][typeOrdinal << 1 | (backward ? 1 : 0)];
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Nondeterministic automaton built fragment by fragment; a fragment is {start, end}
+     */
+    private static final class Nfa {
+
+        private final List<BitSet> labels = new ArrayList<>();     // per state, symbols of its labelled edge
+        private final IntList labelTargets = new IntList();
+        private final List<IntList> epsilons = new ArrayList<>();
+        private int accept;
+
+        int state() {
+            if (labels.size() == MAX_NFA_STATES) {
+                throw new IllegalArgumentException("Path expression expands to more than " + MAX_NFA_STATES
+                    + " states; lower its repetition bounds");
+            }
+            labels.add(null);
+            labelTargets.add(-1);
+            epsilons.add(new IntList(2));
+            return labels.size() - 1;
+        }
+
+        int[] symbol(BitSet symbols) {
+            int start = state();
+            int end = state();
+            labels.set(start, symbols);
+            labelTargets.set(start, end);
+            return new int[] {start, end};
+        }
+
+        void epsilon(int from, int to) {
+            epsilons.get(from).add(to);
+        }
+
+        PathExpression determinize(String source, int start, int maxStates) {
+            Map<BitSet, Integer> ids = new HashMap<>();
+            List<BitSet> sets = new ArrayList<>();
+            List<int[]> transitions = new ArrayList<>();
+            BitSet initial = closure(singleton(start));
+            ids.put(initial, 0);
+            sets.add(initial);
+
+            for (int current = 0; current < sets.size(); current++) {
+                BitSet set = sets.get(current);
+                int[] row = new int[SYMBOLS];
+                Arrays.fill(row, -1);
+                // Group targets by symbol, so each symbol's closure is computed once
+                BitSet[] moves = new BitSet[SYMBOLS];
+                for (int state = set.nextSetBit(0); state >= 0; state = set.nextSetBit(state + 1)) {
+                    BitSet label = labels.get(state);
+                    if (label == null) {
+                        continue;
+                    }
+                    for (int symbol = label.nextSetBit(0); symbol >= 0; symbol = label.nextSetBit(symbol + 1)) {
+                        if (moves[symbol] == null) {
+                            moves[symbol] = new BitSet();
+                        }
+                        moves[symbol].set(labelTargets.get(state));
+                    }
+                }
+                Map<BitSet, BitSet> closures = new HashMap<>();
+                for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                    if (moves[symbol] == null) {
+                        continue;
+                    }
+                    BitSet target = closures.computeIfAbsent(moves[symbol], this::closure);
+                    Integer id = ids.get(target);
+                    if (id == null) {
+                        if (sets.size() == maxStates) {
+                            throw new IllegalArgumentException("Path expression needs more than " + maxStates
+                                + " automaton states; simplify it or lower its repetition bounds");
+                        }
+                        id = sets.size();
+                        ids.put(target, id);
+                        sets.add(target);
+                    }
+                    row[symbol] = id;
+                }
+                transitions.add(row);
+            }
+
+            boolean[] accepting = new boolean[sets.size()];
+            for (int i = 0; i < sets.size(); i++) {
+                accepting[i] = sets.get(i).get(accept);
+            }
+            return new PathExpression(source, transitions.toArray(new int[0][]), accepting);
+        }
+
+        private BitSet closure(BitSet states) {
+            BitSet closure = (BitSet) states.clone();
+            IntList queue = new IntList();
+            states.stream().forEach(queue::add);
+            for (int head = 0; head < queue.size(); head++) {
+                IntList next = epsilons.get(queue.get(head));
+                for (int i = 0; i < next.size(); i++) {
+                    if (!closure.get(next.get(i))) {
+                        closure.set(next.get(i));
+                        queue.add(next.get(i));
+                    }
+                }
+            }
+            return closure;
+        }
+
+        private static BitSet singleton(int state) {
+            BitSet set = new BitSet();
+            set.set(state);
+            return set;
+        }
+    }
+
+    /**
+     * Recursive-descent parser emitting NFA fragments. Repetitions re-parse their operand, so
+     * a bounded repetition gets fresh copies of its states.
+     */
+    private static final class Parser {
+
+        private final String text;
+        private final Nfa nfa;
+        private int position;
+
+        Parser(String text, Nfa nfa) {
+            this.text = text;
+            this.nfa = nfa;
+        }
+
+        int[] parse() {
+            int[] fragment = alternation();
+            skipSpaces();
+            if (position < text.length()) {
+                throw error("Unexpected '" + text.charAt(position) + "'");
+            }
+            return fragment;
+        }
+
+        private int[] alternation() {
+            int[] first = sequence();
+            if (!peek('|')) {
+                return first;
+            }
+            int start = nfa.state();
+            int end = nfa.state();
+            int[] branch = first;
+            while (true) {
+                nfa.epsilon(start, branch[0]);
+                nfa.epsilon(branch[1], end);
+                if (!peek('|')) {
+                    return new int[] {start, end};
+                }
+                position++;
+                branch = sequence();
+            }
+        }
+
+        private int[] sequence() {
+            int[] fragment = repetition();
+            while (peek('/')) {
+                position++;
+                int[] next = repetition();
+                nfa.epsilon(fragment[1], next[0]);
+                fragment = new int[] {fragment[0], next[1]};
+            }
+            return fragment;
+        }
+
+        private int[] repetition() {
+            skipSpaces();
+            int operandStart = position;
+            int[] fragment = atom();
+            boolean plain = true;
+            while (true) {
+                if (peek('{') && !plain) {
+                    throw error("Repetition bounds must directly follow an edge type or group");
+                }
+                plain = false;
+                if (peek('*')) {
+                    position++;
+                    fragment = star(fragment);
+                } else if (peek('+')) {
+                    position++;
+                    int start = nfa.state();
+                    int end = nfa.state();
+                    nfa.epsilon(start, fragment[0]);
+                    nfa.epsilon(fragment[1], end);
+                    nfa.epsilon(fragment[1], fragment[0]);
+                    fragment = new int[] {start, end};
+                } else if (peek('?')) {
+                    position++;
+                    fragment = optional(fragment);
+                } else if (peek('{')) {
+                    position++;
+                    int min = number();
+                    int max = min;
+                    if (peek(',')) {
+                        position++;
+                        max = number();
+                    }
+                    expect('}');
+                    if (min > max || max == 0 || max > MAX_REPEAT) {
+                        throw error("Repetition bounds must satisfy 0 <= min <= max, 1 <= max <= " + MAX_REPEAT);
+                    }
+                    int resume = position;
+                    fragment = repeat(fragment, operandStart, min, max);
+                    position = resume;
+                } else {
+                    return fragment;
+                }
+            }
+        }
+
+        /**
+         * Chain max copies of the operand, the ones past min optional. Copies are parsed again
+         * from the operand's text, so a nested repetition is expanded in each copy.
+         */
+        private int[] repeat(int[] first, int operandStart, int min, int max) {
+            int[] result = min >= 1 ? first : optional(first);
+            for (int i = 1; i < max; i++) {
+                position = operandStart;
+                int[] copy = atom();
+                if (i >= min) {
+                    copy = optional(copy);
+                }
+                nfa.epsilon(result[1], copy[0]);
+                result = new int[] {result[0], copy[1]};
+            }
+            return result;
+        }
+
+        private int[] star(int[] fragment) {
+            int start = nfa.state();
+            int end = nfa.state();
+            nfa.epsilon(start, fragment[0]);
+            nfa.epsilon(start, end);
+            nfa.epsilon(fragment[1], fragment[0]);
+            nfa.epsilon(fragment[1], end);
+            return new int[] {start, end};
+        }
+
+        private int[] optional(int[] fragment) {
+            int start = nfa.state();
+            int end = nfa.state();
+            nfa.epsilon(start, fragment[0]);
+            nfa.epsilon(start, end);
+            nfa.epsilon(fragment[1], end);
+            return new int[] {start, end};
+        }
+
+        private int[] atom() {
+            skipSpaces();
+            if (position >= text.length()) {
+                throw error("Expected an edge type");
+            }
+            char c = text.charAt(position);
+            if (c == '(') {
+                position++;
+                int[] fragment = alternation();
+                expect(')');
+                return fragment;
+            }
+            boolean forward = true;
+            boolean backward = false;
+            if (c == '^' || c == '~') {
+                position++;
+                forward = c == '~';
+                backward = true;
+                skipSpaces();
+            }
+            int from = position;
+            while (position < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+                position++;
+            }
+            if (from == position) {
+                throw error("Expected an edge type");
+            }
+            String name = text.substring(from, position);
+            BitSet symbols = new BitSet(SYMBOLS);
+            if (name.equals("_")) {
+                for (int type = 0; type < TYPES; type++) {
+                    addSymbols(symbols, type, forward, backward);
+                }
+            } else {
+                EdgeType type;
+                try {
+                    type = EdgeType.valueOf(name.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    position = from;
+                    throw error("Unknown edge type " + name);
+                }
+                addSymbols(symbols, type.ordinal(), forward, backward);
+            }
+            return nfa.symbol(symbols);
+        }
+
+        private static void addSymbols(BitSet symbols, int type, boolean forward, boolean backward) {
+            if (forward) {
+                symbols.set(type << 1);
+            }
+            if (backward) {
+                symbols.set(type << 1 | 1);
+            }
+        }
+
+        private int number() {
+            skipSpaces();
+            int from = position;
+            while (position < text.length() && Character.isDigit(text.charAt(position)) && position - from < 4) {
+                position++;
+            }
+            if (from == position) {
+                throw error("Expected a number");
+            }
+            return Integer.parseInt(text.substring(from, position));
+        }
+
+        private boolean peek(char c) {
+            skipSpaces();
+            return position < text.length() && text.charAt(position) == c;
+        }
+
+        private void expect(char c) {
+            if (!peek(c)) {
+                throw error("Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " of path expression");
+        }
+    }
+}
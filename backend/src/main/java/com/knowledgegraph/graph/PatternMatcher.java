@@ -0,0 +1,626 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Plans and runs a {@link PatternQuery} over a {@link GraphSnapshot}.
+ *
+ * Planning binds one node variable per step, greedily choosing the variable with the fewest
+ * estimated rows. Estimates come from type statistics: nodes per node type, edges per edge
+ * type and degree sums per node type, so a node variable's fan-out over a pattern edge is
+ * its average degree scaled by the share of the edge's types. Variables with ids come first,
+ * and variables connected to bound ones come before any that would need a scan.
+ *
+ * Execution is a generic join (Ngo et al. 2018), depth first. The candidates for a variable
+ * come from the bound neighbor with the smallest actual degree over one of its pattern edges.
+ * Every other pattern edge to a bound variable is then probed. A probe either scans the
+ * smaller of the two adjacency lists, or hash-joins against the bound neighbor's matching
+ * neighbors when there are more candidates than that list is long. Edge types are compared
+ * by ordinal on the CSR arrays, so no edge is fetched from the database. Named relationships
+ * are enumerated once all nodes are bound. Work is bounded by a result count, an examined
+ * entry budget and a wall-clock deadline.
+ */
+public final class PatternMatcher {
+
+    public enum Outcome {
+        COMPLETE,
+        RESULT_LIMIT,
+        EXPANSION_LIMIT,
+        TIME_LIMIT
+    }
+
+    /**
+     * Receives one row: a node per pattern node and an edge per pattern edge (-1 for edges
+     * without a variable). Arrays are reused between rows.
+     */
+    @FunctionalInterface
+    public interface RowSink {
+        void accept(int[] nodes, int[] edges);
+    }
+
+    /**
+     * Counts the planner estimates from; arrays are indexed by type ordinal
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Statistics {
+        private final long totalNodes;
+        private final long totalEdges;
+        private final long[] nodesByType;
+        private final long[] edgesByType;
+        private final long[] outDegreeByType;
+        private final long[] inDegreeByType;
+    }
+
+    /**
+     * One plan step, for explain output
+     */
+    @Getter
+    public static final class Step {
+        private final String variable;
+        private final String access;        // how candidates are produced
+        private final List<String> checks;  // what every candidate is tested against
+        private final double estimatedRows;
+        private long actualRows;
+
+        Step(String variable, String access, List<String> checks, double estimatedRows) {
+            this.variable = variable;
+            this.access = access;
+            this.checks = checks;
+            this.estimatedRows = estimatedRows;
+        }
+    }
+
+    private static final int OUT = 1;
+    private static final int IN = 2;
+    private static final long CLOCK_CHECK_INTERVAL = 1024;  // expansions between deadline checks
+
+    private final GraphSnapshot graph;
+    private final PatternQuery query;
+    private final Statistics statistics;
+    private final int nodeCount;
+    private final boolean[][] nodeTypes;    // per pattern node, allowed type ordinals; null = any
+    private final int[][] nodeIds;          // per pattern node, candidate dense ids; null = any
+    private final boolean[][] edgeTypes;    // per pattern edge, allowed type ordinals; null = any
+
+    // Plan: variable bound at each step, the edges it expands or probes, and explain output
+    private final int[] order;
+    private final int[][] stepEdges;
+    private final int[][] stepDistinct;
+    private final int[] namedEdges;
+    private final List<Step> steps = new ArrayList<>();
+
+    private int maxResults = Integer.MAX_VALUE;
+    private long maxExpansions = Long.MAX_VALUE;
+    private long deadlineNanos = Long.MAX_VALUE;
+    private long expansions;
+    private long nextClockCheck = CLOCK_CHECK_INTERVAL;
+
+    public PatternMatcher(GraphSnapshot graph, PatternQuery query, Statistics statistics) {
+        this.graph = graph;
+        this.query = query;
+        this.statistics = statistics;
+        this.nodeCount = query.getNodes().size();
+        this.nodeTypes = new boolean[nodeCount][];
+        this.nodeIds = new int[nodeCount][];
+        for (int v = 0; v < nodeCount; v++) {
+            PatternQuery.NodePattern node = query.getNodes().get(v);
+            if (node.isTyped()) {
+                nodeTypes[v] = new boolean[NodeType.values().length];
+                for (NodeType type : node.getTypes()) {
+                    nodeTypes[v][type.ordinal()] = true;
+                }
+            }
+            if (node.getIds() != null) {
+                nodeIds[v] = node.getIds().stream().mapToInt(graph::indexOf).filter(id -> id >= 0).toArray();
+            }
+        }
+        List<PatternQuery.EdgePattern> edges = query.getEdges();
+        this.edgeTypes = new boolean[edges.size()][];
+        for (int e = 0; e < edges.size(); e++) {
+            if (!edges.get(e).getTypes().isEmpty()) {
+                edgeTypes[e] = new boolean[EdgeType.values().length];
+                for (EdgeType type : edges.get(e).getTypes()) {
+                    edgeTypes[e][type.ordinal()] = true;
+                }
+            }
+        }
+        this.order = new int[nodeCount];
+        this.stepEdges = new int[nodeCount][];
+        this.stepDistinct = new int[nodeCount][];
+        this.namedEdges = IntStream.range(0, edges.size())
+            .filter(e -> edges.get(e).getVariable() != null)
+            .toArray();
+        plan();
+    }
+
+    public PatternMatcher maxResults(int maxResults) {
+        this.maxResults = maxResults;
+        return this;
+    }
+
+    /**
+     * Candidates and adjacency entries examined before giving up
+     */
+    public PatternMatcher maxExpansions(long maxExpansions) {
+        this.maxExpansions = maxExpansions;
+        return this;
+    }
+
+    public PatternMatcher timeout(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+        return this;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    public long getExpansions() {
+        return expansions;
+    }
+
+    public Outcome run(RowSink sink) {
+        return new Execution(sink).run();
+    }
+
+    // ---- Planning ----
+
+    private void plan() {
+        boolean[] bound = new boolean[nodeCount];
+        double rows = 1;
+        for (int step = 0; step < nodeCount; step++) {
+            int best = -1;
+            double bestRows = Double.POSITIVE_INFINITY;
+            boolean bestConnected = false;
+            for (int v = 0; v < nodeCount; v++) {
+                if (bound[v]) {
+                    continue;
+                }
+                boolean connected = nodeIds[v] != null || expandEdge(v, bound) >= 0;
+                double estimate = estimateRows(v, bound, rows);
+                if (best < 0 || (connected && !bestConnected)
+                        || (connected == bestConnected && estimate < bestRows)) {
+                    best = v;
+                    bestRows = estimate;
+                    bestConnected = connected;
+                }
+            }
+            order[step] = best;
+            describeStep(step, best, bound, bestRows);
+            bound[best] = true;
+            rows = bestRows;
+        }
+        for (int e : namedEdges) {
+            PatternQuery.EdgePattern edge = query.getEdges().get(e);
+            steps.add(new Step(edge.getVariable(), "Edges " + edge.describe(query.getNodes()),
+                List.of("distinct from earlier relationship variables"), rows));
+        }
+    }
+
+    /**
+     * Pattern edge with the smallest estimated fan-out from a bound variable to v, or -1
+     */
+    private int expandEdge(int v, boolean[] bound) {
+        int best = -1;
+        double bestFanOut = Double.POSITIVE_INFINITY;
+        for (int e = 0; e < query.getEdges().size(); e++) {
+            int other = otherEnd(e, v);
+            if (other >= 0 && other != v && bound[other]) {
+                double fanOut = fanOut(e, other);
+                if (fanOut < bestFanOut) {
+                    best = e;
+                    bestFanOut = fanOut;
+                }
+            }
+        }
+        return best;
+    }
+
+    private double estimateRows(int v, boolean[] bound, double rows) {
+        int expand = nodeIds[v] == null ? expandEdge(v, bound) : -1;
+        double estimate;
+        if (nodeIds[v] != null) {
+            estimate = rows * nodeIds[v].length;
+        } else if (expand >= 0) {
+            estimate = rows * fanOut(expand, otherEnd(expand, v)) * nodeSelectivity(v);
+        } else {
+            estimate = rows * nodeSelectivity(v) * Math.max(1, statistics.getTotalNodes());
+        }
+        for (int e = 0; e < query.getEdges().size(); e++) {
+            int other = otherEnd(e, v);
+            if (e != expand && other >= 0 && other != v && bound[other]) {
+                estimate *= Math.min(1.0, fanOut(e, other) / Math.max(1, statistics.getTotalNodes()));
+            }
+        }
+        return estimate;
+    }
+
+    private void describeStep(int step, int v, boolean[] bound, double estimate) {
+        List<PatternQuery.NodePattern> nodes = query.getNodes();
+        PatternQuery.NodePattern node = nodes.get(v);
+        int expand = nodeIds[v] == null ? expandEdge(v, bound) : -1;
+        String access;
+        if (nodeIds[v] != null) {
+            access = "NodeByIdSeek (" + nodeIds[v].length + " ids)";
+        } else if (expand >= 0) {
+            access = "Expand " + query.getEdges().get(expand).describe(nodes);
+        } else if (node.isTyped()) {
+            access = "NodeByTypeScan " + String.join("|", node.getTypes().stream().map(Enum::name).toList());
+        } else {
+            access = "AllNodesScan";
+        }
+
+        List<String> checks = new ArrayList<>();
+        IntList edges = new IntList();
+        if (expand >= 0) {
+            edges.add(expand);
+        }
+        if (node.isTyped() && (nodeIds[v] != null || expand >= 0)) {
+            checks.add("Filter :" + String.join("|", node.getTypes().stream().map(Enum::name).toList()));
+        }
+        for (int e = 0; e < query.getEdges().size(); e++) {
+            int other = otherEnd(e, v);
+            if (e != expand && other >= 0 && (other == v || bound[other])) {
+                edges.add(e);
+                checks.add("Probe " + query.getEdges().get(e).describe(nodes));
+            }
+        }
+        IntList distinct = new IntList();
+        for (int[] pair : query.getDistinctNodes()) {
+            int other = pair[0] == v ? pair[1] : pair[1] == v ? pair[0] : -1;
+            if (other >= 0 && (other == v || bound[other])) {
+                distinct.add(other);
+                checks.add("Filter " + node.getVariable() + " <> " + nodes.get(other).getVariable());
+            }
+        }
+        stepEdges[step] = edges.toArray();
+        stepDistinct[step] = distinct.toArray();
+        steps.add(new Step(node.getVariable(), access, checks, estimate));
+    }
+
+    /**
+     * The endpoint of pattern edge e opposite v (v itself for a self loop), or -1 if v is not on e
+     */
+    private int otherEnd(int e, int v) {
+        PatternQuery.EdgePattern edge = query.getEdges().get(e);
+        return edge.getFrom() == v ? edge.getTo() : edge.getTo() == v ? edge.getFrom() : -1;
+    }
+
+    /**
+     * Estimated neighbors of one node bound to u over pattern edge e
+     */
+    private double fanOut(int e, int u) {
+        PatternQuery.EdgePattern edge = query.getEdges().get(e);
+        int directions = !edge.isDirected() ? OUT | IN : edge.getFrom() == u ? OUT : IN;
+        double degree;
+        if (nodeTypes[u] == null || statistics.getNodesByType() == null) {
+            degree = (double) statistics.getTotalEdges() / Math.max(1, statistics.getTotalNodes())
+                * Integer.bitCount(directions);
+        } else {
+            long nodes = 0;
+            long edges = 0;
+            for (int t = 0; t < nodeTypes[u].length; t++) {
+                if (nodeTypes[u][t]) {
+                    nodes += statistics.getNodesByType()[t];
+                    edges += ((directions & OUT) != 0 ? statistics.getOutDegreeByType()[t] : 0)
+                        + ((directions & IN) != 0 ? statistics.getInDegreeByType()[t] : 0);
+                }
+            }
+            degree = (double) edges / Math.max(1, nodes);
+        }
+        if (edgeTypes[e] != null && statistics.getEdgesByType() != null) {
+            long typed = 0;
+            for (int t = 0; t < edgeTypes[e].length; t++) {
+                if (edgeTypes[e][t]) {
+                    typed += statistics.getEdgesByType()[t];
+                }
+            }
+            degree *= (double) typed / Math.max(1, statistics.getTotalEdges());
+        }
+        return degree;
+    }
+
+    /**
+     * Share of all nodes that pass v's type filter
+     */
+    private double nodeSelectivity(int v) {
+        if (nodeTypes[v] == null || statistics.getNodesByType() == null) {
+            return 1.0;
+        }
+        long nodes = 0;
+        for (int t = 0; t < nodeTypes[v].length; t++) {
+            if (nodeTypes[v][t]) {
+                nodes += statistics.getNodesByType()[t];
+            }
+        }
+        return (double) nodes / Math.max(1, statistics.getTotalNodes());
+    }
+
+    // ---- Execution ----
+
+    private final class Execution {
+
+        private final RowSink sink;
+        private final int[] nodes = new int[nodeCount];
+        private final int[] edges = new int[query.getEdges().size()];
+        private final IntList[] candidates = new IntList[nodeCount];
+        private int results;
+        private Outcome stop;
+
+        Execution(RowSink sink) {
+            this.sink = sink;
+            Arrays.fill(nodes, -1);
+            Arrays.fill(edges, -1);
+            for (int step = 0; step < nodeCount; step++) {
+                candidates[step] = new IntList();
+            }
+        }
+
+        Outcome run() {
+            bind(0);
+            return stop != null ? stop : Outcome.COMPLETE;
+        }
+
+        private void bind(int step) {
+            if (step == nodeCount) {
+                bindEdges(0);
+                return;
+            }
+            int v = order[step];
+            IntList list = candidates[step];
+            int expanded = generate(step, v, list);
+
+            // Probe every edge to a bound variable except the one the candidates came from
+            int[] probes = Arrays.stream(stepEdges[step]).filter(e -> e != expanded).toArray();
+            IntIntHashMap[] joins = new IntIntHashMap[probes.length];
+            for (int p = 0; p < probes.length; p++) {
+                int u = otherEnd(probes[p], v);
+                if (u != v && list.size() > degree(probes[p], u, nodes[u])) {
+                    joins[p] = neighborSet(probes[p], u, nodes[u]);
+                }
+            }
+
+            for (int i = 0; i < list.size() && stop == null; i++) {
+                int w = list.get(i);
+                if (++expansions > maxExpansions) {
+                    stop = Outcome.EXPANSION_LIMIT;
+                } else if (expansions >= nextClockCheck) {
+                    // Probes add whole list lengths, so the count may step over any fixed multiple
+                    nextClockCheck = expansions + CLOCK_CHECK_INTERVAL;
+                    if (System.nanoTime() > deadlineNanos) {
+                        stop = Outcome.TIME_LIMIT;
+                    }
+                }
+                if (stop != null || !accepts(step, v, w, probes, joins)) {
+                    continue;
+                }
+                nodes[v] = w;
+                steps.get(step).actualRows++;
+                bind(step + 1);
+                nodes[v] = -1;
+            }
+        }
+
+        /**
+         * Fill a step's candidate list: the ids, the matching neighbors of the bound endpoint with
+         * the smallest degree over any edge to a bound variable, or every node. Returns the
+         * pattern edge expanded, or -1.
+         */
+        private int generate(int step, int v, IntList list) {
+            list.clear();
+            if (nodeIds[v] != null) {
+                for (int id : nodeIds[v]) {
+                    list.add(id);
+                }
+                return -1;
+            }
+            int expand = -1;
+            int smallest = Integer.MAX_VALUE;
+            for (int e : stepEdges[step]) {
+                int u = otherEnd(e, v);
+                if (u != v && nodes[u] >= 0) {
+                    int degree = degree(e, u, nodes[u]);
+                    if (degree < smallest) {
+                        expand = e;
+                        smallest = degree;
+                    }
+                }
+            }
+            if (expand < 0) {
+                for (int node = 0; node < graph.nodeCount(); node++) {
+                    list.add(node);
+                }
+                return -1;
+            }
+            int u = otherEnd(expand, v);
+            int directions = directions(expand, u);
+            int bound = nodes[u];
+            if ((directions & OUT) != 0) {
+                for (int j = graph.outStart(bound); j < graph.outEnd(bound); j++) {
+                    if (typeAllowed(expand, graph.outEdge(j))) {
+                        list.add(graph.outNeighbor(j));
+                    }
+                }
+            }
+            if ((directions & IN) != 0) {
+                for (int j = graph.inStart(bound); j < graph.inEnd(bound); j++) {
+                    if (typeAllowed(expand, graph.inEdge(j))) {
+                        list.add(graph.inNeighbor(j));
+                    }
+                }
+            }
+            expansions += smallest;
+            if (list.size() > 1) {
+                // Parallel edges and both directions may repeat a neighbor
+                int[] sorted = list.toArray();
+                Arrays.sort(sorted);
+                list.clear();
+                for (int i = 0; i < sorted.length; i++) {
+                    if (i == 0 || sorted[i] != sorted[i - 1]) {
+                        list.add(sorted[i]);
+                    }
+                }
+            }
+            return expand;
+        }
+
+        private boolean accepts(int step, int v, int w, int[] probes, IntIntHashMap[] joins) {
+            if (nodeTypes[v] != null) {
+                NodeType type = graph.nodeType(w);
+                if (type == null || !nodeTypes[v][type.ordinal()]) {
+                    return false;
+                }
+            }
+            for (int other : stepDistinct[step]) {
+                if (other == v || nodes[other] == w) {
+                    return false;
+                }
+            }
+            for (int p = 0; p < probes.length; p++) {
+                int e = probes[p];
+                int u = otherEnd(e, v);
+                if (joins[p] != null) {
+                    if (!joins[p].containsKey(w)) {
+                        return false;
+                    }
+                } else if (!adjacent(e, u == v ? w : nodes[u], u, w)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Whether an edge matching pattern edge e joins node x (bound to pattern node u) and
+         * node w (candidate for pattern node v). Scans the shorter adjacency list.
+         */
+        private boolean adjacent(int e, int x, int u, int w) {
+            PatternQuery.EdgePattern edge = query.getEdges().get(e);
+            if (!edge.isDirected()) {
+                return adjacentDirected(e, x, w) || adjacentDirected(e, w, x);
+            }
+            return edge.getFrom() == u ? adjacentDirected(e, x, w) : adjacentDirected(e, w, x);
+        }
+
+        private boolean adjacentDirected(int e, int source, int target) {
+            if (graph.outDegree(source) <= graph.inDegree(target)) {
+                expansions += graph.outDegree(source);
+                for (int j = graph.outStart(source); j < graph.outEnd(source); j++) {
+                    if (graph.outNeighbor(j) == target && typeAllowed(e, graph.outEdge(j))) {
+                        return true;
+                    }
+                }
+            } else {
+                expansions += graph.inDegree(target);
+                for (int j = graph.inStart(target); j < graph.inEnd(target); j++) {
+                    if (graph.inNeighbor(j) == source && typeAllowed(e, graph.inEdge(j))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Neighbors of a bound node over pattern edge e, for hash-join probes
+         */
+        private IntIntHashMap neighborSet(int e, int u, int bound) {
+            int directions = directions(e, u);
+            IntIntHashMap set = new IntIntHashMap(degree(e, u, bound));
+            if ((directions & OUT) != 0) {
+                for (int j = graph.outStart(bound); j < graph.outEnd(bound); j++) {
+                    if (typeAllowed(e, graph.outEdge(j))) {
+                        set.put(graph.outNeighbor(j), 1);
+                    }
+                }
+            }
+            if ((directions & IN) != 0) {
+                for (int j = graph.inStart(bound); j < graph.inEnd(bound); j++) {
+                    if (typeAllowed(e, graph.inEdge(j))) {
+                        set.put(graph.inNeighbor(j), 1);
+                    }
+                }
+            }
+            expansions += degree(e, u, bound);
+            return set;
+        }
+
+        /**
+         * Enumerate named relationships between their bound endpoints, each edge used once per row
+         */
+        private void bindEdges(int index) {
+            if (stop != null) {
+                return;
+            }
+            if (index == namedEdges.length) {
+                sink.accept(nodes, edges);
+                if (++results >= maxResults) {
+                    stop = Outcome.RESULT_LIMIT;
+                }
+                return;
+            }
+            int e = namedEdges[index];
+            PatternQuery.EdgePattern pattern = query.getEdges().get(e);
+            int source = nodes[pattern.getFrom()];
+            int target = nodes[pattern.getTo()];
+            Step step = steps.get(nodeCount + index);
+            for (int j = graph.outStart(source); j < graph.outEnd(source) && stop == null; j++) {
+                if (graph.outNeighbor(j) == target) {
+                    bindEdge(index, e, graph.outEdge(j), step);
+                }
+            }
+            if (!pattern.isDirected() && source != target) {
+                for (int j = graph.inStart(source); j < graph.inEnd(source) && stop == null; j++) {
+                    if (graph.inNeighbor(j) == target) {
+                        bindEdge(index, e, graph.inEdge(j), step);
+                    }
+                }
+            }
+            expansions += graph.degree(source);
+        }
+
+        private void bindEdge(int index, int e, int edge, Step step) {
+            if (!typeAllowed(e, edge)) {
+                return;
+            }
+            for (int earlier = 0; earlier < index; earlier++) {
+                if (edges[namedEdges[earlier]] == edge) {
+                    return;
+                }
+            }
+            edges[e] = edge;
+            step.actualRows++;
+            bindEdges(index + 1);
+            edges[e] = -1;
+        }
+
+        private int degree(int e, int u, int bound) {
+            int directions = directions(e, u);
+            return ((directions & OUT) != 0 ? graph.outDegree(bound) : 0)
+                + ((directions & IN) != 0 ? graph.inDegree(bound) : 0);
+        }
+    }
+
+    /**
+     * Adjacency directions to follow from pattern node u along pattern edge e
+     */
+    private int directions(int e, int u) {
+        PatternQuery.EdgePattern edge = query.getEdges().get(e);
+        return !edge.isDirected() ? OUT | IN : edge.getFrom() == u ? OUT : IN;
+    }
+
+    private boolean typeAllowed(int e, int edge) {
+        if (edgeTypes[e] == null) {
+            return true;
+        }
+        int ordinal = graph.edgeTypeOrdinal(edge);
+        return ordinal >= 0 && edgeTypes[e][ordinal];
+    }
+}
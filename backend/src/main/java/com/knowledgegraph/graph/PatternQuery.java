@@ -0,0 +1,407 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * A parsed graph pattern in a small subset of Cypher, executed by {@link PatternMatcher}:
+ * <pre>
+ *   MATCH (a:PERSON)-[:WORKS_AT]->(o:ORGANIZATION)-[:LOCATED_IN]->(p {id: '...'})
+ *   MATCH (a)-[r:COLLABORATES_WITH]-(b)-[:COLLABORATES_WITH]-(c)-[:COLLABORATES_WITH]-(a)
+ *   WHERE a &lt;&gt; b AND b &lt;&gt; c AND a &lt;&gt; c
+ *   RETURN a, b, c, r
+ *   LIMIT 50
+ * </pre>
+ * Supported: comma-separated paths; node variables with node types (a:PERSON|PLACE) and an id
+ * property; relationships -[r:TYPE|TYPE]-&gt;, &lt;-[...]- and undirected -[...]-, or bare
+ * --&gt;, &lt;--, --; WHERE conjunctions of v.id = '...', v.id IN [...], v:TYPE and v &lt;&gt; w; RETURN of
+ * variables or *; LIMIT. Keywords and type names are case-insensitive, variables are not.
+ *
+ * A node variable used twice is one node. A relationship without a variable only has to
+ * exist; each relationship variable yields one row per matching edge, with edges distinct.
+ */
+@Getter
+public final class PatternQuery {
+
+    private final List<NodePattern> nodes = new ArrayList<>();
+    private final List<EdgePattern> edges = new ArrayList<>();
+    private final List<int[]> distinctNodes = new ArrayList<>();   // pairs of node indexes that must differ
+    private final List<String> returns = new ArrayList<>();
+    private Integer limit;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Integer> nodeIndex = new HashMap<>();
+
+    private PatternQuery() {
+    }
+
+    /**
+     * @throws IllegalArgumentException on a syntax error or an unsupported construct
+     */
+    public static PatternQuery parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Pattern query is empty");
+        }
+        PatternQuery query = new PatternQuery();
+        new Parser(text, query).parse();
+        return query;
+    }
+
+    @Getter
+    public static final class NodePattern {
+        private final String variable;      // "#index" for anonymous nodes
+        private final boolean named;
+        private final EnumSet<NodeType> types = EnumSet.noneOf(NodeType.class);
+        private boolean typed;              // types constrain the node; an empty typed set matches nothing
+        private Set<UUID> ids;              // null = any node
+
+        NodePattern(String variable, boolean named) {
+            this.variable = variable;
+            this.named = named;
+        }
+
+        void restrictTypes(Set<NodeType> allowed) {
+            if (typed) {
+                types.retainAll(allowed);
+            } else {
+                types.addAll(allowed);
+                typed = true;
+            }
+        }
+
+        void restrictIds(Set<UUID> allowed) {
+            if (ids == null) {
+                ids = new LinkedHashSet<>(allowed);
+            } else {
+                ids.retainAll(allowed);
+            }
+        }
+    }
+
+    /**
+     * A relationship from node index to node index; undirected ones match either way
+     */
+    @Getter
+    public static final class EdgePattern {
+        private final String variable;      // null if anonymous
+        private final int from;
+        private final int to;
+        private final EnumSet<EdgeType> types;   // empty = any type
+        private final boolean directed;
+
+        EdgePattern(String variable, int from, int to, EnumSet<EdgeType> types, boolean directed) {
+            this.variable = variable;
+            this.from = from;
+            this.to = to;
+            this.types = types;
+            this.directed = directed;
+        }
+
+        public String describe(List<NodePattern> nodes) {
+            String detail = (variable != null ? variable : "")
+                + (types.isEmpty() ? "" : ":" + String.join("|", types.stream().map(Enum::name).toList()));
+            return "(" + nodes.get(from).getVariable() + ")-[" + detail + "]-" + (directed ? ">" : "")
+                + "(" + nodes.get(to).getVariable() + ")";
+        }
+    }
+
+    /**
+     * Recursive-descent parser over a token list
+     */
+    private static final class Parser {
+
+        private final PatternQuery query;
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Integer> offsets = new ArrayList<>();
+        private final Set<String> edgeVariables = new HashSet<>();
+        private int position;
+
+        Parser(String text, PatternQuery query) {
+            this.query = query;
+            tokenize(text);
+        }
+
+        void parse() {
+            keyword("MATCH");
+            path();
+            while (accept(",")) {
+                path();
+            }
+            if (acceptKeyword("WHERE")) {
+                condition();
+                while (acceptKeyword("AND")) {
+                    condition();
+                }
+            }
+            if (acceptKeyword("RETURN")) {
+                if (!accept("*")) {
+                    do {
+                        String name = identifier();
+                        if (!query.nodeIndex.containsKey(name) && !edgeVariables.contains(name)) {
+                            throw error("Unknown variable " + name);
+                        }
+                        query.returns.add(name);
+                    } while (accept(","));
+                }
+            }
+            if (query.returns.isEmpty()) {
+                query.nodes.stream().filter(NodePattern::isNamed).forEach(node -> query.returns.add(node.getVariable()));
+                query.edges.stream().map(EdgePattern::getVariable).filter(Objects::nonNull).forEach(query.returns::add);
+            }
+            if (acceptKeyword("LIMIT")) {
+                query.limit = number();
+            }
+            if (position < tokens.size()) {
+                throw error("Unexpected '" + tokens.get(position) + "'");
+            }
+        }
+
+        private void path() {
+            int previous = node();
+            while (peek("-") || peek("<")) {
+                boolean left = accept("<");
+                expect("-");
+                String variable = null;
+                EnumSet<EdgeType> types = EnumSet.noneOf(EdgeType.class);
+                if (accept("[")) {
+                    if (isIdentifier()) {
+                        variable = identifier();
+                        if (query.nodeIndex.containsKey(variable) || !edgeVariables.add(variable)) {
+                            throw error("Variable " + variable + " is already bound");
+                        }
+                    }
+                    if (accept(":")) {
+                        do {
+                            types.add(edgeType(identifier()));
+                        } while (accept("|"));
+                    }
+                    if (peek("*")) {
+                        throw error("Variable-length relationships are not supported; use /graph/paths/regular");
+                    }
+                    expect("]");
+                }
+                expect("-");
+                boolean right = accept(">");
+                if (left && right) {
+                    throw error("A relationship cannot point both ways");
+                }
+                int next = node();
+                query.edges.add(left
+                    ? new EdgePattern(variable, next, previous, types, true)
+                    : new EdgePattern(variable, previous, next, types, right));
+                previous = next;
+            }
+        }
+
+        private int node() {
+            expect("(");
+            NodePattern node;
+            if (isIdentifier()) {
+                String name = identifier();
+                if (edgeVariables.contains(name)) {
+                    throw error("Variable " + name + " is already bound to a relationship");
+                }
+                node = query.nodeIndex.containsKey(name) ? query.nodes.get(query.nodeIndex.get(name)) : addNode(name, true);
+            } else {
+                node = addNode("#" + query.nodes.size(), false);
+            }
+            if (accept(":")) {
+                node.restrictTypes(nodeTypes());
+            }
+            if (accept("{")) {
+                property();
+                expect(":");
+                node.restrictIds(Set.of(uuid()));
+                expect("}");
+            }
+            expect(")");
+            return query.nodeIndex.get(node.getVariable());
+        }
+
+        private NodePattern addNode(String name, boolean named) {
+            NodePattern node = new NodePattern(name, named);
+            query.nodeIndex.put(name, query.nodes.size());
+            query.nodes.add(node);
+            return node;
+        }
+
+        private void condition() {
+            NodePattern node = query.nodes.get(nodeReference());
+            if (accept(".")) {
+                property();
+                if (accept("=")) {
+                    node.restrictIds(Set.of(uuid()));
+                } else {
+                    keyword("IN");
+                    expect("[");
+                    Set<UUID> ids = new LinkedHashSet<>();
+                    do {
+                        ids.add(uuid());
+                    } while (accept(","));
+                    expect("]");
+                    node.restrictIds(ids);
+                }
+            } else if (accept(":")) {
+                node.restrictTypes(nodeTypes());
+            } else {
+                expect("<>");
+                int other = nodeReference();
+                query.distinctNodes.add(new int[] {query.nodeIndex.get(node.getVariable()), other});
+            }
+        }
+
+        private int nodeReference() {
+            String name = identifier();
+            Integer index = query.nodeIndex.get(name);
+            if (index == null) {
+                throw error(edgeVariables.contains(name)
+                    ? "Conditions on relationship variables are not supported" : "Unknown variable " + name);
+            }
+            return index;
+        }
+
+        private void property() {
+            String name = identifier();
+            if (!name.equalsIgnoreCase("id")) {
+                throw error("Only the id property can be matched; filter on other properties after the query");
+            }
+        }
+
+        private Set<NodeType> nodeTypes() {
+            Set<NodeType> types = EnumSet.noneOf(NodeType.class);
+            do {
+                String name = identifier();
+                try {
+                    types.add(NodeType.valueOf(name.toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    position--;
+                    throw error("Unknown node type " + name);
+                }
+            } while (accept("|"));
+            return types;
+        }
+
+        private EdgeType edgeType(String name) {
+            try {
+                return EdgeType.valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                position--;
+                throw error("Unknown edge type " + name);
+            }
+        }
+
+        private UUID uuid() {
+            String token = position < tokens.size() ? tokens.get(position) : "";
+            if (token.length() < 2 || (token.charAt(0) != '\'' && token.charAt(0) != '"')) {
+                throw error("Expected a quoted node id");
+            }
+            try {
+                UUID id = UUID.fromString(token.substring(1, token.length() - 1));
+                position++;
+                return id;
+            } catch (IllegalArgumentException e) {
+                throw error("Invalid node id " + token);
+            }
+        }
+
+        private int number() {
+            String token = position < tokens.size() ? tokens.get(position) : "";
+            if (token.isEmpty() || !token.chars().allMatch(Character::isDigit) || token.length() > 9) {
+                throw error("Expected a number");
+            }
+            position++;
+            return Integer.parseInt(token);
+        }
+
+        private String identifier() {
+            if (!isIdentifier()) {
+                throw error("Expected a name");
+            }
+            return tokens.get(position++);
+        }
+
+        private boolean isIdentifier() {
+            if (position >= tokens.size()) {
+                return false;
+            }
+            char c = tokens.get(position).charAt(0);
+            return Character.isLetter(c) || c == '_';
+        }
+
+        private void keyword(String keyword) {
+            if (!acceptKeyword(keyword)) {
+                throw error("Expected " + keyword);
+            }
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean peek(String token) {
+            return position < tokens.size() && tokens.get(position).equals(token);
+        }
+
+        private boolean accept(String token) {
+            if (peek(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("Expected '" + token + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            int offset = position < offsets.size() ? offsets.get(position) : -1;
+            return new IllegalArgumentException(message
+                + (offset >= 0 ? " at position " + offset : " at end") + " of pattern query");
+        }
+
+        /**
+         * Split into names and numbers, quoted strings, "&lt;&gt;" and single punctuation characters
+         */
+        private void tokenize(String text) {
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                int start = i;
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                if (Character.isLetterOrDigit(c) || c == '_') {
+                    while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) {
+                        i++;
+                    }
+                } else if (c == '\'' || c == '"') {
+                    i = text.indexOf(c, i + 1);
+                    if (i < 0) {
+                        throw new IllegalArgumentException("Unterminated string at position " + start + " of pattern query");
+                    }
+                    i++;
+                } else if (text.startsWith("<>", i)) {
+                    i += 2;
+                } else if ("()[]{}:,|-<>=.*".indexOf(c) >= 0) {
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("Unexpected '" + c + "' at position " + i + " of pattern query");
+                }
+                tokens.add(text.substring(start, i));
+                offsets.add(start);
+            }
+        }
+    }
+}
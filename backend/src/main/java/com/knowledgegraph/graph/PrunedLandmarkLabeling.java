@@ -0,0 +1,237 @@
+package com.knowledgegraph.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds {@link LandmarkLabels} for a {@link GraphSnapshot} by pruned landmark labelling
+ * (Akiba, Iwata and Yoshida 2013), treating edges as undirected and unweighted.
+ *
+ * Nodes are taken as landmarks in order of decreasing degree. A BFS from each landmark adds
+ * (landmark, distance) to the label of every node it reaches, but stops at any node whose
+ * distance is already answered by the labels of earlier landmarks, so hubs cover most pairs
+ * and later searches stay small.
+ *
+ * To use several cores, landmarks are processed in batches whose searches run in parallel
+ * and prune only against labels committed by earlier batches; results are merged in rank
+ * order after each batch. Batches start at one landmark, where pruning matters most, and grow
+ * with the number processed. Searches stop at {@link LandmarkLabels#MAX_DISTANCE} hops. A
+ * landmark cap, a label budget and a deadline bound the build; landmarks left out only make
+ * more pairs fall back to a search.
+ */
+public final class PrunedLandmarkLabeling {
+
+    private final GraphSnapshot graph;
+    private int maxLandmarks = LandmarkLabels.MAX_LANDMARKS;
+    private long maxLabelEntries = Long.MAX_VALUE;
+    private long deadlineNanos = Long.MAX_VALUE;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public PrunedLandmarkLabeling(GraphSnapshot graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Highest-degree nodes to search from; zero or less means every node
+     */
+    public PrunedLandmarkLabeling maxLandmarks(int maxLandmarks) {
+        this.maxLandmarks = maxLandmarks > 0
+            ? Math.min(maxLandmarks, LandmarkLabels.MAX_LANDMARKS) : LandmarkLabels.MAX_LANDMARKS;
+        return this;
+    }
+
+    /**
+     * Stop starting new batches once the labels hold this many entries
+     */
+    public PrunedLandmarkLabeling maxLabelEntries(long maxLabelEntries) {
+        this.maxLabelEntries = maxLabelEntries;
+        return this;
+    }
+
+    /**
+     * Stop starting new batches after this long
+     */
+    public PrunedLandmarkLabeling timeout(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+        return this;
+    }
+
+    public PrunedLandmarkLabeling parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    public LandmarkLabels build() {
+        int nodeCount = graph.nodeCount();
+        int[] landmarks = landmarkOrder(Math.min(nodeCount, maxLandmarks));
+        int[][] labels = new int[nodeCount][];
+        int[] sizes = new int[nodeCount];
+        int maxBatch = parallelism * 4;
+
+        Worker[] workers = new Worker[parallelism];
+        for (int w = 0; w < parallelism; w++) {
+            workers[w] = new Worker(nodeCount, landmarks.length, labels, sizes);
+        }
+
+        int processed = 0;
+        long entries = 0;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            while (processed < landmarks.length && entries < maxLabelEntries && System.nanoTime() < deadlineNanos) {
+                int batch = Math.min(landmarks.length - processed, Math.max(1, Math.min(maxBatch, processed / 8)));
+                int[][] reached = search(pool, workers, landmarks, processed, batch);
+
+                // Appending in rank order keeps every label sorted by landmark rank
+                for (int i = 0; i < batch; i++) {
+                    int rank = processed + i;
+                    int[] found = reached[i];
+                    for (int j = 0; j < found.length; j += 2) {
+                        int node = found[j];
+                        if (labels[node] == null) {
+                            labels[node] = new int[4];
+                        } else if (sizes[node] == labels[node].length) {
+                            labels[node] = Arrays.copyOf(labels[node], sizes[node] * 2);
+                        }
+                        labels[node][sizes[node]++] = LandmarkLabels.entry(rank, found[j + 1]);
+                    }
+                    entries += found.length / 2;
+                }
+                processed += batch;
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int node = 0; node < nodeCount; node++) {
+            labels[node] = sizes[node] == 0 ? LandmarkLabels.EMPTY : Arrays.copyOf(labels[node], sizes[node]);
+        }
+        return new LandmarkLabels(graph, Arrays.copyOf(landmarks, processed), labels, entries);
+    }
+
+    /**
+     * Pruned searches for one batch of landmarks; per landmark, the reached nodes and their
+     * distances as interleaved pairs
+     */
+    private int[][] search(ForkJoinPool pool, Worker[] workers, int[] landmarks, int first, int batch) {
+        int[][] reached = new int[batch][];
+        if (batch == 1) {
+            reached[0] = workers[0].search(landmarks[first]);
+            return reached;
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Worker worker : workers) {
+            tasks.add(pool.submit(() -> {
+                for (int i = next.getAndIncrement(); i < batch; i = next.getAndIncrement()) {
+                    reached[i] = worker.search(landmarks[first + i]);
+                }
+            }));
+        }
+        tasks.forEach(ForkJoinTask::join);
+        return reached;
+    }
+
+    /**
+     * The first count nodes by decreasing degree, ties by dense id
+     */
+    private int[] landmarkOrder(int count) {
+        int nodeCount = graph.nodeCount();
+        long[] keys = new long[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            keys[node] = ((long) (Integer.MAX_VALUE - graph.degree(node)) << 32) | node;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /**
+     * Per-thread search state. Reads the committed labels, which do not change while a batch runs.
+     */
+    private final class Worker {
+
+        final int[][] labels;
+        final int[] sizes;
+        final int[] distance;
+        final int[] queue;
+        final int[] rootDistance;   // root's committed label, indexed by landmark rank
+
+        Worker(int nodeCount, int landmarkCount, int[][] labels, int[] sizes) {
+            this.labels = labels;
+            this.sizes = sizes;
+            distance = new int[nodeCount];
+            queue = new int[nodeCount];
+            rootDistance = new int[landmarkCount];
+            Arrays.fill(distance, -1);
+            Arrays.fill(rootDistance, LandmarkLabels.UNREACHABLE);
+        }
+
+        int[] search(int root) {
+            for (int i = 0; i < sizes[root]; i++) {
+                int entry = labels[root][i];
+                rootDistance[LandmarkLabels.rank(entry)] = LandmarkLabels.distance(entry);
+            }
+
+            IntList found = new IntList();
+            int visited = 0;
+            queue[visited++] = root;
+            distance[root] = 0;
+            for (int head = 0; head < visited; head++) {
+                int v = queue[head];
+                int d = distance[v];
+                if (covered(v, d)) {
+                    continue;
+                }
+                found.add(v);
+                found.add(d);
+                if (d == LandmarkLabels.MAX_DISTANCE) {
+                    continue;
+                }
+                for (int j = graph.outStart(v); j < graph.outEnd(v); j++) {
+                    visited = enqueue(graph.outNeighbor(j), d + 1, visited);
+                }
+                for (int j = graph.inStart(v); j < graph.inEnd(v); j++) {
+                    visited = enqueue(graph.inNeighbor(j), d + 1, visited);
+                }
+            }
+
+            for (int i = 0; i < visited; i++) {
+                distance[queue[i]] = -1;
+            }
+            for (int i = 0; i < sizes[root]; i++) {
+                rootDistance[LandmarkLabels.rank(labels[root][i])] = LandmarkLabels.UNREACHABLE;
+            }
+            return found.toArray();
+        }
+
+        /**
+         * Whether an earlier landmark already puts v within d of the root
+         */
+        private boolean covered(int v, int d) {
+            int[] label = labels[v];
+            for (int i = 0; i < sizes[v]; i++) {
+                int through = rootDistance[LandmarkLabels.rank(label[i])];
+                if (through != LandmarkLabels.UNREACHABLE && through + LandmarkLabels.distance(label[i]) <= d) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int enqueue(int w, int d, int visited) {
+            if (distance[w] < 0) {
+                distance[w] = d;
+                queue[visited++] = w;
+            }
+            return visited;
+        }
+    }
+}
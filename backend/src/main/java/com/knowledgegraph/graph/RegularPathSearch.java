@@ -0,0 +1,184 @@
+package com.knowledgegraph.graph;
+
+import java.util.function.Consumer;
+
+/**
+ * Regular path query over a {@link GraphSnapshot}: breadth-first search of the product of the
+ * graph and a {@link PathExpression} automaton, from one source node.
+ *
+ * A product state is a (node, automaton state) pair, and only edges with an automaton
+ * transition are followed, so edges of other types are skipped with one array lookup and
+ * never materialized. Each node reached in an accepting state is reported once, with a
+ * shortest matching walk (which may revisit a node in another automaton state). Visited
+ * product states are kept in one hash map per automaton state, so memory grows with the
+ * explored region rather than the graph. Work is bounded by a result count, a walk length,
+ * a node-expansion budget and a wall-clock deadline.
+ */
+public final class RegularPathSearch {
+
+    public enum Outcome {
+        COMPLETE,            // every match within the length limit was reported
+        RESULT_LIMIT,
+        EXPANSION_LIMIT,
+        TIME_LIMIT
+    }
+
+    private final GraphSnapshot graph;
+    private final PathExpression expression;
+    private int maxLength = Integer.MAX_VALUE;
+    private int maxResults = Integer.MAX_VALUE;
+    private long maxExpansions = Long.MAX_VALUE;
+    private long deadlineNanos = Long.MAX_VALUE;
+
+    private int expansions;
+
+    public RegularPathSearch(GraphSnapshot graph, PathExpression expression) {
+        this.graph = graph;
+        this.expression = expression;
+    }
+
+    /**
+     * Longest walk, in edges, that is explored
+     */
+    public RegularPathSearch maxLength(int maxLength) {
+        this.maxLength = maxLength;
+        return this;
+    }
+
+    public RegularPathSearch maxResults(int maxResults) {
+        this.maxResults = maxResults;
+        return this;
+    }
+
+    public RegularPathSearch maxExpansions(long maxExpansions) {
+        this.maxExpansions = maxExpansions;
+        return this;
+    }
+
+    public RegularPathSearch timeout(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+        return this;
+    }
+
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Report matching walks from source in order of increasing length. With a target (>= 0) only
+     * walks ending there are reported and the search stops at the first one.
+     */
+    public Outcome find(int source, int target, Consumer<WeightedShortestPath.Result> consumer) {
+        Search search = new Search(consumer, target);
+        return search.run(source);
+    }
+
+    /**
+     * Per-query state. Product states are entries in parallel lists, appended in BFS order, so
+     * the entry list is also the queue.
+     */
+    private final class Search {
+
+        private final Consumer<WeightedShortestPath.Result> consumer;
+        private final int target;
+        private final IntIntHashMap[] visited = new IntIntHashMap[expression.stateCount()];  // node -> entry
+        private final IntIntHashMap reported = new IntIntHashMap();
+        private final IntList entryNode = new IntList();
+        private final IntList entryState = new IntList();
+        private final IntList entryParent = new IntList();
+        private final IntList entryEdge = new IntList();
+        private final IntList entryDepth = new IntList();
+        private int results;
+
+        Search(Consumer<WeightedShortestPath.Result> consumer, int target) {
+            this.consumer = consumer;
+            this.target = target;
+        }
+
+        Outcome run(int source) {
+            if (visit(source, expression.start(), -1, -1, 0)) {
+                return stopped();
+            }
+            for (int head = 0; head < entryNode.size(); head++) {
+                if (expansions >= maxExpansions) {
+                    return Outcome.EXPANSION_LIMIT;
+                }
+                if ((expansions & 0xFF) == 0 && System.nanoTime() > deadlineNanos) {
+                    return Outcome.TIME_LIMIT;
+                }
+                int depth = entryDepth.get(head);
+                if (depth >= maxLength) {
+                    continue;
+                }
+                expansions++;
+                int node = entryNode.get(head);
+                int state = entryState.get(head);
+                if (expression.followsOut(state)) {
+                    for (int j = graph.outStart(node); j < graph.outEnd(node); j++) {
+                        int edge = graph.outEdge(j);
+                        int next = expression.next(state, graph.edgeTypeOrdinal(edge), false);
+                        if (next >= 0 && visit(graph.outNeighbor(j), next, head, edge, depth + 1)) {
+                            return stopped();
+                        }
+                    }
+                }
+                if (expression.followsIn(state)) {
+                    for (int j = graph.inStart(node); j < graph.inEnd(node); j++) {
+                        int edge = graph.inEdge(j);
+                        int next = expression.next(state, graph.edgeTypeOrdinal(edge), true);
+                        if (next >= 0 && visit(graph.inNeighbor(j), next, head, edge, depth + 1)) {
+                            return stopped();
+                        }
+                    }
+                }
+            }
+            return Outcome.COMPLETE;
+        }
+
+        /**
+         * Outcome once visit() asked to stop: the target was found, or enough results were
+         */
+        private Outcome stopped() {
+            return target >= 0 ? Outcome.COMPLETE : Outcome.RESULT_LIMIT;
+        }
+
+        /**
+         * Record a product state if new, reporting its node on a first accepting visit.
+         * Returns true once no more results are wanted.
+         */
+        private boolean visit(int node, int state, int parent, int edge, int depth) {
+            if (visited[state] == null) {
+                visited[state] = new IntIntHashMap();
+            }
+            if (!visited[state].putIfAbsent(node, entryNode.size())) {
+                return false;
+            }
+            entryNode.add(node);
+            entryState.add(state);
+            entryParent.add(parent);
+            entryEdge.add(edge);
+            entryDepth.add(depth);
+
+            if (!expression.isAccepting(state) || (target >= 0 && node != target) || !reported.putIfAbsent(node, 0)) {
+                return false;
+            }
+            consumer.accept(walk(entryNode.size() - 1));
+            results++;
+            return results >= maxResults || target >= 0;
+        }
+
+        private WeightedShortestPath.Result walk(int entry) {
+            int length = entryDepth.get(entry);
+            int[] nodes = new int[length + 1];
+            int[] edges = new int[length];
+            for (int i = length; i >= 0; i--) {
+                nodes[i] = entryNode.get(entry);
+                if (i > 0) {
+                    edges[i - 1] = entryEdge.get(entry);
+                }
+                entry = entryParent.get(entry);
+            }
+            return new WeightedShortestPath.Result(nodes, edges, length, expansions, false);
+        }
+    }
+}
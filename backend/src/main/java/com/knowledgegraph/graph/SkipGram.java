@@ -0,0 +1,181 @@
+package com.knowledgegraph.graph;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Skip-gram with negative sampling over node sequences, as in word2vec. Input vectors become
+ * the embeddings; output vectors are only used for training.
+ *
+ * Updates take no locks, so several threads may train on different sequences at once
+ * (Hogwild). Walks over a sparse graph rarely touch the same rows at the same time, and the
+ * occasional lost update does not hurt convergence.
+ */
+final class SkipGram {
+
+    private static final int SIGMOID_TABLE_SIZE = 1000;
+    private static final float MAX_EXP = 6.0f;
+    private static final float[] SIGMOID = new float[SIGMOID_TABLE_SIZE];
+    private static final int MAX_NEGATIVE_TABLE_SIZE = 10_000_000;
+
+    static {
+        for (int i = 0; i < SIGMOID_TABLE_SIZE; i++) {
+            double x = (2.0 * i / SIGMOID_TABLE_SIZE - 1.0) * MAX_EXP;
+            SIGMOID[i] = (float) (1.0 / (1.0 + Math.exp(-x)));
+        }
+    }
+
+    private final int dimensions;
+    private final float[] input;
+    private final float[] output;
+    private final int[] negativeTable;
+
+    /**
+     * @param frequencies relative occurrence of each node in the sequences; negatives are drawn
+     *                    proportionally to frequency^0.75, nodes with 0 are never drawn
+     */
+    SkipGram(int dimensions, double[] frequencies, long seed) {
+        int nodes = frequencies.length;
+        this.dimensions = dimensions;
+        this.input = new float[nodes * dimensions];
+        this.output = new float[nodes * dimensions];
+        this.negativeTable = negativeTable(frequencies);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (float) ((random.nextDouble() - 0.5) / dimensions);
+        }
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Input vector of every node, L2-normalized
+     */
+    float[] normalizedVectors() {
+        float[] vectors = input.clone();
+        for (int start = 0; start < vectors.length; start += dimensions) {
+            double norm = 0.0;
+            for (int k = start; k < start + dimensions; k++) {
+                norm += vectors[k] * vectors[k];
+            }
+            if (norm > 0.0) {
+                float scale = (float) (1.0 / Math.sqrt(norm));
+                for (int k = start; k < start + dimensions; k++) {
+                    vectors[k] *= scale;
+                }
+            }
+        }
+        return vectors;
+    }
+
+    /**
+     * One pass over a sequence. Each position predicts its neighbors within a window shrunk by
+     * a random amount, which weights near context more than far context.
+     *
+     * @param gradient caller-owned scratch of {@link #dimensions()} floats
+     */
+    void train(int[] sequence, int length, int window, int negatives, float learningRate,
+               SplittableRandom random, float[] gradient) {
+        for (int i = 0; i < length; i++) {
+            int span = window - random.nextInt(window);
+            int from = Math.max(0, i - span);
+            int to = Math.min(length - 1, i + span);
+            for (int j = from; j <= to; j++) {
+                if (j != i) {
+                    update(sequence[j], sequence[i], negatives, learningRate, random, gradient);
+                }
+            }
+        }
+    }
+
+    private void update(int context, int target, int negatives, float learningRate,
+                        SplittableRandom random, float[] gradient) {
+        int in = context * dimensions;
+        Arrays.fill(gradient, 0.0f);
+        for (int d = 0; d <= negatives; d++) {
+            int sample;
+            float label;
+            if (d == 0) {
+                sample = target;
+                label = 1.0f;
+            } else {
+                sample = negativeTable[random.nextInt(negativeTable.length)];
+                if (sample == target) {
+                    continue;
+                }
+                label = 0.0f;
+            }
+
+            int out = sample * dimensions;
+            float dot = 0.0f;
+            for (int k = 0; k < dimensions; k++) {
+                dot += input[in + k] * output[out + k];
+            }
+            float g = (label - sigmoid(dot)) * learningRate;
+            for (int k = 0; k < dimensions; k++) {
+                gradient[k] += g * output[out + k];
+                output[out + k] += g * input[in + k];
+            }
+        }
+        for (int k = 0; k < dimensions; k++) {
+            input[in + k] += gradient[k];
+        }
+    }
+
+    private static float sigmoid(float x) {
+        if (x >= MAX_EXP) {
+            return 1.0f;
+        }
+        if (x <= -MAX_EXP) {
+            return 0.0f;
+        }
+        return SIGMOID[(int) ((x + MAX_EXP) * (SIGMOID_TABLE_SIZE / MAX_EXP / 2))];
+    }
+
+    /**
+     * Table of node ids where each node fills a share of slots proportional to frequency^0.75,
+     * so a uniform slot is a draw from the smoothed unigram distribution
+     */
+    private static int[] negativeTable(double[] frequencies) {
+        double total = 0.0;
+        int present = 0;
+        for (double frequency : frequencies) {
+            if (frequency > 0.0) {
+                total += Math.pow(frequency, 0.75);
+                present++;
+            }
+        }
+        if (present == 0) {
+            return new int[]{0};
+        }
+
+        int size = (int) Math.min(MAX_NEGATIVE_TABLE_SIZE, Math.max(1000L, 100L * present));
+        int last = lastPresent(frequencies);
+        int[] table = new int[size];
+        int slot = 0;
+        double cumulative = 0.0;
+        for (int node = 0; node < frequencies.length && slot < size; node++) {
+            if (frequencies[node] <= 0.0) {
+                continue;
+            }
+            cumulative += Math.pow(frequencies[node], 0.75) / total;
+            int end = node == last ? size : (int) Math.min(size, Math.round(cumulative * size));
+            while (slot < end) {
+                table[slot++] = node;
+            }
+        }
+        return table;
+    }
+
+    private static int lastPresent(double[] frequencies) {
+        for (int node = frequencies.length - 1; node >= 0; node--) {
+            if (frequencies[node] > 0.0) {
+                return node;
+            }
+        }
+        return -1;
+    }
+}
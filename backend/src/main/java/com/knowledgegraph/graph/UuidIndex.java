@@ -0,0 +1,130 @@
+package com.knowledgegraph.graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Assigns dense int ids to UUIDs. UUIDs are kept as two parallel long arrays and
+ * looked up through an open-addressing table of ids, so no UUID objects are retained.
+ */
+final class UuidIndex {
+
+    private long[] msb;
+    private long[] lsb;
+    private int size;
+    private int[] table; // dense id + 1, 0 = empty
+    private int mask;
+
+    UuidIndex(int expectedSize) {
+        int capacity = Math.max(expectedSize, 16);
+        this.msb = new long[capacity];
+        this.lsb = new long[capacity];
+        allocateTable(capacity);
+    }
+
+    /**
+     * Index over a set of UUIDs, for membership tests without boxing
+     */
+    static UuidIndex of(Collection<UUID> ids) {
+        UuidIndex index = new UuidIndex(ids.size());
+        ids.forEach(index::add);
+        return index;
+    }
+
+    int indexOf(UUID id) {
+        return indexOf(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    int indexOf(long m, long l) {
+        int slot = hash(m, l) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            if (msb[id] == m && lsb[id] == l) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Return the dense id for a UUID, assigning the next id if it is new
+     */
+    int add(UUID id) {
+        long m = id.getMostSignificantBits();
+        long l = id.getLeastSignificantBits();
+        int existing = indexOf(m, l);
+        if (existing >= 0) {
+            return existing;
+        }
+        if (size == msb.length) {
+            msb = Arrays.copyOf(msb, size << 1);
+            lsb = Arrays.copyOf(lsb, size << 1);
+        }
+        msb[size] = m;
+        lsb[size] = l;
+        insert(size);
+        size++;
+        if (size * 2 > table.length) {
+            allocateTable(table.length);
+            for (int i = 0; i < size; i++) {
+                insert(i);
+            }
+        }
+        return size - 1;
+    }
+
+    UUID get(int id) {
+        return new UUID(msb[id], lsb[id]);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] msb() {
+        return msb;
+    }
+
+    long[] lsb() {
+        return lsb;
+    }
+
+    /**
+     * Open-addressing table of dense id + 1 (0 = empty), probed linearly from {@link #hash}
+     */
+    int[] table() {
+        return table;
+    }
+
+    /**
+     * Drop spare capacity once loading is finished
+     */
+    void trim() {
+        if (msb.length != size) {
+            msb = Arrays.copyOf(msb, size);
+            lsb = Arrays.copyOf(lsb, size);
+        }
+    }
+
+    private void insert(int id) {
+        int slot = hash(msb[id], lsb[id]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private void allocateTable(int entries) {
+        int capacity = Integer.highestOneBit(entries * 2 - 1) << 1;
+        table = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    static int hash(long m, long l) {
+        long h = (m ^ (l * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
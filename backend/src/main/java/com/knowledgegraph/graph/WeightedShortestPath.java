@@ -0,0 +1,289 @@
+package com.knowledgegraph.graph;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra / A* over a {@link GraphSnapshot}, treating edges as undirected.
+ *
+ * Per-query state lives in slots: visited nodes are mapped to a compact slot index and
+ * distances, parents and the closed flag are kept in parallel primitive arrays that grow
+ * with the visited region, never with the size of the graph.
+ */
+public final class WeightedShortestPath {
+
+    private WeightedShortestPath() {
+        // Utility class
+    }
+
+    /**
+     * Lower-bound estimate of the remaining cost to the target. With {@link #NONE} the search
+     * is plain Dijkstra. A* results are optimal only if the estimate never exceeds the true cost.
+     */
+    public interface Heuristic {
+
+        Heuristic NONE = node -> 0.0;
+
+        double estimate(int node);
+
+        /**
+         * Called once before the neighbors of a node are relaxed, e.g. to batch-load data
+         */
+        default void beforeExpand(GraphSnapshot graph, int node) {
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final int[] nodes;
+        private final int[] edges;
+        private final double cost;
+        private final int expandedNodes;
+        private final boolean truncated;
+
+        public boolean isFound() {
+            return nodes.length > 0;
+        }
+    }
+
+    public static Result search(GraphSnapshot graph, int source, int target,
+                                EdgeCost edgeCost, Heuristic heuristic, int maxExpansions) {
+        Search search = new Search(graph, edgeCost, heuristic);
+        return search.run(source, target, maxExpansions);
+    }
+
+    /**
+     * Cheapest path with at most maxHops edges. The cheapest path overall may be longer, so a
+     * node can be settled again with fewer hops at a higher cost; each settle counts as one
+     * expansion.
+     */
+    public static Result searchWithinHops(GraphSnapshot graph, int source, int target,
+                                          EdgeCost edgeCost, int maxHops, int maxExpansions) {
+        HopBoundedSearch search = new HopBoundedSearch(graph, edgeCost, maxHops);
+        return search.run(source, target, maxExpansions);
+    }
+
+    private static final class Search {
+
+        private final GraphSnapshot graph;
+        private final EdgeCost edgeCost;
+        private final Heuristic heuristic;
+
+        private final IntIntHashMap slots = new IntIntHashMap();
+        private final DoubleMinHeap heap = new DoubleMinHeap();
+        private int[] slotNode = new int[64];
+        private double[] distance = new double[64];
+        private int[] parentSlot = new int[64];
+        private int[] parentEdge = new int[64];
+        private boolean[] closed = new boolean[64];
+        private int slotCount;
+
+        Search(GraphSnapshot graph, EdgeCost edgeCost, Heuristic heuristic) {
+            this.graph = graph;
+            this.edgeCost = edgeCost;
+            this.heuristic = heuristic;
+        }
+
+        Result run(int source, int target, int maxExpansions) {
+            int sourceSlot = slotOf(source);
+            distance[sourceSlot] = 0.0;
+            heap.push(sourceSlot, heuristic.estimate(source));
+
+            int expanded = 0;
+            while (!heap.isEmpty()) {
+                int slot = heap.pop();
+                if (closed[slot]) {
+                    continue; // stale heap entry
+                }
+                closed[slot] = true;
+                int node = slotNode[slot];
+
+                if (node == target) {
+                    return buildResult(slot, expanded);
+                }
+                if (++expanded > maxExpansions) {
+                    return new Result(new int[0], new int[0], Double.POSITIVE_INFINITY, expanded, true);
+                }
+
+                heuristic.beforeExpand(graph, node);
+                for (int j = graph.outStart(node); j < graph.outEnd(node); j++) {
+                    relax(slot, graph.outEdge(j), graph.outNeighbor(j));
+                }
+                for (int j = graph.inStart(node); j < graph.inEnd(node); j++) {
+                    relax(slot, graph.inEdge(j), graph.inNeighbor(j));
+                }
+            }
+
+            return new Result(new int[0], new int[0], Double.POSITIVE_INFINITY, expanded, false);
+        }
+
+        private void relax(int fromSlot, int edge, int neighbor) {
+            double cost = edgeCost.cost(graph, edge);
+            if (!(cost >= 0.0) || cost == Double.POSITIVE_INFINITY) {
+                return;
+            }
+            int slot = slotOf(neighbor);
+            if (closed[slot]) {
+                return;
+            }
+            double candidate = distance[fromSlot] + cost;
+            if (candidate < distance[slot]) {
+                distance[slot] = candidate;
+                parentSlot[slot] = fromSlot;
+                parentEdge[slot] = edge;
+                heap.push(slot, candidate + heuristic.estimate(neighbor));
+            }
+        }
+
+        private int slotOf(int node) {
+            int slot = slots.get(node, -1);
+            if (slot >= 0) {
+                return slot;
+            }
+            if (slotCount == slotNode.length) {
+                int capacity = slotCount << 1;
+                slotNode = Arrays.copyOf(slotNode, capacity);
+                distance = Arrays.copyOf(distance, capacity);
+                parentSlot = Arrays.copyOf(parentSlot, capacity);
+                parentEdge = Arrays.copyOf(parentEdge, capacity);
+                closed = Arrays.copyOf(closed, capacity);
+            }
+            slot = slotCount++;
+            slots.put(node, slot);
+            slotNode[slot] = node;
+            distance[slot] = Double.POSITIVE_INFINITY;
+            parentSlot[slot] = -1;
+            parentEdge[slot] = -1;
+            return slot;
+        }
+
+        private Result buildResult(int targetSlot, int expanded) {
+            IntList nodes = new IntList();
+            IntList edges = new IntList();
+            for (int slot = targetSlot; slot >= 0; slot = parentSlot[slot]) {
+                nodes.add(slotNode[slot]);
+                if (parentEdge[slot] >= 0) {
+                    edges.add(parentEdge[slot]);
+                }
+            }
+            return new Result(reverse(nodes), reverse(edges), distance[targetSlot], expanded, false);
+        }
+
+        private static int[] reverse(IntList list) {
+            int[] result = new int[list.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = list.get(result.length - 1 - i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Dijkstra over (node, hops) labels. A label is settled only if its node has not been settled
+     * with fewer or equal hops; such an earlier label was at most as expensive, so it dominates.
+     * A node is therefore settled at most maxHops + 1 times, and no path revisits a node: its
+     * first visit would dominate the second.
+     */
+    private static final class HopBoundedSearch {
+
+        private final GraphSnapshot graph;
+        private final EdgeCost edgeCost;
+        private final int maxHops;
+
+        private final IntIntHashMap settledHops = new IntIntHashMap();  // node -> fewest hops settled
+        private final DoubleMinHeap heap = new DoubleMinHeap();
+        private int[] labelNode = new int[64];
+        private int[] labelHops = new int[64];
+        private double[] distance = new double[64];
+        private int[] parentLabel = new int[64];
+        private int[] parentEdge = new int[64];
+        private int labelCount;
+
+        HopBoundedSearch(GraphSnapshot graph, EdgeCost edgeCost, int maxHops) {
+            this.graph = graph;
+            this.edgeCost = edgeCost;
+            this.maxHops = maxHops;
+        }
+
+        Result run(int source, int target, int maxExpansions) {
+            heap.push(addLabel(source, 0, 0.0, -1, -1), 0.0);
+
+            int expanded = 0;
+            while (!heap.isEmpty()) {
+                int label = heap.pop();
+                int node = labelNode[label];
+                int hops = labelHops[label];
+                if (settledHops.get(node, Integer.MAX_VALUE) <= hops) {
+                    continue; // dominated
+                }
+                settledHops.put(node, hops);
+
+                if (node == target) {
+                    return buildResult(label, expanded);
+                }
+                if (++expanded > maxExpansions) {
+                    return new Result(new int[0], new int[0], Double.POSITIVE_INFINITY, expanded, true);
+                }
+                if (hops == maxHops) {
+                    continue;
+                }
+
+                for (int j = graph.outStart(node); j < graph.outEnd(node); j++) {
+                    relax(label, graph.outEdge(j), graph.outNeighbor(j));
+                }
+                for (int j = graph.inStart(node); j < graph.inEnd(node); j++) {
+                    relax(label, graph.inEdge(j), graph.inNeighbor(j));
+                }
+            }
+
+            return new Result(new int[0], new int[0], Double.POSITIVE_INFINITY, expanded, false);
+        }
+
+        private void relax(int fromLabel, int edge, int neighbor) {
+            double cost = edgeCost.cost(graph, edge);
+            if (!(cost >= 0.0) || cost == Double.POSITIVE_INFINITY) {
+                return;
+            }
+            int hops = labelHops[fromLabel] + 1;
+            if (settledHops.get(neighbor, Integer.MAX_VALUE) <= hops) {
+                return;
+            }
+            double candidate = distance[fromLabel] + cost;
+            heap.push(addLabel(neighbor, hops, candidate, fromLabel, edge), candidate);
+        }
+
+        private int addLabel(int node, int hops, double cost, int parent, int edge) {
+            if (labelCount == labelNode.length) {
+                int capacity = labelCount << 1;
+                labelNode = Arrays.copyOf(labelNode, capacity);
+                labelHops = Arrays.copyOf(labelHops, capacity);
+                distance = Arrays.copyOf(distance, capacity);
+                parentLabel = Arrays.copyOf(parentLabel, capacity);
+                parentEdge = Arrays.copyOf(parentEdge, capacity);
+            }
+            int label = labelCount++;
+            labelNode[label] = node;
+            labelHops[label] = hops;
+            distance[label] = cost;
+            parentLabel[label] = parent;
+            parentEdge[label] = edge;
+            return label;
+        }
+
+        private Result buildResult(int targetLabel, int expanded) {
+            int length = labelHops[targetLabel];
+            int[] nodes = new int[length + 1];
+            int[] edges = new int[length];
+            for (int label = targetLabel, i = length; label >= 0; label = parentLabel[label], i--) {
+                nodes[i] = labelNode[label];
+                if (i > 0) {
+                    edges[i - 1] = parentEdge[label];
+                }
+            }
+            return new Result(nodes, edges, distance[targetLabel], expanded, false);
+        }
+    }
+}
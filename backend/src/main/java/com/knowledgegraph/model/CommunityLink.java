@@ -0,0 +1,39 @@
+package com.knowledgegraph.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Edges running between two communities. Each unordered pair is stored once, with the
+ * smaller community id first.
+ */
+@Entity
+@Table(name = "community_links", schema = "kg",
+       indexes = @Index(name = "idx_community_links_target", columnList = "target_community_id"))
+@IdClass(CommunityLink.Key.class)
+@Data
+public class CommunityLink {
+
+    @Id
+    @Column(name = "source_community_id")
+    private UUID sourceCommunityId;
+
+    @Id
+    @Column(name = "target_community_id")
+    private UUID targetCommunityId;
+
+    @Column(name = "edge_count", nullable = false)
+    private long edgeCount;
+
+    @Column(nullable = false)
+    private double weight;
+
+    @Data
+    public static class Key implements Serializable {
+        private UUID sourceCommunityId;
+        private UUID targetCommunityId;
+    }
+}
@@ -16,6 +16,11 @@ import java.util.UUID;
 @ToString(exclude = {"node", "document", "vector"}) // Exclude large fields and relations
 public class Embedding {
 
+    /**
+     * Model version of graph-structure (node2vec) vectors, whose dimension differs from text vectors
+     */
+    public static final String STRUCTURAL_MODEL_VERSION = "structural-node2vec";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
@@ -0,0 +1,30 @@
+package com.knowledgegraph.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A community found by label propagation. Ids carry over between runs that warm-start
+ * from previous labels.
+ */
+@Entity
+@Table(name = "graph_communities", schema = "kg",
+       indexes = @Index(name = "idx_graph_communities_size", columnList = "size DESC"))
+@Data
+@EqualsAndHashCode(of = {"id"})
+public class GraphCommunity {
+
+    @Id
+    @Column(name = "community_id")
+    private UUID id;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,28 @@
+package com.knowledgegraph.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A weakly connected component, identified by the id of one of its member nodes
+ */
+@Entity
+@Table(name = "graph_components", schema = "kg")
+@Data
+@EqualsAndHashCode(of = {"id"})
+public class GraphComponent {
+
+    @Id
+    @Column(name = "component_id")
+    private UUID id;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
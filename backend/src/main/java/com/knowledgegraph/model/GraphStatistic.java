@@ -0,0 +1,26 @@
+package com.knowledgegraph.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * One checkpointed graph statistics counter, e.g. "nodes.CONCEPT" or "degree_histogram.3"
+ */
+@Entity
+@Table(name = "graph_statistics", schema = "kg")
+@Data
+@EqualsAndHashCode(of = {"name"})
+public class GraphStatistic {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private long value;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
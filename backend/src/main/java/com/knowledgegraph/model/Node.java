@@ -1,6 +1,8 @@
 package com.knowledgegraph.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.knowledgegraph.service.GraphChangeListener;
+import com.knowledgegraph.service.GraphStatisticsListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -15,6 +17,7 @@ import java.util.Map;
 import java.util.UUID;
 
 @Entity
+@EntityListeners({GraphStatisticsListener.class, GraphChangeListener.class})
 @Table(name = "nodes", schema = "kg")
 @Data
 @EqualsAndHashCode(of = {"id"})
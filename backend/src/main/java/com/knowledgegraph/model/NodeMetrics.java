@@ -0,0 +1,43 @@
+package com.knowledgegraph.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Per-node results of graph-wide analytics. Kept out of kg.nodes so bulk metric
+ * writes do not touch node rows or fire their update triggers.
+ */
+@Entity
+@Table(name = "node_metrics", schema = "kg",
+       indexes = {
+           @Index(name = "idx_node_metrics_component", columnList = "component_id, node_id"),
+           @Index(name = "idx_node_metrics_pagerank", columnList = "pagerank DESC"),
+           @Index(name = "idx_node_metrics_betweenness", columnList = "betweenness DESC"),
+           @Index(name = "idx_node_metrics_community", columnList = "community_id, node_id")
+       })
+@Data
+@EqualsAndHashCode(of = {"nodeId"})
+public class NodeMetrics {
+
+    @Id
+    @Column(name = "node_id")
+    private UUID nodeId;
+
+    @Column(name = "component_id")
+    private UUID componentId;
+
+    private Double pagerank;
+
+    private Double betweenness;
+
+    @Column(name = "community_id")
+    private UUID communityId;
+
+    // Last component label write; other metrics are written by their own jobs
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -16,6 +16,7 @@ public interface EmbeddingRepository extends JpaRepository<Embedding, UUID> {
 
     // Find embeddings by node
     List<Embedding> findByNode_Id(UUID nodeId);
+    List<Embedding> findByNode_IdAndModelVersionNot(UUID nodeId, String modelVersion);
     Page<Embedding> findByNode_Id(UUID nodeId, Pageable pageable);
 
     // Find embeddings by document
@@ -36,12 +37,14 @@ public interface EmbeddingRepository extends JpaRepository<Embedding, UUID> {
 
     // Vector similarity search using native query
     // Note: This will work once pgvector is properly configured
+    // Text searches skip structural vectors (Embedding.STRUCTURAL_MODEL_VERSION), which have another dimension
     @Query(value = """
         SELECT e.id, e.node_id, e.document_id, e.content_snippet, 
                e.model_version, e.created_at,
                (1 - (e.vector <=> CAST(:queryVector AS vector))) as similarity
         FROM kg.embeddings e
-        WHERE (1 - (e.vector <=> CAST(:queryVector AS vector))) >= :threshold
+        WHERE e.model_version <> 'structural-node2vec'
+          AND (1 - (e.vector <=> CAST(:queryVector AS vector))) >= :threshold
         ORDER BY e.vector <=> CAST(:queryVector AS vector)
         LIMIT :limit
         """, nativeQuery = true)
@@ -58,6 +61,7 @@ public interface EmbeddingRepository extends JpaRepository<Embedding, UUID> {
                (1 - (e.vector <=> CAST(:queryVector AS vector))) as similarity
         FROM kg.embeddings e
         WHERE e.node_id = :nodeId
+          AND e.model_version <> 'structural-node2vec'
           AND (1 - (e.vector <=> CAST(:queryVector AS vector))) >= :threshold
         ORDER BY e.vector <=> CAST(:queryVector AS vector)
         LIMIT :limit
@@ -92,7 +96,8 @@ public interface EmbeddingRepository extends JpaRepository<Embedding, UUID> {
                    (1 - (e.vector <=> CAST(:queryVector AS vector))) as similarity,
                    ROW_NUMBER() OVER (PARTITION BY e.node_id ORDER BY e.vector <=> CAST(:queryVector AS vector)) as rn
             FROM kg.embeddings e
-            WHERE (1 - (e.vector <=> CAST(:queryVector AS vector))) >= :threshold
+            WHERE e.model_version <> 'structural-node2vec'
+              AND (1 - (e.vector <=> CAST(:queryVector AS vector))) >= :threshold
         )
         SELECT id, node_id, document_id, content_snippet, model_version, created_at, similarity
         FROM diverse_results 
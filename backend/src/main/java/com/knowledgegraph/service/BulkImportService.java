@@ -0,0 +1,677 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.IngestionConfig;
+import com.knowledgegraph.dto.BulkImportOptions;
+import com.knowledgegraph.dto.IngestionResult;
+import com.knowledgegraph.event.GraphChangedEvent;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Fast path for loading large files. Rows are streamed with COPY into temporary staging
+ * tables, then merged into the graph with one set-based statement per table: names are
+ * resolved to ids by joins, duplicates collapsed, and rows inserted or upserted in bulk.
+ * The whole import is one transaction, so a failed import leaves the graph untouched.
+ *
+ * CSV files need a header row naming the staging columns ({@code source_id} and
+ * {@code sourceId} are both accepted) and are copied as they are. NDJSON lines are either flat
+ * objects of the requested kind, or wrapped as {"node": ...}, {"edge": ...} or
+ * {"embedding": ...} as written by the graph export; other fields are ignored.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkImportService {
+
+    /**
+     * Staging tables, one per kind of row. Their columns are what an import file may contain;
+     * ord keeps file order so the last of several rows for the same key wins.
+     */
+    private enum Staging {
+        NODES("bulk_nodes", "kg.nodes",
+            List.of("id", "type", "name", "properties", "source_uri"),
+            Set.of("id", "name")),
+        EDGES("bulk_edges", "kg.edges",
+            List.of("id", "source_id", "source_type", "source_name", "target_id", "target_type", "target_name",
+                "type", "properties", "source_uri"),
+            Set.of("id", "source_id")),
+        EMBEDDINGS("bulk_embeddings", "kg.embeddings",
+            List.of("node_id", "node_type", "node_name", "vector", "model_version", "content_snippet"),
+            Set.of("id", "node_id", "model_version"));
+
+        private final String table;
+        private final String target;
+        private final List<String> columns;
+        private final Set<String> probedColumns;   // leading columns of target indexes the merge looks rows up by
+
+        Staging(String table, String target, List<String> columns, Set<String> probedColumns) {
+            this.table = table;
+            this.target = target;
+            this.columns = columns;
+            this.probedColumns = probedColumns;
+        }
+
+        /**
+         * Staging column for a CSV header or JSON field name, ignoring case, '_' and '-'
+         */
+        String column(String field) {
+            String key = normalize(field);
+            for (String column : columns) {
+                if (normalize(column).equals(key)) {
+                    return column;
+                }
+            }
+            return null;
+        }
+
+        String createSql() {
+            StringBuilder sql = new StringBuilder("CREATE TEMP TABLE ").append(table)
+                .append(" (ord bigint GENERATED ALWAYS AS IDENTITY");
+            for (String column : columns) {
+                sql.append(", ").append(column).append(' ').append(columnType(column));
+            }
+            return sql.append(") ON COMMIT DROP").toString();
+        }
+
+        String copySql(List<String> fileColumns) {
+            return "COPY " + table + " (" + String.join(", ", fileColumns) + ") FROM STDIN WITH (FORMAT csv)";
+        }
+
+        private static String normalize(String field) {
+            return field.toLowerCase(Locale.ROOT).replace("_", "").replace("-", "");
+        }
+    }
+
+    private static String columnType(String column) {
+        return switch (column) {
+            case "id", "source_id", "target_id", "node_id" -> "uuid";
+            case "properties" -> "jsonb";
+            default -> "text";
+        };
+    }
+
+    /**
+     * Rows with an id are upserted by id; rows without one are matched to the oldest existing
+     * node of the same type and name, or get a new id. Properties of existing nodes are merged
+     * with the imported ones; the type of an existing node is kept.
+     * Parameters: valid node type names. Returns inserted and updated counts per type.
+     */
+    private static final String MERGE_NODES_SQL = """
+        WITH params AS (
+            SELECT ?::text[] AS node_types
+        ),
+        keyed AS (
+            SELECT s.ord, s.id, s.type, s.name, COALESCE(s.properties, '{}'::jsonb) AS properties, s.source_uri
+            FROM bulk_nodes s, params p
+            WHERE s.type = ANY(p.node_types)
+              AND s.name IS NOT NULL AND length(s.name) <= 500
+              AND (s.properties IS NULL OR jsonb_typeof(s.properties) = 'object')
+        ),
+        named AS (
+            SELECT DISTINCT ON (k.type, k.name) k.*
+            FROM keyed k
+            WHERE k.id IS NULL
+            ORDER BY k.type, k.name, k.ord DESC
+        ),
+        resolved AS (
+            SELECT k.ord, k.id, k.type, k.name, k.properties, k.source_uri
+            FROM keyed k
+            WHERE k.id IS NOT NULL
+            UNION ALL
+            SELECT m.ord, COALESCE(e.id, gen_random_uuid()), m.type, m.name, m.properties, m.source_uri
+            FROM named m
+            LEFT JOIN LATERAL (
+                SELECT n.id FROM kg.nodes n
+                WHERE n.type = m.type AND n.name = m.name
+                ORDER BY n.created_at
+                LIMIT 1
+            ) e ON true
+        ),
+        merged AS (
+            SELECT DISTINCT ON (r.id) r.*
+            FROM resolved r
+            ORDER BY r.id, r.ord DESC
+        ),
+        upserted AS (
+            INSERT INTO kg.nodes AS n (id, type, name, properties, source_uri, captured_at, created_at, updated_at)
+            SELECT m.id, m.type, m.name, m.properties, m.source_uri, now(), now(), now()
+            FROM merged m
+            ON CONFLICT (id) DO UPDATE SET
+                name = EXCLUDED.name,
+                properties = COALESCE(n.properties, '{}'::jsonb) || EXCLUDED.properties,
+                source_uri = COALESCE(EXCLUDED.source_uri, n.source_uri),
+                updated_at = now()
+            RETURNING n.type, (n.xmax = 0) AS inserted
+        )
+        SELECT type,
+               count(*) FILTER (WHERE inserted) AS inserted,
+               count(*) FILTER (WHERE NOT inserted) AS updated
+        FROM upserted
+        GROUP BY type
+        """;
+
+    /**
+     * Endpoints are resolved by id, or by type and name. Edges whose endpoints are missing,
+     * and edges that already exist with the same source, target and type, are skipped.
+     * Parameters: valid edge type names. Returns inserted counts per edge and endpoint types.
+     */
+    private static final String MERGE_EDGES_SQL = """
+        WITH params AS (
+            SELECT ?::text[] AS edge_types
+        ),
+        resolved AS (
+            SELECT s.ord, s.id, s.type, COALESCE(s.properties, '{}'::jsonb) AS properties, s.source_uri,
+                   src.id AS source_id, src.type AS source_type, tgt.id AS target_id, tgt.type AS target_type
+            FROM bulk_edges s
+            CROSS JOIN params p
+            JOIN LATERAL (
+                (SELECT n.id, n.type FROM kg.nodes n WHERE n.id = s.source_id)
+                UNION ALL
+                (SELECT n.id, n.type FROM kg.nodes n
+                 WHERE s.source_id IS NULL AND n.type = s.source_type AND n.name = s.source_name
+                 ORDER BY n.created_at
+                 LIMIT 1)
+            ) src ON true
+            JOIN LATERAL (
+                (SELECT n.id, n.type FROM kg.nodes n WHERE n.id = s.target_id)
+                UNION ALL
+                (SELECT n.id, n.type FROM kg.nodes n
+                 WHERE s.target_id IS NULL AND n.type = s.target_type AND n.name = s.target_name
+                 ORDER BY n.created_at
+                 LIMIT 1)
+            ) tgt ON true
+            WHERE s.type = ANY(p.edge_types)
+              AND (s.properties IS NULL OR jsonb_typeof(s.properties) = 'object')
+        ),
+        deduped AS (
+            SELECT DISTINCT ON (r.source_id, r.target_id, r.type) r.*
+            FROM resolved r
+            ORDER BY r.source_id, r.target_id, r.type, r.ord DESC
+        ),
+        inserted AS (
+            INSERT INTO kg.edges (id, source_id, target_id, type, properties, source_uri, captured_at, created_at, updated_at)
+            SELECT COALESCE(d.id, gen_random_uuid()), d.source_id, d.target_id, d.type, d.properties, d.source_uri,
+                   now(), now(), now()
+            FROM deduped d
+            WHERE NOT EXISTS (
+                SELECT 1 FROM kg.edges e
+                WHERE e.source_id = d.source_id AND e.target_id = d.target_id AND e.type = d.type)
+            ON CONFLICT (id) DO NOTHING
+            RETURNING source_id, target_id, type
+        )
+        SELECT d.type, d.source_type, d.target_type, count(*) AS inserted
+        FROM inserted i
+        JOIN deduped d ON d.source_id = i.source_id AND d.target_id = i.target_id AND d.type = i.type
+        GROUP BY d.type, d.source_type, d.target_type
+        """;
+
+    /**
+     * One vector per node and model version; an imported vector replaces the stored one.
+     * Vectors are in pgvector text form, e.g. [0.1,-0.2].
+     */
+    private static final String MERGE_EMBEDDINGS_SQL = """
+        WITH resolved AS (
+            SELECT DISTINCT ON (n.id, s.model_version)
+                   n.id AS node_id, s.model_version, s.vector, s.content_snippet
+            FROM bulk_embeddings s
+            JOIN LATERAL (
+                (SELECT n.id, n.created_at FROM kg.nodes n WHERE n.id = s.node_id)
+                UNION ALL
+                (SELECT n.id, n.created_at FROM kg.nodes n
+                 WHERE s.node_id IS NULL AND n.type = s.node_type AND n.name = s.node_name
+                 ORDER BY n.created_at
+                 LIMIT 1)
+            ) n ON true
+            WHERE s.vector IS NOT NULL
+              AND s.model_version IS NOT NULL AND length(s.model_version) <= 50
+            ORDER BY n.id, s.model_version, s.ord DESC
+        ),
+        replaced AS (
+            DELETE FROM kg.embeddings e
+            USING resolved r
+            WHERE e.node_id = r.node_id AND e.model_version = r.model_version
+        )
+        INSERT INTO kg.embeddings (id, node_id, content_snippet, vector, model_version, created_at)
+        SELECT gen_random_uuid(), r.node_id, r.content_snippet, r.vector::vector, r.model_version, now()
+        FROM resolved r
+        """;
+
+    /**
+     * Secondary indexes of a table: not unique, not backing a constraint. leading is null
+     * for expression indexes.
+     */
+    private static final String SECONDARY_INDEXES_SQL = """
+        SELECT quote_ident(ns.nspname) || '.' || quote_ident(c.relname) AS name,
+               pg_get_indexdef(i.indexrelid) AS definition,
+               a.attname AS leading
+        FROM pg_index i
+        JOIN pg_class c ON c.oid = i.indexrelid
+        JOIN pg_namespace ns ON ns.oid = c.relnamespace
+        LEFT JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0]
+        WHERE i.indrelid = ?::regclass
+          AND NOT i.indisunique
+          AND NOT i.indisprimary
+          AND NOT EXISTS (SELECT 1 FROM pg_constraint k WHERE k.conindid = i.indexrelid)
+        """;
+
+    private final IngestionConfig ingestionConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final IngestionJobService ingestionJobService;
+    private final GraphStatisticsService graphStatisticsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    public IngestionResult importFile(String filePath, UUID jobId, BulkImportOptions options) {
+        if (options == null || options.getKind() == null || options.getFormat() == null) {
+            throw new IllegalArgumentException("Bulk import needs a kind and a format");
+        }
+        Path file = Path.of(filePath);
+        Import state = new Import(jobId, options, ingestionConfig.getBulk());
+
+        long start = System.currentTimeMillis();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> runImport(file, state));
+        } catch (RuntimeException e) {
+            log.error("Bulk import of {} failed: {}", filePath, e.getMessage(), e);
+            state.error(null, "Import rolled back: " + rootMessage(e), e.getClass().getSimpleName());
+            return state.result(false, "Bulk import failed, nothing was imported");
+        }
+        eventPublisher.publishEvent(GraphChangedEvent.everything());
+
+        log.info("Bulk import of {}: {} staged, {} nodes inserted, {} updated, {} edges, {} embeddings, {} errors ({}ms)",
+            filePath, state.staged(), state.nodesInserted, state.nodesUpdated, state.edgesInserted,
+            state.embeddingsWritten, state.errorCount, System.currentTimeMillis() - start);
+        return state.result(true, String.format(
+            "Imported %d nodes (%d updated), %d edges and %d embeddings from %d rows",
+            state.nodesInserted + state.nodesUpdated, state.nodesUpdated, state.edgesInserted,
+            state.embeddingsWritten, state.staged()));
+    }
+
+    private void runImport(Path file, Import state) {
+        IngestionConfig.Bulk config = ingestionConfig.getBulk();
+        jdbcTemplate.queryForObject("SELECT set_config('work_mem', ?, true)", String.class, config.getWorkMem());
+        jdbcTemplate.queryForObject("SELECT set_config('maintenance_work_mem', ?, true)", String.class, config.getWorkMem());
+        for (Staging staging : Staging.values()) {
+            jdbcTemplate.execute(staging.createSql());
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            CopyManager copy = con.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                if (state.options.getFormat() == BulkImportOptions.Format.CSV) {
+                    stageCsv(copy, file, state);
+                } else {
+                    stageNdjson(copy, file, state);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+
+        // Temporary tables are never analyzed automatically; the merge plans depend on row counts
+        List<String> deferred = new ArrayList<>();
+        for (Staging staging : Staging.values()) {
+            long rows = state.staged.getOrDefault(staging, 0L);
+            if (rows > 0) {
+                jdbcTemplate.execute("ANALYZE " + staging.table);
+                if (state.options.isDeferIndexes() && rows >= config.getDeferIndexesMinRows()) {
+                    deferred.addAll(dropSecondaryIndexes(staging));
+                }
+            }
+        }
+
+        if (state.staged.containsKey(Staging.NODES)) {
+            ingestionJobService.updateJobPhase(state.jobId, "merging nodes");
+            mergeNodes(state);
+        }
+        if (state.staged.containsKey(Staging.EDGES)) {
+            ingestionJobService.updateJobPhase(state.jobId, "merging edges");
+            mergeEdges(state);
+        }
+        if (state.staged.containsKey(Staging.EMBEDDINGS)) {
+            ingestionJobService.updateJobPhase(state.jobId, "merging embeddings");
+            state.embeddingsWritten = jdbcTemplate.update(MERGE_EMBEDDINGS_SQL);
+        }
+
+        if (!deferred.isEmpty()) {
+            ingestionJobService.updateJobPhase(state.jobId, "rebuilding indexes");
+            for (String definition : deferred) {
+                jdbcTemplate.execute(definition);
+            }
+        }
+    }
+
+    /**
+     * COPY the file as it is, after mapping its header to staging columns
+     */
+    private void stageCsv(CopyManager copy, Path file, Import state) throws IOException, SQLException {
+        Staging staging = Staging.valueOf(state.options.getKind().name());
+        ingestionJobService.updateJobPhase(state.jobId, "staging " + staging.name().toLowerCase(Locale.ROOT));
+
+        try (InputStream in = new BufferedInputStream(progressStream(file, state), state.config.getCopyBufferSize())) {
+            List<String> columns = new ArrayList<>();
+            for (String field : readHeader(in)) {
+                String column = staging.column(field);
+                if (column == null) {
+                    throw new IllegalArgumentException("Unknown " + staging.name() + " column: " + field
+                        + ", expected some of " + staging.columns);
+                }
+                columns.add(column);
+            }
+            long rows = copy.copyIn(staging.copySql(columns), in, state.config.getCopyBufferSize());
+            state.staged.merge(staging, rows, Long::sum);
+        }
+    }
+
+    /**
+     * One pass per kind of row present, since COPY fills one table at a time. Lines are turned
+     * into CSV rows on the fly; malformed lines are reported and skipped.
+     */
+    private void stageNdjson(CopyManager copy, Path file, Import state) throws IOException, SQLException {
+        Staging first = Staging.valueOf(state.options.getKind().name());
+        EnumSet<Staging> seen = EnumSet.noneOf(Staging.class);
+        stageNdjsonPass(copy, file, first, true, seen, state);
+        for (Staging staging : Staging.values()) {
+            if (staging != first && seen.contains(staging)) {
+                stageNdjsonPass(copy, file, staging, false, seen, state);
+            }
+        }
+    }
+
+    private void stageNdjsonPass(CopyManager copy, Path file, Staging target, boolean firstPass,
+                                 Set<Staging> seen, Import state) throws IOException, SQLException {
+        ingestionJobService.updateJobPhase(state.jobId, "staging " + target.name().toLowerCase(Locale.ROOT));
+        Staging defaultStaging = Staging.valueOf(state.options.getKind().name());
+        long rows = 0;
+
+        try (BufferedReader reader = new BufferedReader(
+                 new InputStreamReader(progressStream(file, state), StandardCharsets.UTF_8), state.config.getCopyBufferSize());
+             PGCopyOutputStream out = new PGCopyOutputStream(copy.copyIn(target.copySql(target.columns)),
+                 state.config.getCopyBufferSize())) {
+            StringBuilder row = new StringBuilder(256);
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode json;
+                try {
+                    json = objectMapper.readTree(line);
+                } catch (JsonProcessingException e) {
+                    if (firstPass) {
+                        state.error(lineNumber, "Malformed JSON: " + e.getOriginalMessage(), "JsonParseException");
+                    }
+                    continue;
+                }
+                if (!json.isObject() || json.has("done")) {
+                    continue;
+                }
+
+                Staging staging = defaultStaging;
+                if (json.size() == 1 && json.path("node").isObject()) {
+                    staging = Staging.NODES;
+                    json = json.get("node");
+                } else if (json.size() == 1 && json.path("edge").isObject()) {
+                    staging = Staging.EDGES;
+                    json = json.get("edge");
+                } else if (json.size() == 1 && json.path("embedding").isObject()) {
+                    staging = Staging.EMBEDDINGS;
+                    json = json.get("embedding");
+                }
+                seen.add(staging);
+                if (staging != target) {
+                    continue;
+                }
+
+                row.setLength(0);
+                String problem = toCsvRow(json, target, row);
+                if (problem != null) {
+                    state.error(lineNumber, problem, "InvalidRow");
+                    continue;
+                }
+                out.write(row.toString().getBytes(StandardCharsets.UTF_8));
+                rows++;
+            }
+        }
+        state.staged.merge(target, rows, Long::sum);
+    }
+
+    /**
+     * Append a JSON object as a CSV row in the staging column order, or return what is wrong with it
+     */
+    private static String toCsvRow(JsonNode json, Staging staging, StringBuilder row) {
+        String[] values = new String[staging.columns.size()];
+        for (Iterator<Map.Entry<String, JsonNode>> fields = json.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String column = staging.column(field.getKey());
+            JsonNode value = field.getValue();
+            if (column == null || value.isNull()) {
+                continue;
+            }
+            String text;
+            switch (columnType(column)) {
+                case "uuid" -> {
+                    text = value.asText();
+                    try {
+                        UUID.fromString(text);
+                    } catch (IllegalArgumentException e) {
+                        return "Invalid " + field.getKey() + ": " + text;
+                    }
+                }
+                case "jsonb" -> {
+                    if (!value.isObject()) {
+                        return field.getKey() + " must be an object";
+                    }
+                    text = value.toString();
+                }
+                default -> text = value.isValueNode() ? value.asText() : value.toString();
+            }
+            values[staging.columns.indexOf(column)] = text;
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            // Unquoted empty is NULL in COPY csv; anything else is quoted
+            if (values[i] != null) {
+                row.append('"').append(values[i].replace("\"", "\"\"")).append('"');
+            }
+        }
+        row.append('\n');
+        return null;
+    }
+
+    private void mergeNodes(Import state) {
+        String[] nodeTypes = Arrays.stream(NodeType.values()).map(Enum::name).toArray(String[]::new);
+        jdbcTemplate.query(MERGE_NODES_SQL,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", nodeTypes)), rs -> {
+            long inserted = rs.getLong("inserted");
+            state.nodesInserted += inserted;
+            state.nodesUpdated += rs.getLong("updated");
+            graphStatisticsService.recordNodes(parse(NodeType.class, rs.getString("type")), inserted);
+        });
+    }
+
+    private void mergeEdges(Import state) {
+        String[] edgeTypes = Arrays.stream(EdgeType.values()).map(Enum::name).toArray(String[]::new);
+        jdbcTemplate.query(MERGE_EDGES_SQL,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", edgeTypes)), rs -> {
+            long inserted = rs.getLong("inserted");
+            state.edgesInserted += inserted;
+            graphStatisticsService.recordEdges(parse(EdgeType.class, rs.getString("type")),
+                parse(NodeType.class, rs.getString("source_type")),
+                parse(NodeType.class, rs.getString("target_type")), inserted);
+        });
+    }
+
+    /**
+     * Drop the secondary indexes of the target table that the merge does not look rows up by,
+     * returning their definitions for a rebuild before commit. Inside the import transaction,
+     * so a rollback restores them.
+     */
+    private List<String> dropSecondaryIndexes(Staging staging) {
+        List<String> definitions = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        jdbcTemplate.query(SECONDARY_INDEXES_SQL, rs -> {
+            String leading = rs.getString("leading");
+            if (leading == null || !staging.probedColumns.contains(leading)) {
+                names.add(rs.getString("name"));
+                definitions.add(rs.getString("definition"));
+            }
+        }, staging.target);
+        for (String name : names) {
+            jdbcTemplate.execute("DROP INDEX " + name);
+        }
+        log.info("Deferred {} indexes of {} until the import is merged: {}", names.size(), staging.target, names);
+        return definitions;
+    }
+
+    private InputStream progressStream(Path file, Import state) throws IOException {
+        long size = Files.size(file);
+        long interval = state.config.getProgressIntervalBytes();
+        return new FilterInputStream(Files.newInputStream(file)) {
+            private long read;
+            private long reported;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    advance(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    advance(n);
+                }
+                return n;
+            }
+
+            private void advance(long n) {
+                read += n;
+                if (read - reported >= interval || read == size) {
+                    reported = read;
+                    ingestionJobService.updateJobProgress(state.jobId, (int) (read >> 10), (int) (size >> 10));
+                }
+            }
+        };
+    }
+
+    /**
+     * First line of a CSV file, split into field names. Reads byte by byte so the stream is
+     * left at the first data row.
+     */
+    private static List<String> readHeader(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = in.read(); b >= 0 && b != '\n'; b = in.read()) {
+            line.write(b);
+        }
+        String header = line.toString(StandardCharsets.UTF_8).replace("\uFEFF", "").strip();
+        if (header.isEmpty()) {
+            throw new IllegalArgumentException("CSV file has no header row");
+        }
+        List<String> fields = new ArrayList<>();
+        for (String field : header.split(",")) {
+            fields.add(field.strip().replace("\"", ""));
+        }
+        return fields;
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String name) {
+        try {
+            return name != null ? Enum.valueOf(type, name) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    /**
+     * Counts and errors of one import
+     */
+    private static final class Import {
+        private final UUID jobId;
+        private final BulkImportOptions options;
+        private final IngestionConfig.Bulk config;
+        private final Map<Staging, Long> staged = new EnumMap<>(Staging.class);
+        private final List<IngestionResult.ProcessingError> errors = new ArrayList<>();
+        private long errorCount;
+        private long nodesInserted;
+        private long nodesUpdated;
+        private long edgesInserted;
+        private long embeddingsWritten;
+
+        Import(UUID jobId, BulkImportOptions options, IngestionConfig.Bulk config) {
+            this.jobId = jobId;
+            this.options = options;
+            this.config = config;
+        }
+
+        long staged() {
+            return staged.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        void error(Integer lineNumber, String message, String type) {
+            errorCount++;
+            if (errors.size() < config.getMaxReportedErrors()) {
+                errors.add(IngestionResult.ProcessingError.builder()
+                    .lineNumber(lineNumber)
+                    .errorMessage(message)
+                    .errorType(type)
+                    .build());
+            }
+        }
+
+        IngestionResult result(boolean success, String message) {
+            long written = success ? nodesInserted + nodesUpdated + edgesInserted + embeddingsWritten : 0;
+            return IngestionResult.builder()
+                .jobId(jobId)
+                .processedAt(LocalDateTime.now())
+                .success(success)
+                .message(message)
+                .totalRecords((int) (staged() + errorCount))
+                .successCount((int) written)
+                .skippedCount((int) Math.max(0, staged() - written))
+                .errorCount((int) errorCount)
+                .errors(errors)
+                .build();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.CommunityDTO;
+import com.knowledgegraph.dto.CommunityLinkDTO;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.LabelPropagation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * Community detection over the graph snapshot with weighted label propagation.
+ *
+ * Each run starts from the persisted community of every node, so a re-run after ingestion
+ * only has to settle the new and affected nodes, and surviving communities keep their ids.
+ * Results are a community_id per node in kg.node_metrics, member counts in
+ * kg.graph_communities and edge counts between communities in kg.community_links.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CommunityService {
+
+    private static final String PREVIOUS_LABELS_SQL =
+        "SELECT node_id, community_id FROM kg.node_metrics WHERE community_id IS NOT NULL";
+
+    /**
+     * Nodes deleted since the snapshot was built are skipped; the written node ids are returned.
+     * Parameters: node id array, community id array
+     */
+    private static final String UPSERT_COMMUNITIES_SQL = """
+        INSERT INTO kg.node_metrics (node_id, community_id, updated_at)
+        SELECT u.node_id, u.community_id, now()
+        FROM unnest(?::uuid[], ?::uuid[]) AS u(node_id, community_id)
+        JOIN kg.nodes n ON n.id = u.node_id
+        ON CONFLICT (node_id) DO UPDATE SET community_id = EXCLUDED.community_id
+        RETURNING node_id
+        """;
+
+    private static final String INSERT_SIZES_SQL = """
+        INSERT INTO kg.graph_communities (community_id, size, updated_at)
+        SELECT u.community_id, u.size, now()
+        FROM unnest(?::uuid[], ?::bigint[]) AS u(community_id, size)
+        """;
+
+    private static final String INSERT_LINKS_SQL = """
+        INSERT INTO kg.community_links (source_community_id, target_community_id, edge_count, weight)
+        SELECT * FROM unnest(?::uuid[], ?::uuid[], ?::bigint[], ?::float8[])
+        """;
+
+    private static final String MEMBERS_SQL = """
+        SELECT node_id FROM kg.node_metrics
+        WHERE community_id = ?
+        ORDER BY node_id
+        LIMIT ? OFFSET ?
+        """;
+
+    private static final String LINKS_SQL = """
+        SELECT source_community_id, target_community_id, edge_count, weight
+        FROM kg.community_links
+        WHERE source_community_id = ? OR target_community_id = ?
+        ORDER BY edge_count DESC
+        LIMIT ?
+        """;
+
+    private static final String TOP_LINKS_SQL = """
+        SELECT source_community_id, target_community_id, edge_count, weight
+        FROM kg.community_links
+        ORDER BY edge_count DESC
+        LIMIT ?
+        """;
+
+    private static final RowMapper<CommunityLinkDTO> LINK_MAPPER = (rs, rowNum) -> CommunityLinkDTO.builder()
+        .sourceCommunityId(rs.getObject("source_community_id", UUID.class))
+        .targetCommunityId(rs.getObject("target_community_id", UUID.class))
+        .edgeCount(rs.getLong("edge_count"))
+        .weight(rs.getDouble("weight"))
+        .build();
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final GraphSnapshotService graphSnapshotService;
+    private final ReentrantLock jobLock = new ReentrantLock();
+
+    /**
+     * Communities ordered by size, largest first
+     */
+    public List<CommunityDTO> listCommunities(int page, int size) {
+        validatePage(page, size);
+        return jdbcTemplate.query(
+            "SELECT community_id, size FROM kg.graph_communities ORDER BY size DESC, community_id LIMIT ? OFFSET ?",
+            (rs, rowNum) -> CommunityDTO.builder()
+                .communityId(rs.getObject("community_id", UUID.class))
+                .size(rs.getLong("size"))
+                .build(),
+            size, (long) page * size);
+    }
+
+    /**
+     * A community with one page of its members
+     */
+    public CommunityDTO getCommunity(UUID communityId, int page, int size) {
+        validatePage(page, size);
+        Long communitySize = jdbcTemplate.queryForList(
+            "SELECT size FROM kg.graph_communities WHERE community_id = ?", Long.class, communityId)
+            .stream().findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Community not found: " + communityId));
+
+        return CommunityDTO.builder()
+            .communityId(communityId)
+            .size(communitySize)
+            .page(page)
+            .pageSize(size)
+            .nodeIds(jdbcTemplate.queryForList(MEMBERS_SQL, UUID.class, communityId, size, (long) page * size))
+            .build();
+    }
+
+    /**
+     * The community a node belongs to, with one page of its members
+     */
+    public CommunityDTO getCommunityOf(UUID nodeId, int page, int size) {
+        UUID communityId = jdbcTemplate.queryForList(
+            "SELECT community_id FROM kg.node_metrics WHERE node_id = ? AND community_id IS NOT NULL",
+            UUID.class, nodeId)
+            .stream().findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No community assigned to node: " + nodeId));
+        return getCommunity(communityId, page, size);
+    }
+
+    /**
+     * Edge counts between communities, strongest first; all pairs or those touching one community
+     */
+    public List<CommunityLinkDTO> getLinks(UUID communityId, int limit) {
+        if (limit < 1 || limit > graphConfig.getCommunities().getMaxPageSize()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + graphConfig.getCommunities().getMaxPageSize());
+        }
+        return communityId == null
+            ? jdbcTemplate.query(TOP_LINKS_SQL, LINK_MAPPER, limit)
+            : jdbcTemplate.query(LINKS_SQL, LINK_MAPPER, communityId, communityId, limit);
+    }
+
+    /**
+     * Run label propagation on the current snapshot, warm-started from the stored
+     * communities, and replace the stored results
+     */
+    public LabelPropagation.Result detectCommunities() {
+        jobLock.lock();
+        try {
+            GraphSnapshot snapshot = graphSnapshotService.require();
+            GraphConfig.Communities config = graphConfig.getCommunities();
+            long start = System.currentTimeMillis();
+
+            int[] labels = new int[snapshot.nodeCount()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = i;
+            }
+            Map<Integer, UUID> labelIds = loadPreviousLabels(snapshot, labels);
+
+            float[] weights = LabelPropagation.weights(
+                snapshot, config.getEdgeTypeWeights(), config.getDefaultEdgeWeight(), config.isUseConfidence());
+            LabelPropagation.Result result = new LabelPropagation(snapshot, weights)
+                .maxIterations(config.getMaxIterations())
+                .minChangeFraction(config.getMinChangeFraction())
+                .parallelism(graphConfig.getAnalytics().getParallelism())
+                .run(labels);
+            long computed = System.currentTimeMillis();
+
+            IntFunction<UUID> communityNames = label -> labelIds.getOrDefault(label, snapshot.nodeId(label));
+            UUID[] communityIds = new UUID[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                communityIds[i] = communityNames.apply(labels[i]);
+            }
+
+            int communities = transactionTemplate.execute(status -> {
+                BitSet deleted = writeCommunities(snapshot, communityIds);
+                int written = writeSizes(labels, communityIds, deleted);
+                writeLinks(snapshot, labels, communityNames, weights, deleted);
+                return written;
+            });
+
+            log.info("Label propagation over {} nodes: {} communities after {} sweeps ({} warm-started, {} changes in last sweep; {}ms compute, {}ms write)",
+                snapshot.nodeCount(), communities, result.getIterations(), labelIds.size(), result.getLastChanges(),
+                computed - start, System.currentTimeMillis() - computed);
+            return result;
+        } finally {
+            jobLock.unlock();
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            Boolean detected = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM kg.graph_communities)", Boolean.class);
+            if (!Boolean.TRUE.equals(detected)) {
+                detectCommunities();
+            }
+        } catch (Exception e) {
+            log.error("Failed to initialize communities: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${graph.communities.cron:0 30 4 * * *}")
+    public void scheduledDetection() {
+        try {
+            detectCommunities();
+        } catch (Exception e) {
+            log.error("Failed to detect communities: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Seed labels from stored communities: members of one stored community share the dense id
+     * of the first member seen. Returns label -> stored community id so ids survive the run.
+     */
+    private Map<Integer, UUID> loadPreviousLabels(GraphSnapshot snapshot, int[] labels) {
+        Map<UUID, Integer> labelByCommunity = new HashMap<>();
+        Map<Integer, UUID> labelIds = new HashMap<>();
+        int fetchSize = graphConfig.getSnapshot().getFetchSize();
+
+        // PostgreSQL only streams with a fetch size inside a transaction
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(PREVIOUS_LABELS_SQL);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            int node = snapshot.indexOf(rs.getObject("node_id", UUID.class));
+            if (node < 0) {
+                return;
+            }
+            UUID communityId = rs.getObject("community_id", UUID.class);
+            int label = labelByCommunity.computeIfAbsent(communityId, id -> node);
+            labels[node] = label;
+            labelIds.putIfAbsent(label, communityId);
+        }));
+        return labelIds;
+    }
+
+    /**
+     * Write the community of every node that still exists. Returns the snapshot nodes that were
+     * deleted since the snapshot was built, which sizes and links leave out as well.
+     */
+    private BitSet writeCommunities(GraphSnapshot snapshot, UUID[] communityIds) {
+        BitSet deleted = new BitSet(communityIds.length);
+        int batchSize = graphConfig.getAnalytics().getWriteBatchSize();
+        for (int from = 0; from < communityIds.length; from += batchSize) {
+            int to = Math.min(communityIds.length, from + batchSize);
+            UUID[] nodeIds = new UUID[to - from];
+            for (int i = from; i < to; i++) {
+                nodeIds[i - from] = snapshot.nodeId(i);
+            }
+            UUID[] batch = Arrays.copyOfRange(communityIds, from, to);
+            Set<UUID> written = new HashSet<>(jdbcTemplate.query(UPSERT_COMMUNITIES_SQL, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("uuid", nodeIds));
+                ps.setArray(2, ps.getConnection().createArrayOf("uuid", batch));
+            }, (rs, row) -> rs.getObject("node_id", UUID.class)));
+            if (written.size() < nodeIds.length) {
+                for (int i = from; i < to; i++) {
+                    if (!written.contains(nodeIds[i - from])) {
+                        deleted.set(i);
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private int writeSizes(int[] labels, UUID[] communityIds, BitSet deleted) {
+        int[] counts = new int[labels.length];
+        for (int node = 0; node < labels.length; node++) {
+            if (!deleted.get(node)) {
+                counts[labels[node]]++;
+            }
+        }
+        List<UUID> ids = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        for (int node = 0; node < labels.length; node++) {
+            int label = labels[node];
+            if (counts[label] > 0) {
+                ids.add(communityIds[node]);
+                sizes.add((long) counts[label]);
+                counts[label] = 0; // emit each community once
+            }
+        }
+
+        jdbcTemplate.update("DELETE FROM kg.graph_communities");
+        int batchSize = graphConfig.getAnalytics().getWriteBatchSize();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            int to = Math.min(ids.size(), from + batchSize);
+            Object[] idBatch = ids.subList(from, to).toArray();
+            Object[] sizeBatch = sizes.subList(from, to).toArray();
+            jdbcTemplate.update(INSERT_SIZES_SQL, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("uuid", idBatch));
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint", sizeBatch));
+            });
+        }
+        return ids.size();
+    }
+
+    /**
+     * Aggregate edges whose endpoints fall in different communities per unordered pair. Edges of
+     * deleted nodes went with them, so they are not counted.
+     */
+    private void writeLinks(GraphSnapshot snapshot, int[] labels, IntFunction<UUID> communityNames, float[] weights,
+                            BitSet deleted) {
+        Map<Long, double[]> links = new HashMap<>(); // (low label, high label) -> {count, weight}
+        for (int edge = 0; edge < snapshot.edgeCount(); edge++) {
+            int source = snapshot.edgeSource(edge);
+            int target = snapshot.edgeTarget(edge);
+            int a = labels[source];
+            int b = labels[target];
+            if (a == b || deleted.get(source) || deleted.get(target)) {
+                continue;
+            }
+            long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+            double[] totals = links.computeIfAbsent(key, k -> new double[2]);
+            totals[0]++;
+            totals[1] += weights[edge];
+        }
+
+        jdbcTemplate.update("DELETE FROM kg.community_links");
+        int batchSize = graphConfig.getAnalytics().getWriteBatchSize();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (Map.Entry<Long, double[]> link : links.entrySet()) {
+            UUID first = communityNames.apply((int) (link.getKey() >>> 32));
+            UUID second = communityNames.apply((int) (link.getKey() & 0xffffffffL));
+            boolean ordered = first.compareTo(second) < 0;
+            batch.add(new Object[] {ordered ? first : second, ordered ? second : first,
+                (long) link.getValue()[0], link.getValue()[1]});
+            if (batch.size() == batchSize) {
+                insertLinks(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertLinks(batch);
+        }
+    }
+
+    private void insertLinks(List<Object[]> rows) {
+        Object[] sources = rows.stream().map(row -> row[0]).toArray();
+        Object[] targets = rows.stream().map(row -> row[1]).toArray();
+        Object[] counts = rows.stream().map(row -> row[2]).toArray();
+        Object[] weights = rows.stream().map(row -> row[3]).toArray();
+        jdbcTemplate.update(INSERT_LINKS_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", sources));
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", targets));
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", counts));
+            ps.setArray(4, ps.getConnection().createArrayOf("float8", weights));
+        });
+    }
+
+    private void validatePage(int page, int size) {
+        int maxPageSize = graphConfig.getCommunities().getMaxPageSize();
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.graph.CompressedGraph;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Owns the on-disk {@link CompressedGraph}, the adjacency used for graphs too large for the
+ * in-memory snapshot. It is built by streaming kg.nodes and kg.edges in id order into the
+ * compressed file, optionally renumbered in BFS order, and mapped from there; a restart maps
+ * the existing file without touching the database. It is a point-in-time copy, rebuilt on
+ * graph.compressed.rebuild-cron.
+ */
+@Service
+@Slf4j
+public class CompressedGraphService {
+
+    private static final String NODE_SCAN_SQL = "SELECT id FROM kg.nodes ORDER BY id";
+
+    private static final String OUT_EDGE_SCAN_SQL = "SELECT source_id, target_id FROM kg.edges ORDER BY source_id";
+
+    private static final String IN_EDGE_SCAN_SQL = "SELECT target_id, source_id FROM kg.edges ORDER BY target_id";
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private volatile CompressedGraph graph;
+
+    public CompressedGraphService(GraphConfig graphConfig, DataSource dataSource,
+                                  PlatformTransactionManager transactionManager) {
+        this.graphConfig = graphConfig;
+
+        // PostgreSQL only streams with a fetch size inside a transaction
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(graphConfig.getSnapshot().getFetchSize());
+        // All three scans must see the same graph
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Current compressed graph, if enabled and already built. Never blocks.
+     */
+    public Optional<CompressedGraph> current() {
+        return graphConfig.getCompressed().isEnabled() ? Optional.ofNullable(graph) : Optional.empty();
+    }
+
+    /**
+     * Rebuild the compressed graph file from the database and map it
+     */
+    public CompressedGraph rebuild() {
+        GraphConfig.Compressed config = graphConfig.getCompressed();
+        Path file = graphFile();
+        buildLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            Path directory = file.getParent();
+            Files.createDirectories(directory);
+            Path unordered = config.isReorder()
+                ? Files.createTempFile(directory, file.getFileName().toString(), ".unordered")
+                : file;
+            try {
+                snapshotTransaction.executeWithoutResult(status -> load(unordered));
+                if (config.isReorder()) {
+                    open(unordered).writeReordered(file);
+                }
+            } finally {
+                if (config.isReorder()) {
+                    Files.deleteIfExists(unordered);
+                }
+            }
+            CompressedGraph built = open(file);
+            graph = built;
+            log.info("Compressed graph built: {} nodes, {} adjacencies, {} bytes per edge in {}ms",
+                built.nodeCount(), built.getEntryCount(), String.format("%.2f", built.bytesPerEdge()),
+                System.currentTimeMillis() - start);
+            return built;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not build compressed graph file " + file, e);
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!graphConfig.getCompressed().isEnabled()) {
+            return;
+        }
+        Path file = graphFile();
+        if (Files.exists(file)) {
+            try {
+                CompressedGraph stored = CompressedGraph.open(file, graphConfig.getCompressed().isVerifyChecksum(),
+                    graphConfig.getCompressed().getCacheEntries(), graphConfig.getCompressed().getCacheMinDegree());
+                graph = stored;
+                log.info("Compressed graph mapped from {}: {} nodes, {} adjacencies, built {}",
+                    file, stored.nodeCount(), stored.getEntryCount(), stored.getBuiltAt());
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Discarding compressed graph file {}: {}", file, e.getMessage());
+            }
+        }
+        rebuildQuietly();
+    }
+
+    @Scheduled(cron = "${graph.compressed.rebuild-cron:0 0 2 * * *}")
+    public void scheduledRebuild() {
+        if (graphConfig.getCompressed().isEnabled()) {
+            rebuildQuietly();
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Failed to build compressed graph: {}", e.getMessage(), e);
+        }
+    }
+
+    private CompressedGraph open(Path file) throws IOException {
+        GraphConfig.Compressed config = graphConfig.getCompressed();
+        return CompressedGraph.open(file, false, config.getCacheEntries(), config.getCacheMinDegree());
+    }
+
+    /**
+     * Stream nodes, then edges by source and by target, into a compressed graph file. Node ids
+     * are assigned in UUID order, so both edge scans arrive grouped in ascending node id.
+     */
+    private void load(Path target) {
+        Timestamp builtAt = streamingJdbcTemplate.queryForObject("SELECT NOW()", Timestamp.class);
+        Integer nodeCount = streamingJdbcTemplate.queryForObject("SELECT COUNT(*) FROM kg.nodes", Integer.class);
+
+        try (CompressedGraph.Builder builder = new CompressedGraph.Builder(target.getParent(),
+                Optional.ofNullable(nodeCount).orElse(0))) {
+            streamingJdbcTemplate.query(NODE_SCAN_SQL, rs -> {
+                builder.addNode(rs.getObject("id", UUID.class));
+            });
+            for (int direction = CompressedGraph.OUT; direction <= CompressedGraph.IN; direction++) {
+                int scanDirection = direction;
+                streamingJdbcTemplate.query(direction == CompressedGraph.OUT ? OUT_EDGE_SCAN_SQL : IN_EDGE_SCAN_SQL, rs -> {
+                    int node = builder.indexOf(rs.getObject(1, UUID.class));
+                    int neighbor = builder.indexOf(rs.getObject(2, UUID.class));
+                    if (node >= 0 && neighbor >= 0) {
+                        try {
+                            builder.addNeighbor(scanDirection, node, neighbor);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            }
+            builder.write(target, builtAt != null ? builtAt.toLocalDateTime() : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path graphFile() {
+        return Path.of(graphConfig.getCompressed().getFile()).toAbsolutePath().normalize();
+    }
+}
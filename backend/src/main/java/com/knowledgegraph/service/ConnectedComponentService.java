@@ -0,0 +1,440 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.ConnectedComponentDTO;
+import com.knowledgegraph.graph.ConnectedComponents;
+import com.knowledgegraph.graph.GraphSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maintains a persisted weakly-connected-component label per node.
+ *
+ * Labels are computed in bulk from the graph snapshot with a parallel union-find and written
+ * to kg.node_metrics, with member counts in kg.graph_components. Between full runs, edges
+ * inserted since the last pass are folded in by merging their endpoints' components, relabelling
+ * the smaller side. Deleting an edge can split a component; that is only repaired by the next
+ * full relabel.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConnectedComponentService {
+
+    /**
+     * Nodes deleted since the snapshot was built are skipped; the written node ids are returned.
+     * Parameters: node id array, component id array
+     */
+    private static final String UPSERT_LABELS_SQL = """
+        INSERT INTO kg.node_metrics (node_id, component_id, updated_at)
+        SELECT u.node_id, u.component_id, now()
+        FROM unnest(?::uuid[], ?::uuid[]) AS u(node_id, component_id)
+        JOIN kg.nodes n ON n.id = u.node_id
+        ON CONFLICT (node_id) DO UPDATE
+        SET component_id = EXCLUDED.component_id, updated_at = EXCLUDED.updated_at
+        RETURNING node_id
+        """;
+
+    /**
+     * Parameters: component id array, size array
+     */
+    private static final String UPSERT_SIZES_SQL = """
+        INSERT INTO kg.graph_components (component_id, size, updated_at)
+        SELECT u.component_id, u.size, now()
+        FROM unnest(?::uuid[], ?::bigint[]) AS u(component_id, size)
+        ON CONFLICT (component_id) DO UPDATE
+        SET size = EXCLUDED.size, updated_at = EXCLUDED.updated_at
+        """;
+
+    /**
+     * Move every member of the loser components to their winner. Parameters: loser array, winner array
+     */
+    private static final String MERGE_LABELS_SQL = """
+        UPDATE kg.node_metrics m
+        SET component_id = u.winner, updated_at = now()
+        FROM unnest(?::uuid[], ?::uuid[]) AS u(loser, winner)
+        WHERE m.component_id = u.loser
+        """;
+
+    /**
+     * Rows not rewritten by the current relabel belong to nodes missing from the snapshot
+     */
+    private static final String CLEAR_STALE_LABELS_SQL = """
+        UPDATE kg.node_metrics SET component_id = NULL
+        WHERE component_id IS NOT NULL AND updated_at < now()
+        """;
+
+    private static final String DELETE_ORPHAN_METRICS_SQL = """
+        DELETE FROM kg.node_metrics m
+        WHERE NOT EXISTS (SELECT 1 FROM kg.nodes n WHERE n.id = m.node_id)
+        """;
+
+    private static final String MEMBERS_SQL = """
+        SELECT node_id FROM kg.node_metrics
+        WHERE component_id = ?
+        ORDER BY node_id
+        LIMIT ? OFFSET ?
+        """;
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final GraphSnapshotService graphSnapshotService;
+    private final GraphTraversalService graphTraversalService;
+    private final EdgeWatermarkPoller edgeWatermarkPoller;
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    // Edges created after this instant have not been folded into the labels yet
+    private volatile LocalDateTime watermark;
+
+    /**
+     * Component of a node with one page of its members. Falls back to a traversal when the
+     * node has no persisted label yet (isolated, or its edges are newer than the last pass).
+     */
+    public ConnectedComponentDTO getComponent(UUID nodeId, int page, int size) {
+        int maxPageSize = graphConfig.getComponents().getMaxPageSize();
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+
+        List<UUID> labels = jdbcTemplate.queryForList(
+            "SELECT component_id FROM kg.node_metrics WHERE node_id = ? AND component_id IS NOT NULL",
+            UUID.class, nodeId);
+
+        if (labels.isEmpty()) {
+            List<UUID> members = new ArrayList<>(graphTraversalService.getConnectedComponent(nodeId));
+            Collections.sort(members);
+            int from = (int) Math.min((long) page * size, members.size());
+            int to = Math.min(from + size, members.size());
+            return ConnectedComponentDTO.builder()
+                .nodeId(nodeId)
+                .componentSize(members.size())
+                .page(page)
+                .size(size)
+                .nodeIds(new ArrayList<>(members.subList(from, to)))
+                .labelled(false)
+                .build();
+        }
+
+        UUID componentId = labels.get(0);
+        Long componentSize = jdbcTemplate.queryForList(
+            "SELECT size FROM kg.graph_components WHERE component_id = ?", Long.class, componentId)
+            .stream().findFirst().orElse(null);
+        if (componentSize == null) {
+            componentSize = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM kg.node_metrics WHERE component_id = ?", Long.class, componentId);
+        }
+        List<UUID> members = jdbcTemplate.queryForList(
+            MEMBERS_SQL, UUID.class, componentId, size, (long) page * size);
+
+        return ConnectedComponentDTO.builder()
+            .nodeId(nodeId)
+            .componentId(componentId)
+            .componentSize(componentSize)
+            .page(page)
+            .size(size)
+            .nodeIds(members)
+            .labelled(true)
+            .build();
+    }
+
+    /**
+     * Recompute every label from a snapshot and replace the persisted ones
+     */
+    public void relabel(GraphSnapshot snapshot) {
+        updateLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            int[] labels = ConnectedComponents.label(snapshot, graphConfig.getComponents().getParallelism());
+            int[] sizes = ConnectedComponents.sizes(labels);
+            long labelled = System.currentTimeMillis();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                writeLabels(snapshot, labels, sizes);
+                jdbcTemplate.update(CLEAR_STALE_LABELS_SQL);
+                jdbcTemplate.update(DELETE_ORPHAN_METRICS_SQL);
+                jdbcTemplate.update("DELETE FROM kg.graph_components");
+                writeSizes(snapshot, sizes);
+            });
+
+            watermark = Optional.ofNullable(snapshot.getHighWaterMark()).orElse(snapshot.getBuiltAt());
+            log.info("Connected components relabelled: {} nodes in {}ms (union-find {}ms)",
+                snapshot.nodeCount(), System.currentTimeMillis() - start, labelled - start);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Fold edges created since the last pass into the persisted labels
+     */
+    public void applyNewEdges() {
+        updateLock.lock();
+        try {
+            if (watermark == null) {
+                relabel(graphSnapshotService.require());
+                return;
+            }
+            GraphConfig.Components config = graphConfig.getComponents();
+            EdgeWatermarkPoller.NewEdges newEdges =
+                edgeWatermarkPoller.poll(watermark, config.getOverlapMs(), config.getMaxIncrementalEdges());
+
+            if (newEdges.isEmpty()) {
+                return;
+            }
+            if (newEdges.isOverflow()) {
+                log.info("{}+ new edges since {}, running a full relabel",
+                    newEdges.getEdges().size(), newEdges.getSince());
+                relabel(graphSnapshotService.refresh());
+                return;
+            }
+
+            Integer grown = transactionTemplate.execute(status -> merge(newEdges.getEdges()));
+            watermark = newEdges.getNewest();
+            log.debug("Folded {} new edges into component labels, {} components grew",
+                newEdges.getEdges().size(), grown);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!graphConfig.getComponents().isEnabled()) {
+            return;
+        }
+        try {
+            Timestamp lastWrite = jdbcTemplate.queryForObject(
+                "SELECT MAX(updated_at) FROM kg.graph_components", Timestamp.class);
+            if (lastWrite == null) {
+                relabel(graphSnapshotService.require());
+            } else {
+                watermark = lastWrite.toLocalDateTime();
+            }
+        } catch (Exception e) {
+            log.error("Failed to initialize connected components: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${graph.components.incremental-interval-ms:10000}",
+               fixedDelayString = "${graph.components.incremental-interval-ms:10000}")
+    public void scheduledIncrementalUpdate() {
+        if (!graphConfig.getComponents().isEnabled() || watermark == null) {
+            return;
+        }
+        try {
+            applyNewEdges();
+        } catch (Exception e) {
+            log.error("Failed to apply new edges to connected components: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${graph.components.relabel-cron:0 0 3 * * *}")
+    public void scheduledRelabel() {
+        if (!graphConfig.getComponents().isEnabled()) {
+            return;
+        }
+        try {
+            relabel(graphSnapshotService.refresh());
+        } catch (Exception e) {
+            log.error("Failed to relabel connected components: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Union the components touched by the given edges and persist the merges.
+     * Unlabelled endpoints count as singleton components named by their own id.
+     * Returns the number of components that grew.
+     */
+    private int merge(List<UUID[]> pairs) {
+        Set<UUID> endpoints = new HashSet<>();
+        pairs.forEach(pair -> {
+            endpoints.add(pair[0]);
+            endpoints.add(pair[1]);
+        });
+
+        Map<UUID, UUID> labels = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT node_id, component_id FROM kg.node_metrics WHERE node_id = ANY(?) AND component_id IS NOT NULL",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", endpoints.toArray())),
+            rs -> {
+                labels.put(rs.getObject("node_id", UUID.class), rs.getObject("component_id", UUID.class));
+            });
+        Set<UUID> unlabelled = new HashSet<>(endpoints);
+        unlabelled.removeAll(labels.keySet());
+
+        Map<UUID, UUID> parents = new HashMap<>();
+        for (UUID[] pair : pairs) {
+            union(parents, labels.getOrDefault(pair[0], pair[0]), labels.getOrDefault(pair[1], pair[1]));
+        }
+        Map<UUID, List<UUID>> groups = new HashMap<>();
+        for (UUID component : parents.keySet()) {
+            groups.computeIfAbsent(find(parents, component), root -> new ArrayList<>()).add(component);
+        }
+
+        Map<UUID, Long> sizes = loadSizes(new HashSet<>(labels.values()));
+        List<UUID> losers = new ArrayList<>();
+        List<UUID> winners = new ArrayList<>();
+        List<UUID> newNodes = new ArrayList<>();
+        List<UUID> newNodeLabels = new ArrayList<>();
+        Map<UUID, Long> newSizes = new HashMap<>();
+
+        for (List<UUID> group : groups.values()) {
+            if (group.size() == 1 && !unlabelled.contains(group.get(0))) {
+                continue; // every edge stayed inside one existing component
+            }
+            UUID winner = group.stream()
+                .max(Comparator.comparingLong((UUID component) -> sizes.getOrDefault(component, 1L))
+                    .thenComparing(component -> !unlabelled.contains(component)))
+                .orElseThrow();
+            long total = 0;
+            for (UUID component : group) {
+                total += sizes.getOrDefault(component, 1L);
+                if (unlabelled.contains(component)) {
+                    newNodes.add(component);
+                    newNodeLabels.add(winner);
+                } else if (!component.equals(winner)) {
+                    losers.add(component);
+                    winners.add(winner);
+                }
+            }
+            newSizes.put(winner, total);
+        }
+
+        if (!losers.isEmpty()) {
+            updateArrays(MERGE_LABELS_SQL, "uuid", losers.toArray(), "uuid", winners.toArray());
+            jdbcTemplate.update("DELETE FROM kg.graph_components WHERE component_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", losers.toArray())));
+        }
+        if (!newNodes.isEmpty()) {
+            updateArrays(UPSERT_LABELS_SQL, "uuid", newNodes.toArray(), "uuid", newNodeLabels.toArray());
+        }
+        if (!newSizes.isEmpty()) {
+            updateArrays(UPSERT_SIZES_SQL, "uuid", newSizes.keySet().toArray(), "bigint", newSizes.values().toArray());
+        }
+        return newSizes.size();
+    }
+
+    /**
+     * Stored member counts, counting rows for any component missing from kg.graph_components
+     */
+    private Map<UUID, Long> loadSizes(Set<UUID> components) {
+        Map<UUID, Long> sizes = new HashMap<>();
+        if (components.isEmpty()) {
+            return sizes;
+        }
+        jdbcTemplate.query("SELECT component_id, size FROM kg.graph_components WHERE component_id = ANY(?)",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", components.toArray())),
+            rs -> {
+                sizes.put(rs.getObject("component_id", UUID.class), rs.getLong("size"));
+            });
+
+        Set<UUID> missing = new HashSet<>(components);
+        missing.removeAll(sizes.keySet());
+        if (!missing.isEmpty()) {
+            jdbcTemplate.query("""
+                SELECT component_id, COUNT(*) AS size FROM kg.node_metrics
+                WHERE component_id = ANY(?) GROUP BY component_id
+                """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", missing.toArray())),
+                rs -> {
+                    sizes.put(rs.getObject("component_id", UUID.class), rs.getLong("size"));
+                });
+        }
+        return sizes;
+    }
+
+    /**
+     * Write the labels of nodes that still exist, and take the others out of their component sizes
+     */
+    private void writeLabels(GraphSnapshot snapshot, int[] labels, int[] sizes) {
+        int batchSize = graphConfig.getComponents().getWriteBatchSize();
+        for (int from = 0; from < labels.length; from += batchSize) {
+            int to = Math.min(labels.length, from + batchSize);
+            UUID[] nodeIds = new UUID[to - from];
+            UUID[] componentIds = new UUID[to - from];
+            for (int i = from; i < to; i++) {
+                nodeIds[i - from] = snapshot.nodeId(i);
+                componentIds[i - from] = snapshot.nodeId(labels[i]);
+            }
+            Set<UUID> written = new HashSet<>(jdbcTemplate.query(UPSERT_LABELS_SQL, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("uuid", nodeIds));
+                ps.setArray(2, ps.getConnection().createArrayOf("uuid", componentIds));
+            }, (rs, row) -> rs.getObject("node_id", UUID.class)));
+            if (written.size() < nodeIds.length) {
+                for (int i = from; i < to; i++) {
+                    if (!written.contains(nodeIds[i - from])) {
+                        sizes[labels[i]]--;
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeSizes(GraphSnapshot snapshot, int[] sizes) {
+        int batchSize = graphConfig.getComponents().getWriteBatchSize();
+        List<UUID> componentIds = new ArrayList<>(batchSize);
+        List<Long> counts = new ArrayList<>(batchSize);
+        for (int label = 0; label < sizes.length; label++) {
+            if (sizes[label] == 0) {
+                continue;
+            }
+            componentIds.add(snapshot.nodeId(label));
+            counts.add((long) sizes[label]);
+            if (componentIds.size() == batchSize) {
+                updateArrays(UPSERT_SIZES_SQL, "uuid", componentIds.toArray(), "bigint", counts.toArray());
+                componentIds.clear();
+                counts.clear();
+            }
+        }
+        if (!componentIds.isEmpty()) {
+            updateArrays(UPSERT_SIZES_SQL, "uuid", componentIds.toArray(), "bigint", counts.toArray());
+        }
+    }
+
+    private void updateArrays(String sql, String firstType, Object[] first, String secondType, Object[] second) {
+        jdbcTemplate.update(sql, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf(firstType, first));
+            ps.setArray(2, ps.getConnection().createArrayOf(secondType, second));
+        });
+    }
+
+    private static UUID find(Map<UUID, UUID> parents, UUID x) {
+        UUID root = x;
+        while (!parents.getOrDefault(root, root).equals(root)) {
+            root = parents.get(root);
+        }
+        while (!x.equals(root)) {
+            UUID next = parents.get(x);
+            parents.put(x, root);
+            x = next;
+        }
+        return root;
+    }
+
+    private static void union(Map<UUID, UUID> parents, UUID a, UUID b) {
+        parents.putIfAbsent(a, a);
+        parents.putIfAbsent(b, b);
+        UUID rootA = find(parents, a);
+        UUID rootB = find(parents, b);
+        if (!rootA.equals(rootB)) {
+            parents.put(rootA, rootB);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.knowledgegraph.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads the edges created after a watermark, for the services that fold new edges into a
+ * structure between full rebuilds (component labels, reachability labels, supernodes).
+ *
+ * created_at is set when a row is written but only visible once its transaction commits, so an
+ * edge can appear behind a watermark that already passed it. Every poll therefore re-reads an
+ * overlap window before the watermark; the callers' updates are idempotent, so seeing an edge
+ * twice is harmless. A poll stops one edge past the cap and reports the overflow, at which
+ * point the caller's full rebuild is cheaper than applying the edges one by one.
+ */
+@Component
+@RequiredArgsConstructor
+public class EdgeWatermarkPoller {
+
+    private static final String NEW_EDGES_SQL = """
+        SELECT source_id, target_id, created_at FROM kg.edges
+        WHERE created_at > ?
+        ORDER BY created_at
+        LIMIT ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Getter
+    @AllArgsConstructor
+    public static class NewEdges {
+        private final List<UUID[]> edges;           // source and target id of each edge
+        private final LocalDateTime since;          // watermark minus the overlap window
+        private final LocalDateTime newest;         // the next watermark; the old one if nothing is newer
+        private final boolean overflow;             // more than the cap; edges holds one past it
+
+        public boolean isEmpty() {
+            return edges.isEmpty();
+        }
+    }
+
+    /**
+     * Up to maxEdges edges created after watermark minus overlapMs, oldest first
+     */
+    public NewEdges poll(LocalDateTime watermark, long overlapMs, int maxEdges) {
+        LocalDateTime since = watermark.minusNanos(overlapMs * 1_000_000L);
+        List<UUID[]> edges = new ArrayList<>();
+        LocalDateTime[] newest = {watermark};
+        jdbcTemplate.query(NEW_EDGES_SQL, rs -> {
+            edges.add(new UUID[] {rs.getObject("source_id", UUID.class), rs.getObject("target_id", UUID.class)});
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            if (createdAt != null && createdAt.toLocalDateTime().isAfter(newest[0])) {
+                newest[0] = createdAt.toLocalDateTime();
+            }
+        }, Timestamp.valueOf(since), maxEdges + 1);
+        return new NewEdges(edges, since, newest[0], edges.size() > maxEdges);
+    }
+}
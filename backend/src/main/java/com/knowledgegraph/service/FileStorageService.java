@@ -9,6 +9,8 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.*;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -69,6 +71,38 @@ public class FileStorageService {
         return targetPath.toString();
     }
 
+    /**
+     * Store a raw upload body, refusing it once it grows past maxBytes. The extension is
+     * chosen by the caller, not taken from the client.
+     */
+    public String storeStream(InputStream in, String extension, long maxBytes) throws IOException {
+        Path targetLocation = this.storageLocation.resolve(java.time.LocalDate.now().toString());
+        Files.createDirectories(targetLocation);
+        Path targetPath = targetLocation.resolve(UUID.randomUUID() + "." + extension);
+        
+        try (OutputStream out = Files.newOutputStream(targetPath)) {
+            byte[] buffer = new byte[65536];
+            long total = 0;
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new IllegalArgumentException(
+                        String.format("File size exceeds maximum allowed size of %d bytes", maxBytes));
+                }
+                out.write(buffer, 0, read);
+            }
+            if (total == 0) {
+                throw new IllegalArgumentException("Cannot upload empty file");
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(targetPath);
+            throw e;
+        }
+        
+        log.info("Stream stored: {}", targetPath);
+        return targetPath.toString();
+    }
+
     public void validateFile(MultipartFile file, String filename) {
         // Check if file is empty
         if (file.isEmpty()) {
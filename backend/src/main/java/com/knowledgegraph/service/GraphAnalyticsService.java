@@ -0,0 +1,263 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.graph.ApproximateBetweenness;
+import com.knowledgegraph.graph.CentralityMeasure;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.IntList;
+import com.knowledgegraph.graph.PageRank;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Graph-wide analytics jobs over the in-memory snapshot. Results are stored per node in
+ * kg.node_metrics so API calls and search ranking read them with a single indexed query.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GraphAnalyticsService {
+
+    private static final String PAGERANK_COLUMN = "pagerank";
+    private static final String BETWEENNESS_COLUMN = "betweenness";
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final GraphSnapshotService graphSnapshotService;
+    private final GraphTraversalService graphTraversalService;
+    private final ReentrantLock jobLock = new ReentrantLock();
+
+    /**
+     * Centrality of the given nodes under the chosen measure. Nodes without a score get 0.
+     */
+    public Map<UUID, Double> calculateCentrality(Set<UUID> nodeIds, CentralityMeasure measure) {
+        return switch (measure) {
+            case DEGREE -> graphTraversalService.calculateCentrality(nodeIds);
+            case PAGERANK -> withDefaults(nodeIds, getPageRank(nodeIds));
+            case BETWEENNESS -> withDefaults(nodeIds, getStoredScores(BETWEENNESS_COLUMN, nodeIds));
+            case PERSONALIZED_PAGERANK -> withDefaults(nodeIds, personalizedPageRank(nodeIds, nodeIds));
+        };
+    }
+
+    /**
+     * Stored global PageRank for the given nodes; nodes without a score are absent
+     */
+    public Map<UUID, Double> getPageRank(Collection<UUID> nodeIds) {
+        return getStoredScores(PAGERANK_COLUMN, nodeIds);
+    }
+
+    /**
+     * Highest stored scores for a measure, best first
+     */
+    public Map<UUID, Double> getTopNodes(CentralityMeasure measure, int limit) {
+        String column = switch (measure) {
+            case PAGERANK -> PAGERANK_COLUMN;
+            case BETWEENNESS -> BETWEENNESS_COLUMN;
+            default -> throw new IllegalArgumentException("Top nodes are only stored for PAGERANK and BETWEENNESS");
+        };
+        String sql = """
+            SELECT node_id, %1$s AS score FROM kg.node_metrics
+            WHERE %1$s IS NOT NULL
+            ORDER BY %1$s DESC
+            LIMIT ?
+            """.formatted(column);
+
+        Map<UUID, Double> scores = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            scores.put(rs.getObject("node_id", UUID.class), rs.getDouble("score"));
+        }, limit);
+        return scores;
+    }
+
+    /**
+     * PageRank restarting at the seed nodes, computed on the current snapshot.
+     * Returns scores for the requested targets that are in the snapshot.
+     */
+    public Map<UUID, Double> personalizedPageRank(Collection<UUID> seeds, Collection<UUID> targets) {
+        GraphSnapshot snapshot = graphSnapshotService.require();
+        IntList seedIndexes = new IntList();
+        for (UUID seed : seeds) {
+            int index = snapshot.indexOf(seed);
+            if (index >= 0) {
+                seedIndexes.add(index);
+            }
+        }
+
+        GraphConfig.Analytics config = graphConfig.getAnalytics();
+        PageRank.Result result = new PageRank(snapshot)
+            .damping(config.getDamping())
+            .tolerance(config.getTolerance())
+            .maxIterations(config.getPersonalizedMaxIterations())
+            .parallelism(config.getParallelism())
+            .run(seedIndexes.toArray());
+
+        Map<UUID, Double> scores = new HashMap<>();
+        for (UUID target : targets) {
+            int index = snapshot.indexOf(target);
+            if (index >= 0) {
+                scores.put(target, result.getScores()[index]);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Run global PageRank on the current snapshot and store the scores
+     */
+    public PageRank.Result computePageRank() {
+        jobLock.lock();
+        try {
+            GraphSnapshot snapshot = graphSnapshotService.require();
+            GraphConfig.Analytics config = graphConfig.getAnalytics();
+
+            long start = System.currentTimeMillis();
+            PageRank.Result result = new PageRank(snapshot)
+                .damping(config.getDamping())
+                .tolerance(config.getTolerance())
+                .maxIterations(config.getMaxIterations())
+                .parallelism(config.getParallelism())
+                .run();
+            long computed = System.currentTimeMillis();
+
+            transactionTemplate.executeWithoutResult(status ->
+                writeNodeScores(snapshot, PAGERANK_COLUMN, result.getScores()));
+
+            log.info("PageRank over {} nodes / {} edges: {} iterations, delta {}, converged {} ({}ms compute, {}ms write)",
+                snapshot.nodeCount(), snapshot.edgeCount(), result.getIterations(), result.getDelta(),
+                result.isConverged(), computed - start, System.currentTimeMillis() - computed);
+            return result;
+        } finally {
+            jobLock.unlock();
+        }
+    }
+
+    /**
+     * Estimate betweenness from sampled sources on the current snapshot and store the scores
+     */
+    public ApproximateBetweenness.Result computeBetweenness() {
+        jobLock.lock();
+        try {
+            GraphSnapshot snapshot = graphSnapshotService.require();
+            GraphConfig.Analytics config = graphConfig.getAnalytics();
+
+            long start = System.currentTimeMillis();
+            ApproximateBetweenness.Result result = new ApproximateBetweenness(snapshot)
+                .epsilon(config.getBetweennessEpsilon())
+                .delta(config.getBetweennessDelta())
+                .maxSamples(config.getBetweennessMaxSamples())
+                .timeout(config.getBetweennessTimeoutMs())
+                .parallelism(config.getParallelism())
+                .run();
+            long computed = System.currentTimeMillis();
+
+            transactionTemplate.executeWithoutResult(status ->
+                writeNodeScores(snapshot, BETWEENNESS_COLUMN, result.getScores()));
+
+            log.info("Betweenness over {} nodes / {} edges: {} sources, epsilon {} ({}ms compute, {}ms write)",
+                snapshot.nodeCount(), snapshot.edgeCount(), result.getSamples(), result.getEpsilon(),
+                computed - start, System.currentTimeMillis() - computed);
+            return result;
+        } finally {
+            jobLock.unlock();
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            if (!hasStoredScores(PAGERANK_COLUMN)) {
+                computePageRank();
+            }
+            if (!hasStoredScores(BETWEENNESS_COLUMN)) {
+                computeBetweenness();
+            }
+        } catch (Exception e) {
+            log.error("Failed to initialize graph analytics: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${graph.analytics.pagerank-cron:0 30 3 * * *}")
+    public void scheduledPageRank() {
+        try {
+            computePageRank();
+        } catch (Exception e) {
+            log.error("Failed to compute PageRank: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${graph.analytics.betweenness-cron:0 0 4 * * *}")
+    public void scheduledBetweenness() {
+        try {
+            computeBetweenness();
+        } catch (Exception e) {
+            log.error("Failed to compute betweenness: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean hasStoredScores(String column) {
+        Boolean stored = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM kg.node_metrics WHERE %s IS NOT NULL)".formatted(column), Boolean.class);
+        return Boolean.TRUE.equals(stored);
+    }
+
+    private Map<UUID, Double> getStoredScores(String column, Collection<UUID> nodeIds) {
+        Map<UUID, Double> scores = new HashMap<>();
+        if (nodeIds.isEmpty()) {
+            return scores;
+        }
+        jdbcTemplate.query(
+            "SELECT node_id, %1$s AS score FROM kg.node_metrics WHERE node_id = ANY(?) AND %1$s IS NOT NULL".formatted(column),
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", nodeIds.toArray())),
+            rs -> {
+                scores.put(rs.getObject("node_id", UUID.class), rs.getDouble("score"));
+            });
+        return scores;
+    }
+
+    /**
+     * Upsert one metric column for every snapshot node, in batches of array parameters. Nodes
+     * deleted since the snapshot was built are skipped. The column name is never user input.
+     */
+    private void writeNodeScores(GraphSnapshot snapshot, String column, double[] scores) {
+        String sql = """
+            INSERT INTO kg.node_metrics (node_id, %1$s, updated_at)
+            SELECT u.node_id, u.score, now()
+            FROM unnest(?::uuid[], ?::float8[]) AS u(node_id, score)
+            JOIN kg.nodes n ON n.id = u.node_id
+            ON CONFLICT (node_id) DO UPDATE SET %1$s = EXCLUDED.%1$s
+            """.formatted(column);
+
+        int batchSize = graphConfig.getAnalytics().getWriteBatchSize();
+        for (int from = 0; from < scores.length; from += batchSize) {
+            int to = Math.min(scores.length, from + batchSize);
+            UUID[] nodeIds = new UUID[to - from];
+            Double[] values = new Double[to - from];
+            for (int i = from; i < to; i++) {
+                nodeIds[i - from] = snapshot.nodeId(i);
+                values[i - from] = scores[i];
+            }
+            jdbcTemplate.update(sql, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("uuid", nodeIds));
+                ps.setArray(2, ps.getConnection().createArrayOf("float8", values));
+            });
+        }
+    }
+
+    private static Map<UUID, Double> withDefaults(Set<UUID> nodeIds, Map<UUID, Double> scores) {
+        Map<UUID, Double> result = new HashMap<>();
+        nodeIds.forEach(nodeId -> result.put(nodeId, scores.getOrDefault(nodeId, 0.0)));
+        return result;
+    }
+}
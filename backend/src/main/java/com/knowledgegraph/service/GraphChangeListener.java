@@ -0,0 +1,34 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.event.GraphChangedEvent;
+import com.knowledgegraph.model.Edge;
+import com.knowledgegraph.model.Node;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA callbacks publishing a {@link GraphChangedEvent} for every node or edge write. Listeners
+ * that act on committed data receive it after the transaction commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class GraphChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof Node node) {
+            eventPublisher.publishEvent(GraphChangedEvent.of(node.getId()));
+        } else if (entity instanceof Edge edge) {
+            // Proxy ids are available without loading the endpoints
+            eventPublisher.publishEvent(GraphChangedEvent.of(edge.getSource().getId(), edge.getTarget().getId()));
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.ExportFormat;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Whole-graph export for offline analysis. Nodes and then edges are read through forward-only
+ * server-side cursors and written to the response row by row, so memory stays constant however
+ * large the graph is. Both reads run in one repeatable-read transaction, so edges always refer
+ * to exported nodes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GraphExportService {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Binary edge list magic, "KGEL"
+     */
+    private static final int EDGELIST_MAGIC = 0x4B47454C;
+    private static final int EDGELIST_VERSION = 1;
+
+    /**
+     * Parameters: node type array or null
+     */
+    private static final String NODES_SQL = """
+        WITH params AS (
+            SELECT ?::text[] AS node_types
+        )
+        SELECT n.id, n.type, n.name, n.properties::text AS properties
+        FROM kg.nodes n, params p
+        WHERE p.node_types IS NULL OR n.type = ANY(p.node_types)
+        """;
+
+    /**
+     * Edges whose type and both endpoint types pass the filters.
+     * Parameters: node type array or null, edge type array or null.
+     */
+    private static final String EDGES_SQL = """
+        WITH params AS (
+            SELECT ?::text[] AS node_types, ?::text[] AS edge_types
+        )
+        SELECT e.id, e.source_id, e.target_id, e.type, e.properties::text AS properties
+        FROM kg.edges e, params p
+        WHERE (p.edge_types IS NULL OR e.type = ANY(p.edge_types))
+          AND (p.node_types IS NULL OR (
+              EXISTS (SELECT 1 FROM kg.nodes s WHERE s.id = e.source_id AND s.type = ANY(p.node_types))
+              AND EXISTS (SELECT 1 FROM kg.nodes t WHERE t.id = e.target_id AND t.type = ANY(p.node_types))))
+        """;
+
+    /**
+     * Nodes in id order; the position of a node is its number in the binary edge list.
+     * Parameters: node type array or null.
+     */
+    private static final String NUMBERED_NODES_SQL = """
+        WITH params AS (
+            SELECT ?::text[] AS node_types
+        )
+        SELECT n.id, n.type
+        FROM kg.nodes n, params p
+        WHERE p.node_types IS NULL OR n.type = ANY(p.node_types)
+        ORDER BY n.id
+        """;
+
+    /**
+     * Edges between node numbers matching {@link #NUMBERED_NODES_SQL}; the numbering is joined
+     * in the database, so the application never holds an id map.
+     * Parameters: node type array or null, edge type array or null.
+     */
+    private static final String NUMBERED_EDGES_SQL = """
+        WITH params AS (
+            SELECT ?::text[] AS node_types, ?::text[] AS edge_types
+        ),
+        numbered AS (
+            SELECT n.id, (row_number() OVER (ORDER BY n.id) - 1)::int AS number
+            FROM kg.nodes n, params p
+            WHERE p.node_types IS NULL OR n.type = ANY(p.node_types)
+        )
+        SELECT s.number AS source_number, t.number AS target_number, e.type,
+               CASE WHEN jsonb_typeof(e.properties->'confidence') = 'number'
+                    THEN (e.properties->>'confidence')::real END AS confidence
+        FROM kg.edges e
+        JOIN numbered s ON s.id = e.source_id
+        JOIN numbered t ON t.id = e.target_id
+        CROSS JOIN params p
+        WHERE p.edge_types IS NULL OR e.type = ANY(p.edge_types)
+        """;
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Prepare an export of the nodes with the given types (all if empty) and the edges with the
+     * given types (all if empty) between them
+     */
+    public GraphExport prepareExport(ExportFormat format, Set<NodeType> nodeTypes, Set<EdgeType> edgeTypes) {
+        String[] nodeFilter = nodeTypes == null || nodeTypes.isEmpty() ? null
+            : nodeTypes.stream().map(Enum::name).toArray(String[]::new);
+        String[] edgeFilter = edgeTypes == null || edgeTypes.isEmpty() ? null
+            : edgeTypes.stream().map(Enum::name).toArray(String[]::new);
+
+        return out -> {
+            long start = System.currentTimeMillis();
+            OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+            ExportWriter writer = switch (format) {
+                case GRAPHML -> new GraphMLWriter(buffered);
+                case NDJSON -> new NdjsonWriter(objectMapper.getFactory().createGenerator(buffered));
+                case EDGELIST -> new EdgeListWriter(new DataOutputStream(buffered));
+            };
+            boolean numbered = format == ExportFormat.EDGELIST;
+            long[] counts = new long[2];
+
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readOnly.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            try {
+                readOnly.executeWithoutResult(status -> {
+                    writer.begin();
+                    stream(numbered ? NUMBERED_NODES_SQL : NODES_SQL, new Object[]{nodeFilter}, rs -> {
+                        writer.node(rs);
+                        counts[0]++;
+                    });
+                    stream(numbered ? NUMBERED_EDGES_SQL : EDGES_SQL, new Object[]{nodeFilter, edgeFilter}, rs -> {
+                        writer.edge(rs);
+                        counts[1]++;
+                    });
+                    writer.end(counts[0], counts[1]);
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            buffered.flush();
+
+            log.info("Exported {} nodes and {} edges as {} in {}ms",
+                counts[0], counts[1], format, System.currentTimeMillis() - start);
+        };
+    }
+
+    /**
+     * A prepared export; writes the whole graph to the stream
+     */
+    @FunctionalInterface
+    public interface GraphExport {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private void stream(String sql, Object[] filters, RowWriter rowWriter) {
+        jdbcTemplate.query(sql, ps -> {
+            ps.setFetchSize(graphConfig.getExport().getFetchSize());
+            ps.setFetchDirection(ResultSet.FETCH_FORWARD);
+            for (int i = 0; i < filters.length; i++) {
+                ps.setArray(i + 1, filters[i] == null ? null : ps.getConnection().createArrayOf("text", (Object[]) filters[i]));
+            }
+        }, (RowCallbackHandler) rs -> {
+            try {
+                rowWriter.write(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    /**
+     * Serializes rows of the node and edge queries. IO failures surface as UncheckedIOException.
+     */
+    private interface ExportWriter {
+        void begin();
+
+        void node(ResultSet rs) throws SQLException, IOException;
+
+        void edge(ResultSet rs) throws SQLException, IOException;
+
+        void end(long nodes, long edges);
+    }
+
+    /**
+     * One {"node": ...} line per node, one {"edge": ...} line per edge and a summary line, as
+     * in the subgraph stream. Stored properties are copied through as raw JSON.
+     */
+    private static final class NdjsonWriter implements ExportWriter {
+
+        private final JsonGenerator json;
+
+        NdjsonWriter(JsonGenerator json) {
+            this.json = json;
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);  // lines are separated explicitly
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void node(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeObjectFieldStart("node");
+            json.writeStringField("id", rs.getString("id"));
+            json.writeStringField("type", rs.getString("type"));
+            json.writeStringField("name", rs.getString("name"));
+            writeProperties(rs.getString("properties"));
+            json.writeEndObject();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void edge(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeObjectFieldStart("edge");
+            json.writeStringField("id", rs.getString("id"));
+            json.writeStringField("sourceId", rs.getString("source_id"));
+            json.writeStringField("targetId", rs.getString("target_id"));
+            json.writeStringField("type", rs.getString("type"));
+            writeProperties(rs.getString("properties"));
+            json.writeEndObject();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void end(long nodes, long edges) {
+            try {
+                json.writeStartObject();
+                json.writeBooleanField("done", true);
+                json.writeNumberField("totalNodes", nodes);
+                json.writeNumberField("totalEdges", edges);
+                json.writeEndObject();
+                json.writeRaw('\n');
+                json.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeProperties(String properties) throws IOException {
+            json.writeFieldName("properties");
+            if (properties == null) {
+                json.writeNull();
+            } else {
+                json.writeRawValue(properties);
+            }
+        }
+    }
+
+    /**
+     * GraphML with type, name and properties (as a JSON string) as data keys
+     */
+    private static final class GraphMLWriter implements ExportWriter {
+
+        private final XMLStreamWriter xml;
+
+        GraphMLWriter(OutputStream out) throws IOException {
+            try {
+                this.xml = XMLOutputFactory.newFactory()
+                    .createXMLStreamWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void begin() {
+            try {
+                xml.writeStartDocument("UTF-8", "1.0");
+                xml.writeCharacters("\n");
+                xml.writeStartElement("graphml");
+                xml.writeDefaultNamespace("http://graphml.graphdrawing.org/xmlns");
+                xml.writeCharacters("\n");
+                writeKey("node_type", "node", "type");
+                writeKey("node_name", "node", "name");
+                writeKey("node_properties", "node", "properties");
+                writeKey("edge_type", "edge", "type");
+                writeKey("edge_properties", "edge", "properties");
+                xml.writeStartElement("graph");
+                xml.writeAttribute("id", "G");
+                xml.writeAttribute("edgedefault", "directed");
+                xml.writeCharacters("\n");
+            } catch (XMLStreamException e) {
+                throw new UncheckedIOException(new IOException(e));
+            }
+        }
+
+        @Override
+        public void node(ResultSet rs) throws SQLException, IOException {
+            try {
+                xml.writeStartElement("node");
+                xml.writeAttribute("id", rs.getString("id"));
+                writeData("node_type", rs.getString("type"));
+                writeData("node_name", rs.getString("name"));
+                writeData("node_properties", rs.getString("properties"));
+                xml.writeEndElement();
+                xml.writeCharacters("\n");
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void edge(ResultSet rs) throws SQLException, IOException {
+            try {
+                xml.writeStartElement("edge");
+                xml.writeAttribute("id", rs.getString("id"));
+                xml.writeAttribute("source", rs.getString("source_id"));
+                xml.writeAttribute("target", rs.getString("target_id"));
+                writeData("edge_type", rs.getString("type"));
+                writeData("edge_properties", rs.getString("properties"));
+                xml.writeEndElement();
+                xml.writeCharacters("\n");
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void end(long nodes, long edges) {
+            try {
+                xml.writeEndElement();
+                xml.writeCharacters("\n");
+                xml.writeEndElement();
+                xml.writeCharacters("\n");
+                xml.writeEndDocument();
+                xml.flush();
+            } catch (XMLStreamException e) {
+                throw new UncheckedIOException(new IOException(e));
+            }
+        }
+
+        private void writeKey(String id, String target, String name) throws XMLStreamException {
+            xml.writeEmptyElement("key");
+            xml.writeAttribute("id", id);
+            xml.writeAttribute("for", target);
+            xml.writeAttribute("attr.name", name);
+            xml.writeAttribute("attr.type", "string");
+            xml.writeCharacters("\n");
+        }
+
+        private void writeData(String key, String value) throws XMLStreamException {
+            if (value == null) {
+                return;
+            }
+            xml.writeStartElement("data");
+            xml.writeAttribute("key", key);
+            xml.writeCharacters(xmlSafe(value));
+            xml.writeEndElement();
+        }
+
+        /**
+         * Drop control characters XML 1.0 cannot represent even escaped
+         */
+        private static String xmlSafe(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+                    StringBuilder safe = new StringBuilder(value.length());
+                    value.chars()
+                        .filter(ch -> ch >= 0x20 || ch == '\t' || ch == '\n' || ch == '\r')
+                        .forEach(ch -> safe.append((char) ch));
+                    return safe.toString();
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Compact big-endian binary edge list:
+     * <pre>
+     * int32 magic "KGEL", int32 version
+     * int32 count + UTF names of node types, int32 count + UTF names of edge types
+     * per node:  int8 1, int64 id msb, int64 id lsb, int8 node type index    (node number = position)
+     * per edge:  int8 2, int32 source number, int32 target number, int8 edge type index, float32 confidence
+     * end:       int8 0, int64 node count, int64 edge count
+     * </pre>
+     * Type index -1 marks a stored type outside the known enum; confidence is NaN when unset.
+     */
+    private static final class EdgeListWriter implements ExportWriter {
+
+        private static final Map<String, Integer> NODE_TYPE_INDEX = indexOf(NodeType.values());
+        private static final Map<String, Integer> EDGE_TYPE_INDEX = indexOf(EdgeType.values());
+
+        private final DataOutputStream data;
+
+        EdgeListWriter(DataOutputStream data) {
+            this.data = data;
+        }
+
+        @Override
+        public void begin() {
+            try {
+                data.writeInt(EDGELIST_MAGIC);
+                data.writeInt(EDGELIST_VERSION);
+                writeNames(NodeType.values());
+                writeNames(EdgeType.values());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void node(ResultSet rs) throws SQLException, IOException {
+            UUID id = rs.getObject("id", UUID.class);
+            data.writeByte(1);
+            data.writeLong(id.getMostSignificantBits());
+            data.writeLong(id.getLeastSignificantBits());
+            data.writeByte(NODE_TYPE_INDEX.getOrDefault(rs.getString("type"), -1));
+        }
+
+        @Override
+        public void edge(ResultSet rs) throws SQLException, IOException {
+            float confidence = rs.getFloat("confidence");
+            if (rs.wasNull()) {
+                confidence = Float.NaN;
+            }
+            data.writeByte(2);
+            data.writeInt(rs.getInt("source_number"));
+            data.writeInt(rs.getInt("target_number"));
+            data.writeByte(EDGE_TYPE_INDEX.getOrDefault(rs.getString("type"), -1));
+            data.writeFloat(confidence);
+        }
+
+        @Override
+        public void end(long nodes, long edges) {
+            try {
+                data.writeByte(0);
+                data.writeLong(nodes);
+                data.writeLong(edges);
+                data.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeNames(Enum<?>[] values) throws IOException {
+            data.writeInt(values.length);
+            for (Enum<?> value : values) {
+                data.writeUTF(value.name());
+            }
+        }
+
+        private static Map<String, Integer> indexOf(Enum<?>[] values) {
+            Map<String, Integer> index = new HashMap<>();
+            for (Enum<?> value : values) {
+                index.put(value.name(), value.ordinal());
+            }
+            return index;
+        }
+    }
+}
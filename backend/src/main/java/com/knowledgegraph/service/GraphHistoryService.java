@@ -0,0 +1,167 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.model.Node;
+import com.knowledgegraph.model.NodeType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Point-in-time view of the graph. Updates and deletes move the replaced version of a node or
+ * edge to kg.node_history / kg.edge_history with the interval it was valid in (see migration
+ * V10), and kg.nodes_at / kg.edges_at return what was valid at an instant. Services with
+ * as-of variants of their queries select from those functions with the instant as a parameter,
+ * after checking it with {@link #requireRetained(Instant)}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GraphHistoryService {
+
+    private static final Map<String, NodeType> NODE_TYPES = new HashMap<>();
+
+    static {
+        Arrays.stream(NodeType.values()).forEach(type -> NODE_TYPES.put(type.name(), type));
+    }
+
+    /**
+     * Parameters: instant, node id array
+     */
+    private static final String NODES_AT_SQL = """
+        SELECT n.id, n.type, n.name, n.properties::text AS properties
+        FROM kg.nodes_at(?::timestamptz) n
+        WHERE n.id IN (SELECT unnest(?::uuid[]))
+        """;
+
+    /**
+     * Node and edge counts per type and degree sums per node type at an instant.
+     * Parameter: instant.
+     */
+    private static final String STATISTICS_AT_SQL = """
+        WITH params AS (
+            SELECT ?::timestamptz AS as_of
+        ),
+        nodes AS (
+            SELECT n.id, n.type FROM params p, kg.nodes_at(p.as_of) n
+        ),
+        edges AS (
+            SELECT e.source_id, e.target_id, e.type FROM params p, kg.edges_at(p.as_of) e
+        )
+        SELECT 'nodes' AS kind, type, COUNT(*) AS count FROM nodes GROUP BY type
+        UNION ALL
+        SELECT 'edges', type, COUNT(*) FROM edges GROUP BY type
+        UNION ALL
+        SELECT 'out', n.type, COUNT(*) FROM edges e JOIN nodes n ON n.id = e.source_id GROUP BY n.type
+        UNION ALL
+        SELECT 'in', n.type, COUNT(*) FROM edges e JOIN nodes n ON n.id = e.target_id GROUP BY n.type
+        """;
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Nodes as they were at asOf, detached; ids that did not exist then are missing. Types no
+     * longer in {@link NodeType}, such as ones renamed since, are left null.
+     */
+    public List<Node> findNodesAt(Collection<UUID> nodeIds, Instant asOf) {
+        requireRetained(asOf);
+        List<Node> nodes = new ArrayList<>(nodeIds.size());
+        jdbcTemplate.query(NODES_AT_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.from(asOf));
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", nodeIds.toArray()));
+        }, rs -> {
+            Node node = new Node();
+            node.setId(rs.getObject("id", UUID.class));
+            node.setType(NODE_TYPES.get(rs.getString("type")));
+            node.setName(rs.getString("name"));
+            node.setProperties(parseProperties(rs.getString("properties")));
+            nodes.add(node);
+        });
+        return nodes;
+    }
+
+    /**
+     * Counts in the shape of {@link GraphStatisticsService#getStatistics()}, computed from the
+     * tables as of an instant. The degree histogram is left out; it needs every node's degree.
+     */
+    public Map<String, Object> getStatistics(Instant asOf) {
+        requireRetained(asOf);
+        Map<String, Long> nodeTypes = new HashMap<>();
+        Map<String, Long> edgeTypes = new HashMap<>();
+        Map<String, Map<String, Long>> degreeSums = new HashMap<>();
+        jdbcTemplate.query(STATISTICS_AT_SQL, rs -> {
+            String type = rs.getString("type");
+            long count = rs.getLong("count");
+            switch (rs.getString("kind")) {
+                case "nodes" -> nodeTypes.put(type, count);
+                case "edges" -> edgeTypes.put(type, count);
+                default -> degreeSums.computeIfAbsent(type, t -> new HashMap<>()).put(rs.getString("kind"), count);
+            }
+        }, Timestamp.from(asOf));
+
+        long totalNodes = nodeTypes.values().stream().mapToLong(Long::longValue).sum();
+        long totalEdges = edgeTypes.values().stream().mapToLong(Long::longValue).sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("asOf", asOf);
+        stats.put("totalNodes", totalNodes);
+        stats.put("totalEdges", totalEdges);
+        stats.put("nodeTypes", nodeTypes);
+        stats.put("edgeTypes", edgeTypes);
+        stats.put("degreeSums", degreeSums);
+        stats.put("avgConnectionsPerNode", totalNodes > 0 ? 2.0 * totalEdges / totalNodes : null);
+        return stats;
+    }
+
+    /**
+     * Delete versions that ended before the retention window
+     */
+    @Scheduled(cron = "${graph.history.purge-cron:0 30 4 * * *}")
+    public void purgeHistory() {
+        int retentionDays = graphConfig.getHistory().getRetentionDays();
+        if (retentionDays <= 0) {
+            return;
+        }
+        try {
+            Timestamp horizon = Timestamp.from(Instant.now().minus(retentionDays, ChronoUnit.DAYS));
+            int edges = jdbcTemplate.update("DELETE FROM kg.edge_history WHERE valid_to < ?", horizon);
+            int nodes = jdbcTemplate.update("DELETE FROM kg.node_history WHERE valid_to < ?", horizon);
+            log.info("Purged {} node and {} edge versions that ended before {}", nodes, edges, horizon);
+        } catch (Exception e) {
+            log.error("Failed to purge graph history: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Refuse instants whose versions may already be purged, rather than answer incompletely
+     */
+    public void requireRetained(Instant asOf) {
+        int retentionDays = graphConfig.getHistory().getRetentionDays();
+        if (retentionDays > 0 && asOf.isBefore(Instant.now().minus(retentionDays, ChronoUnit.DAYS))) {
+            throw new IllegalArgumentException("asOf is older than the " + retentionDays + "-day history retention");
+        }
+    }
+
+    private Map<String, Object> parseProperties(String json) {
+        if (json == null || json.isEmpty()) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (JsonProcessingException e) {
+            log.warn("Could not parse node properties: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.event.GraphSnapshotRefreshedEvent;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.GraphSnapshotFile;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Owns the in-process CSR adjacency snapshot used by graph traversal.
+ * The snapshot is built from a streamed scan of kg.nodes and kg.edges and swapped
+ * atomically, so readers never see a partially built graph.
+ *
+ * With graph.snapshot.file set, every built snapshot is written to that file and served
+ * mapped from it, off the heap. At startup the file is mapped back in and only rows changed
+ * since its scan (by valid_from, and kg.edge_history / kg.node_history for removals) are
+ * replayed, instead of scanning both tables again.
+ */
+@Service
+@Slf4j
+public class GraphSnapshotService {
+
+    private static final String NODE_SCAN_SQL = "SELECT id, type FROM kg.nodes";
+
+    private static final String EDGE_SCAN_SQL = """
+        SELECT id, source_id, target_id, type, created_at,
+               CASE WHEN jsonb_typeof(properties->'confidence') = 'number'
+                    THEN (properties->>'confidence')::real END AS confidence
+        FROM kg.edges
+        """;
+
+    // Rows inserted or updated after an instant; V10 versioning sets valid_from on both
+    private static final String CHANGED_NODES_SQL = """
+        SELECT id, type FROM kg.nodes
+        WHERE valid_from > ?
+        LIMIT ?
+        """;
+
+    private static final String CHANGED_EDGES_SQL = EDGE_SCAN_SQL + """
+        WHERE valid_from > ?
+        LIMIT ?
+        """;
+
+    // Versions closed after an instant: deleted rows, or updated ones that reappear as changed
+    private static final String REMOVED_NODES_SQL = """
+        SELECT DISTINCT id FROM kg.node_history
+        WHERE valid_to > ?
+        LIMIT ?
+        """;
+
+    private static final String REMOVED_EDGES_SQL = """
+        SELECT DISTINCT id FROM kg.edge_history
+        WHERE valid_to > ?
+        LIMIT ?
+        """;
+
+    private static final Map<String, NodeType> NODE_TYPES = new HashMap<>();
+    private static final Map<String, EdgeType> EDGE_TYPES = new HashMap<>();
+
+    static {
+        Arrays.stream(NodeType.values()).forEach(type -> NODE_TYPES.put(type.name(), type));
+        Arrays.stream(EdgeType.values()).forEach(type -> EDGE_TYPES.put(type.name(), type));
+    }
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private volatile GraphSnapshot snapshot;
+
+    public GraphSnapshotService(GraphConfig graphConfig, DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher) {
+        this.graphConfig = graphConfig;
+        this.eventPublisher = eventPublisher;
+
+        // PostgreSQL only streams with a fetch size inside a transaction
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(graphConfig.getSnapshot().getFetchSize());
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Current snapshot, if enabled and already built. Never blocks.
+     */
+    public Optional<GraphSnapshot> current() {
+        return graphConfig.getSnapshot().isEnabled() ? Optional.ofNullable(snapshot) : Optional.empty();
+    }
+
+    /**
+     * Current snapshot, restoring it from the snapshot file or building it synchronously if
+     * none exists yet
+     */
+    public GraphSnapshot require() {
+        GraphSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        buildLock.lock();
+        try {
+            // Another caller may have finished a build while we waited
+            return snapshot != null ? snapshot : restore().orElseGet(this::refresh);
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuild the snapshot from the database and swap it in
+     */
+    public GraphSnapshot refresh() {
+        buildLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            GraphSnapshot built = persist(readOnlyTransaction.execute(status -> load()));
+            swap(built);
+            log.info("Graph snapshot built: {} nodes, {} edges in {}ms",
+                built.nodeCount(), built.edgeCount(), System.currentTimeMillis() - start);
+            return built;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (graphConfig.getSnapshot().isEnabled()) {
+            try {
+                require();
+            } catch (Exception e) {
+                log.error("Failed to build graph snapshot: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${graph.snapshot.refresh-interval-ms:300000}",
+               fixedDelayString = "${graph.snapshot.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        if (graphConfig.getSnapshot().isEnabled()) {
+            refreshQuietly();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Failed to build graph snapshot: {}", e.getMessage(), e);
+        }
+    }
+
+    private void swap(GraphSnapshot built) {
+        snapshot = built;
+        eventPublisher.publishEvent(new GraphSnapshotRefreshedEvent(built));
+    }
+
+    /**
+     * Map the snapshot file and replay the changes made since it was scanned. Empty if there is
+     * no usable file, a file older than the history the replay reads, or more changes than
+     * graph.snapshot.max-replay-changes; a full build follows.
+     */
+    private Optional<GraphSnapshot> restore() {
+        Path file = snapshotFile();
+        if (file == null || !Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            GraphSnapshot stored = GraphSnapshotFile.read(file, graphConfig.getSnapshot().isVerifyChecksum());
+            if (stored.getScannedAt() == null) {
+                return Optional.empty();
+            }
+            if (beforeHistoryRetention(stored)) {
+                log.info("Graph snapshot file {} predates the {}-day history retention, rebuilding",
+                    file, graphConfig.getHistory().getRetentionDays());
+                return Optional.empty();
+            }
+            GraphSnapshot restored = readOnlyTransaction.execute(status -> replay(stored));
+            if (restored == null) {
+                log.info("Too many changes since graph snapshot file {} was written, rebuilding", file);
+                return Optional.empty();
+            }
+            if (restored != stored) {
+                restored = persist(restored);
+            }
+            swap(restored);
+            log.info("Graph snapshot restored from {}: {} nodes, {} edges in {}ms",
+                file, restored.nodeCount(), restored.edgeCount(), System.currentTimeMillis() - start);
+            return Optional.of(restored);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Discarding graph snapshot file {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Apply rows changed since the stored snapshot's scan. Returns the stored snapshot itself
+     * when nothing changed, or null when the change set exceeds the replay limit.
+     */
+    private GraphSnapshot replay(GraphSnapshot stored) {
+        GraphConfig.Snapshot config = graphConfig.getSnapshot();
+        int limit = config.getMaxReplayChanges() + 1;
+        Timestamp replayedAt = streamingJdbcTemplate.queryForObject("SELECT NOW()", Timestamp.class);
+        Timestamp since = replayStart(stored);
+
+        Map<UUID, NodeType> changedNodes = new LinkedHashMap<>();
+        streamingJdbcTemplate.query(CHANGED_NODES_SQL, rs -> {
+            changedNodes.put(rs.getObject("id", UUID.class), NODE_TYPES.get(rs.getString("type")));
+        }, since, limit);
+        List<UUID> removedNodes = streamingJdbcTemplate.queryForList(REMOVED_NODES_SQL, UUID.class, since, limit);
+        List<EdgeRow> changedEdges = new ArrayList<>();
+        streamingJdbcTemplate.query(CHANGED_EDGES_SQL, rs -> {
+            changedEdges.add(EdgeRow.of(rs));
+        }, since, limit);
+        List<UUID> removedEdges = streamingJdbcTemplate.queryForList(REMOVED_EDGES_SQL, UUID.class, since, limit);
+
+        int changes = changedNodes.size() + removedNodes.size() + changedEdges.size() + removedEdges.size();
+        if (changedNodes.size() == limit || removedNodes.size() == limit
+                || changedEdges.size() == limit || removedEdges.size() == limit
+                || changes > config.getMaxReplayChanges()) {
+            return null;
+        }
+        if (changes == 0) {
+            return stored;
+        }
+
+        // Updated rows are dropped with the removed ones and added back in their current version
+        Set<UUID> droppedNodes = new HashSet<>(removedNodes);
+        droppedNodes.removeAll(changedNodes.keySet());
+        Set<UUID> droppedEdges = new HashSet<>(removedEdges);
+        changedEdges.forEach(edge -> droppedEdges.add(edge.getId()));
+
+        GraphSnapshot.Builder builder = stored.toBuilder(droppedNodes, droppedEdges);
+        changedNodes.forEach(builder::addNode);
+        for (EdgeRow edge : changedEdges) {
+            builder.addEdge(edge.getId(), edge.getSourceId(), edge.getTargetId(), edge.getType(), edge.getConfidence());
+            builder.highWaterMark(edge.getCreatedAt());
+        }
+        log.info("Replayed {} node and {} edge changes onto the stored graph snapshot",
+            changedNodes.size() + droppedNodes.size(), changedEdges.size() + removedEdges.size());
+        return builder.scannedAt(replayedAt.toLocalDateTime()).build();
+    }
+
+    private Timestamp replayStart(GraphSnapshot stored) {
+        long overlapMs = graphConfig.getSnapshot().getReplayOverlapMs();
+        return Timestamp.valueOf(stored.getScannedAt().minusNanos(overlapMs * 1_000_000L));
+    }
+
+    /**
+     * True if removals the replay needs may already be purged from kg.node_history and
+     * kg.edge_history, which would leave deleted rows in the restored snapshot
+     */
+    private boolean beforeHistoryRetention(GraphSnapshot stored) {
+        int retentionDays = graphConfig.getHistory().getRetentionDays();
+        return retentionDays > 0
+            && replayStart(stored).toInstant().isBefore(Instant.now().minus(retentionDays, ChronoUnit.DAYS));
+    }
+
+    /**
+     * Write a built snapshot to the snapshot file and return it mapped from there, so its arrays
+     * leave the heap. If writing fails, the heap snapshot is kept.
+     */
+    private GraphSnapshot persist(GraphSnapshot built) {
+        Path file = snapshotFile();
+        if (file == null) {
+            return built;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            GraphSnapshotFile.write(built, file);
+            GraphSnapshot mapped = GraphSnapshotFile.read(file, false);
+            log.debug("Graph snapshot written to {} in {}ms", file, System.currentTimeMillis() - start);
+            return mapped;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write graph snapshot file {}: {}", file, e.getMessage());
+            return built;
+        }
+    }
+
+    private Path snapshotFile() {
+        String file = graphConfig.getSnapshot().getFile();
+        return file == null || file.isBlank() ? null : Path.of(file).toAbsolutePath().normalize();
+    }
+
+    private GraphSnapshot load() {
+        Timestamp scannedAt = streamingJdbcTemplate.queryForObject("SELECT NOW()", Timestamp.class);
+        Integer nodeCount = streamingJdbcTemplate.queryForObject("SELECT COUNT(*) FROM kg.nodes", Integer.class);
+        Integer edgeCount = streamingJdbcTemplate.queryForObject("SELECT COUNT(*) FROM kg.edges", Integer.class);
+
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(
+            Optional.ofNullable(nodeCount).orElse(0),
+            Optional.ofNullable(edgeCount).orElse(0)
+        );
+
+        streamingJdbcTemplate.query(NODE_SCAN_SQL, rs -> {
+            builder.addNode(rs.getObject("id", UUID.class), NODE_TYPES.get(rs.getString("type")));
+        });
+
+        streamingJdbcTemplate.query(EDGE_SCAN_SQL, rs -> {
+            EdgeRow edge = EdgeRow.of(rs);
+            builder.addEdge(edge.getId(), edge.getSourceId(), edge.getTargetId(), edge.getType(), edge.getConfidence());
+            builder.highWaterMark(edge.getCreatedAt());
+        });
+
+        return builder.scannedAt(scannedAt != null ? scannedAt.toLocalDateTime() : null).build();
+    }
+
+    /**
+     * One row of {@link #EDGE_SCAN_SQL}
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class EdgeRow {
+        private final UUID id;
+        private final UUID sourceId;
+        private final UUID targetId;
+        private final EdgeType type;
+        private final float confidence;
+        private final LocalDateTime createdAt;
+
+        static EdgeRow of(ResultSet rs) throws SQLException {
+            float confidence = rs.getFloat("confidence");
+            if (rs.wasNull()) {
+                confidence = GraphSnapshot.DEFAULT_CONFIDENCE;
+            }
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            return new EdgeRow(
+                rs.getObject("id", UUID.class),
+                rs.getObject("source_id", UUID.class),
+                rs.getObject("target_id", UUID.class),
+                EDGE_TYPES.get(rs.getString("type")),
+                confidence,
+                createdAt != null ? createdAt.toLocalDateTime() : null
+            );
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.model.Edge;
+import com.knowledgegraph.model.Node;
+import com.knowledgegraph.model.NodeType;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA callbacks feeding node and edge inserts and deletes into {@link GraphStatisticsService}.
+ * Hibernate creates this bean while the entity manager factory is still being built, and the
+ * service depends on the transaction manager, which needs that factory; it is therefore looked
+ * up on first use.
+ */
+@Component
+public class GraphStatisticsListener {
+
+    private final ObjectProvider<GraphStatisticsService> statisticsProvider;
+
+    public GraphStatisticsListener(ObjectProvider<GraphStatisticsService> statisticsProvider) {
+        this.statisticsProvider = statisticsProvider;
+    }
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        GraphStatisticsService graphStatisticsService = statisticsProvider.getObject();
+        if (entity instanceof Node node) {
+            graphStatisticsService.recordNodes(node.getType(), 1);
+        } else if (entity instanceof Edge edge) {
+            graphStatisticsService.recordEdges(edge.getType(), typeOf(edge.getSource()), typeOf(edge.getTarget()), 1);
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        GraphStatisticsService graphStatisticsService = statisticsProvider.getObject();
+        if (entity instanceof Node node) {
+            graphStatisticsService.recordNodes(node.getType(), -1);
+            // Incident edges go with ON DELETE CASCADE, which JPA never sees
+            graphStatisticsService.markStale();
+        } else if (entity instanceof Edge edge) {
+            graphStatisticsService.recordEdges(edge.getType(), typeOf(edge.getSource()), typeOf(edge.getTarget()), -1);
+        }
+    }
+
+    /**
+     * Type of an endpoint, or null if it is an unloaded proxy (loading it mid-flush is not safe)
+     */
+    private static NodeType typeOf(Node node) {
+        return node != null && Hibernate.isInitialized(node) ? node.getType() : null;
+    }
+}
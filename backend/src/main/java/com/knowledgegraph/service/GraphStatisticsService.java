@@ -0,0 +1,399 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Graph statistics kept up to date in memory instead of scanned per request.
+ *
+ * Per-type node and edge counts and per-node-type degree sums are held as a base value plus a
+ * {@link LongAdder} delta. Inserts and deletes add to the deltas once their transaction commits.
+ * A reconcile recounts everything from the tables and moves the result into the base, and the
+ * counters are checkpointed to kg.graph_statistics so a restart serves them immediately.
+ *
+ * The degree histogram needs every node's current degree, so it is refreshed by the reconcile
+ * rather than per change.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GraphStatisticsService {
+
+    private static final NodeType[] NODE_TYPES = NodeType.values();
+    private static final EdgeType[] EDGE_TYPES = EdgeType.values();
+
+    // Counter slots: nodes per node type, edges per edge type, out- and in-degree sums per node type
+    private static final int NODE_SLOTS = 0;
+    private static final int EDGE_SLOTS = NODE_SLOTS + NODE_TYPES.length;
+    private static final int OUT_DEGREE_SLOTS = EDGE_SLOTS + EDGE_TYPES.length;
+    private static final int IN_DEGREE_SLOTS = OUT_DEGREE_SLOTS + NODE_TYPES.length;
+    private static final int SLOT_COUNT = IN_DEGREE_SLOTS + NODE_TYPES.length;
+
+    private static final String HISTOGRAM_PREFIX = "degree_histogram.";
+    private static final String RECONCILED_AT = "reconciled_at";
+
+    /**
+     * Nodes per degree bucket; bucket k > 0 holds degrees 2^(k-1) .. 2^k - 1, bucket 0 isolated nodes
+     */
+    private static final String DEGREE_HISTOGRAM_SQL = """
+        SELECT length(ltrim(d.degree::bit(32)::text, '0')) AS bucket, COUNT(*) AS count
+        FROM (
+            SELECT COALESCE(o.count, 0) + COALESCE(i.count, 0) AS degree
+            FROM kg.nodes n
+            LEFT JOIN (SELECT source_id AS id, COUNT(*) AS count FROM kg.edges GROUP BY source_id) o ON o.id = n.id
+            LEFT JOIN (SELECT target_id AS id, COUNT(*) AS count FROM kg.edges GROUP BY target_id) i ON i.id = n.id
+        ) d
+        GROUP BY bucket
+        """;
+
+    private static final String INSERT_CHECKPOINT_SQL = """
+        INSERT INTO kg.graph_statistics (name, value, updated_at)
+        SELECT u.name, u.value, now()
+        FROM unnest(?::text[], ?::bigint[]) AS u(name, value)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    private final AtomicLongArray base = new AtomicLongArray(SLOT_COUNT);
+    private final LongAdder[] delta = newAdders();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    private volatile SortedMap<Integer, Long> degreeHistogram = Collections.emptySortedMap();
+    private volatile LocalDateTime reconciledAt;
+
+    /**
+     * Current statistics; reads counters only, independent of graph size
+     */
+    public Map<String, Object> getStatistics() {
+        long[] values = new long[SLOT_COUNT];
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            values[slot] = base.get(slot) + delta[slot].sum();
+        }
+
+        long totalNodes = 0;
+        long totalEdges = 0;
+        Map<String, Long> nodeTypes = new HashMap<>();
+        Map<String, Long> edgeTypes = new HashMap<>();
+        Map<String, Map<String, Long>> degreeSums = new HashMap<>();
+        for (NodeType type : NODE_TYPES) {
+            long count = values[NODE_SLOTS + type.ordinal()];
+            long out = values[OUT_DEGREE_SLOTS + type.ordinal()];
+            long in = values[IN_DEGREE_SLOTS + type.ordinal()];
+            totalNodes += count;
+            if (count != 0) {
+                nodeTypes.put(type.name(), count);
+            }
+            if (out != 0 || in != 0) {
+                degreeSums.put(type.name(), Map.of("out", out, "in", in));
+            }
+        }
+        for (EdgeType type : EDGE_TYPES) {
+            long count = values[EDGE_SLOTS + type.ordinal()];
+            totalEdges += count;
+            if (count != 0) {
+                edgeTypes.put(type.name(), count);
+            }
+        }
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        degreeHistogram.forEach((bucket, count) -> histogram.put(bucketLabel(bucket), count));
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalNodes", totalNodes);
+        stats.put("totalEdges", totalEdges);
+        stats.put("nodeTypes", nodeTypes);
+        stats.put("edgeTypes", edgeTypes);
+        stats.put("degreeSums", degreeSums);
+        stats.put("degreeHistogram", histogram);
+        stats.put("avgConnectionsPerNode", totalNodes > 0 ? 2.0 * totalEdges / totalNodes : null);
+        stats.put("reconciledAt", reconciledAt);
+        return stats;
+    }
+
+    /**
+     * Count nodes of a type as created (positive) or deleted (negative) once the current
+     * transaction commits. Bulk loaders writing through JDBC call this directly.
+     */
+    public void recordNodes(NodeType type, long count) {
+        if (type == null) {
+            markStale();
+            return;
+        }
+        add(NODE_SLOTS + type.ordinal(), count);
+    }
+
+    /**
+     * Count edges as created or deleted, crediting the degree sums of their endpoint types.
+     * Unknown endpoint types leave the degree sums to the next reconcile.
+     */
+    public void recordEdges(EdgeType type, NodeType sourceType, NodeType targetType, long count) {
+        if (type != null) {
+            add(EDGE_SLOTS + type.ordinal(), count);
+        }
+        if (sourceType != null) {
+            add(OUT_DEGREE_SLOTS + sourceType.ordinal(), count);
+        }
+        if (targetType != null) {
+            add(IN_DEGREE_SLOTS + targetType.ordinal(), count);
+        }
+        if (type == null || sourceType == null || targetType == null) {
+            markStale();
+        }
+    }
+
+    /**
+     * Note a change the counters could not follow; the next checkpoint tick reconciles instead
+     */
+    public void markStale() {
+        stale.set(true);
+    }
+
+    /**
+     * Recount everything from the tables and checkpoint the result. Changes committed while the
+     * scans run are kept in the deltas, so at most those few are counted twice or not at all
+     * until the next reconcile.
+     */
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            stale.set(false);
+            long[] deltaAtStart = new long[SLOT_COUNT];
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                deltaAtStart[slot] = delta[slot].sum();
+            }
+
+            long[] counted = new long[SLOT_COUNT];
+            countByType("SELECT type, COUNT(*) AS count FROM kg.nodes GROUP BY type",
+                NODE_TYPES, NODE_SLOTS, counted);
+            countByType("SELECT type, COUNT(*) AS count FROM kg.edges GROUP BY type",
+                EDGE_TYPES, EDGE_SLOTS, counted);
+            countByType("SELECT n.type, COUNT(*) AS count FROM kg.edges e JOIN kg.nodes n ON n.id = e.source_id GROUP BY n.type",
+                NODE_TYPES, OUT_DEGREE_SLOTS, counted);
+            countByType("SELECT n.type, COUNT(*) AS count FROM kg.edges e JOIN kg.nodes n ON n.id = e.target_id GROUP BY n.type",
+                NODE_TYPES, IN_DEGREE_SLOTS, counted);
+
+            SortedMap<Integer, Long> histogram = new TreeMap<>();
+            jdbcTemplate.query(DEGREE_HISTOGRAM_SQL, rs -> {
+                histogram.put(rs.getInt("bucket"), rs.getLong("count"));
+            });
+
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                base.set(slot, counted[slot]);
+                delta[slot].add(-deltaAtStart[slot]);
+            }
+            degreeHistogram = Collections.unmodifiableSortedMap(histogram);
+            reconciledAt = LocalDateTime.now();
+
+            checkpoint();
+            log.info("Reconciled graph statistics in {}ms", System.currentTimeMillis() - start);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    /**
+     * Write all counters to kg.graph_statistics, replacing the previous checkpoint
+     */
+    public void checkpoint() {
+        changed.set(false);
+        List<String> names = new ArrayList<>();
+        List<Long> values = new ArrayList<>();
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            names.add(slotName(slot));
+            values.add(base.get(slot) + delta[slot].sum());
+        }
+        degreeHistogram.forEach((bucket, count) -> {
+            names.add(HISTOGRAM_PREFIX + bucket);
+            values.add(count);
+        });
+        if (reconciledAt != null) {
+            names.add(RECONCILED_AT);
+            values.add(reconciledAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM kg.graph_statistics");
+            jdbcTemplate.update(INSERT_CHECKPOINT_SQL, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("text", names.toArray()));
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint", values.toArray()));
+            });
+        });
+    }
+
+    /**
+     * Serve the last checkpoint right away, then recount in the background of startup
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            if (!loadCheckpoint()) {
+                log.info("No graph statistics checkpoint, counting from tables");
+            }
+            reconcile();
+        } catch (Exception e) {
+            log.error("Failed to initialize graph statistics: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${graph.stats.checkpoint-interval-ms:60000}",
+               fixedDelayString = "${graph.stats.checkpoint-interval-ms:60000}")
+    public void scheduledCheckpoint() {
+        try {
+            if (stale.get()) {
+                reconcile();
+            } else if (changed.get()) {
+                checkpoint();
+            }
+        } catch (Exception e) {
+            log.error("Failed to checkpoint graph statistics: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${graph.stats.reconcile-cron:0 15 * * * *}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("Failed to reconcile graph statistics: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean loadCheckpoint() {
+        Map<String, Integer> slots = new HashMap<>();
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            slots.put(slotName(slot), slot);
+        }
+        SortedMap<Integer, Long> histogram = new TreeMap<>();
+        boolean[] found = {false};
+
+        reconcileLock.lock();
+        try {
+            jdbcTemplate.query("SELECT name, value FROM kg.graph_statistics", rs -> {
+                String name = rs.getString("name");
+                long value = rs.getLong("value");
+                found[0] = true;
+                if (slots.containsKey(name)) {
+                    base.set(slots.get(name), value);
+                } else if (name.startsWith(HISTOGRAM_PREFIX)) {
+                    histogram.put(Integer.parseInt(name.substring(HISTOGRAM_PREFIX.length())), value);
+                } else if (RECONCILED_AT.equals(name)) {
+                    reconciledAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(value), ZoneId.systemDefault());
+                }
+            });
+            degreeHistogram = Collections.unmodifiableSortedMap(histogram);
+        } finally {
+            reconcileLock.unlock();
+        }
+        return found[0];
+    }
+
+    /**
+     * Add to a counter when the current transaction commits, or right away outside transactions
+     */
+    private void add(int slot, long count) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending()[slot] += count;
+        } else {
+            delta[slot].add(count);
+            changed.set(true);
+        }
+    }
+
+    /**
+     * Changes of the current transaction, bound to it as a resource and applied in one go on commit
+     */
+    private long[] pending() {
+        long[] pending = (long[]) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            long[] created = new long[SLOT_COUNT];
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(GraphStatisticsService.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private void apply(long[] pending) {
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (pending[slot] != 0) {
+                delta[slot].add(pending[slot]);
+                changed.set(true);
+            }
+        }
+    }
+
+    private static String slotName(int slot) {
+        if (slot < EDGE_SLOTS) {
+            return "nodes." + NODE_TYPES[slot - NODE_SLOTS].name();
+        } else if (slot < OUT_DEGREE_SLOTS) {
+            return "edges." + EDGE_TYPES[slot - EDGE_SLOTS].name();
+        } else if (slot < IN_DEGREE_SLOTS) {
+            return "out_degree." + NODE_TYPES[slot - OUT_DEGREE_SLOTS].name();
+        }
+        return "in_degree." + NODE_TYPES[slot - IN_DEGREE_SLOTS].name();
+    }
+
+    private static String bucketLabel(int bucket) {
+        if (bucket <= 1) {
+            return Integer.toString(bucket);
+        }
+        return (1L << (bucket - 1)) + "-" + ((1L << bucket) - 1);
+    }
+
+    /**
+     * Read (type, count) rows into the slots starting at offset; unknown type names are skipped
+     */
+    private void countByType(String sql, Enum<?>[] types, int offset, long[] counted) {
+        Map<String, Integer> ordinals = new HashMap<>();
+        Arrays.stream(types).forEach(type -> ordinals.put(type.name(), type.ordinal()));
+        jdbcTemplate.query(sql, rs -> {
+            Integer ordinal = ordinals.get(rs.getString("type"));
+            if (ordinal != null) {
+                counted[offset + ordinal] = rs.getLong("count");
+            }
+        });
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[SLOT_COUNT];
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            adders[slot] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -1,7 +1,14 @@
 package com.knowledgegraph.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
 import com.knowledgegraph.dto.GraphNeighborhoodDTO;
+import com.knowledgegraph.dto.NeighborhoodQuery;
+import com.knowledgegraph.dto.WeightedPathDTO;
+import com.knowledgegraph.graph.*;
 import com.knowledgegraph.model.Edge;
+import com.knowledgegraph.model.EdgeType;
 import com.knowledgegraph.model.Node;
 import com.knowledgegraph.repository.EdgeRepository;
 import com.knowledgegraph.repository.NodeRepository;
@@ -9,10 +16,20 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -22,82 +39,692 @@ import java.util.stream.Stream;
 @Transactional(readOnly = true)
 public class GraphTraversalService {
     
+    /**
+     * Breadth-first expansion over kg.edges in both directions. Nodes get their minimum hop level;
+     * an edge is included when at least one endpoint was expanded (hop below the limit) and is
+     * labelled with the hop at which it was first reached. Parameters: center, maxHops, maxHops.
+     */
+    private static final String NEIGHBORHOOD_SQL = """
+        WITH RECURSIVE reach(node_id, hop) AS (
+            SELECT CAST(? AS uuid), 0
+            UNION
+            SELECT n.neighbor_id, r.hop + 1
+            FROM reach r
+            CROSS JOIN LATERAL (
+                SELECT e.target_id AS neighbor_id FROM kg.edges e WHERE e.source_id = r.node_id
+                UNION ALL
+                SELECT e.source_id FROM kg.edges e WHERE e.target_id = r.node_id
+            ) n
+            WHERE r.hop < ?
+        ),
+        levels AS (
+            SELECT node_id, MIN(hop) AS hop FROM reach GROUP BY node_id
+        )
+        SELECT 'N' AS kind, l.node_id AS id, NULL::uuid AS source_id, NULL::uuid AS target_id,
+               NULL AS type, NULL AS properties, l.hop
+        FROM levels l
+        UNION ALL
+        SELECT 'E', e.id, e.source_id, e.target_id, e.type, e.properties::text,
+               LEAST(s.hop, t.hop) + 1
+        FROM kg.edges e
+        JOIN levels s ON s.node_id = e.source_id
+        JOIN levels t ON t.node_id = e.target_id
+        WHERE LEAST(s.hop, t.hop) < ?
+        ORDER BY kind DESC, hop
+        """;
+    
+    /**
+     * {@link #NEIGHBORHOOD_SQL} over the edges valid at an instant.
+     * Parameters: instant, center, maxHops, maxHops.
+     */
+    private static final String NEIGHBORHOOD_AT_SQL = """
+        WITH RECURSIVE params AS (
+            SELECT ?::timestamptz AS as_of
+        ),
+        reach(node_id, hop) AS (
+            SELECT CAST(? AS uuid), 0
+            UNION
+            SELECT n.neighbor_id, r.hop + 1
+            FROM reach r
+            CROSS JOIN params p
+            CROSS JOIN LATERAL (
+                SELECT e.target_id AS neighbor_id FROM kg.edges_at(p.as_of) e WHERE e.source_id = r.node_id
+                UNION ALL
+                SELECT e.source_id FROM kg.edges_at(p.as_of) e WHERE e.target_id = r.node_id
+            ) n
+            WHERE r.hop < ?
+        ),
+        levels AS (
+            SELECT node_id, MIN(hop) AS hop FROM reach GROUP BY node_id
+        )
+        SELECT 'N' AS kind, l.node_id AS id, NULL::uuid AS source_id, NULL::uuid AS target_id,
+               NULL AS type, NULL AS properties, l.hop
+        FROM levels l
+        UNION ALL
+        SELECT 'E', e.id, e.source_id, e.target_id, e.type, e.properties::text,
+               LEAST(s.hop, t.hop) + 1
+        FROM params p
+        CROSS JOIN kg.edges_at(p.as_of) e
+        JOIN levels s ON s.node_id = e.source_id
+        JOIN levels t ON t.node_id = e.target_id
+        WHERE LEAST(s.hop, t.hop) < ?
+        ORDER BY kind DESC, hop
+        """;
+    
+    /**
+     * Candidate edges of a whole frontier in both directions, filtered by edge and neighbor type and
+     * ranked per frontier node. Returns at most fan-out rows per node, with the node's candidate count,
+     * ordered by rank so the node budget is shared across the frontier. Format argument: score
+     * expression. Parameters: frontier, edge ids already in the result, included and excluded edge
+     * types, included and excluded node types, supernodes in the frontier, their fan-out, fan-out.
+     */
+    private static final String FRONTIER_CANDIDATES_SQL = """
+        WITH params AS (
+            SELECT ?::uuid[] AS frontier, ?::uuid[] AS recorded,
+                   ?::text[] AS edge_types, ?::text[] AS exclude_edge_types,
+                   ?::text[] AS node_types, ?::text[] AS exclude_node_types
+        ),
+        adjacent AS (
+            SELECT f.node_id, e.target_id AS neighbor_id, e.id, e.source_id, e.target_id, e.type, e.properties
+            FROM params p
+            CROSS JOIN unnest(p.frontier) AS f(node_id)
+            JOIN kg.edges e ON e.source_id = f.node_id
+            UNION ALL
+            SELECT f.node_id, e.source_id, e.id, e.source_id, e.target_id, e.type, e.properties
+            FROM params p
+            CROSS JOIN unnest(p.frontier) AS f(node_id)
+            JOIN kg.edges e ON e.target_id = f.node_id
+        ),
+        candidates AS (
+            SELECT a.*, %s AS score
+            FROM adjacent a
+            CROSS JOIN params p
+            JOIN kg.nodes n ON n.id = a.neighbor_id
+            WHERE NOT (a.id = ANY(p.recorded))
+              AND (cardinality(p.edge_types) = 0 OR a.type::text = ANY(p.edge_types))
+              AND NOT (a.type::text = ANY(p.exclude_edge_types))
+              AND (cardinality(p.node_types) = 0 OR n.type::text = ANY(p.node_types))
+              AND NOT (n.type::text = ANY(p.exclude_node_types))
+        ),
+        ranked AS (
+            SELECT c.*,
+                   ROW_NUMBER() OVER (PARTITION BY c.node_id ORDER BY c.score DESC, c.id) AS rank,
+                   COUNT(*) OVER (PARTITION BY c.node_id) AS candidates
+            FROM candidates c
+        )
+        SELECT node_id, neighbor_id, id, source_id, target_id, type, properties::text AS properties, candidates
+        FROM ranked
+        WHERE rank <= CASE WHEN node_id = ANY(?::uuid[]) THEN ? ELSE ? END
+        ORDER BY rank, score DESC
+        """;
+    
+    /**
+     * {@link #FRONTIER_CANDIDATES_SQL} over the nodes and edges valid at an instant. Format argument:
+     * score expression over the params CTE. Parameters: instant, then those of the current query.
+     */
+    private static final String FRONTIER_CANDIDATES_AT_SQL = """
+        WITH params AS (
+            SELECT ?::timestamptz AS as_of, ?::uuid[] AS frontier, ?::uuid[] AS recorded,
+                   ?::text[] AS edge_types, ?::text[] AS exclude_edge_types,
+                   ?::text[] AS node_types, ?::text[] AS exclude_node_types
+        ),
+        adjacent AS (
+            SELECT f.node_id, e.target_id AS neighbor_id, e.id, e.source_id, e.target_id, e.type, e.properties
+            FROM params p
+            CROSS JOIN unnest(p.frontier) AS f(node_id)
+            JOIN kg.edges_at(p.as_of) e ON e.source_id = f.node_id
+            UNION ALL
+            SELECT f.node_id, e.source_id, e.id, e.source_id, e.target_id, e.type, e.properties
+            FROM params p
+            CROSS JOIN unnest(p.frontier) AS f(node_id)
+            JOIN kg.edges_at(p.as_of) e ON e.target_id = f.node_id
+        ),
+        candidates AS (
+            SELECT a.*, %s AS score
+            FROM adjacent a
+            CROSS JOIN params p
+            JOIN kg.nodes_at(p.as_of) n ON n.id = a.neighbor_id
+            WHERE NOT (a.id = ANY(p.recorded))
+              AND (cardinality(p.edge_types) = 0 OR a.type::text = ANY(p.edge_types))
+              AND NOT (a.type::text = ANY(p.exclude_edge_types))
+              AND (cardinality(p.node_types) = 0 OR n.type::text = ANY(p.node_types))
+              AND NOT (n.type::text = ANY(p.exclude_node_types))
+        ),
+        ranked AS (
+            SELECT c.*,
+                   ROW_NUMBER() OVER (PARTITION BY c.node_id ORDER BY c.score DESC, c.id) AS rank,
+                   COUNT(*) OVER (PARTITION BY c.node_id) AS candidates
+            FROM candidates c
+        )
+        SELECT node_id, neighbor_id, id, source_id, target_id, type, properties::text AS properties, candidates
+        FROM ranked
+        WHERE rank <= CASE WHEN node_id = ANY(?::uuid[]) THEN ? ELSE ? END
+        ORDER BY rank, score DESC
+        """;
+    
+    /**
+     * Edges with both endpoints in a node set. The set is unnested once and probed as a hashed
+     * semi-join on each side, which stays linear for large sets where = ANY(array) would compare
+     * every row against the whole array. Parameter: node id array.
+     */
+    private static final String SUBGRAPH_EDGES_SQL = """
+        WITH members AS (
+            SELECT unnest(?::uuid[]) AS id
+        )
+        SELECT e.id, e.source_id, e.target_id, e.type, e.properties::text AS properties
+        FROM kg.edges e
+        WHERE e.source_id IN (SELECT id FROM members)
+          AND e.target_id IN (SELECT id FROM members)
+        """;
+    
+    /**
+     * Node payloads for a node set. Parameter: node id array.
+     */
+    private static final String SUBGRAPH_NODES_SQL = """
+        SELECT n.id, n.type, n.name, n.properties::text AS properties
+        FROM kg.nodes n
+        WHERE n.id IN (SELECT unnest(?::uuid[]))
+        """;
+    
+    /**
+     * Neighbors of a whole frontier in both edge directions. Parameters: frontier array (twice).
+     */
+    private static final String FRONTIER_ADJACENCY_SQL = """
+        SELECT source_id AS node_id, target_id AS neighbor_id FROM kg.edges WHERE source_id = ANY(?)
+        UNION ALL
+        SELECT target_id, source_id FROM kg.edges WHERE target_id = ANY(?)
+        """;
+    
+    /**
+     * {@link #FRONTIER_ADJACENCY_SQL} over the edges valid at an instant.
+     * Parameters: instant, frontier array, instant, frontier array.
+     */
+    private static final String FRONTIER_ADJACENCY_AT_SQL = """
+        SELECT source_id AS node_id, target_id AS neighbor_id FROM kg.edges_at(?::timestamptz) WHERE source_id = ANY(?)
+        UNION ALL
+        SELECT target_id, source_id FROM kg.edges_at(?::timestamptz) WHERE target_id = ANY(?)
+        """;
+    
+    /**
+     * First text embedding vector per node, as pgvector text. Parameter: node id array.
+     */
+    private static final String NODE_VECTORS_SQL = """
+        SELECT DISTINCT ON (node_id) node_id, vector::text AS vector
+        FROM kg.embeddings
+        WHERE node_id = ANY(?) AND vector IS NOT NULL AND model_version <> 'structural-node2vec'
+        ORDER BY node_id, created_at
+        """;
+    
     private final NodeRepository nodeRepository;
     private final EdgeRepository edgeRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final GraphSnapshotService graphSnapshotService;
+    private final GraphConfig graphConfig;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final NeighborhoodCacheIndex neighborhoodCacheIndex;
+    private final GraphHistoryService graphHistoryService;
+    private final SupernodeService supernodeService;
+    private final CompressedGraphService compressedGraphService;
     
     /**
-     * Get n-hop neighborhood for a node
+     * Get n-hop neighborhood for a node, limited by a per-node fan-out cap, edge and node type
+     * filters and a total node budget. Neighbors left out by a cap are counted, not silently lost.
+     * Without a fanOut, supernodes are still capped at graph.supernodes.default-fan-out.
+     * With asOf set, the expansion runs in the database over the graph as it was at that instant.
      */
-    @Cacheable(value = "neighborhoods", key = "#nodeId + '_' + #maxHops")
-    public GraphNeighborhoodDTO getNeighborhood(UUID nodeId, int maxHops) {
-        log.debug("Getting {}-hop neighborhood for node: {}", maxHops, nodeId);
+    @Cacheable(value = NeighborhoodCacheIndex.CACHE_NAME, key = "#query.cacheKey(#nodeId)")
+    public GraphNeighborhoodDTO getNeighborhood(UUID nodeId, NeighborhoodQuery query) {
+        log.debug("Getting {}-hop neighborhood for node: {}", query.getHops(), nodeId);
         
-        if (maxHops < 1 || maxHops > 3) {
-            throw new IllegalArgumentException("Hops must be between 1 and 3");
+        int maxNodes = validateQuery(query);
+        List<UUID> seeds = List.of(nodeId);
+        GraphNeighborhoodDTO neighborhood = (query.getAsOf() == null ? inSnapshot(nodeId) : Optional.<GraphSnapshot>empty())
+            .map(snapshot -> getNeighborhoodInMemory(snapshot, seeds, query, maxNodes))
+            .orElseGet(() -> query.getFanOut() == null && !query.hasFilters() && !supernodeService.hasSupernodes()
+                ? getNeighborhoodFromDatabase(nodeId, query.getHops(), maxNodes, query.getAsOf())
+                : getNeighborhoodByFrontier(seeds, query, maxNodes));
+        
+        // Index before the result is cached, so a change committed meanwhile still finds the entry
+        neighborhoodCacheIndex.register(query.cacheKey(nodeId), query, neighborhood);
+        return neighborhood;
+    }
+    
+    /**
+     * Merged neighborhood of several seed nodes from one multi-source BFS. All seeds start at
+     * hop 0, so a node shared by several neighborhoods is expanded once, at its smallest hop
+     * distance, and tagged with the seed it was first reached from. Caps, filters and the node
+     * budget apply to the merged graph as in {@link #getNeighborhood(UUID, NeighborhoodQuery)}.
+     * Not cached: seed sets rarely repeat.
+     */
+    public GraphNeighborhoodDTO getNeighborhood(Collection<UUID> seedIds, NeighborhoodQuery query) {
+        int maxSeeds = graphConfig.getTraversal().getMaxSeeds();
+        if (seedIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Seed node IDs must not be null");
+        }
+        List<UUID> seeds = new ArrayList<>(new LinkedHashSet<>(seedIds));
+        if (seeds.isEmpty() || seeds.size() > maxSeeds) {
+            throw new IllegalArgumentException("Seed count must be between 1 and " + maxSeeds);
+        }
+        int maxNodes = validateQuery(query);
+        if (seeds.size() > maxNodes) {
+            throw new IllegalArgumentException("maxNodes must be at least the number of seeds");
         }
+        log.debug("Getting {}-hop neighborhood for {} seeds", query.getHops(), seeds.size());
         
-        Set<UUID> visitedNodes = new HashSet<>();
-        Set<UUID> visitedEdges = new HashSet<>();
-        Map<UUID, Integer> nodeHopLevels = new HashMap<>();
-        List<GraphNeighborhoodDTO.GraphNode> nodes = new ArrayList<>();
-        List<GraphNeighborhoodDTO.GraphEdge> edges = new ArrayList<>();
+        Optional<GraphSnapshot> snapshot = query.getAsOf() == null
+            ? graphSnapshotService.current().filter(s -> seeds.stream().allMatch(seed -> s.indexOf(seed) >= 0))
+            : Optional.empty();
+        return snapshot
+            .map(s -> getNeighborhoodInMemory(s, seeds, query, maxNodes))
+            .orElseGet(() -> getNeighborhoodByFrontier(seeds, query, maxNodes));
+    }
+    
+    /**
+     * Check hops and fanOut against the traversal limits and return the effective node budget
+     */
+    private int validateQuery(NeighborhoodQuery query) {
+        GraphConfig.Traversal limits = graphConfig.getTraversal();
+        if (query.getHops() < 1 || query.getHops() > limits.getMaxHops()) {
+            throw new IllegalArgumentException("Hops must be between 1 and " + limits.getMaxHops());
+        }
+        if (query.getFanOut() != null && query.getFanOut() < 1) {
+            throw new IllegalArgumentException("fanOut must be at least 1");
+        }
+        int maxNodes = Optional.ofNullable(query.getMaxNodes()).orElse(limits.getMaxNodes());
+        if (maxNodes < 1 || maxNodes > limits.getMaxNodes()) {
+            throw new IllegalArgumentException("maxNodes must be between 1 and " + limits.getMaxNodes());
+        }
+        return maxNodes;
+    }
+    
+    /**
+     * Neighborhood BFS over the CSR snapshot; only the final node and edge payloads hit the database.
+     *
+     * Per level, each frontier node's unrecorded edges are filtered by type and cut to the best
+     * fanOut by score. The kept edges of all frontier nodes are then taken round-robin by rank,
+     * so the node budget is spread over the frontier instead of going to whichever node comes first.
+     * With several seeds, each reached node inherits the seed of the frontier node it came from.
+     */
+    private GraphNeighborhoodDTO getNeighborhoodInMemory(GraphSnapshot snapshot, List<UUID> seeds,
+                                                         NeighborhoodQuery query, int maxNodes) {
+        int fanOut = Optional.ofNullable(query.getFanOut()).orElse(Integer.MAX_VALUE);
+        int hubFanOut = query.getFanOut() == null ? graphConfig.getSupernodes().getDefaultFanOut() : fanOut;
         
-        // Start with the center node
-        Node centerNode = nodeRepository.findById(nodeId)
-            .orElseThrow(() -> new IllegalArgumentException("Node not found: " + nodeId));
+        IntIntHashMap nodeHops = new IntIntHashMap();
+        IntIntHashMap nodeSeeds = new IntIntHashMap();  // node -> index of its nearest seed
+        IntIntHashMap edgeHops = new IntIntHashMap();
+        IntIntHashMap hiddenEdges = new IntIntHashMap();
+        IntList nodeOrder = new IntList();
+        IntList edgeOrder = new IntList();
+        long truncatedByFanOut = 0;
+        long truncatedByBudget = 0;
         
-        visitedNodes.add(nodeId);
-        nodeHopLevels.put(nodeId, 0);
-        nodes.add(convertToGraphNode(centerNode, 0));
+        IntList currentLevel = new IntList();
+        for (int s = 0; s < seeds.size(); s++) {
+            int seed = snapshot.indexOf(seeds.get(s));
+            nodeHops.put(seed, 0);
+            nodeSeeds.put(seed, s);
+            nodeOrder.add(seed);
+            currentLevel.add(seed);
+        }
         
-        // Traverse hop by hop
-        Set<UUID> currentLevel = new HashSet<>();
-        currentLevel.add(nodeId);
+        IntList candidates = new IntList();         // (edge, neighbor) pairs of one frontier node
+        DoubleMinHeap best = new DoubleMinHeap();
         
-        for (int hop = 1; hop <= maxHops; hop++) {
-            Set<UUID> nextLevel = new HashSet<>();
+        for (int hop = 1; hop <= query.getHops() && !currentLevel.isEmpty(); hop++) {
+            // Kept (edge, neighbor) pairs of every frontier node, best first, at keptStart[i]..keptStart[i + 1]
+            IntList kept = new IntList();
+            int[] keptStart = new int[currentLevel.size() + 1];
             
-            for (UUID currentNodeId : currentLevel) {
-                // Get outgoing edges
-                List<Edge> outgoing = edgeRepository.findBySourceId(currentNodeId);
-                for (Edge edge : outgoing) {
-                    if (!visitedEdges.contains(edge.getId())) {
-                        visitedEdges.add(edge.getId());
-                        edges.add(convertToGraphEdge(edge, hop));
-                        
-                        if (!visitedNodes.contains(edge.getTarget().getId())) {
-                            visitedNodes.add(edge.getTarget().getId());
-                            nodeHopLevels.put(edge.getTarget().getId(), hop);
-                            nodes.add(convertToGraphNode(edge.getTarget(), hop));
-                            nextLevel.add(edge.getTarget().getId());
-                        }
+            for (int i = 0; i < currentLevel.size(); i++) {
+                int current = currentLevel.get(i);
+                int cap = supernodeService.isSupernode(snapshot.nodeId(current)) ? hubFanOut : fanOut;
+                keptStart[i] = kept.size();
+                
+                candidates.clear();
+                for (int j = snapshot.outStart(current); j < snapshot.outEnd(current); j++) {
+                    addCandidate(snapshot, query, edgeHops, snapshot.outEdge(j), snapshot.outNeighbor(j), candidates);
+                }
+                for (int j = snapshot.inStart(current); j < snapshot.inEnd(current); j++) {
+                    addCandidate(snapshot, query, edgeHops, snapshot.inEdge(j), snapshot.inNeighbor(j), candidates);
+                }
+                
+                int count = candidates.size() / 2;
+                if (count <= cap) {
+                    for (int c = 0; c < candidates.size(); c++) {
+                        kept.add(candidates.get(c));
                     }
+                    continue;
                 }
                 
-                // Get incoming edges
-                List<Edge> incoming = edgeRepository.findByTargetId(currentNodeId);
-                for (Edge edge : incoming) {
-                    if (!visitedEdges.contains(edge.getId())) {
-                        visitedEdges.add(edge.getId());
-                        edges.add(convertToGraphEdge(edge, hop));
-                        
-                        if (!visitedNodes.contains(edge.getSource().getId())) {
-                            visitedNodes.add(edge.getSource().getId());
-                            nodeHopLevels.put(edge.getSource().getId(), hop);
-                            nodes.add(convertToGraphNode(edge.getSource(), hop));
-                            nextLevel.add(edge.getSource().getId());
+                truncatedByFanOut += count - cap;
+                hiddenEdges.put(current, hiddenEdges.get(current, 0) + count - cap);
+                
+                best.clear();
+                for (int c = 0; c < count; c++) {
+                    best.push(c, neighborScore(snapshot, query.getRankBy(),
+                        candidates.get(2 * c), candidates.get(2 * c + 1)));
+                    if (best.size() > cap) {
+                        best.pop();
+                    }
+                }
+                // The heap pops worst first; fill the slice from the back
+                int base = kept.size();
+                for (int c = 0; c < 2 * cap; c++) {
+                    kept.add(0);
+                }
+                for (int slot = cap - 1; slot >= 0; slot--) {
+                    int c = best.pop();
+                    kept.set(base + 2 * slot, candidates.get(2 * c));
+                    kept.set(base + 2 * slot + 1, candidates.get(2 * c + 1));
+                }
+            }
+            keptStart[currentLevel.size()] = kept.size();
+            
+            IntList nextLevel = new IntList();
+            IntList active = new IntList();
+            for (int i = 0; i < currentLevel.size(); i++) {
+                if (keptStart[i] < keptStart[i + 1]) {
+                    active.add(i);
+                }
+            }
+            for (int rank = 0; !active.isEmpty(); rank++) {
+                IntList stillActive = new IntList();
+                for (int a = 0; a < active.size(); a++) {
+                    int i = active.get(a);
+                    int offset = keptStart[i] + 2 * rank;
+                    int edge = kept.get(offset);
+                    int neighbor = kept.get(offset + 1);
+                    if (offset + 2 < keptStart[i + 1]) {
+                        stillActive.add(i);
+                    }
+                    
+                    if (edgeHops.containsKey(edge)) {
+                        continue;
+                    }
+                    if (!nodeHops.containsKey(neighbor)) {
+                        if (nodeOrder.size() >= maxNodes) {
+                            truncatedByBudget++;
+                            int current = currentLevel.get(i);
+                            hiddenEdges.put(current, hiddenEdges.get(current, 0) + 1);
+                            continue;
                         }
+                        nodeHops.put(neighbor, hop);
+                        nodeSeeds.put(neighbor, nodeSeeds.get(currentLevel.get(i), 0));
+                        nodeOrder.add(neighbor);
+                        nextLevel.add(neighbor);
                     }
+                    edgeHops.put(edge, hop);
+                    edgeOrder.add(edge);
                 }
+                active = stillActive;
             }
             
             currentLevel = nextLevel;
-            if (currentLevel.isEmpty()) {
-                break; // No more nodes to explore
+        }
+        
+        // Resolve payloads for the final result only
+        Map<UUID, Node> nodesById = nodeRepository.findAllById(toNodeIds(snapshot, nodeOrder)).stream()
+            .collect(Collectors.toMap(Node::getId, node -> node));
+        Map<UUID, Edge> edgesById = edgeRepository.findAllById(toEdgeIds(snapshot, edgeOrder)).stream()
+            .collect(Collectors.toMap(Edge::getId, edge -> edge));
+        
+        List<GraphNeighborhoodDTO.GraphNode> nodes = new ArrayList<>(nodeOrder.size());
+        for (int i = 0; i < nodeOrder.size(); i++) {
+            int node = nodeOrder.get(i);
+            UUID nearestSeed = seeds.size() > 1 ? seeds.get(nodeSeeds.get(node, 0)) : null;
+            Optional.ofNullable(nodesById.get(snapshot.nodeId(node)))
+                .ifPresent(entity -> nodes.add(convertToGraphNode(entity, nodeHops.get(node, 0),
+                    hiddenEdges.containsKey(node) ? hiddenEdges.get(node, 0) : null, nearestSeed)));
+        }
+        
+        List<GraphNeighborhoodDTO.GraphEdge> edges = new ArrayList<>(edgeOrder.size());
+        for (int i = 0; i < edgeOrder.size(); i++) {
+            int edge = edgeOrder.get(i);
+            Optional.ofNullable(edgesById.get(snapshot.edgeId(edge)))
+                .ifPresent(entity -> edges.add(convertToGraphEdge(entity, edgeHops.get(edge, 0))));
+        }
+        
+        return buildNeighborhood(seeds, query.getHops(), nodes, edges, truncatedByFanOut, truncatedByBudget);
+    }
+    
+    /**
+     * Queue an edge as a candidate unless it is already in the result or filtered out by type
+     */
+    private void addCandidate(GraphSnapshot snapshot, NeighborhoodQuery query, IntIntHashMap edgeHops,
+                              int edge, int neighbor, IntList candidates) {
+        if (edgeHops.containsKey(edge)
+                || !query.allowsEdge(snapshot.edgeType(edge))
+                || !query.allowsNode(snapshot.nodeType(neighbor))) {
+            return;
+        }
+        candidates.add(edge);
+        candidates.add(neighbor);
+    }
+    
+    private double neighborScore(GraphSnapshot snapshot, NeighborRanking rankBy, int edge, int neighbor) {
+        return switch (rankBy) {
+            case CONFIDENCE -> snapshot.edgeConfidence(edge);
+            case DEGREE -> snapshot.degree(neighbor);
+        };
+    }
+    
+    /**
+     * Neighborhood expansion in a single recursive query, followed by one batch load of node payloads.
+     * Used when only the node budget applies and no supernode needs capping; rows arrive by hop, so
+     * the budget keeps the closest nodes.
+     */
+    private GraphNeighborhoodDTO getNeighborhoodFromDatabase(UUID nodeId, int maxHops, int maxNodes, Instant asOf) {
+        Map<UUID, Integer> nodeHopLevels = new LinkedHashMap<>();
+        List<GraphNeighborhoodDTO.GraphEdge> reached = new ArrayList<>();
+        
+        RowCallbackHandler collect = rs -> {
+            UUID id = rs.getObject("id", UUID.class);
+            int hop = rs.getInt("hop");
+            if ("N".equals(rs.getString("kind"))) {
+                if (nodeHopLevels.size() < maxNodes) {
+                    nodeHopLevels.put(id, hop);
+                }
+            } else {
+                reached.add(GraphNeighborhoodDTO.GraphEdge.builder()
+                    .id(id)
+                    .sourceId(rs.getObject("source_id", UUID.class))
+                    .targetId(rs.getObject("target_id", UUID.class))
+                    .type(rs.getString("type"))
+                    .properties(parseProperties(rs.getString("properties")))
+                    .hopLevel(hop)
+                    .build());
+            }
+        };
+        if (asOf == null) {
+            jdbcTemplate.query(NEIGHBORHOOD_SQL, collect, nodeId, maxHops, maxHops);
+        } else {
+            graphHistoryService.requireRetained(asOf);
+            jdbcTemplate.query(NEIGHBORHOOD_AT_SQL, collect, Timestamp.from(asOf), nodeId, maxHops, maxHops);
+        }
+        
+        // Edges to nodes cut by the budget are counted against the endpoint that was kept
+        List<GraphNeighborhoodDTO.GraphEdge> edges = new ArrayList<>(reached.size());
+        Map<UUID, Integer> hiddenEdges = new HashMap<>();
+        long truncatedByBudget = 0;
+        for (GraphNeighborhoodDTO.GraphEdge edge : reached) {
+            boolean sourceKept = nodeHopLevels.containsKey(edge.getSourceId());
+            boolean targetKept = nodeHopLevels.containsKey(edge.getTargetId());
+            if (sourceKept && targetKept) {
+                edges.add(edge);
+            } else if (sourceKept || targetKept) {
+                truncatedByBudget++;
+                hiddenEdges.merge(sourceKept ? edge.getSourceId() : edge.getTargetId(), 1, Integer::sum);
             }
         }
         
+        return assembleNeighborhood(List.of(nodeId), maxHops, nodeHopLevels, Map.of(), edges, hiddenEdges,
+            0, truncatedByBudget, asOf);
+    }
+    
+    /**
+     * Hop-by-hop expansion against the database with filters and fan-out ranking pushed into one
+     * query per level, so hub adjacency never leaves the database in full. Several seeds share one
+     * frontier, and each reached node inherits the seed of the frontier node it came from.
+     */
+    private GraphNeighborhoodDTO getNeighborhoodByFrontier(List<UUID> seeds, NeighborhoodQuery query, int maxNodes) {
+        // As of an instant, or with several seeds, a missing seed shows when the node payloads are loaded
+        if (query.getAsOf() == null && seeds.size() == 1 && !nodeRepository.existsById(seeds.get(0))) {
+            throw new IllegalArgumentException("Node not found: " + seeds.get(0));
+        }
+        
+        Instant asOf = query.getAsOf();
+        if (asOf != null) {
+            graphHistoryService.requireRetained(asOf);
+        }
+        String sql = asOf == null
+            ? FRONTIER_CANDIDATES_SQL.formatted(scoreExpression(query.getRankBy()))
+            : FRONTIER_CANDIDATES_AT_SQL.formatted(scoreExpressionAt(query.getRankBy()));
+        int first = asOf == null ? 1 : 2;
+        int fanOut = Optional.ofNullable(query.getFanOut()).orElse(Integer.MAX_VALUE);
+        int hubFanOut = query.getFanOut() == null ? graphConfig.getSupernodes().getDefaultFanOut() : fanOut;
+        
+        Map<UUID, Integer> nodeHopLevels = new LinkedHashMap<>();
+        Map<UUID, UUID> nearestSeeds = new HashMap<>();
+        Map<UUID, GraphNeighborhoodDTO.GraphEdge> edgesById = new LinkedHashMap<>();
+        Map<UUID, Integer> hiddenEdges = new HashMap<>();
+        long[] truncated = new long[2]; // by fan-out, by budget
+        for (UUID seed : seeds) {
+            nodeHopLevels.put(seed, 0);
+            nearestSeeds.put(seed, seed);
+        }
+        
+        List<UUID> currentLevel = seeds;
+        for (int hop = 1; hop <= query.getHops() && !currentLevel.isEmpty(); hop++) {
+            int level = hop;
+            List<UUID> frontier = currentLevel;
+            Set<UUID> hubs = supernodeService.supernodesAmong(frontier);
+            List<UUID> nextLevel = new ArrayList<>();
+            Set<UUID> counted = new HashSet<>();
+            
+            jdbcTemplate.query(sql, ps -> {
+                if (asOf != null) {
+                    ps.setTimestamp(1, Timestamp.from(asOf));
+                }
+                ps.setArray(first, ps.getConnection().createArrayOf("uuid", frontier.toArray()));
+                ps.setArray(first + 1, ps.getConnection().createArrayOf("uuid", edgesById.keySet().toArray()));
+                ps.setArray(first + 2, ps.getConnection().createArrayOf("text", typeNames(query.getEdgeTypes())));
+                ps.setArray(first + 3, ps.getConnection().createArrayOf("text", typeNames(query.getExcludeEdgeTypes())));
+                ps.setArray(first + 4, ps.getConnection().createArrayOf("text", typeNames(query.getNodeTypes())));
+                ps.setArray(first + 5, ps.getConnection().createArrayOf("text", typeNames(query.getExcludeNodeTypes())));
+                ps.setArray(first + 6, ps.getConnection().createArrayOf("uuid", hubs.toArray()));
+                ps.setInt(first + 7, hubFanOut);
+                ps.setInt(first + 8, fanOut);
+            }, rs -> {
+                UUID current = rs.getObject("node_id", UUID.class);
+                long candidates = rs.getLong("candidates");
+                int cap = hubs.contains(current) ? hubFanOut : fanOut;
+                if (candidates > cap && counted.add(current)) {
+                    truncated[0] += candidates - cap;
+                    hiddenEdges.merge(current, (int) (candidates - cap), Integer::sum);
+                }
+                
+                UUID edgeId = rs.getObject("id", UUID.class);
+                if (edgesById.containsKey(edgeId)) {
+                    return;
+                }
+                UUID neighbor = rs.getObject("neighbor_id", UUID.class);
+                if (!nodeHopLevels.containsKey(neighbor)) {
+                    if (nodeHopLevels.size() >= maxNodes) {
+                        truncated[1]++;
+                        hiddenEdges.merge(current, 1, Integer::sum);
+                        return;
+                    }
+                    nodeHopLevels.put(neighbor, level);
+                    nearestSeeds.put(neighbor, nearestSeeds.get(current));
+                    nextLevel.add(neighbor);
+                }
+                edgesById.put(edgeId, GraphNeighborhoodDTO.GraphEdge.builder()
+                    .id(edgeId)
+                    .sourceId(rs.getObject("source_id", UUID.class))
+                    .targetId(rs.getObject("target_id", UUID.class))
+                    .type(rs.getString("type"))
+                    .properties(parseProperties(rs.getString("properties")))
+                    .hopLevel(level)
+                    .build());
+            });
+            
+            currentLevel = nextLevel;
+        }
+        
+        return assembleNeighborhood(seeds, query.getHops(), nodeHopLevels, seeds.size() > 1 ? nearestSeeds : Map.of(),
+            new ArrayList<>(edgesById.values()), hiddenEdges, truncated[0], truncated[1], asOf);
+    }
+    
+    /**
+     * SQL expression ranking a candidate row (alias a) for the fan-out cap; never user input
+     */
+    private static String scoreExpression(NeighborRanking rankBy) {
+        return switch (rankBy) {
+            case CONFIDENCE -> """
+                CASE WHEN jsonb_typeof(a.properties->'confidence') = 'number'
+                     THEN (a.properties->>'confidence')::float8 ELSE 1.0 END""";
+            case DEGREE -> """
+                (SELECT COUNT(*) FROM kg.edges d WHERE d.source_id = a.neighbor_id)
+                + (SELECT COUNT(*) FROM kg.edges d WHERE d.target_id = a.neighbor_id)""";
+        };
+    }
+    
+    /**
+     * {@link #scoreExpression} for {@link #FRONTIER_CANDIDATES_AT_SQL}, with degrees counted
+     * over the edges valid at the params CTE's instant
+     */
+    private static String scoreExpressionAt(NeighborRanking rankBy) {
+        return switch (rankBy) {
+            case CONFIDENCE -> scoreExpression(rankBy);
+            case DEGREE -> """
+                (SELECT COUNT(*) FROM kg.edges_at(p.as_of) d WHERE d.source_id = a.neighbor_id)
+                + (SELECT COUNT(*) FROM kg.edges_at(p.as_of) d WHERE d.target_id = a.neighbor_id)""";
+        };
+    }
+    
+    private static String[] typeNames(Set<? extends Enum<?>> types) {
+        return types == null ? new String[0] : types.stream().map(Enum::name).toArray(String[]::new);
+    }
+    
+    /**
+     * Load node payloads for database-side expansions, as of an instant if given, and assemble the
+     * DTO. Nodes are tagged with their nearest seed where one is given.
+     */
+    private GraphNeighborhoodDTO assembleNeighborhood(List<UUID> seeds, int maxHops, Map<UUID, Integer> nodeHopLevels,
+                                                      Map<UUID, UUID> nearestSeeds,
+                                                      List<GraphNeighborhoodDTO.GraphEdge> edges,
+                                                      Map<UUID, Integer> hiddenEdges,
+                                                      long truncatedByFanOut, long truncatedByBudget, Instant asOf) {
+        List<Node> loaded = asOf == null
+            ? nodeRepository.findAllById(nodeHopLevels.keySet())
+            : graphHistoryService.findNodesAt(nodeHopLevels.keySet(), asOf);
+        Map<UUID, Node> nodesById = loaded.stream()
+            .collect(Collectors.toMap(Node::getId, node -> node));
+        
+        List<UUID> missing = seeds.stream().filter(seed -> !nodesById.containsKey(seed)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException((missing.size() == 1 ? "Node not found: " : "Nodes not found: ")
+                + missing.stream().map(UUID::toString).collect(Collectors.joining(", ")));
+        }
+        
+        List<GraphNeighborhoodDTO.GraphNode> nodes = nodeHopLevels.entrySet().stream()
+            .filter(entry -> nodesById.containsKey(entry.getKey()))
+            .map(entry -> convertToGraphNode(nodesById.get(entry.getKey()), entry.getValue(),
+                hiddenEdges.get(entry.getKey()), nearestSeeds.get(entry.getKey())))
+            .collect(Collectors.toList());
+        
+        return buildNeighborhood(seeds, maxHops, nodes, edges, truncatedByFanOut, truncatedByBudget);
+    }
+    
+    /**
+     * Assemble the neighborhood DTO with per-hop counts. A single seed is reported as the center.
+     */
+    private GraphNeighborhoodDTO buildNeighborhood(List<UUID> seeds, int maxHops,
+                                                   List<GraphNeighborhoodDTO.GraphNode> nodes,
+                                                   List<GraphNeighborhoodDTO.GraphEdge> edges,
+                                                   long truncatedByFanOut, long truncatedByBudget) {
         // Calculate nodes per hop
         Map<Integer, Integer> nodesPerHop = nodes.stream()
             .collect(Collectors.groupingBy(
@@ -106,14 +733,18 @@ public class GraphTraversalService {
             ));
         
         return GraphNeighborhoodDTO.builder()
-            .centerNodeId(nodeId)
+            .centerNodeId(seeds.size() == 1 ? seeds.get(0) : null)
+            .seedIds(seeds.size() > 1 ? seeds : null)
             .requestedHops(maxHops)
-            .actualHops(nodesPerHop.size() - 1) // -1 for center node
+            .actualHops(nodesPerHop.size() - 1) // -1 for the seed level
             .nodes(nodes)
             .edges(edges)
             .nodesPerHop(nodesPerHop)
             .totalNodes((long) nodes.size())
             .totalEdges((long) edges.size())
+            .truncated(truncatedByFanOut + truncatedByBudget > 0)
+            .truncatedByFanOut(truncatedByFanOut)
+            .truncatedByBudget(truncatedByBudget)
             .build();
     }
     
@@ -121,67 +752,416 @@ public class GraphTraversalService {
      * Find shortest path between two nodes
      */
     public List<UUID> findShortestPath(UUID sourceId, UUID targetId, int maxHops) {
-        log.debug("Finding path from {} to {} (max {} hops)", sourceId, targetId, maxHops);
+        return findShortestPath(sourceId, targetId, maxHops, null);
+    }
+    
+    /**
+     * Find shortest path between two nodes over the edges valid at asOf, or the current edges if null
+     */
+    public List<UUID> findShortestPath(UUID sourceId, UUID targetId, int maxHops, Instant asOf) {
+        log.debug("Finding path from {} to {} (max {} hops, as of {})", sourceId, targetId, maxHops, asOf);
         
         if (sourceId.equals(targetId)) {
             return List.of(sourceId);
         }
+        if (asOf != null) {
+            graphHistoryService.requireRetained(asOf);
+            return findShortestPathFromDatabase(sourceId, targetId, maxHops, asOf);
+        }
         
-        // BFS to find shortest path
-        Queue<List<UUID>> queue = new LinkedList<>();
-        Set<UUID> visited = new HashSet<>();
+        return inNeighborGraph(sourceId, targetId)
+            .map(graph -> findShortestPathInMemory(graph, sourceId, targetId, maxHops))
+            .orElseGet(() -> findShortestPathFromDatabase(sourceId, targetId, maxHops, null));
+    }
+    
+    /**
+     * Bidirectional BFS over the snapshot or the compressed graph
+     */
+    private List<UUID> findShortestPathInMemory(NeighborGraph graph, UUID sourceId, UUID targetId, int maxHops) {
+        int[] path = BidirectionalBfs.shortestPath(
+            graph, graph.indexOf(sourceId), graph.indexOf(targetId), maxHops);
+        
+        return Arrays.stream(path)
+            .mapToObj(graph::nodeId)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Bidirectional BFS against the database, fetching each frontier's neighbors in one query,
+     * over the edges valid at asOf if given
+     */
+    private List<UUID> findShortestPathFromDatabase(UUID sourceId, UUID targetId, int maxHops, Instant asOf) {
+        Map<UUID, UUID> forwardParents = new HashMap<>();
+        Map<UUID, UUID> backwardParents = new HashMap<>();
+        forwardParents.put(sourceId, sourceId);
+        backwardParents.put(targetId, targetId);
         
-        queue.add(List.of(sourceId));
-        visited.add(sourceId);
+        Set<UUID> forwardFrontier = Set.of(sourceId);
+        Set<UUID> backwardFrontier = Set.of(targetId);
         
-        while (!queue.isEmpty() && queue.peek().size() <= maxHops) {
-            List<UUID> path = queue.poll();
-            UUID currentNode = path.get(path.size() - 1);
+        for (int depth = 0; depth < maxHops && !forwardFrontier.isEmpty() && !backwardFrontier.isEmpty(); depth++) {
+            boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+            Map<UUID, UUID> own = forward ? forwardParents : backwardParents;
+            Map<UUID, UUID> other = forward ? backwardParents : forwardParents;
             
-            // Get neighbors
-            List<UUID> neighbors = getNeighborIds(currentNode);
-            
-            for (UUID neighbor : neighbors) {
-                if (neighbor.equals(targetId)) {
-                    // Found the target
-                    List<UUID> completePath = new ArrayList<>(path);
-                    completePath.add(targetId);
-                    return completePath;
-                }
-                
-                if (!visited.contains(neighbor)) {
-                    visited.add(neighbor);
-                    List<UUID> newPath = new ArrayList<>(path);
-                    newPath.add(neighbor);
-                    queue.add(newPath);
+            Set<UUID> next = new HashSet<>();
+            UUID[] meeting = new UUID[1];
+            forEachAdjacentPair(asOf, forward ? forwardFrontier : backwardFrontier, (current, neighbor) -> {
+                if (meeting[0] == null && own.putIfAbsent(neighbor, current) == null) {
+                    if (other.containsKey(neighbor)) {
+                        meeting[0] = neighbor;
+                    }
+                    next.add(neighbor);
                 }
+            });
+            
+            if (meeting[0] != null) {
+                return joinPath(forwardParents, backwardParents, meeting[0]);
+            }
+            if (forward) {
+                forwardFrontier = next;
+            } else {
+                backwardFrontier = next;
             }
         }
         
         return Collections.emptyList(); // No path found
     }
     
+    /**
+     * Stream (frontier node, neighbor) pairs for a whole frontier, in both edge directions
+     */
+    private void forEachAdjacentPair(Instant asOf, Collection<UUID> frontier, BiConsumer<UUID, UUID> consumer) {
+        jdbcTemplate.query(asOf == null ? FRONTIER_ADJACENCY_SQL : FRONTIER_ADJACENCY_AT_SQL, ps -> {
+            Array ids = ps.getConnection().createArrayOf("uuid", frontier.toArray());
+            if (asOf == null) {
+                ps.setArray(1, ids);
+                ps.setArray(2, ids);
+            } else {
+                Timestamp instant = Timestamp.from(asOf);
+                ps.setTimestamp(1, instant);
+                ps.setArray(2, ids);
+                ps.setTimestamp(3, instant);
+                ps.setArray(4, ids);
+            }
+        }, rs -> {
+            consumer.accept(rs.getObject("node_id", UUID.class), rs.getObject("neighbor_id", UUID.class));
+        });
+    }
+    
+    /**
+     * Join the two predecessor chains at the meeting node into a source -> target path
+     */
+    private List<UUID> joinPath(Map<UUID, UUID> forwardParents, Map<UUID, UUID> backwardParents, UUID meeting) {
+        LinkedList<UUID> path = new LinkedList<>();
+        for (UUID node = meeting; ; node = forwardParents.get(node)) {
+            path.addFirst(node);
+            if (forwardParents.get(node).equals(node)) {
+                break;
+            }
+        }
+        for (UUID node = meeting; !backwardParents.get(node).equals(node); ) {
+            node = backwardParents.get(node);
+            path.addLast(node);
+        }
+        return new ArrayList<>(path);
+    }
+    
+    /**
+     * Find the cheapest path between two nodes under an edge cost model (Dijkstra, or A* guided
+     * by embedding distance to the target)
+     */
+    public WeightedPathDTO findWeightedPath(UUID sourceId, UUID targetId, PathCostMode mode, boolean useHeuristic) {
+        log.debug("Finding {} path from {} to {} (heuristic: {})", mode, sourceId, targetId, useHeuristic);
+        
+        GraphSnapshot snapshot = graphSnapshotService.require();
+        int source = requireIndex(snapshot, sourceId);
+        int target = requireIndex(snapshot, targetId);
+        
+        WeightedShortestPath.Heuristic heuristic = useHeuristic
+            ? embeddingHeuristic(targetId, minEdgeCost(mode))
+            : WeightedShortestPath.Heuristic.NONE;
+        
+        WeightedShortestPath.Result result = WeightedShortestPath.search(
+            snapshot, source, target, edgeCost(mode), heuristic,
+            graphConfig.getPaths().getMaxExpansions()
+        );
+        
+        return toPathDTO(snapshot, sourceId, targetId, mode, result, null);
+    }
+    
+    /**
+     * Validate a k-shortest-paths request and prepare the enumeration (Yen's algorithm). Paths are
+     * produced in order of increasing cost when the returned enumeration is streamed; it runs
+     * entirely against the snapshot, so no database connection is held while enumerating.
+     */
+    public PathEnumeration prepareKShortestPaths(UUID sourceId, UUID targetId, int k, PathCostMode mode,
+                                                 Set<EdgeType> edgeTypes, Integer maxLength) {
+        GraphConfig.Paths limits = graphConfig.getPaths();
+        if (k < 1 || k > limits.getMaxK()) {
+            throw new IllegalArgumentException("k must be between 1 and " + limits.getMaxK());
+        }
+        int lengthCap = Math.min(Optional.ofNullable(maxLength).orElse(limits.getMaxLength()), limits.getMaxLength());
+        
+        GraphSnapshot snapshot = graphSnapshotService.require();
+        int source = requireIndex(snapshot, sourceId);
+        int target = requireIndex(snapshot, targetId);
+        EdgeCost cost = edgeCost(mode).restrictedTo(edgeTypes);
+        
+        return sink -> {
+            KShortestPaths search = new KShortestPaths(snapshot, cost)
+                .maxLength(lengthCap)
+                .maxExpansions(limits.getMaxExpansions())
+                .timeout(limits.getTimeoutMs());
+            
+            int[] rank = {0};
+            KShortestPaths.Outcome outcome = search.find(source, target, k, result ->
+                sink.accept(toPathDTO(snapshot, sourceId, targetId, mode, result, ++rank[0])));
+            
+            log.debug("k-shortest paths {} -> {}: {} paths, outcome {}, {} expansions",
+                sourceId, targetId, rank[0], outcome, search.getExpansions());
+            
+            return Map.of(
+                "done", true,
+                "pathsFound", rank[0],
+                "outcome", outcome.name(),
+                "expandedNodes", search.getExpansions()
+            );
+        };
+    }
+    
+    /**
+     * Validate a regular path query and prepare it: walks from a node whose edge types, in
+     * order and direction, match a {@link PathExpression}. Each matching end node is streamed
+     * once with a shortest matching walk, nearest first; with a target only that node is sought.
+     * Runs against the snapshot, following only the edges the expression allows.
+     */
+    public PathEnumeration prepareRegularPaths(UUID sourceId, String expression, UUID targetId,
+                                               Integer limit, Integer maxLength) {
+        GraphConfig.Paths limits = graphConfig.getPaths();
+        int resultCap = Optional.ofNullable(limit).orElse(limits.getMaxRegularResults());
+        if (resultCap < 1 || resultCap > limits.getMaxRegularResults()) {
+            throw new IllegalArgumentException("limit must be between 1 and " + limits.getMaxRegularResults());
+        }
+        int lengthCap = Math.min(Optional.ofNullable(maxLength).orElse(limits.getMaxLength()), limits.getMaxLength());
+        PathExpression compiled = PathExpression.compile(expression, limits.getMaxAutomatonStates());
+        
+        GraphSnapshot snapshot = graphSnapshotService.require();
+        int source = requireIndex(snapshot, sourceId);
+        int target = targetId != null ? requireIndex(snapshot, targetId) : -1;
+        
+        return sink -> {
+            RegularPathSearch search = new RegularPathSearch(snapshot, compiled)
+                .maxLength(lengthCap)
+                .maxResults(resultCap)
+                .maxExpansions(limits.getMaxExpansions())
+                .timeout(limits.getTimeoutMs());
+            
+            int[] rank = {0};
+            RegularPathSearch.Outcome outcome = search.find(source, target, result -> {
+                UUID endId = snapshot.nodeId(result.getNodes()[result.getNodes().length - 1]);
+                sink.accept(toPathDTO(snapshot, sourceId, endId, PathCostMode.HOPS, result, ++rank[0]));
+            });
+            
+            log.debug("Regular paths {} from {}: {} matches, outcome {}, {} expansions, {} automaton states",
+                compiled, sourceId, rank[0], outcome, search.getExpansions(), compiled.stateCount());
+            
+            return Map.of(
+                "done", true,
+                "pathsFound", rank[0],
+                "outcome", outcome.name(),
+                "expandedNodes", search.getExpansions(),
+                "automatonStates", compiled.stateCount()
+            );
+        };
+    }
+    
+    /**
+     * A prepared path enumeration; streams paths to the sink and returns a summary
+     */
+    @FunctionalInterface
+    public interface PathEnumeration {
+        Map<String, Object> stream(Consumer<WeightedPathDTO> sink);
+    }
+    
+    /**
+     * Convert a dense-id path result into its DTO
+     */
+    private WeightedPathDTO toPathDTO(GraphSnapshot snapshot, UUID sourceId, UUID targetId, PathCostMode mode,
+                                      WeightedShortestPath.Result result, Integer rank) {
+        double confidence = Arrays.stream(result.getEdges())
+            .mapToDouble(snapshot::edgeConfidence)
+            .reduce(1.0, (a, b) -> a * b);
+        
+        return WeightedPathDTO.builder()
+            .from(sourceId)
+            .to(targetId)
+            .mode(mode.name())
+            .rank(rank)
+            .found(result.isFound())
+            .path(Arrays.stream(result.getNodes()).mapToObj(snapshot::nodeId).collect(Collectors.toList()))
+            .edgeIds(Arrays.stream(result.getEdges()).mapToObj(snapshot::edgeId).collect(Collectors.toList()))
+            .edgeTypes(Arrays.stream(result.getEdges())
+                .mapToObj(edge -> Optional.ofNullable(snapshot.edgeType(edge)).map(Enum::name).orElse(null))
+                .collect(Collectors.toList()))
+            .cost(result.isFound() ? result.getCost() : null)
+            .confidence(result.isFound() ? confidence : null)
+            .expandedNodes(result.getExpandedNodes())
+            .truncated(result.isTruncated())
+            .build();
+    }
+    
+    /**
+     * Edge cost function for a path mode
+     */
+    private EdgeCost edgeCost(PathCostMode mode) {
+        return switch (mode) {
+            case HOPS -> EdgeCost.unit();
+            case CONFIDENCE -> EdgeCost.confidence();
+            case EDGE_TYPE -> EdgeCost.byType(
+                graphConfig.getPaths().getEdgeTypeCosts(),
+                graphConfig.getPaths().getDefaultEdgeCost()
+            );
+        };
+    }
+    
+    /**
+     * Cheapest possible edge under a path mode; 0 when some edge may be free
+     */
+    private double minEdgeCost(PathCostMode mode) {
+        GraphConfig.Paths paths = graphConfig.getPaths();
+        return switch (mode) {
+            case HOPS -> 1.0;
+            case CONFIDENCE -> 0.0;  // an edge with confidence 1 costs -ln(1) = 0
+            case EDGE_TYPE -> paths.getEdgeTypeCosts().values().stream()
+                .mapToDouble(Double::doubleValue)
+                .reduce(paths.getDefaultEdgeCost(), Math::min);
+        };
+    }
+    
+    /**
+     * A* heuristic from embedding distance to the target, scaled to the cheapest edge cost so the
+     * search stays exact. None if the target has no embedding or an edge may cost nothing, since
+     * then no positive estimate is a lower bound.
+     */
+    private WeightedShortestPath.Heuristic embeddingHeuristic(UUID targetId, double minEdgeCost) {
+        if (!(minEdgeCost > 0.0)) {
+            log.debug("Embedding heuristic disabled: cheapest edge cost is {}", minEdgeCost);
+            return WeightedShortestPath.Heuristic.NONE;
+        }
+        GraphConfig.Paths paths = graphConfig.getPaths();
+        return Optional.ofNullable(loadVectors(List.of(targetId)).get(targetId))
+            .<WeightedShortestPath.Heuristic>map(vector -> new EmbeddingHeuristic(
+                this::loadVectors, vector, paths.getHeuristicWeight(), minEdgeCost, paths.getHeuristicBatchSize()))
+            .orElse(WeightedShortestPath.Heuristic.NONE);
+    }
+    
+    /**
+     * Load one embedding vector per node for a batch of nodes
+     */
+    private Map<UUID, float[]> loadVectors(Collection<UUID> nodeIds) {
+        Map<UUID, float[]> vectors = new HashMap<>();
+        jdbcTemplate.query(NODE_VECTORS_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", nodeIds.toArray()));
+        }, rs -> {
+            vectors.put(rs.getObject("node_id", UUID.class), parseVector(rs.getString("vector")));
+        });
+        return vectors;
+    }
+    
+    /**
+     * Parse pgvector text output, e.g. "[0.1,0.2,0.3]"
+     */
+    private float[] parseVector(String text) {
+        String body = text.substring(text.indexOf('[') + 1, text.lastIndexOf(']')).trim();
+        if (body.isEmpty()) {
+            return new float[0];
+        }
+        String[] parts = body.split(",");
+        float[] vector = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Float.parseFloat(parts[i].trim());
+        }
+        return vector;
+    }
+    
+    /**
+     * Dense id of a node in the snapshot, failing if the node is unknown
+     */
+    private int requireIndex(GraphSnapshot snapshot, UUID nodeId) {
+        int node = snapshot.indexOf(nodeId);
+        if (node < 0) {
+            throw new IllegalArgumentException("Node not found: " + nodeId);
+        }
+        return node;
+    }
+    
     /**
      * Extract subgraph for given node IDs
      */
     public GraphNeighborhoodDTO extractSubgraph(Set<UUID> nodeIds) {
         log.debug("Extracting subgraph for {} nodes", nodeIds.size());
         
-        // Get all nodes using streams
-        List<GraphNeighborhoodDTO.GraphNode> nodes = nodeIds.stream()
-            .map(nodeRepository::findById)
-            .filter(Optional::isPresent)
-            .map(Optional::get)
+        int limit = graphConfig.getSubgraph().getMaxNodes();
+        if (nodeIds.isEmpty() || nodeIds.size() > limit) {
+            throw new IllegalArgumentException("Node count must be between 1 and " + limit);
+        }
+        
+        return graphSnapshotService.current()
+            .map(snapshot -> extractSubgraphInMemory(snapshot, nodeIds))
+            .orElseGet(() -> extractSubgraphFromDatabase(nodeIds));
+    }
+    
+    /**
+     * Subgraph edges selected from the snapshot's outgoing slices, payloads loaded in one query each
+     */
+    private GraphNeighborhoodDTO extractSubgraphInMemory(GraphSnapshot snapshot, Set<UUID> nodeIds) {
+        IntIntHashMap members = new IntIntHashMap(nodeIds.size());
+        nodeIds.stream()
+            .mapToInt(snapshot::indexOf)
+            .filter(node -> node >= 0)
+            .forEach(node -> members.put(node, 0));
+        
+        List<UUID> edgeIds = new ArrayList<>();
+        members.forEach((node, ignored) -> {
+            for (int j = snapshot.outStart(node); j < snapshot.outEnd(node); j++) {
+                if (members.containsKey(snapshot.outNeighbor(j))) {
+                    edgeIds.add(snapshot.edgeId(snapshot.outEdge(j)));
+                }
+            }
+        });
+        
+        List<GraphNeighborhoodDTO.GraphNode> nodes = nodeRepository.findAllById(nodeIds).stream()
             .map(node -> convertToGraphNode(node, 0))
             .collect(Collectors.toList());
         
-        // Get edges between these nodes using streams
-        List<GraphNeighborhoodDTO.GraphEdge> edges = nodeIds.stream()
-            .flatMap(sourceId -> edgeRepository.findBySourceId(sourceId).stream())
-            .filter(edge -> nodeIds.contains(edge.getTarget().getId()))
+        List<GraphNeighborhoodDTO.GraphEdge> edges = edgeRepository.findAllById(edgeIds).stream()
             .map(edge -> convertToGraphEdge(edge, 0))
             .collect(Collectors.toList());
         
+        return buildSubgraph(nodes, edges);
+    }
+    
+    /**
+     * Set-based subgraph extraction: one batch load of nodes and one query for the edges inside the set
+     */
+    private GraphNeighborhoodDTO extractSubgraphFromDatabase(Set<UUID> nodeIds) {
+        List<GraphNeighborhoodDTO.GraphNode> nodes = nodeRepository.findAllById(nodeIds).stream()
+            .map(node -> convertToGraphNode(node, 0))
+            .collect(Collectors.toList());
+        
+        List<GraphNeighborhoodDTO.GraphEdge> edges = new ArrayList<>();
+        jdbcTemplate.query(SUBGRAPH_EDGES_SQL,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", nodeIds.toArray())),
+            rs -> {
+                edges.add(toGraphEdge(rs));
+            });
+        
+        return buildSubgraph(nodes, edges);
+    }
+    
+    private GraphNeighborhoodDTO buildSubgraph(List<GraphNeighborhoodDTO.GraphNode> nodes,
+                                               List<GraphNeighborhoodDTO.GraphEdge> edges) {
         return GraphNeighborhoodDTO.builder()
             .nodes(nodes)
             .edges(edges)
@@ -190,12 +1170,117 @@ public class GraphTraversalService {
             .build();
     }
     
+    /**
+     * Validate a large subgraph request and prepare it for streaming. Nodes and then edges are
+     * read with a fetch size and handed to the sinks row by row, so neither the database result
+     * nor the response is held in memory.
+     */
+    public SubgraphStream prepareSubgraphStream(Set<UUID> nodeIds) {
+        int limit = graphConfig.getSubgraph().getMaxStreamedNodes();
+        if (nodeIds.isEmpty() || nodeIds.size() > limit) {
+            throw new IllegalArgumentException("Node count must be between 1 and " + limit);
+        }
+        UUID[] ids = nodeIds.toArray(UUID[]::new);
+        
+        return (nodeSink, edgeSink) -> {
+            long[] counts = new long[2];
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readOnly.executeWithoutResult(status -> {
+                jdbcTemplate.query(SUBGRAPH_NODES_SQL, ps -> {
+                    ps.setFetchSize(graphConfig.getSubgraph().getFetchSize());
+                    ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+                }, rs -> {
+                    nodeSink.accept(GraphNeighborhoodDTO.GraphNode.builder()
+                        .id(rs.getObject("id", UUID.class))
+                        .type(rs.getString("type"))
+                        .name(rs.getString("name"))
+                        .properties(parseProperties(rs.getString("properties")))
+                        .hopLevel(0)
+                        .build());
+                    counts[0]++;
+                });
+                jdbcTemplate.query(SUBGRAPH_EDGES_SQL, ps -> {
+                    ps.setFetchSize(graphConfig.getSubgraph().getFetchSize());
+                    ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+                }, rs -> {
+                    edgeSink.accept(toGraphEdge(rs));
+                    counts[1]++;
+                });
+            });
+            
+            return Map.of(
+                "done", true,
+                "totalNodes", counts[0],
+                "totalEdges", counts[1]
+            );
+        };
+    }
+    
+    /**
+     * A prepared subgraph extraction; streams nodes, then edges, and returns a summary
+     */
+    @FunctionalInterface
+    public interface SubgraphStream {
+        Map<String, Object> stream(Consumer<GraphNeighborhoodDTO.GraphNode> nodeSink,
+                                   Consumer<GraphNeighborhoodDTO.GraphEdge> edgeSink);
+    }
+    
+    private GraphNeighborhoodDTO.GraphEdge toGraphEdge(ResultSet rs) throws SQLException {
+        return GraphNeighborhoodDTO.GraphEdge.builder()
+            .id(rs.getObject("id", UUID.class))
+            .sourceId(rs.getObject("source_id", UUID.class))
+            .targetId(rs.getObject("target_id", UUID.class))
+            .type(rs.getString("type"))
+            .properties(parseProperties(rs.getString("properties")))
+            .hopLevel(0)
+            .build();
+    }
+    
     /**
      * Get connected components containing a node
      */
     public Set<UUID> getConnectedComponent(UUID nodeId) {
         log.debug("Finding connected component for node: {}", nodeId);
         
+        return inNeighborGraph(nodeId)
+            .map(graph -> getConnectedComponentInMemory(graph, nodeId))
+            .orElseGet(() -> getConnectedComponentFromDatabase(nodeId));
+    }
+    
+    /**
+     * Undirected BFS over the snapshot or the compressed graph using a bitset for visited nodes
+     */
+    private Set<UUID> getConnectedComponentInMemory(NeighborGraph graph, UUID nodeId) {
+        int start = graph.indexOf(nodeId);
+        BitSet visited = new BitSet(graph.nodeCount());
+        IntList queue = new IntList();
+        NeighborCursor neighbors = graph.cursor();
+        
+        visited.set(start);
+        queue.add(start);
+        
+        for (int head = 0; head < queue.size(); head++) {
+            neighbors.of(queue.get(head));
+            for (int neighbor = neighbors.next(); neighbor >= 0; neighbor = neighbors.next()) {
+                if (!visited.get(neighbor)) {
+                    visited.set(neighbor);
+                    queue.add(neighbor);
+                }
+            }
+        }
+        
+        Set<UUID> component = new HashSet<>(queue.size() * 2);
+        for (int i = 0; i < queue.size(); i++) {
+            component.add(graph.nodeId(queue.get(i)));
+        }
+        return component;
+    }
+    
+    /**
+     * Undirected BFS issuing repository calls per node
+     */
+    private Set<UUID> getConnectedComponentFromDatabase(UUID nodeId) {
         Set<UUID> component = new HashSet<>();
         Queue<UUID> queue = new LinkedList<>();
         
@@ -223,68 +1308,65 @@ public class GraphTraversalService {
     public Map<UUID, Double> calculateCentrality(Set<UUID> nodeIds) {
         // Simplified using stream collectors
         int normalizer = Math.max(nodeIds.size() - 1, 1); // Avoid division by zero
+        Optional<GraphSnapshot> snapshot = graphSnapshotService.current();
         
         return nodeIds.stream()
             .collect(Collectors.toMap(
                 nodeId -> nodeId,
-                nodeId -> (double) getNeighborIds(nodeId).size() / normalizer
+                nodeId -> (double) snapshot
+                    .filter(s -> s.indexOf(nodeId) >= 0)
+                    .map(s -> distinctNeighborCount(s, s.indexOf(nodeId)))
+                    .orElseGet(() -> getNeighborIds(nodeId).size()) / normalizer
             ));
     }
     
     /**
-     * Get graph statistics
+     * Snapshot, if one is loaded and contains the given node
      */
-    @Cacheable(value = "graphStats")
-    public Map<String, Object> getGraphStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        stats.put("totalNodes", nodeRepository.count());
-        stats.put("totalEdges", edgeRepository.count());
-        
-        // Get node type distribution
-        String nodeTypeSql = """
-            SELECT type, COUNT(*) as count 
-            FROM kg.nodes 
-            GROUP BY type
-            """;
-        
-        Map<String, Long> nodeTypes = new HashMap<>();
-        jdbcTemplate.query(nodeTypeSql, rs -> {
-            nodeTypes.put(rs.getString("type"), rs.getLong("count"));
-        });
-        stats.put("nodeTypes", nodeTypes);
-        
-        // Get edge type distribution
-        String edgeTypeSql = """
-            SELECT type, COUNT(*) as count 
-            FROM kg.edges 
-            GROUP BY type
-            """;
-        
-        Map<String, Long> edgeTypes = new HashMap<>();
-        jdbcTemplate.query(edgeTypeSql, rs -> {
-            edgeTypes.put(rs.getString("type"), rs.getLong("count"));
-        });
-        stats.put("edgeTypes", edgeTypes);
-        
-        // Average connections per node
-        String avgConnectionsSql = """
-            SELECT AVG(connection_count) as avg_connections
-            FROM (
-                SELECT source_id as node_id, COUNT(*) as connection_count
-                FROM kg.edges
-                GROUP BY source_id
-                UNION ALL
-                SELECT target_id as node_id, COUNT(*) as connection_count
-                FROM kg.edges
-                GROUP BY target_id
-            ) as connections
-            """;
-        
-        Double avgConnections = jdbcTemplate.queryForObject(avgConnectionsSql, Double.class);
-        stats.put("avgConnectionsPerNode", avgConnections);
-        
-        return stats;
+    private Optional<GraphSnapshot> inSnapshot(UUID nodeId) {
+        return graphSnapshotService.current()
+            .filter(snapshot -> snapshot.indexOf(nodeId) >= 0);
+    }
+    
+    /**
+     * The snapshot if it holds all the nodes, else the compressed graph if that does. Both only
+     * answer adjacency; the compressed graph may lag behind the database until its next rebuild.
+     */
+    private Optional<NeighborGraph> inNeighborGraph(UUID... nodeIds) {
+        return Stream.concat(graphSnapshotService.current().stream(), compressedGraphService.current().stream())
+            .filter(graph -> Arrays.stream(nodeIds).allMatch(nodeId -> graph.indexOf(nodeId) >= 0))
+            .map(NeighborGraph.class::cast)
+            .findFirst();
+    }
+    
+    /**
+     * Number of distinct nodes adjacent to a node in either direction
+     */
+    private int distinctNeighborCount(GraphSnapshot snapshot, int node) {
+        IntIntHashMap neighbors = new IntIntHashMap(snapshot.degree(node));
+        for (int j = snapshot.outStart(node); j < snapshot.outEnd(node); j++) {
+            neighbors.put(snapshot.outNeighbor(j), 0);
+        }
+        for (int j = snapshot.inStart(node); j < snapshot.inEnd(node); j++) {
+            neighbors.put(snapshot.inNeighbor(j), 0);
+        }
+        return neighbors.size();
+    }
+    
+    private List<UUID> toNodeIds(GraphSnapshot snapshot, IntList nodes) {
+        List<UUID> ids = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            ids.add(snapshot.nodeId(nodes.get(i)));
+        }
+        return ids;
+    }
+    
+    private List<UUID> toEdgeIds(GraphSnapshot snapshot, IntList edges) {
+        List<UUID> ids = new ArrayList<>(edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            ids.add(snapshot.edgeId(edges.get(i)));
+        }
+        return ids;
     }
     
     /**
@@ -302,16 +1384,43 @@ public class GraphTraversalService {
         .collect(Collectors.toList());
     }
     
+    /**
+     * Parse a JSONB column read as text into a property map
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parseProperties(String json) {
+        if (json == null || json.isEmpty()) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(json, Map.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not parse edge properties: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+    
     /**
      * Convert Node to GraphNode DTO
      */
     private GraphNeighborhoodDTO.GraphNode convertToGraphNode(Node node, int hopLevel) {
+        return convertToGraphNode(node, hopLevel, null);
+    }
+    
+    private GraphNeighborhoodDTO.GraphNode convertToGraphNode(Node node, int hopLevel, Integer hiddenEdges) {
+        return convertToGraphNode(node, hopLevel, hiddenEdges, null);
+    }
+    
+    private GraphNeighborhoodDTO.GraphNode convertToGraphNode(Node node, int hopLevel, Integer hiddenEdges,
+                                                              UUID nearestSeedId) {
         return GraphNeighborhoodDTO.GraphNode.builder()
             .id(node.getId())
-            .type(node.getType().name())
+            .type(node.getType() != null ? node.getType().name() : null)
             .name(node.getName())
             .properties(node.getProperties())
             .hopLevel(hopLevel)
+            .hiddenEdges(hiddenEdges)
+            .nearestSeedId(nearestSeedId)
             .build();
     }
     
@@ -18,6 +18,7 @@ public class HybridSearchService {
     
     private final SearchService searchService;
     private final VectorSearchService vectorSearchService;
+    private final GraphAnalyticsService graphAnalyticsService;
     
     @Value("${search.hybrid.fts_weight:0.5}")
     private double defaultFtsWeight;
@@ -25,6 +26,9 @@ public class HybridSearchService {
     @Value("${search.hybrid.vector_weight:0.5}")
     private double defaultVectorWeight;
     
+    @Value("${search.hybrid.centrality_weight:0.1}")
+    private double centralityWeight;
+    
     /**
      * Perform hybrid search combining FTS and vector search
      */
@@ -97,6 +101,7 @@ public class HybridSearchService {
             calculateMaxScore(ftsResults));
         processResults(vectorResults, mergedMap, false, 
             calculateMaxScore(vectorResults));
+        applyCentrality(mergedMap);
         
         // Calculate combined scores, apply boost, and paginate
         return mergedMap.values().stream()
@@ -131,6 +136,24 @@ public class HybridSearchService {
         });
     }
     
+    /**
+     * Attach stored PageRank, normalized against the best candidate, as a ranking signal
+     */
+    private void applyCentrality(Map<UUID, MergedResult> mergedMap) {
+        if (centralityWeight <= 0 || mergedMap.isEmpty()) {
+            return;
+        }
+        Map<UUID, Double> pageRank = graphAnalyticsService.getPageRank(mergedMap.keySet());
+        double maxScore = pageRank.values().stream()
+            .mapToDouble(Double::doubleValue)
+            .max()
+            .orElse(0.0);
+        if (maxScore <= 0) {
+            return;
+        }
+        pageRank.forEach((id, score) -> mergedMap.get(id).centralityScore = score / maxScore);
+    }
+    
     /**
      * Create new MergedResult instance
      */
@@ -157,7 +180,8 @@ public class HybridSearchService {
      * Calculate combined score with boost
      */
     private void calculateCombinedScore(MergedResult mr, double ftsWeight, double vectorWeight) {
-        mr.combinedScore = (mr.ftsScore * ftsWeight) + (mr.vectorScore * vectorWeight);
+        mr.combinedScore = (mr.ftsScore * ftsWeight) + (mr.vectorScore * vectorWeight)
+            + (mr.centralityScore * centralityWeight);
         
         // Apply boost if result appears in both searches
         if (mr.ftsScore > 0 && mr.vectorScore > 0) {
@@ -237,6 +261,7 @@ public class HybridSearchService {
         SearchResultDTO result;
         double ftsScore;
         double vectorScore;
+        double centralityScore;
         double combinedScore;
         boolean hasHighlight;
     }
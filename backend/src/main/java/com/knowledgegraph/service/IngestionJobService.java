@@ -1,11 +1,14 @@
 package com.knowledgegraph.service;
 
+import com.knowledgegraph.dto.BulkImportOptions;
 import com.knowledgegraph.dto.IngestionJob;
 import com.knowledgegraph.dto.IngestionResult;
+import com.knowledgegraph.event.GraphChangedEvent;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
@@ -38,6 +41,13 @@ public class IngestionJobService {
     @Autowired
     @Lazy
     private MarkdownIngestionService markdownIngestionService;
+    
+    @Autowired
+    @Lazy
+    private BulkImportService bulkImportService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @PostConstruct
     public void init() {
@@ -65,6 +75,14 @@ public class IngestionJobService {
 
     public IngestionJob createJob(IngestionJob.JobType jobType, String fileName, String filePath, 
                                    String contentType, Long fileSize) {
+        return createJob(jobType, fileName, filePath, contentType, fileSize, Map.of());
+    }
+
+    /**
+     * Create a job carrying options for its processor in the metadata
+     */
+    public IngestionJob createJob(IngestionJob.JobType jobType, String fileName, String filePath,
+                                   String contentType, Long fileSize, Map<String, Object> metadata) {
         IngestionJob job = IngestionJob.builder()
                 .jobId(UUID.randomUUID())
                 .jobType(jobType)
@@ -75,7 +93,7 @@ public class IngestionJobService {
                 .fileSize(fileSize)
                 .createdAt(LocalDateTime.now())
                 .retryCount(0)
-                .metadata(new HashMap<>())
+                .metadata(new ConcurrentHashMap<>(metadata))
                 .build();
         
         jobs.put(job.getJobId(), job);
@@ -124,6 +142,17 @@ public class IngestionJobService {
         }
     }
 
+    /**
+     * Name the step a long job is in; progress counts then refer to that step
+     */
+    public void updateJobPhase(UUID jobId, String phase) {
+        IngestionJob job = jobs.get(jobId);
+        if (job != null) {
+            job.getMetadata().put("phase", phase);
+            log.debug("Job {} entered phase {}", jobId, phase);
+        }
+    }
+
     public void failJob(UUID jobId, String errorMessage) {
         IngestionJob job = jobs.get(jobId);
         if (job != null) {
@@ -180,6 +209,9 @@ public class IngestionJobService {
                     pdfIngestionService::processPdfFile);
                 case MARKDOWN_PARSE -> processWithService("Markdown parse", job,
                     markdownIngestionService::processMarkdownFile);
+                case BULK_IMPORT -> processWithService("Bulk import", job,
+                    (path, jobId) -> bulkImportService.importFile(path, jobId,
+                        (BulkImportOptions) job.getMetadata().get(BulkImportOptions.METADATA_KEY)));
                 default -> {
                     log.warn("Unknown job type: {}", job.getJobType());
                     updateJobStatus(job.getJobId(), IngestionJob.JobStatus.COMPLETED);
@@ -189,6 +221,7 @@ public class IngestionJobService {
             
             // Handle result if present
             if (result != null) {
+                publishGraphChange(result);
                 if (result.isSuccess()) {
                     updateJobStatus(job.getJobId(), IngestionJob.JobStatus.COMPLETED);
                     job.getMetadata().put("result", result);
@@ -203,6 +236,16 @@ public class IngestionJobService {
         }
     }
     
+    /**
+     * Entity writes publish their own changes; this also covers nodes an ingestion wrote
+     * outside JPA, and partial results of failed jobs
+     */
+    private void publishGraphChange(IngestionResult result) {
+        if (result.getCreatedNodeIds() != null && !result.getCreatedNodeIds().isEmpty()) {
+            eventPublisher.publishEvent(GraphChangedEvent.of(result.getCreatedNodeIds()));
+        }
+    }
+    
     @FunctionalInterface
     private interface IngestionProcessor {
         IngestionResult process(String filePath, UUID jobId);
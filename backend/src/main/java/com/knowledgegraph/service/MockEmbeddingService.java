@@ -92,7 +92,7 @@ public class MockEmbeddingService implements EmbeddingService {
         }
 
         // Check if embedding already exists for this node
-        List<Embedding> existingEmbeddings = embeddingRepository.findByNode_Id(node.getId());
+        List<Embedding> existingEmbeddings = embeddingRepository.findByNode_IdAndModelVersionNot(node.getId(), Embedding.STRUCTURAL_MODEL_VERSION);
         if (!existingEmbeddings.isEmpty()) {
             log.debug("Embedding already exists for node: {}", node.getName());
             return existingEmbeddings.get(0);
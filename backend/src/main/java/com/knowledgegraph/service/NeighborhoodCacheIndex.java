@@ -0,0 +1,205 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.dto.GraphNeighborhoodDTO;
+import com.knowledgegraph.dto.NeighborhoodQuery;
+import com.knowledgegraph.event.GraphChangedEvent;
+import com.knowledgegraph.event.GraphSnapshotRefreshedEvent;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.NeighborRanking;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index from node id to the cached neighborhoods containing that node, so a graph
+ * change evicts exactly the entries it can affect instead of waiting for a TTL.
+ *
+ * A neighborhood can only change if one of its nodes changed: a new edge is reachable only
+ * through its endpoints. The exception is a neighborhood whose fan-out cap kept the
+ * highest-degree neighbors: an edge between two neighbors the cap left out changes their
+ * degrees and so the selection, without touching a returned node. Such entries are also evicted
+ * when a node adjacent to one of their nodes changes, or all at once while no snapshot is
+ * loaded to look the adjacency up in.
+ *
+ * Neighborhoods served from the snapshot lag the database until the next rebuild, so changed
+ * ids are also remembered for two snapshot generations and evicted again after each rebuild;
+ * that also catches an entry computed just before the change committed.
+ */
+@Component
+@Slf4j
+public class NeighborhoodCacheIndex {
+
+    public static final String CACHE_NAME = "neighborhoods";
+
+    private final ObjectProvider<CacheManager> cacheManager;
+    private final ObjectProvider<GraphSnapshotService> graphSnapshotService;
+    private final Map<UUID, Set<Object>> keysByNode = new ConcurrentHashMap<>();
+    private final Map<Object, Registration> nodesByKey = new ConcurrentHashMap<>();
+    private final Set<Object> degreeRankedKeys = ConcurrentHashMap.newKeySet();
+
+    private final Object generationLock = new Object();
+    private Set<UUID> changedThisGeneration = ConcurrentHashMap.newKeySet();
+    private Set<UUID> changedLastGeneration = ConcurrentHashMap.newKeySet();
+
+    public NeighborhoodCacheIndex(ObjectProvider<CacheManager> cacheManager,
+                                  ObjectProvider<GraphSnapshotService> graphSnapshotService) {
+        this.cacheManager = cacheManager;
+        this.graphSnapshotService = graphSnapshotService;
+    }
+
+    /**
+     * Record the nodes of a neighborhood about to be cached under the given key
+     */
+    public void register(Object key, NeighborhoodQuery query, GraphNeighborhoodDTO neighborhood) {
+        List<UUID> nodeIds = neighborhood.getNodes().stream()
+            .map(GraphNeighborhoodDTO.GraphNode::getId)
+            .toList();
+        boolean degreeRanked = query.getRankBy() == NeighborRanking.DEGREE && neighborhood.getTruncatedByFanOut() > 0;
+        Registration previous = nodesByKey.put(key, new Registration(neighborhood, nodeIds, degreeRanked));
+        if (previous != null) {
+            unindex(key, previous);
+        }
+        if (degreeRanked) {
+            degreeRankedKeys.add(key);
+        }
+        for (UUID nodeId : nodeIds) {
+            keysByNode.compute(nodeId, (id, keys) -> {
+                Set<Object> updated = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                updated.add(key);
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Drop an entry the cache evicted by itself (expiry or size). Only the registration of that
+     * exact value is dropped, so a fresh entry already registered under the same key survives.
+     */
+    public void forget(Object key, Object value) {
+        Registration registration = nodesByKey.get(key);
+        if (registration != null && registration.neighborhood() == value && nodesByKey.remove(key, registration)) {
+            unindex(key, registration);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGraphChanged(GraphChangedEvent event) {
+        if (event.isEverything()) {
+            clear();
+            return;
+        }
+        synchronized (generationLock) {
+            changedThisGeneration.addAll(event.getNodeIds());
+        }
+        evict(event.getNodeIds());
+    }
+
+    @EventListener
+    public void onSnapshotRefreshed(GraphSnapshotRefreshedEvent event) {
+        Set<UUID> changed = new HashSet<>();
+        synchronized (generationLock) {
+            changed.addAll(changedLastGeneration);
+            changed.addAll(changedThisGeneration);
+            changedLastGeneration = changedThisGeneration;
+            changedThisGeneration = ConcurrentHashMap.newKeySet();
+        }
+        evict(changed);
+    }
+
+    /**
+     * Number of cached neighborhoods currently indexed
+     */
+    public int size() {
+        return nodesByKey.size();
+    }
+
+    private void evict(Collection<UUID> nodeIds) {
+        Cache cache = cacheManager.getObject().getCache(CACHE_NAME);
+        if (cache == null) {
+            return;
+        }
+        Set<Object> keys = new HashSet<>();
+        for (UUID nodeId : nodeIds) {
+            keys.addAll(keysByNode.getOrDefault(nodeId, Set.of()));
+        }
+        if (!degreeRankedKeys.isEmpty()) {
+            keys.addAll(degreeRankedKeysNear(nodeIds));
+        }
+        for (Object key : keys) {
+            cache.evict(key);
+            Registration registration = nodesByKey.remove(key);
+            if (registration != null) {
+                unindex(key, registration);
+            }
+        }
+        if (!keys.isEmpty()) {
+            log.debug("Evicted {} cached neighborhoods for {} changed nodes", keys.size(), nodeIds.size());
+        }
+    }
+
+    /**
+     * Degree-ranked entries holding a snapshot neighbor of a changed node; every one of them
+     * without a snapshot
+     */
+    private Set<Object> degreeRankedKeysNear(Collection<UUID> nodeIds) {
+        Optional<GraphSnapshot> current = graphSnapshotService.getObject().current();
+        if (current.isEmpty()) {
+            return Set.copyOf(degreeRankedKeys);
+        }
+        GraphSnapshot snapshot = current.get();
+        Set<Object> keys = new HashSet<>();
+        for (UUID nodeId : nodeIds) {
+            int node = snapshot.indexOf(nodeId);
+            if (node < 0) {
+                continue;
+            }
+            for (int j = snapshot.outStart(node); j < snapshot.outEnd(node); j++) {
+                addDegreeRankedKeys(snapshot.nodeId(snapshot.outNeighbor(j)), keys);
+            }
+            for (int j = snapshot.inStart(node); j < snapshot.inEnd(node); j++) {
+                addDegreeRankedKeys(snapshot.nodeId(snapshot.inNeighbor(j)), keys);
+            }
+        }
+        return keys;
+    }
+
+    private void addDegreeRankedKeys(UUID nodeId, Set<Object> out) {
+        Set<Object> keys = keysByNode.get(nodeId);
+        if (keys != null) {
+            for (Object key : keys) {
+                if (degreeRankedKeys.contains(key)) {
+                    out.add(key);
+                }
+            }
+        }
+    }
+
+    private void unindex(Object key, Registration registration) {
+        for (UUID nodeId : registration.nodeIds()) {
+            keysByNode.computeIfPresent(nodeId, (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+        if (registration.degreeRanked()) {
+            degreeRankedKeys.remove(key);
+        }
+    }
+
+    private void clear() {
+        Optional.ofNullable(cacheManager.getObject().getCache(CACHE_NAME)).ifPresent(Cache::clear);
+        nodesByKey.clear();
+        keysByNode.clear();
+        degreeRankedKeys.clear();
+    }
+
+    private record Registration(GraphNeighborhoodDTO neighborhood, List<UUID> nodeIds, boolean degreeRanked) {
+    }
+}
@@ -113,7 +113,7 @@ public class OpenAIEmbeddingService implements EmbeddingService {
         }
         
         // Check if embedding already exists for this node
-        List<com.knowledgegraph.model.Embedding> existing = embeddingRepository.findByNode_Id(node.getId());
+        List<com.knowledgegraph.model.Embedding> existing = embeddingRepository.findByNode_IdAndModelVersionNot(node.getId(), com.knowledgegraph.model.Embedding.STRUCTURAL_MODEL_VERSION);
         if (!existing.isEmpty()) {
             log.debug("Embedding already exists for node {}, updating it", node.getId());
             com.knowledgegraph.model.Embedding embedding = existing.get(0);
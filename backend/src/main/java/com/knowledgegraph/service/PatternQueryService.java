@@ -0,0 +1,121 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.PatternMatchDTO;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.PatternMatcher;
+import com.knowledgegraph.graph.PatternQuery;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Answers Cypher-like MATCH patterns (see {@link PatternQuery}) against the graph snapshot in
+ * one pass, instead of one repository call per candidate node. The plan is ordered by the
+ * type counters of {@link GraphStatisticsService} and returned with every answer, with
+ * estimated and actual rows per step; explain-only requests return the plan without running it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PatternQueryService {
+
+    private final GraphConfig graphConfig;
+    private final GraphSnapshotService graphSnapshotService;
+    private final GraphStatisticsService graphStatisticsService;
+
+    public PatternMatchDTO query(String text, boolean explainOnly) {
+        GraphConfig.Query limits = graphConfig.getQuery();
+        PatternQuery query = PatternQuery.parse(text);
+        if (query.getNodes().size() > limits.getMaxPatternNodes()) {
+            throw new IllegalArgumentException("Patterns may have at most " + limits.getMaxPatternNodes() + " nodes");
+        }
+        int limit = Optional.ofNullable(query.getLimit()).orElse(limits.getDefaultLimit());
+        if (limit < 1 || limit > limits.getMaxResults()) {
+            throw new IllegalArgumentException("LIMIT must be between 1 and " + limits.getMaxResults());
+        }
+
+        long start = System.currentTimeMillis();
+        GraphSnapshot snapshot = graphSnapshotService.require();
+        PatternMatcher matcher = new PatternMatcher(snapshot, query, statistics(snapshot))
+            .maxResults(limit)
+            .maxExpansions(limits.getMaxExpansions())
+            .timeout(limits.getTimeoutMs());
+
+        // Each column is a node or a relationship variable
+        List<String> columns = query.getReturns();
+        List<String> nodeVariables = query.getNodes().stream().map(PatternQuery.NodePattern::getVariable).toList();
+        List<String> edgeVariables = query.getEdges().stream().map(PatternQuery.EdgePattern::getVariable).toList();
+        int[] nodeColumns = columns.stream().mapToInt(nodeVariables::indexOf).toArray();
+        int[] edgeColumns = columns.stream().mapToInt(edgeVariables::indexOf).toArray();
+
+        List<Map<String, UUID>> rows = new ArrayList<>();
+        PatternMatcher.Outcome outcome = null;
+        if (!explainOnly) {
+            outcome = matcher.run((nodes, edges) -> {
+                Map<String, UUID> row = new LinkedHashMap<>();
+                for (int c = 0; c < columns.size(); c++) {
+                    row.put(columns.get(c), nodeColumns[c] >= 0
+                        ? snapshot.nodeId(nodes[nodeColumns[c]])
+                        : snapshot.edgeId(edges[edgeColumns[c]]));
+                }
+                rows.add(row);
+            });
+            log.debug("Pattern query matched {} rows, outcome {}, {} entries examined in {}ms",
+                rows.size(), outcome, matcher.getExpansions(), System.currentTimeMillis() - start);
+        }
+
+        return PatternMatchDTO.builder()
+            .query(text.trim())
+            .columns(columns)
+            .rows(rows)
+            .rowCount(rows.size())
+            .outcome(outcome != null ? outcome.name() : null)
+            .truncated(outcome != null && outcome != PatternMatcher.Outcome.COMPLETE)
+            .expandedEntries(explainOnly ? null : matcher.getExpansions())
+            .elapsedMs(System.currentTimeMillis() - start)
+            .plan(matcher.getSteps().stream()
+                .map(step -> PatternMatchDTO.PlanStep.builder()
+                    .variable(step.getVariable())
+                    .access(step.getAccess())
+                    .checks(step.getChecks())
+                    .estimatedRows(step.getEstimatedRows())
+                    .actualRows(explainOnly ? null : step.getActualRows())
+                    .build())
+                .toList())
+            .build();
+    }
+
+    /**
+     * Planner statistics from the live type counters, or plain snapshot totals while the
+     * counters are not initialized yet
+     */
+    @SuppressWarnings("unchecked")
+    private PatternMatcher.Statistics statistics(GraphSnapshot snapshot) {
+        Map<String, Object> stats = graphStatisticsService.getStatistics();
+        long totalNodes = ((Number) stats.getOrDefault("totalNodes", 0L)).longValue();
+        long totalEdges = ((Number) stats.getOrDefault("totalEdges", 0L)).longValue();
+        if (totalNodes == 0 && snapshot.nodeCount() > 0) {
+            return new PatternMatcher.Statistics(snapshot.nodeCount(), snapshot.edgeCount(), null, null, null, null);
+        }
+
+        long[] nodesByType = new long[NodeType.values().length];
+        long[] outDegreeByType = new long[NodeType.values().length];
+        long[] inDegreeByType = new long[NodeType.values().length];
+        long[] edgesByType = new long[EdgeType.values().length];
+        ((Map<String, Long>) stats.getOrDefault("nodeTypes", Map.of()))
+            .forEach((type, count) -> nodesByType[NodeType.valueOf(type).ordinal()] = count);
+        ((Map<String, Long>) stats.getOrDefault("edgeTypes", Map.of()))
+            .forEach((type, count) -> edgesByType[EdgeType.valueOf(type).ordinal()] = count);
+        ((Map<String, Map<String, Long>>) stats.getOrDefault("degreeSums", Map.of())).forEach((type, sums) -> {
+            outDegreeByType[NodeType.valueOf(type).ordinal()] = sums.getOrDefault("out", 0L);
+            inDegreeByType[NodeType.valueOf(type).ordinal()] = sums.getOrDefault("in", 0L);
+        });
+        return new PatternMatcher.Statistics(totalNodes, totalEdges, nodesByType, edgesByType,
+            outDegreeByType, inDegreeByType);
+    }
+}
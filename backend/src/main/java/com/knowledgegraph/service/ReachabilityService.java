@@ -0,0 +1,244 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.NodePair;
+import com.knowledgegraph.dto.ReachabilityDTO;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.LandmarkLabels;
+import com.knowledgegraph.graph.PrunedLandmarkLabeling;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Answers "are these two nodes connected within k hops?" from pruned landmark labels instead
+ * of a search.
+ *
+ * Labels are built in bulk from the graph snapshot. Between builds, edges inserted since the
+ * last pass are patched in; a removed edge (found through kg.edge_history) triggers a rebuild
+ * from a fresh snapshot, since labels can only shrink distances. Pairs the labels cannot
+ * settle exactly are finished with a BFS bounded by the label distance, and pairs with a node
+ * the labels do not know yet fall back to {@link GraphTraversalService#findShortestPath}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReachabilityService {
+
+    /**
+     * Edges whose version ended after an instant and that no longer exist with the same
+     * endpoints; property-only updates do not count
+     */
+    private static final String REMOVED_EDGES_SQL = """
+        SELECT DISTINCT h.id FROM kg.edge_history h
+        WHERE h.valid_to > ?
+          AND NOT EXISTS (
+              SELECT 1 FROM kg.edges e
+              WHERE e.id = h.id AND e.source_id = h.source_id AND e.target_id = h.target_id
+          )
+        LIMIT ?
+        """;
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final GraphSnapshotService graphSnapshotService;
+    private final GraphTraversalService graphTraversalService;
+    private final EdgeWatermarkPoller edgeWatermarkPoller;
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    private volatile LandmarkLabels labels;
+    // Edges created after this instant have not been patched into the labels yet
+    private volatile LocalDateTime watermark;
+    // Edge removals after this instant have not been checked for yet
+    private volatile LocalDateTime removalWatermark;
+    // Removals inside the overlap window that the current labels already reflect
+    private Set<UUID> reflectedRemovals = Set.of();
+
+    /**
+     * Whether two nodes are connected by at most maxHops edges, ignoring direction
+     */
+    public ReachabilityDTO isReachable(UUID from, UUID to, int maxHops) {
+        validateHops(maxHops);
+        return answer(labels, from, to, maxHops);
+    }
+
+    /**
+     * Batch form of {@link #isReachable}; every pair is answered against the same labels
+     */
+    public List<ReachabilityDTO> areReachable(List<NodePair> pairs, int maxHops) {
+        int maxPairs = graphConfig.getReachability().getMaxBatchPairs();
+        if (pairs.isEmpty() || pairs.size() > maxPairs) {
+            throw new IllegalArgumentException("Pair count must be between 1 and " + maxPairs);
+        }
+        validateHops(maxHops);
+        if (pairs.stream().anyMatch(pair -> pair.getFrom() == null || pair.getTo() == null)) {
+            throw new IllegalArgumentException("Every pair needs a from and a to node");
+        }
+
+        LandmarkLabels current = labels;
+        List<ReachabilityDTO> results = new ArrayList<>(pairs.size());
+        for (NodePair pair : pairs) {
+            results.add(answer(current, pair.getFrom(), pair.getTo(), maxHops));
+        }
+        return results;
+    }
+
+    /**
+     * Label every node of a snapshot and replace the current labels
+     */
+    public void rebuild(GraphSnapshot snapshot) {
+        updateLock.lock();
+        try {
+            GraphConfig.Reachability config = graphConfig.getReachability();
+            long start = System.currentTimeMillis();
+            LandmarkLabels built = new PrunedLandmarkLabeling(snapshot)
+                .maxLandmarks(config.getMaxLandmarks())
+                .maxLabelEntries(config.getMaxLabelEntries())
+                .timeout(config.getBuildTimeoutMs())
+                .parallelism(config.getParallelism())
+                .build();
+
+            labels = built;
+            watermark = Optional.ofNullable(snapshot.getHighWaterMark()).orElse(snapshot.getBuiltAt());
+            removalWatermark = snapshot.getBuiltAt();
+            log.info("Reachability labels built: {} of {} nodes as landmarks, {} entries in {}ms",
+                built.getLandmarkCount(), snapshot.nodeCount(), built.getEntryCount(),
+                System.currentTimeMillis() - start);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Patch edges created since the last pass into the labels, or rebuild if edges were removed
+     */
+    public void applyChanges() {
+        updateLock.lock();
+        try {
+            if (labels == null) {
+                rebuild(graphSnapshotService.require());
+                return;
+            }
+            GraphConfig.Reachability config = graphConfig.getReachability();
+            LocalDateTime checkedAt = LocalDateTime.now();
+
+            LocalDateTime removedSince = removalWatermark.minusNanos(config.getOverlapMs() * 1_000_000L);
+            Set<UUID> removed = new HashSet<>(jdbcTemplate.queryForList(
+                REMOVED_EDGES_SQL, UUID.class, Timestamp.valueOf(removedSince), config.getMaxIncrementalEdges()));
+            boolean unreflected = !reflectedRemovals.containsAll(removed);
+            reflectedRemovals = removed;
+            if (unreflected) {
+                log.info("Edges removed since {}, rebuilding reachability labels", removedSince);
+                rebuild(graphSnapshotService.refresh());
+                return;
+            }
+
+            EdgeWatermarkPoller.NewEdges newEdges =
+                edgeWatermarkPoller.poll(watermark, config.getOverlapMs(), config.getMaxIncrementalEdges());
+            if (newEdges.isOverflow()) {
+                log.info("{}+ new edges since {}, rebuilding reachability labels",
+                    newEdges.getEdges().size(), newEdges.getSince());
+                rebuild(graphSnapshotService.refresh());
+                return;
+            }
+            long start = System.currentTimeMillis();
+            for (UUID[] pair : newEdges.getEdges()) {
+                labels.addEdge(pair[0], pair[1]);
+            }
+            watermark = newEdges.getNewest();
+            removalWatermark = checkedAt;
+            if (!newEdges.isEmpty()) {
+                log.debug("Patched {} new edges into reachability labels in {}ms",
+                    newEdges.getEdges().size(), System.currentTimeMillis() - start);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!graphConfig.getReachability().isEnabled()) {
+            return;
+        }
+        try {
+            rebuild(graphSnapshotService.require());
+        } catch (Exception e) {
+            log.error("Failed to build reachability labels: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${graph.reachability.incremental-interval-ms:10000}",
+               fixedDelayString = "${graph.reachability.incremental-interval-ms:10000}")
+    public void scheduledIncrementalUpdate() {
+        if (!graphConfig.getReachability().isEnabled() || labels == null) {
+            return;
+        }
+        try {
+            applyChanges();
+        } catch (Exception e) {
+            log.error("Failed to patch reachability labels: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${graph.reachability.rebuild-cron:0 45 3 * * *}")
+    public void scheduledRebuild() {
+        if (!graphConfig.getReachability().isEnabled()) {
+            return;
+        }
+        try {
+            rebuild(graphSnapshotService.refresh());
+        } catch (Exception e) {
+            log.error("Failed to rebuild reachability labels: {}", e.getMessage(), e);
+        }
+    }
+
+    private ReachabilityDTO answer(LandmarkLabels current, UUID from, UUID to, int maxHops) {
+        ReachabilityDTO.ReachabilityDTOBuilder result = ReachabilityDTO.builder()
+            .from(from)
+            .to(to)
+            .maxHops(maxHops);
+        int source = current != null && graphConfig.getReachability().isEnabled() ? current.indexOf(from) : -1;
+        int target = source >= 0 ? current.indexOf(to) : -1;
+
+        if (source < 0 || target < 0) {
+            // Not labelled yet: unknown node, or its edges are newer than the last pass
+            List<UUID> path = graphTraversalService.findShortestPath(from, to, maxHops);
+            int distance = path.isEmpty() ? LandmarkLabels.UNREACHABLE : path.size() - 1;
+            return withDistance(result, distance, maxHops).indexed(false).build();
+        }
+
+        int bound = current.labelDistance(source, target);
+        if (bound <= 1 || current.isExact(source, target)) {
+            return withDistance(result, bound, maxHops).indexed(true).build();
+        }
+        // The label distance is an upper bound; only a shorter path can change the answer
+        int found = current.searchDistance(source, target, Math.min(maxHops, bound - 1));
+        int distance = found != LandmarkLabels.UNREACHABLE ? found : bound;
+        return withDistance(result, distance, maxHops).indexed(false).build();
+    }
+
+    private static ReachabilityDTO.ReachabilityDTOBuilder withDistance(
+            ReachabilityDTO.ReachabilityDTOBuilder result, int distance, int maxHops) {
+        boolean reachable = distance <= maxHops;
+        return result.reachable(reachable).distance(reachable ? distance : null);
+    }
+
+    private void validateHops(int maxHops) {
+        int limit = Math.min(graphConfig.getReachability().getMaxHops(), LandmarkLabels.MAX_DISTANCE);
+        if (maxHops < 0 || maxHops > limit) {
+            throw new IllegalArgumentException("Max hops must be between 0 and " + limit);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.event.GraphSnapshotRefreshedEvent;
+import com.knowledgegraph.graph.DoubleMinHeap;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.LocalPushPageRank;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * "Related nodes" ranked by personalized PageRank from a node, estimated by local push on the
+ * snapshot so only the region around the node is visited. Rankings are cached per node until
+ * the next snapshot: a score depends on the whole region the push reached, not just the node's
+ * own edges, so a new snapshot drops every cached ranking rather than the changed nodes only.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RelatedNodesService {
+
+    public static final String CACHE_NAME = "relatedNodes";
+
+    private final GraphConfig graphConfig;
+    private final GraphSnapshotService graphSnapshotService;
+
+    /**
+     * Up to graph.related.max-limit nodes by PPR score, best first, excluding the node itself.
+     * Empty if the node is not in the snapshot yet; such results are not cached.
+     */
+    @Cacheable(value = CACHE_NAME, key = "#nodeId", unless = "#result.isEmpty()")
+    public Map<UUID, Double> getRelatedNodes(UUID nodeId) {
+        Optional<GraphSnapshot> current = graphSnapshotService.current()
+            .filter(snapshot -> snapshot.indexOf(nodeId) >= 0);
+        if (current.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        GraphSnapshot snapshot = current.get();
+        int source = snapshot.indexOf(nodeId);
+        GraphConfig.Related config = graphConfig.getRelated();
+
+        LocalPushPageRank.Result result = new LocalPushPageRank(snapshot)
+            .alpha(config.getAlpha())
+            .epsilon(config.getEpsilon())
+            .maxPushes(config.getMaxPushes())
+            .timeout(config.getTimeoutMs())
+            .run(source);
+
+        // Keep the best k in a bounded min-heap, then emit best first
+        int limit = config.getMaxLimit();
+        DoubleMinHeap best = new DoubleMinHeap(limit + 1);
+        result.getScores().forEach((node, score) -> {
+            if (node != source && score > 0.0) {
+                best.push(node, score);
+                if (best.size() > limit) {
+                    best.pop();
+                }
+            }
+        });
+        int[] nodes = new int[best.size()];
+        double[] scores = new double[best.size()];
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            scores[i] = best.peekPriority();
+            nodes[i] = best.pop();
+        }
+
+        Map<UUID, Double> related = new LinkedHashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            related.put(snapshot.nodeId(nodes[i]), scores[i]);
+        }
+
+        log.debug("Related nodes for {}: {} pushes over {} touched nodes, converged {}",
+            nodeId, result.getPushes(), result.getTouched(), result.isConverged());
+        return related;
+    }
+
+    @EventListener
+    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    public void onSnapshotRefreshed(GraphSnapshotRefreshedEvent event) {
+        log.debug("Dropped cached related nodes for snapshot of {} nodes", event.getSnapshot().nodeCount());
+    }
+}
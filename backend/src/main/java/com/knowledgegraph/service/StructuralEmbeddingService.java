@@ -0,0 +1,226 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.Node2Vec;
+import com.knowledgegraph.model.Embedding;
+import com.knowledgegraph.repository.EmbeddingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Structural node embeddings learned from random walks over the graph snapshot (node2vec).
+ * They are stored in kg.embeddings under their own model_version, next to the text
+ * embeddings, so nodes without useful text still get neighbors by graph position, and the
+ * two similarities can be blended.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StructuralEmbeddingService {
+
+    /**
+     * Parameters: model version, node id array, vector text array. Nodes deleted since the
+     * snapshot was built are skipped.
+     */
+    private static final String INSERT_VECTORS_SQL = """
+        INSERT INTO kg.embeddings (id, node_id, vector, model_version, created_at)
+        SELECT gen_random_uuid(), u.node_id, u.vector::vector, ?, now()
+        FROM unnest(?::uuid[], ?::text[]) AS u(node_id, vector)
+        JOIN kg.nodes n ON n.id = u.node_id
+        """;
+
+    /**
+     * Nearest nodes to a node by a blend of structural and text similarity. The candidates are
+     * the nearest few under each model; both similarities are then computed exactly for every
+     * candidate, 0 where a node lacks a vector. The text side compares only vectors of the
+     * same model as the node's own first text embedding.
+     * Parameters: node id, structural model version, candidates per model, structural weight.
+     */
+    private static final String SIMILAR_NODES_SQL = """
+        WITH params AS (
+            SELECT ?::uuid AS node_id, ?::text AS structural_model, ?::int AS candidates, ?::float8 AS weight
+        ),
+        structural_source AS (
+            SELECT e.vector FROM kg.embeddings e, params p
+            WHERE e.node_id = p.node_id AND e.model_version = p.structural_model
+            LIMIT 1
+        ),
+        semantic_source AS (
+            SELECT e.model_version, e.vector FROM kg.embeddings e, params p
+            WHERE e.node_id = p.node_id AND e.model_version <> p.structural_model AND e.vector IS NOT NULL
+            ORDER BY e.created_at
+            LIMIT 1
+        ),
+        candidates AS (
+            (SELECT e.node_id FROM kg.embeddings e, structural_source s, params p
+             WHERE p.weight > 0 AND e.model_version = p.structural_model
+             ORDER BY e.vector <=> s.vector
+             LIMIT (SELECT candidates FROM params))
+            UNION
+            (SELECT e.node_id FROM kg.embeddings e, semantic_source s, params p
+             WHERE p.weight < 1 AND e.model_version = s.model_version AND e.node_id IS NOT NULL
+             ORDER BY e.vector <=> s.vector
+             LIMIT (SELECT candidates FROM params))
+        ),
+        scored AS (
+            SELECT c.node_id,
+                   COALESCE((SELECT 1 - (e.vector <=> s.vector)
+                             FROM kg.embeddings e, structural_source s, params p
+                             WHERE e.node_id = c.node_id AND e.model_version = p.structural_model
+                             LIMIT 1), 0) AS structural,
+                   COALESCE((SELECT max(1 - (e.vector <=> s.vector))
+                             FROM kg.embeddings e, semantic_source s
+                             WHERE e.node_id = c.node_id AND e.model_version = s.model_version), 0) AS semantic
+            FROM candidates c, params p
+            WHERE c.node_id <> p.node_id
+        )
+        SELECT s.node_id, s.structural * p.weight + s.semantic * (1 - p.weight) AS score
+        FROM scored s, params p
+        ORDER BY score DESC
+        LIMIT ?
+        """;
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final GraphSnapshotService graphSnapshotService;
+    private final EmbeddingRepository embeddingRepository;
+    private final ReentrantLock jobLock = new ReentrantLock();
+
+    /**
+     * Train embeddings on the current snapshot and replace the stored structural vectors
+     */
+    public Node2Vec.Result computeEmbeddings() {
+        jobLock.lock();
+        try {
+            GraphSnapshot snapshot = graphSnapshotService.require();
+            GraphConfig.Embeddings config = graphConfig.getEmbeddings();
+
+            long start = System.currentTimeMillis();
+            Node2Vec.Result result = new Node2Vec(snapshot)
+                .dimensions(config.getDimensions())
+                .walkLength(config.getWalkLength())
+                .walksPerNode(config.getWalksPerNode())
+                .windowSize(config.getWindowSize())
+                .negativeSamples(config.getNegativeSamples())
+                .returnParameter(config.getReturnParameter())
+                .inOutParameter(config.getInOutParameter())
+                .learningRate(config.getLearningRate())
+                .timeout(config.getTimeoutMs())
+                .parallelism(graphConfig.getAnalytics().getParallelism())
+                .run();
+            long computed = System.currentTimeMillis();
+
+            int written = transactionTemplate.execute(status -> writeVectors(snapshot, result));
+
+            log.info("Structural embeddings over {} nodes / {} edges: {} walks, complete {}, {} vectors ({}ms train, {}ms write)",
+                snapshot.nodeCount(), snapshot.edgeCount(), result.getWalks(), result.isComplete(), written,
+                computed - start, System.currentTimeMillis() - computed);
+            return result;
+        } finally {
+            jobLock.unlock();
+        }
+    }
+
+    /**
+     * Nodes most similar to the given node, best first. A structural weight of 1 ranks purely
+     * by graph position, 0 purely by text; scores are the blended cosine similarities.
+     */
+    public Map<UUID, Double> findSimilarNodes(UUID nodeId, double structuralWeight, int limit) {
+        if (structuralWeight < 0.0 || structuralWeight > 1.0) {
+            throw new IllegalArgumentException("structuralWeight must be between 0 and 1");
+        }
+        int candidates = Math.max(limit + 1, graphConfig.getEmbeddings().getSimilarCandidates());
+
+        Map<UUID, Double> scores = new LinkedHashMap<>();
+        jdbcTemplate.query(SIMILAR_NODES_SQL, rs -> {
+            scores.put(rs.getObject("node_id", UUID.class), rs.getDouble("score"));
+        }, nodeId, Embedding.STRUCTURAL_MODEL_VERSION, candidates, structuralWeight, limit);
+        return scores;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            if (embeddingRepository.countByModelVersion(Embedding.STRUCTURAL_MODEL_VERSION) == 0) {
+                computeEmbeddings();
+            }
+        } catch (Exception e) {
+            log.error("Failed to initialize structural embeddings: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${graph.embeddings.cron:0 0 5 * * *}")
+    public void scheduledEmbeddings() {
+        try {
+            computeEmbeddings();
+        } catch (Exception e) {
+            log.error("Failed to compute structural embeddings: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replace all structural vectors, in batches of array parameters. Isolated nodes get none.
+     */
+    private int writeVectors(GraphSnapshot snapshot, Node2Vec.Result result) {
+        jdbcTemplate.update("DELETE FROM kg.embeddings WHERE model_version = ?", Embedding.STRUCTURAL_MODEL_VERSION);
+
+        int dimensions = result.getDimensions();
+        float[] vectors = result.getVectors();
+        int batchSize = graphConfig.getEmbeddings().getWriteBatchSize();
+        List<UUID> nodeIds = new ArrayList<>(batchSize);
+        List<String> values = new ArrayList<>(batchSize);
+        int written = 0;
+        for (int node = 0; node < snapshot.nodeCount(); node++) {
+            if (snapshot.degree(node) == 0) {
+                continue;
+            }
+            nodeIds.add(snapshot.nodeId(node));
+            values.add(toVectorText(vectors, node * dimensions, dimensions));
+            if (nodeIds.size() == batchSize) {
+                written += insertBatch(nodeIds, values);
+            }
+        }
+        return written + insertBatch(nodeIds, values);
+    }
+
+    private int insertBatch(List<UUID> nodeIds, List<String> values) {
+        if (nodeIds.isEmpty()) {
+            return 0;
+        }
+        int inserted = jdbcTemplate.update(INSERT_VECTORS_SQL, ps -> {
+            ps.setString(1, Embedding.STRUCTURAL_MODEL_VERSION);
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", nodeIds.toArray()));
+            ps.setArray(3, ps.getConnection().createArrayOf("text", values.toArray()));
+        });
+        nodeIds.clear();
+        values.clear();
+        return inserted;
+    }
+
+    /**
+     * pgvector text form, e.g. [0.1,-0.2]
+     */
+    private static String toVectorText(float[] vectors, int offset, int dimensions) {
+        StringBuilder text = new StringBuilder(dimensions * 12).append('[');
+        for (int k = 0; k < dimensions; k++) {
+            if (k > 0) {
+                text.append(',');
+            }
+            text.append(vectors[offset + k]);
+        }
+        return text.append(']').toString();
+    }
+}
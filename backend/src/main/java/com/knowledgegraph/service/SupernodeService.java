@@ -0,0 +1,420 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.NodeDetailDTO;
+import com.knowledgegraph.dto.SupernodeDTO;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks supernodes: nodes with at least graph.supernodes.degree-threshold edges, typically
+ * the document and section hubs built by ingestion. Their per-type edge counts are kept in
+ * kg.supernode_edge_counts by triggers (see migration V11), and their edges are read a page of
+ * one bucket at a time instead of being loaded as entities.
+ *
+ * Nodes that cross the threshold through new edges are promoted by polling edges created since
+ * the last pass; a scheduled recount rebuilds the set and the counts, which also demotes hubs
+ * that lost edges and repairs counts that drifted while a node was being promoted.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SupernodeService {
+
+    public static final String OUTGOING = "outgoing";
+    public static final String INCOMING = "incoming";
+
+    /**
+     * One page of a node's edges in (type, id) order after a cursor, with the node at the other
+     * end. Format arguments: own endpoint column, other endpoint column, optional type filter.
+     * Parameters: node id, [type], cursor type, cursor id, limit.
+     */
+    private static final String EDGE_PAGE_SQL = """
+        SELECT e.id, e.type, e.properties::text AS properties,
+               n.id AS node_id, n.name AS node_name, n.type AS node_type
+        FROM kg.edges e
+        JOIN kg.nodes n ON n.id = e.%2$s
+        WHERE e.%1$s = ? %3$s
+          AND (e.type, e.id) > (?, ?)
+        ORDER BY e.type, e.id
+        LIMIT ?
+        """;
+
+    /**
+     * Candidates whose degree reached the threshold; each count stops at the threshold.
+     * Parameters: candidate id array, threshold (three times).
+     */
+    private static final String PROMOTE_SQL = """
+        WITH params AS (
+            SELECT ?::uuid[] AS candidates, ?::int AS threshold
+        ),
+        degrees AS (
+            SELECT c.node_id,
+                   (SELECT COUNT(*) FROM (
+                        SELECT 1 FROM kg.edges e WHERE e.source_id = c.node_id LIMIT ?) o)
+                 + (SELECT COUNT(*) FROM (
+                        SELECT 1 FROM kg.edges e WHERE e.target_id = c.node_id LIMIT ?) i) AS degree
+            FROM params p
+            CROSS JOIN unnest(p.candidates) AS c(node_id)
+        )
+        INSERT INTO kg.supernodes (node_id, promoted_at)
+        SELECT d.node_id, now()
+        FROM degrees d, params p
+        WHERE d.degree >= p.threshold
+          AND EXISTS (SELECT 1 FROM kg.nodes n WHERE n.id = d.node_id)
+        ON CONFLICT (node_id) DO NOTHING
+        RETURNING node_id
+        """;
+
+    /**
+     * Exact per-type counts for a set of supernodes. Parameters: node id array (twice).
+     */
+    private static final String COUNT_BUCKETS_SQL = """
+        INSERT INTO kg.supernode_edge_counts (node_id, direction, type, edge_count, updated_at)
+        SELECT source_id, 'outgoing', type, COUNT(*), now() FROM kg.edges
+        WHERE source_id = ANY(?) GROUP BY source_id, type
+        UNION ALL
+        SELECT target_id, 'incoming', type, COUNT(*), now() FROM kg.edges
+        WHERE target_id = ANY(?) GROUP BY target_id, type
+        ON CONFLICT (node_id, direction, type) DO UPDATE
+        SET edge_count = EXCLUDED.edge_count, updated_at = EXCLUDED.updated_at
+        """;
+
+    /**
+     * Every node at or above the threshold, from one grouped pass per endpoint index.
+     * Parameter: threshold.
+     */
+    private static final String HUBS_SQL = """
+        SELECT node_id FROM (
+            SELECT source_id AS node_id, COUNT(*) AS edges FROM kg.edges GROUP BY source_id
+            UNION ALL
+            SELECT target_id, COUNT(*) FROM kg.edges GROUP BY target_id
+        ) d
+        GROUP BY node_id
+        HAVING SUM(edges) >= ?
+        """;
+
+    private static final String LIST_SQL = """
+        SELECT s.node_id, n.name, n.type, SUM(c.edge_count) AS degree
+        FROM kg.supernodes s
+        JOIN kg.nodes n ON n.id = s.node_id
+        LEFT JOIN kg.supernode_edge_counts c ON c.node_id = s.node_id
+        GROUP BY s.node_id, n.name, n.type
+        ORDER BY degree DESC NULLS LAST, s.node_id
+        LIMIT ? OFFSET ?
+        """;
+
+    private final GraphConfig graphConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final EdgeWatermarkPoller edgeWatermarkPoller;
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    // Replaced, never modified, so readers need no lock
+    private volatile Set<UUID> supernodes = Set.of();
+    // Edges created after this instant have not been checked for promotions yet
+    private volatile LocalDateTime watermark;
+
+    @Getter
+    @AllArgsConstructor
+    public static class EdgePage {
+        private final List<NodeDetailDTO.EdgeDTO> edges;
+        private final String nextCursor;    // null on the last page
+    }
+
+    public boolean isSupernode(UUID nodeId) {
+        return supernodes.contains(nodeId);
+    }
+
+    public boolean hasSupernodes() {
+        return !supernodes.isEmpty();
+    }
+
+    /**
+     * The given nodes that are supernodes
+     */
+    public Set<UUID> supernodesAmong(Collection<UUID> nodeIds) {
+        Set<UUID> current = supernodes;
+        if (current.isEmpty()) {
+            return Set.of();
+        }
+        Set<UUID> hubs = new HashSet<>();
+        for (UUID nodeId : nodeIds) {
+            if (current.contains(nodeId)) {
+                hubs.add(nodeId);
+            }
+        }
+        return hubs;
+    }
+
+    /**
+     * Edge counts by direction and type, as kept for a supernode; empty for other nodes
+     */
+    public Map<String, Map<String, Long>> getEdgeCounts(UUID nodeId) {
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        counts.put(OUTGOING, new TreeMap<>());
+        counts.put(INCOMING, new TreeMap<>());
+        jdbcTemplate.query(
+            "SELECT direction, type, edge_count FROM kg.supernode_edge_counts WHERE node_id = ? AND edge_count > 0",
+            rs -> {
+                counts.get(rs.getString("direction")).put(rs.getString("type"), rs.getLong("edge_count"));
+            }, nodeId);
+        return counts;
+    }
+
+    /**
+     * One page of a node's edges in one direction, optionally of one type, with the node at the
+     * other end. Pages follow (type, id) order; the cursor is the previous page's nextCursor.
+     */
+    public EdgePage getEdges(UUID nodeId, String direction, EdgeType type, String cursor, int size) {
+        if (!OUTGOING.equals(direction) && !INCOMING.equals(direction)) {
+            throw new IllegalArgumentException("Direction must be " + OUTGOING + " or " + INCOMING);
+        }
+        int maxPageSize = graphConfig.getSupernodes().getMaxPageSize();
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+
+        String afterType = type != null ? type.name() : "";
+        UUID afterId = new UUID(0L, 0L);
+        if (cursor != null && !cursor.isEmpty()) {
+            int separator = cursor.lastIndexOf(':');
+            try {
+                afterType = cursor.substring(0, Math.max(separator, 0));
+                afterId = UUID.fromString(cursor.substring(separator + 1));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            if (type != null && !type.name().equals(afterType)) {
+                throw new IllegalArgumentException("Cursor does not belong to edge type " + type);
+            }
+        }
+
+        boolean outgoing = OUTGOING.equals(direction);
+        String sql = EDGE_PAGE_SQL.formatted(
+            outgoing ? "source_id" : "target_id",
+            outgoing ? "target_id" : "source_id",
+            type != null ? "AND e.type = ?" : "");
+
+        List<Object> params = new ArrayList<>();
+        params.add(nodeId);
+        if (type != null) {
+            params.add(type.name());
+        }
+        params.add(afterType);
+        params.add(afterId);
+        params.add(size + 1);
+
+        List<NodeDetailDTO.EdgeDTO> edges = new ArrayList<>(size + 1);
+        jdbcTemplate.query(sql, rs -> {
+            edges.add(NodeDetailDTO.EdgeDTO.builder()
+                .id(rs.getObject("id", UUID.class))
+                .nodeId(rs.getObject("node_id", UUID.class))
+                .nodeName(rs.getString("node_name"))
+                .nodeType(NodeType.valueOf(rs.getString("node_type")))
+                .edgeType(rs.getString("type"))
+                .properties(parseProperties(rs.getString("properties")))
+                .direction(direction)
+                .build());
+        }, params.toArray());
+
+        if (edges.size() <= size) {
+            return new EdgePage(edges, null);
+        }
+        edges.remove(size);
+        NodeDetailDTO.EdgeDTO last = edges.get(size - 1);
+        return new EdgePage(edges, last.getEdgeType() + ":" + last.getId());
+    }
+
+    /**
+     * Supernodes by degree, largest first
+     */
+    public List<SupernodeDTO> listSupernodes(int page, int size) {
+        int maxPageSize = graphConfig.getSupernodes().getMaxPageSize();
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+        List<SupernodeDTO> hubs = jdbcTemplate.query(LIST_SQL, (rs, rowNum) -> SupernodeDTO.builder()
+            .nodeId(rs.getObject("node_id", UUID.class))
+            .name(rs.getString("name"))
+            .type(NodeType.valueOf(rs.getString("type")))
+            .degree(rs.getLong("degree"))
+            .build(), size, (long) page * size);
+        hubs.forEach(hub -> hub.setEdgeCounts(getEdgeCounts(hub.getNodeId())));
+        return hubs;
+    }
+
+    /**
+     * Promote endpoints of edges created since the last pass that reached the threshold
+     */
+    public void promoteNewHubs() {
+        updateLock.lock();
+        try {
+            if (watermark == null) {
+                recount();
+                return;
+            }
+            promote();
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuild the supernode set and every bucket count from the edges
+     */
+    public void recount() {
+        updateLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            LocalDateTime startedAt = LocalDateTime.now();
+            int threshold = graphConfig.getSupernodes().getDegreeThreshold();
+            List<UUID> hubs = jdbcTemplate.queryForList(HUBS_SQL, UUID.class, threshold);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM kg.supernodes WHERE NOT (node_id = ANY(?))",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", hubs.toArray())));
+                jdbcTemplate.update("""
+                    INSERT INTO kg.supernodes (node_id, promoted_at)
+                    SELECT h.node_id, now() FROM unnest(?::uuid[]) AS h(node_id)
+                    WHERE EXISTS (SELECT 1 FROM kg.nodes n WHERE n.id = h.node_id)
+                    ON CONFLICT (node_id) DO NOTHING
+                    """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", hubs.toArray())));
+                jdbcTemplate.update("DELETE FROM kg.supernode_edge_counts");
+                if (!hubs.isEmpty()) {
+                    countBuckets(hubs);
+                }
+            });
+
+            supernodes = Set.copyOf(jdbcTemplate.queryForList("SELECT node_id FROM kg.supernodes", UUID.class));
+            watermark = startedAt;
+            log.info("Supernodes recounted: {} nodes with {}+ edges in {}ms",
+                supernodes.size(), threshold, System.currentTimeMillis() - start);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void promote() {
+        GraphConfig.Supernodes config = graphConfig.getSupernodes();
+        EdgeWatermarkPoller.NewEdges newEdges =
+            edgeWatermarkPoller.poll(watermark, config.getOverlapMs(), config.getMaxIncrementalEdges());
+        if (newEdges.isOverflow()) {
+            log.info("{}+ new edges since {}, recounting supernodes", newEdges.getEdges().size(), newEdges.getSince());
+            recount();
+            return;
+        }
+
+        // Only the endpoints matter, so hub-sized ingestions collapse to a few candidates
+        Set<UUID> candidates = new HashSet<>();
+        for (UUID[] edge : newEdges.getEdges()) {
+            candidates.add(edge[0]);
+            candidates.add(edge[1]);
+        }
+        candidates.removeAll(supernodes);
+
+        if (!candidates.isEmpty()) {
+            int threshold = config.getDegreeThreshold();
+            List<UUID> promoted = transactionTemplate.execute(status -> {
+                List<UUID> hubs = jdbcTemplate.query(PROMOTE_SQL, ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("uuid", candidates.toArray()));
+                    ps.setInt(2, threshold);
+                    ps.setInt(3, threshold);
+                    ps.setInt(4, threshold);
+                }, (rs, rowNum) -> rs.getObject("node_id", UUID.class));
+                if (!hubs.isEmpty()) {
+                    countBuckets(hubs);
+                }
+                return hubs;
+            });
+            if (promoted != null && !promoted.isEmpty()) {
+                Set<UUID> updated = new HashSet<>(supernodes);
+                updated.addAll(promoted);
+                supernodes = Set.copyOf(updated);
+                log.info("Promoted {} supernodes with {}+ edges", promoted.size(), threshold);
+            }
+        }
+        watermark = newEdges.getNewest();
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            supernodes = Set.copyOf(jdbcTemplate.queryForList("SELECT node_id FROM kg.supernodes", UUID.class));
+            Timestamp lastCount = jdbcTemplate.queryForObject(
+                "SELECT MAX(updated_at) FROM kg.supernode_edge_counts", Timestamp.class);
+            if (lastCount == null) {
+                recount();
+            } else {
+                watermark = lastCount.toLocalDateTime();
+            }
+        } catch (Exception e) {
+            log.error("Failed to initialize supernodes: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${graph.supernodes.incremental-interval-ms:10000}",
+               fixedDelayString = "${graph.supernodes.incremental-interval-ms:10000}")
+    public void scheduledPromotion() {
+        if (watermark == null) {
+            return;
+        }
+        try {
+            promoteNewHubs();
+        } catch (Exception e) {
+            log.error("Failed to promote supernodes: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${graph.supernodes.recount-cron:0 15 3 * * *}")
+    public void scheduledRecount() {
+        try {
+            recount();
+        } catch (Exception e) {
+            log.error("Failed to recount supernodes: {}", e.getMessage(), e);
+        }
+    }
+
+    private void countBuckets(List<UUID> hubs) {
+        jdbcTemplate.update(COUNT_BUCKETS_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", hubs.toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", hubs.toArray()));
+        });
+    }
+
+    private Map<String, Object> parseProperties(String json) {
+        if (json == null || json.isEmpty()) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (JsonProcessingException e) {
+            log.warn("Could not parse edge properties: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+}
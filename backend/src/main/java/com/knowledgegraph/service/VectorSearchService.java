@@ -1,7 +1,9 @@
 package com.knowledgegraph.service;
 
+import com.knowledgegraph.config.GraphConfig;
 import com.knowledgegraph.dto.SearchResponseDTO;
 import com.knowledgegraph.dto.SearchResultDTO;
+import com.knowledgegraph.dto.SimilarityMode;
 import com.knowledgegraph.model.Embedding;
 import com.knowledgegraph.model.Node;
 import com.knowledgegraph.repository.EmbeddingRepository;
@@ -26,6 +28,8 @@ public class VectorSearchService {
     private final NodeRepository nodeRepository;
     private final EmbeddingService embeddingService;
     private final JdbcTemplate jdbcTemplate;
+    private final StructuralEmbeddingService structuralEmbeddingService;
+    private final GraphConfig graphConfig;
     
     @Value("${search.vector.threshold:0.7}")
     private double defaultThreshold;
@@ -78,7 +82,7 @@ public class VectorSearchService {
         int searchLimit = limit != null ? limit : defaultK;
         
         // Get embeddings for the source node
-        List<Embedding> nodeEmbeddings = embeddingRepository.findByNode_Id(nodeId);
+        List<Embedding> nodeEmbeddings = embeddingRepository.findByNode_IdAndModelVersionNot(nodeId, Embedding.STRUCTURAL_MODEL_VERSION);
         
         if (nodeEmbeddings.isEmpty()) {
             log.warn("No embeddings found for node: {}", nodeId);
@@ -127,6 +131,54 @@ public class VectorSearchService {
             .build();
     }
     
+    /**
+     * Find nodes similar to a given node by text, graph structure or a blend of both.
+     * The structural weight defaults to graph.embeddings.structural-weight for HYBRID.
+     */
+    public SearchResponseDTO findSimilarNodes(UUID nodeId, Integer limit, SimilarityMode mode, Double structuralWeight) {
+        if (mode == SimilarityMode.SEMANTIC) {
+            return findSimilarNodes(nodeId, limit);
+        }
+        long startTime = System.currentTimeMillis();
+        int searchLimit = limit != null ? limit : defaultK;
+        double weight = mode == SimilarityMode.STRUCTURAL ? 1.0
+            : Optional.ofNullable(structuralWeight).orElse(graphConfig.getEmbeddings().getStructuralWeight());
+        
+        Map<UUID, Double> scores = structuralEmbeddingService.findSimilarNodes(nodeId, weight, searchLimit);
+        Map<UUID, Node> nodes = nodeRepository.findAllById(scores.keySet()).stream()
+            .collect(Collectors.toMap(Node::getId, node -> node));
+        
+        List<SearchResultDTO> searchResults = scores.entrySet().stream()
+            .filter(entry -> nodes.containsKey(entry.getKey()))
+            .map(entry -> {
+                Node node = nodes.get(entry.getKey());
+                return SearchResultDTO.builder()
+                    .id(node.getId())
+                    .type(node.getType())
+                    .title(node.getName())
+                    .score(entry.getValue())
+                    .sourceUri(node.getSourceUri())
+                    .metadata(node.getProperties())
+                    .createdAt(node.getCreatedAt())
+                    .updatedAt(node.getUpdatedAt())
+                    .build();
+            })
+            .collect(Collectors.toList());
+        
+        String sourceName = nodeRepository.findById(nodeId).map(Node::getName).orElse(nodeId.toString());
+        
+        return SearchResponseDTO.builder()
+            .results(searchResults)
+            .totalElements(searchResults.size())
+            .totalPages(1)
+            .currentPage(0)
+            .pageSize(searchLimit)
+            .query("Similar (" + mode + ") to: " + sourceName)
+            .searchType(mode == SimilarityMode.HYBRID ? SearchResponseDTO.SearchType.HYBRID : SearchResponseDTO.SearchType.GRAPH)
+            .searchTimeMs(System.currentTimeMillis() - startTime)
+            .build();
+    }
+    
     /**
      * Perform k-NN search with configurable parameters
      */
@@ -163,7 +215,7 @@ public class VectorSearchService {
      * Get vector for a specific node
      */
     public float[] getNodeVector(UUID nodeId) {
-        List<Embedding> embeddings = embeddingRepository.findByNode_Id(nodeId);
+        List<Embedding> embeddings = embeddingRepository.findByNode_IdAndModelVersionNot(nodeId, Embedding.STRUCTURAL_MODEL_VERSION);
         
         if (embeddings.isEmpty()) {
             // Generate embedding if not exists
@@ -0,0 +1,87 @@
+package com.knowledgegraph;
+
+import com.knowledgegraph.model.Edge;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.Node;
+import com.knowledgegraph.model.NodeType;
+import com.knowledgegraph.repository.EdgeRepository;
+import com.knowledgegraph.repository.NodeRepository;
+import com.knowledgegraph.service.GraphStatisticsService;
+import com.knowledgegraph.service.PostgresServiceTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the whole application against the migrated schema, so a bean cycle or a broken
+ * entity listener fails here rather than at deployment. Skipped where Docker is not available.
+ */
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=none",
+    "graph.snapshot.file=",
+    "openai.api.key=test"
+})
+class KnowledgeGraphApplicationTest extends PostgresServiceTest {
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private EdgeRepository edgeRepository;
+
+    @Autowired
+    private GraphStatisticsService graphStatisticsService;
+
+    @Autowired
+    private TransactionTemplate applicationTransactions;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Test
+    void entityWritesReachTheStatisticsCounters() {
+        graphStatisticsService.reconcile();
+
+        Edge edge = applicationTransactions.execute(status -> {
+            Node person = nodeRepository.save(node(NodeType.PERSON, "person"));
+            Node place = nodeRepository.save(node(NodeType.LOCATION, "place"));
+            Edge created = new Edge();
+            created.setSource(person);
+            created.setTarget(place);
+            created.setType(EdgeType.LOCATED_IN);
+            return edgeRepository.save(created);
+        });
+
+        Map<String, Object> stats = graphStatisticsService.getStatistics();
+        assertEquals(2L, stats.get("totalNodes"));
+        assertEquals(1L, stats.get("totalEdges"));
+        assertEquals(Map.of("PERSON", 1L, "LOCATION", 1L), stats.get("nodeTypes"));
+        assertEquals(Map.of("LOCATED_IN", 1L), stats.get("edgeTypes"));
+        assertEquals(Map.of("PERSON", Map.of("out", 1L, "in", 0L), "LOCATION", Map.of("out", 0L, "in", 1L)),
+            stats.get("degreeSums"));
+
+        applicationTransactions.executeWithoutResult(status -> edgeRepository.deleteById(edge.getId()));
+
+        stats = graphStatisticsService.getStatistics();
+        assertEquals(0L, stats.get("totalEdges"));
+        assertEquals(2L, stats.get("totalNodes"));
+    }
+
+    private static Node node(NodeType type, String name) {
+        Node node = new Node();
+        node.setType(type);
+        node.setName(name);
+        return node;
+    }
+}
@@ -0,0 +1,308 @@
+package com.knowledgegraph.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedGraphTest {
+
+    private static final LocalDateTime BUILT_AT = LocalDateTime.of(2026, 1, 2, 3, 4, 5);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void randomGraphsRoundTrip() throws IOException {
+        Random random = new Random(31);
+        // Node counts around the record sample size, where lookups skip the most records
+        for (int nodes : new int[] {1, 15, 16, 17, 33, 250}) {
+            for (int round = 0; round < 5; round++) {
+                int[][] edges = randomEdges(random, nodes, random.nextInt(nodes * 4 + 1));
+                Path file = directory.resolve("graph-" + nodes + "-" + round + ".bin");
+                write(file, ids(nodes), edges, random);
+
+                assertMatches(CompressedGraph.open(file, true, 0, 1), ids(nodes), edges);
+            }
+        }
+    }
+
+    @Test
+    void emptyGraphAndEmptyListsRoundTrip() throws IOException {
+        Path empty = directory.resolve("empty.bin");
+        write(empty, List.of(), new int[0][], new Random(1));
+        CompressedGraph graph = CompressedGraph.open(empty, true, 0, 1);
+        assertEquals(0, graph.nodeCount());
+        assertEquals(0, graph.getEntryCount());
+        assertEquals(-1, graph.indexOf(UUID.randomUUID()));
+
+        // Only node 20 has neighbors; every other record, before and after it, is empty
+        Path sparse = directory.resolve("sparse.bin");
+        int[][] edges = {{20, 40}};
+        write(sparse, ids(50), edges, new Random(1));
+        assertMatches(CompressedGraph.open(sparse, true, 0, 1), ids(50), edges);
+    }
+
+    @Test
+    void selfLoopsAndParallelEdgesRoundTrip() throws IOException {
+        int[][] edges = {{0, 0}, {0, 0}, {3, 3}, {3, 1}, {1, 3}, {1, 3}, {17, 17}, {17, 0}};
+        Path file = directory.resolve("loops.bin");
+        write(file, ids(18), edges, new Random(2));
+        CompressedGraph graph = CompressedGraph.open(file, true, 0, 1);
+
+        assertMatches(graph, ids(18), edges);
+        assertArrayEquals(new int[] {0}, graph.neighbors(0, CompressedGraph.OUT));
+        assertArrayEquals(new int[] {0, 17}, graph.neighbors(0, CompressedGraph.IN));
+        assertEquals(List.of(0, 0, 17), cursorList(graph.cursor(), 0));
+        assertEquals(6, graph.getEntryCount());
+    }
+
+    @Test
+    void largestGapsRoundTrip() throws IOException {
+        // First neighbors at both ends of the id range from both ends, and one gap spanning it
+        int nodes = 1 << 21;
+        int last = nodes - 1;
+        int[][] edges = {{0, last}, {last, 0}, {0, 1}, {last, last - 1}, {1, last}, {1, 2}};
+        Path file = directory.resolve("gaps.bin");
+        write(file, ids(nodes), edges, new Random(3));
+        CompressedGraph graph = CompressedGraph.open(file, true, 0, 1);
+
+        assertArrayEquals(new int[] {1, last}, graph.neighbors(0, CompressedGraph.OUT));
+        assertArrayEquals(new int[] {0, last - 1}, graph.neighbors(last, CompressedGraph.OUT));
+        assertArrayEquals(new int[] {2, last}, graph.neighbors(1, CompressedGraph.OUT));
+        assertArrayEquals(new int[] {0, 1}, graph.neighbors(last, CompressedGraph.IN));
+        assertArrayEquals(new int[] {last}, graph.neighbors(0, CompressedGraph.IN));
+        assertEquals(List.of(1, last, last), cursorList(graph.cursor(), 0));
+        assertEquals(List.of(0, last - 1, 0, 1), cursorList(graph.cursor(), last));
+        assertEquals(0, graph.outDegree(nodes / 2));
+    }
+
+    @Test
+    void hubListsServedFromTheCacheMatchTheRecords() throws IOException {
+        // Node 5 is a hub in both directions; others stay below the cache threshold
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i != 5) {
+                edges.add(new int[] {5, i});
+                if (i % 3 == 0) {
+                    edges.add(new int[] {i, 5});
+                }
+            }
+        }
+        edges.add(new int[] {7, 8});
+        int[][] edgeArray = edges.toArray(new int[0][]);
+        Path file = directory.resolve("hubs.bin");
+        write(file, ids(100), edgeArray, new Random(4));
+
+        CompressedGraph uncached = CompressedGraph.open(file, true, 0, 8);
+        // A cache too small for the hub's lists still has to give the same answers
+        for (long cacheEntries : new long[] {1_000, 10}) {
+            CompressedGraph cached = CompressedGraph.open(file, true, cacheEntries, 8);
+            assertMatches(cached, ids(100), edgeArray);
+            NeighborCursor cursor = cached.cursor();
+            for (int pass = 0; pass < 3; pass++) {
+                for (int node = 0; node < 100; node++) {
+                    assertEquals(cursorList(uncached.cursor(), node), cursorList(cursor, node), "node " + node);
+                }
+            }
+        }
+    }
+
+    @Test
+    void reorderingKeepsTheGraphAndShrinksAScrambledOne() throws IOException {
+        // A long path whose nodes are numbered at random: every gap is large until reordered
+        int nodes = 5000;
+        Random random = new Random(5);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i + 1 < nodes; i++) {
+            edges.add(new int[] {order.get(i), order.get(i + 1)});
+        }
+        edges.addAll(Arrays.asList(randomEdges(random, nodes, 200)));
+        int[][] edgeArray = edges.toArray(new int[0][]);
+        Path file = directory.resolve("scrambled.bin");
+        write(file, ids(nodes), edgeArray, random);
+        CompressedGraph scrambled = CompressedGraph.open(file, true, 0, 1);
+
+        Path reorderedFile = directory.resolve("reordered.bin");
+        scrambled.writeReordered(reorderedFile);
+        CompressedGraph reordered = CompressedGraph.open(reorderedFile, true, 0, 1);
+
+        assertEquals(nodes, reordered.nodeCount());
+        assertEquals(scrambled.getEntryCount(), reordered.getEntryCount());
+        assertEquals(BUILT_AT, reordered.getBuiltAt());
+        assertEquals(uuidAdjacency(scrambled), uuidAdjacency(reordered));
+        assertTrue(reordered.getDataBytes() < scrambled.getDataBytes(),
+            reordered.getDataBytes() + " >= " + scrambled.getDataBytes());
+    }
+
+    @Test
+    void checksumsCatchCorruption() throws IOException {
+        int[][] edges = randomEdges(new Random(6), 40, 120);
+        Path file = directory.resolve("checked.bin");
+        write(file, ids(40), edges, new Random(6));
+        long size = Files.size(file);
+
+        // Neighbor data: only a verifying open reads it
+        Path data = copyFlipping(file, "data.bin", size - 1);
+        assertDoesNotThrow(() -> CompressedGraph.open(data, false, 0, 1));
+        assertThrows(IOException.class, () -> CompressedGraph.open(data, true, 0, 1));
+
+        // Node ids, the first fixed section
+        Path fixed = copyFlipping(file, "fixed.bin", GraphSnapshotFile.HEADER_BYTES);
+        assertThrows(IOException.class, () -> CompressedGraph.open(fixed, true, 0, 1));
+
+        // Header fields are checked on every open
+        Path header = copyFlipping(file, "header.bin", 16);
+        assertThrows(IOException.class, () -> CompressedGraph.open(header, false, 0, 1));
+
+        Path truncated = directory.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(Files.readAllBytes(file), (int) size - 1));
+        assertThrows(IOException.class, () -> CompressedGraph.open(truncated, false, 0, 1));
+    }
+
+    // ---- Helpers ----
+
+    private static List<UUID> ids(int nodes) {
+        List<UUID> ids = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            ids.add(new UUID(7, i));
+        }
+        return ids;
+    }
+
+    private static int[][] randomEdges(Random random, int nodes, int count) {
+        int[][] edges = new int[count][];
+        for (int i = 0; i < count; i++) {
+            edges[i] = new int[] {random.nextInt(nodes), random.nextInt(nodes)};
+        }
+        return edges;
+    }
+
+    /**
+     * Build a file from directed edges, feeding each list in random order with its repeats
+     */
+    private void write(Path file, List<UUID> ids, int[][] edges, Random random) throws IOException {
+        List<List<Integer>> out = lists(ids.size(), edges, 0);
+        List<List<Integer>> in = lists(ids.size(), edges, 1);
+        try (CompressedGraph.Builder builder = new CompressedGraph.Builder(directory, ids.size())) {
+            ids.forEach(builder::addNode);
+            for (int direction = CompressedGraph.OUT; direction <= CompressedGraph.IN; direction++) {
+                List<List<Integer>> lists = direction == CompressedGraph.OUT ? out : in;
+                for (int node = 0; node < ids.size(); node++) {
+                    List<Integer> list = lists.get(node);
+                    Collections.shuffle(list, random);
+                    for (int neighbor : list) {
+                        builder.addNeighbor(direction, node, neighbor);
+                    }
+                }
+            }
+            builder.write(file, BUILT_AT);
+        }
+    }
+
+    private static List<List<Integer>> lists(int nodes, int[][] edges, int from) {
+        List<List<Integer>> lists = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            lists.add(new ArrayList<>());
+        }
+        for (int[] edge : edges) {
+            lists.get(edge[from]).add(edge[1 - from]);
+        }
+        return lists;
+    }
+
+    private static void assertMatches(CompressedGraph graph, List<UUID> ids, int[][] edges) {
+        int nodes = ids.size();
+        List<TreeSet<Integer>> out = new ArrayList<>();
+        List<TreeSet<Integer>> in = new ArrayList<>();
+        long entries = 0;
+        for (int i = 0; i < nodes; i++) {
+            out.add(new TreeSet<>());
+            in.add(new TreeSet<>());
+        }
+        for (int[] edge : edges) {
+            if (out.get(edge[0]).add(edge[1])) {
+                entries++;
+            }
+            in.get(edge[1]).add(edge[0]);
+        }
+
+        assertEquals(nodes, graph.nodeCount());
+        assertEquals(entries, graph.getEntryCount());
+        assertEquals(BUILT_AT, graph.getBuiltAt());
+        NeighborCursor cursor = graph.cursor();
+        for (int node = 0; node < nodes; node++) {
+            assertEquals(node, graph.indexOf(ids.get(node)));
+            assertEquals(ids.get(node), graph.nodeId(node));
+            assertArrayEquals(toArray(out.get(node)), graph.neighbors(node, CompressedGraph.OUT), "out of " + node);
+            assertArrayEquals(toArray(in.get(node)), graph.neighbors(node, CompressedGraph.IN), "in of " + node);
+            assertEquals(out.get(node).size(), graph.outDegree(node));
+            assertEquals(in.get(node).size(), graph.inDegree(node));
+
+            List<Integer> expected = new ArrayList<>(out.get(node));
+            expected.addAll(in.get(node));
+            assertEquals(expected, cursorList(cursor, node), "cursor of " + node);
+        }
+    }
+
+    private static int[] toArray(Collection<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static List<Integer> cursorList(NeighborCursor cursor, int node) {
+        List<Integer> neighbors = new ArrayList<>();
+        cursor.of(node);
+        for (int neighbor = cursor.next(); neighbor >= 0; neighbor = cursor.next()) {
+            neighbors.add(neighbor);
+        }
+        return neighbors;
+    }
+
+    /**
+     * Directed adjacency by node UUID, independent of the numbering
+     */
+    private static Map<UUID, Set<UUID>> uuidAdjacency(CompressedGraph graph) {
+        Map<UUID, Set<UUID>> adjacency = new HashMap<>();
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            Set<UUID> targets = new HashSet<>();
+            for (int neighbor : graph.neighbors(node, CompressedGraph.OUT)) {
+                targets.add(graph.nodeId(neighbor));
+            }
+            for (int neighbor : graph.neighbors(node, CompressedGraph.IN)) {
+                assertTrue(contains(graph.neighbors(neighbor, CompressedGraph.OUT), node));
+            }
+            adjacency.put(graph.nodeId(node), targets);
+        }
+        return adjacency;
+    }
+
+    private static boolean contains(int[] sorted, int value) {
+        return Arrays.binarySearch(sorted, value) >= 0;
+    }
+
+    private Path copyFlipping(Path file, String name, long position) throws IOException {
+        Path copy = Files.copy(file, directory.resolve(name));
+        try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ 0x01));
+            b.rewind();
+            channel.write(b, position);
+        }
+        return copy;
+    }
+}
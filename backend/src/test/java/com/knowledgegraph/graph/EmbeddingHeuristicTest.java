@@ -0,0 +1,117 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingHeuristicTest {
+
+    private static final int DIMENSIONS = 8;
+
+    @Test
+    void aStarFindsTheDijkstraCostUnderUnitAndTypeCosts() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            GraphSnapshot graph = randomGraph(random, 150, 450);
+            Map<UUID, float[]> vectors = randomVectors(random, graph);
+            EdgeCost typeCost = EdgeCost.byType(Map.of(EdgeType.RELATED_TO, 1.5, EdgeType.PART_OF, 3.0), 1.0);
+
+            for (EdgeCost cost : List.of(EdgeCost.unit(), typeCost)) {
+                for (int query = 0; query < 10; query++) {
+                    int source = random.nextInt(graph.nodeCount());
+                    int target = random.nextInt(graph.nodeCount());
+                    // A large weight would overestimate without the cap at the cheapest edge cost
+                    EmbeddingHeuristic heuristic = new EmbeddingHeuristic(
+                        ids -> load(vectors, ids), vectors.getOrDefault(graph.nodeId(target), new float[DIMENSIONS]), 50.0, 1.0, 100);
+
+                    WeightedShortestPath.Result exact = WeightedShortestPath.search(
+                        graph, source, target, cost, WeightedShortestPath.Heuristic.NONE, Integer.MAX_VALUE);
+                    WeightedShortestPath.Result guided = WeightedShortestPath.search(
+                        graph, source, target, cost, heuristic, Integer.MAX_VALUE);
+
+                    assertEquals(exact.isFound(), guided.isFound());
+                    if (exact.isFound()) {
+                        assertEquals(exact.getCost(), guided.getCost(), 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void estimateStaysWithinTheCheapestEdgeCost() {
+        Random random = new Random(11);
+        GraphSnapshot graph = randomGraph(random, 50, 150);
+        Map<UUID, float[]> vectors = randomVectors(random, graph);
+        float[] target = vectors.values().iterator().next();
+        EmbeddingHeuristic heuristic = new EmbeddingHeuristic(ids -> load(vectors, ids), target, 10.0, 0.25, 1000);
+
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            heuristic.beforeExpand(graph, node);
+        }
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            double estimate = heuristic.estimate(node);
+            assertTrue(estimate >= 0.0 && estimate <= 0.25, "estimate " + estimate);
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> new EmbeddingHeuristic(ids -> Map.of(), target, 0.5, 0.0, 100));
+    }
+
+    @Test
+    void vectorsAreLoadedInBatchesRatherThanPerExpansion() {
+        Random random = new Random(5);
+        GraphSnapshot graph = randomGraph(random, 2000, 6000);
+        Map<UUID, float[]> vectors = randomVectors(random, graph);
+        int[] loads = {0};
+        EmbeddingHeuristic heuristic = new EmbeddingHeuristic(ids -> {
+            loads[0]++;
+            return load(vectors, ids);
+        }, new float[DIMENSIONS], 0.5, 1.0, 2000);
+
+        // A zero target vector gives no guidance, so the search expands the whole component
+        WeightedShortestPath.Result result = WeightedShortestPath.search(
+            graph, 0, -1, EdgeCost.unit(), heuristic, Integer.MAX_VALUE);
+
+        assertTrue(result.getExpandedNodes() > 1000);
+        assertTrue(loads[0] * 10 < result.getExpandedNodes(),
+            loads[0] + " loads for " + result.getExpandedNodes() + " expansions");
+    }
+
+    private static GraphSnapshot randomGraph(Random random, int nodes, int edges) {
+        EdgeType[] types = {EdgeType.RELATED_TO, EdgeType.PART_OF, EdgeType.LOCATED_IN};
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(nodes, edges);
+        for (int i = 0; i < nodes; i++) {
+            builder.addNode(new UUID(0, i), NodeType.CONCEPT);
+        }
+        for (int e = 0; e < edges; e++) {
+            builder.addEdge(new UUID(1, e), new UUID(0, random.nextInt(nodes)), new UUID(0, random.nextInt(nodes)),
+                types[random.nextInt(types.length)], 1.0f);
+        }
+        return builder.build();
+    }
+
+    private static Map<UUID, float[]> randomVectors(Random random, GraphSnapshot graph) {
+        Map<UUID, float[]> vectors = new HashMap<>();
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            if (random.nextInt(10) == 0) {
+                continue;  // some nodes have no embedding
+            }
+            float[] vector = new float[DIMENSIONS];
+            for (int k = 0; k < DIMENSIONS; k++) {
+                vector[k] = (float) random.nextGaussian();
+            }
+            vectors.put(graph.nodeId(node), vector);
+        }
+        return vectors;
+    }
+
+    private static Map<UUID, float[]> load(Map<UUID, float[]> vectors, Collection<UUID> ids) {
+        Map<UUID, float[]> loaded = new HashMap<>();
+        ids.forEach(id -> Optional.ofNullable(vectors.get(id)).ifPresent(vector -> loaded.put(id, vector)));
+        return loaded;
+    }
+}
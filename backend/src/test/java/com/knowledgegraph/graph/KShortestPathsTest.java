@@ -0,0 +1,142 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KShortestPathsTest {
+
+    private static final EdgeType[] TYPES = {EdgeType.RELATED_TO, EdgeType.PART_OF, EdgeType.LOCATED_IN};
+    private static final EdgeCost COST = EdgeCost.byType(
+        Map.of(EdgeType.RELATED_TO, 1.0, EdgeType.PART_OF, 0.25, EdgeType.LOCATED_IN, 3.0), 1.0);
+
+    @Test
+    void matchesBruteForceEnumerationWithinTheLengthLimit() {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            GraphSnapshot graph = randomGraph(random, 8, 14);
+            int source = random.nextInt(8);
+            int target = random.nextInt(8);
+            if (source == target) {
+                continue;
+            }
+            int maxLength = 1 + random.nextInt(4);
+            int k = 1 + random.nextInt(6);
+
+            List<Double> expected = allPathCosts(graph, source, target, maxLength);
+            List<WeightedShortestPath.Result> found = new ArrayList<>();
+            KShortestPaths.Outcome outcome = new KShortestPaths(graph, COST)
+                .maxLength(maxLength)
+                .find(source, target, k, found::add);
+
+            assertEquals(Math.min(k, expected.size()), found.size(), "round " + round);
+            assertEquals(found.size() == k ? KShortestPaths.Outcome.COMPLETE : KShortestPaths.Outcome.EXHAUSTED, outcome);
+            for (int i = 0; i < found.size(); i++) {
+                WeightedShortestPath.Result path = found.get(i);
+                assertEquals(expected.get(i), path.getCost(), 1e-9, "round " + round + " rank " + i);
+                assertTrue(path.getEdges().length <= maxLength);
+                assertEquals(path.getNodes().length, Arrays.stream(path.getNodes()).distinct().count());
+            }
+        }
+    }
+
+    @Test
+    void findsLongerCheaperPathsBeyondTheCheapestWhenItIsTooLong() {
+        // 0 - 1 - 2 - 3 - 4 over cheap edges, and one expensive direct edge 0 - 4
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(5, 5);
+        for (int i = 0; i < 5; i++) {
+            builder.addNode(new UUID(0, i), NodeType.CONCEPT);
+        }
+        for (int i = 0; i < 4; i++) {
+            builder.addEdge(new UUID(1, i), new UUID(0, i), new UUID(0, i + 1), EdgeType.PART_OF, 1.0f);
+        }
+        builder.addEdge(new UUID(1, 4), new UUID(0, 0), new UUID(0, 4), EdgeType.LOCATED_IN, 1.0f);
+        GraphSnapshot graph = builder.build();
+
+        List<WeightedShortestPath.Result> found = new ArrayList<>();
+        KShortestPaths.Outcome outcome = new KShortestPaths(graph, COST).maxLength(2).find(0, 4, 1, found::add);
+
+        assertEquals(KShortestPaths.Outcome.COMPLETE, outcome);
+        assertEquals(1, found.get(0).getEdges().length);
+        assertEquals(3.0, found.get(0).getCost(), 1e-9);
+    }
+
+    @Test
+    void hopBoundedSearchReturnsTheCheapestPathWithinTheBound() {
+        Random random = new Random(23);
+        for (int round = 0; round < 300; round++) {
+            GraphSnapshot graph = randomGraph(random, 9, 16);
+            int source = random.nextInt(9);
+            int target = random.nextInt(9);
+            int maxHops = random.nextInt(5);
+
+            List<Double> expected = allPathCosts(graph, source, target, maxHops);
+            WeightedShortestPath.Result result = WeightedShortestPath.searchWithinHops(
+                graph, source, target, COST, maxHops, Integer.MAX_VALUE);
+
+            assertEquals(!expected.isEmpty(), result.isFound(), "round " + round);
+            if (result.isFound()) {
+                assertEquals(expected.get(0), result.getCost(), 1e-9);
+                assertTrue(result.getEdges().length <= maxHops);
+            }
+        }
+    }
+
+    private static GraphSnapshot randomGraph(Random random, int nodes, int edges) {
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(nodes, edges);
+        for (int i = 0; i < nodes; i++) {
+            builder.addNode(new UUID(0, i), NodeType.CONCEPT);
+        }
+        for (int e = 0; e < edges; e++) {
+            int from = random.nextInt(nodes);
+            int to = random.nextInt(nodes);
+            if (from != to) {
+                builder.addEdge(new UUID(1, e), new UUID(0, from), new UUID(0, to), TYPES[random.nextInt(TYPES.length)], 1.0f);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Costs of every loopless path (edges taken either way) with at most maxLength edges, ascending
+     */
+    private static List<Double> allPathCosts(GraphSnapshot graph, int source, int target, int maxLength) {
+        List<Double> costs = new ArrayList<>();
+        boolean[] onPath = new boolean[graph.nodeCount()];
+        onPath[source] = true;
+        enumerate(graph, source, target, maxLength, 0.0, onPath, costs);
+        Collections.sort(costs);
+        return costs;
+    }
+
+    private static void enumerate(GraphSnapshot graph, int node, int target, int hopsLeft, double cost,
+                                  boolean[] onPath, List<Double> costs) {
+        if (node == target) {
+            costs.add(cost);
+            return;
+        }
+        if (hopsLeft == 0) {
+            return;
+        }
+        for (int j = graph.outStart(node); j < graph.outEnd(node); j++) {
+            step(graph, graph.outNeighbor(j), graph.outEdge(j), target, hopsLeft, cost, onPath, costs);
+        }
+        for (int j = graph.inStart(node); j < graph.inEnd(node); j++) {
+            step(graph, graph.inNeighbor(j), graph.inEdge(j), target, hopsLeft, cost, onPath, costs);
+        }
+    }
+
+    private static void step(GraphSnapshot graph, int next, int edge, int target, int hopsLeft, double cost,
+                             boolean[] onPath, List<Double> costs) {
+        if (onPath[next]) {
+            return;
+        }
+        onPath[next] = true;
+        enumerate(graph, next, target, hopsLeft - 1, cost + COST.cost(graph, edge), onPath, costs);
+        onPath[next] = false;
+    }
+}
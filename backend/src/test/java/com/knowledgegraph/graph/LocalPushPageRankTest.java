@@ -0,0 +1,130 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalPushPageRankTest {
+
+    private static final double ALPHA = 0.15;
+
+    @Test
+    void estimatesStayWithinEpsilonTimesDegreeBelowTheExactScores() {
+        Random random = new Random(89);
+        for (int round = 0; round < 200; round++) {
+            int nodes = 1 + random.nextInt(20);
+            GraphSnapshot graph = snapshot(nodes, randomEdges(random, nodes, random.nextInt(3 * nodes + 1)));
+            int source = random.nextInt(nodes);
+            double epsilon = random.nextBoolean() ? 1e-3 : 1e-5;
+
+            LocalPushPageRank.Result result = new LocalPushPageRank(graph).alpha(ALPHA).epsilon(epsilon).run(source);
+
+            assertTrue(result.isConverged());
+            double[] expected = exact(graph, source);
+            double total = 0.0;
+            for (int v = 0; v < nodes; v++) {
+                double estimate = result.getScores().get(v);
+                String message = "round " + round + ", node " + v;
+                assertTrue(estimate <= expected[v] + 1e-9, message);
+                assertTrue(expected[v] - estimate <= epsilon * Math.max(1, graph.degree(v)) + 1e-9, message);
+                total += estimate;
+            }
+            assertTrue(total <= 1.0 + 1e-9);
+        }
+    }
+
+    @Test
+    void onlyTheRegionAroundTheSourceIsTouched() {
+        // A long path: with a coarse epsilon the push dies out long before the far end
+        int nodes = 10_000;
+        List<int[]> edges = new ArrayList<>();
+        for (int v = 1; v < nodes; v++) {
+            edges.add(new int[] {v - 1, v});
+        }
+        LocalPushPageRank.Result result = new LocalPushPageRank(snapshot(nodes, edges)).alpha(ALPHA).epsilon(1e-3).run(0);
+
+        assertTrue(result.isConverged());
+        assertTrue(result.getTouched() < 100, String.valueOf(result.getTouched()));
+        assertFalse(result.getScores().containsKey(nodes - 1));
+    }
+
+    @Test
+    void thePushCapStopsEarlyWithAValidPartialEstimate() {
+        Random random = new Random(97);
+        GraphSnapshot graph = snapshot(50, randomEdges(random, 50, 200));
+        double[] expected = exact(graph, 0);
+
+        LocalPushPageRank.Result result = new LocalPushPageRank(graph).alpha(ALPHA).epsilon(1e-6).maxPushes(5).run(0);
+
+        assertEquals(5, result.getPushes());
+        assertFalse(result.isConverged());
+        result.getScores().forEach((node, score) -> assertTrue(score <= expected[node] + 1e-9));
+    }
+
+    @Test
+    void anIsolatedSourceKeepsAllTheMass() {
+        GraphSnapshot graph = snapshot(3, List.of(new int[] {1, 2}));
+
+        LocalPushPageRank.Result result = new LocalPushPageRank(graph).run(0);
+
+        assertEquals(1.0, result.getScores().get(0), 1e-12);
+        assertEquals(1, result.getTouched());
+    }
+
+    /**
+     * Personalized PageRank by power iteration over the undirected multigraph, a self-loop
+     * counting once in each direction as in the snapshot's degree
+     */
+    private static double[] exact(GraphSnapshot graph, int source) {
+        int nodes = graph.nodeCount();
+        double[] scores = new double[nodes];
+        scores[source] = 1.0;
+        for (int iteration = 0; iteration < 1000; iteration++) {
+            double[] next = new double[nodes];
+            next[source] += ALPHA;
+            for (int u = 0; u < nodes; u++) {
+                double walk = (1.0 - ALPHA) * scores[u];
+                int degree = graph.degree(u);
+                if (degree == 0) {
+                    next[u] += walk;
+                    continue;
+                }
+                for (int j = graph.outStart(u); j < graph.outEnd(u); j++) {
+                    next[graph.outNeighbor(j)] += walk / degree;
+                }
+                for (int j = graph.inStart(u); j < graph.inEnd(u); j++) {
+                    next[graph.inNeighbor(j)] += walk / degree;
+                }
+            }
+            scores = next;
+        }
+        return scores;
+    }
+
+    private static List<int[]> randomEdges(Random random, int nodes, int count) {
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            edges.add(new int[] {random.nextInt(nodes), random.nextInt(nodes)});
+        }
+        return edges;
+    }
+
+    private static GraphSnapshot snapshot(int nodes, List<int[]> edges) {
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(nodes, edges.size());
+        for (int v = 0; v < nodes; v++) {
+            builder.addNode(new UUID(0, v), NodeType.CONCEPT);
+        }
+        for (int i = 0; i < edges.size(); i++) {
+            builder.addEdge(new UUID(1, i), new UUID(0, edges.get(i)[0]), new UUID(0, edges.get(i)[1]),
+                EdgeType.RELATED_TO, 1.0f);
+        }
+        return builder.build();
+    }
+}
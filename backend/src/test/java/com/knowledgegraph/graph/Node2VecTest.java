@@ -0,0 +1,128 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Node2VecTest {
+
+    private static final int CLIQUE = 8;
+
+    @Test
+    void nodesOfOneCommunityEndUpCloserThanNodesAcross() {
+        Node2Vec.Result result = new Node2Vec(twoCliques()).dimensions(16).walksPerNode(20).parallelism(1).seed(7).run();
+
+        double within = 0.0;
+        double across = 0.0;
+        int withinPairs = 0;
+        int acrossPairs = 0;
+        for (int u = 0; u < 2 * CLIQUE; u++) {
+            for (int v = u + 1; v < 2 * CLIQUE; v++) {
+                double similarity = cosine(result, u, v);
+                if (u / CLIQUE == v / CLIQUE) {
+                    within += similarity;
+                    withinPairs++;
+                } else {
+                    across += similarity;
+                    acrossPairs++;
+                }
+            }
+        }
+        within /= withinPairs;
+        across /= acrossPairs;
+        assertTrue(within > across + 0.2, "within " + within + ", across " + across);
+    }
+
+    @Test
+    void vectorsAreUnitLengthAndZeroWithoutNeighbors() {
+        // Node 2 only has a self-loop, node 3 no edges at all
+        GraphSnapshot graph = snapshot(4, List.of(new int[] {0, 1}, new int[] {2, 2}));
+
+        Node2Vec.Result result = new Node2Vec(graph).dimensions(8).walksPerNode(3).parallelism(2).run();
+
+        assertEquals(8, result.getDimensions());
+        assertEquals(4 * 8, result.getVectors().length);
+        assertEquals(1.0, norm(result, 0), 1e-5);
+        assertEquals(1.0, norm(result, 1), 1e-5);
+        assertEquals(0.0, norm(result, 2));
+        assertEquals(0.0, norm(result, 3));
+        assertEquals(2 * 3, result.getWalks());
+        assertTrue(result.isComplete());
+    }
+
+    @Test
+    void aSingleWorkerIsDeterministicForASeed() {
+        GraphSnapshot graph = twoCliques();
+
+        float[] first = new Node2Vec(graph).dimensions(8).returnParameter(0.5).inOutParameter(2.0)
+            .parallelism(1).seed(3).run().getVectors();
+        float[] second = new Node2Vec(graph).dimensions(8).returnParameter(0.5).inOutParameter(2.0)
+            .parallelism(1).seed(3).run().getVectors();
+
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void invalidParametersAreRejected() {
+        GraphSnapshot graph = twoCliques();
+
+        assertThrows(IllegalArgumentException.class, () -> new Node2Vec(graph).dimensions(0).run());
+        assertThrows(IllegalArgumentException.class, () -> new Node2Vec(graph).walkLength(1).run());
+        assertThrows(IllegalArgumentException.class, () -> new Node2Vec(graph).returnParameter(0.0).run());
+        assertThrows(IllegalArgumentException.class, () -> new Node2Vec(graph).inOutParameter(-1.0).run());
+    }
+
+    /**
+     * Two cliques of CLIQUE nodes joined by a single edge
+     */
+    private static GraphSnapshot twoCliques() {
+        List<int[]> edges = new ArrayList<>();
+        for (int clique = 0; clique < 2; clique++) {
+            for (int u = 0; u < CLIQUE; u++) {
+                for (int v = u + 1; v < CLIQUE; v++) {
+                    edges.add(new int[] {clique * CLIQUE + u, clique * CLIQUE + v});
+                }
+            }
+        }
+        edges.add(new int[] {0, CLIQUE});
+        return snapshot(2 * CLIQUE, edges);
+    }
+
+    private static double cosine(Node2Vec.Result result, int u, int v) {
+        float[] vectors = result.getVectors();
+        int dimensions = result.getDimensions();
+        double dot = 0.0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += vectors[u * dimensions + i] * vectors[v * dimensions + i];
+        }
+        return dot / (norm(result, u) * norm(result, v));
+    }
+
+    private static double norm(Node2Vec.Result result, int node) {
+        float[] vectors = result.getVectors();
+        int dimensions = result.getDimensions();
+        double sum = 0.0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += vectors[node * dimensions + i] * vectors[node * dimensions + i];
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static GraphSnapshot snapshot(int nodes, List<int[]> edges) {
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(nodes, edges.size());
+        for (int v = 0; v < nodes; v++) {
+            builder.addNode(new UUID(0, v), NodeType.CONCEPT);
+        }
+        for (int i = 0; i < edges.size(); i++) {
+            builder.addEdge(new UUID(1, i), new UUID(0, edges.get(i)[0]), new UUID(0, edges.get(i)[1]),
+                EdgeType.RELATED_TO, 1.0f);
+        }
+        return builder.build();
+    }
+}
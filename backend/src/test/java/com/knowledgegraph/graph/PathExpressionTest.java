@@ -0,0 +1,176 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathExpressionTest {
+
+    private static final int MAX_STATES = 256;
+
+    @Test
+    void sequenceBindsTighterThanAlternation() {
+        PathExpression expression = compile("RELATED_TO / PART_OF | LOCATED_IN");
+
+        assertTrue(matches(expression, "RELATED_TO", "PART_OF"));
+        assertTrue(matches(expression, "LOCATED_IN"));
+        assertFalse(matches(expression, "RELATED_TO", "LOCATED_IN"));
+        assertFalse(matches(expression, "RELATED_TO"));
+
+        expression = compile("RELATED_TO | PART_OF / LOCATED_IN");
+        assertTrue(matches(expression, "RELATED_TO"));
+        assertTrue(matches(expression, "PART_OF", "LOCATED_IN"));
+        assertFalse(matches(expression, "RELATED_TO", "LOCATED_IN"));
+    }
+
+    @Test
+    void postfixOperatorsBindTighterThanSequence() {
+        PathExpression star = compile("RELATED_TO / PART_OF*");
+        assertTrue(matches(star, "RELATED_TO"));
+        assertTrue(matches(star, "RELATED_TO", "PART_OF", "PART_OF"));
+        assertFalse(matches(star, "RELATED_TO", "PART_OF", "RELATED_TO", "PART_OF"));
+        assertFalse(matches(star));
+
+        PathExpression plus = compile("RELATED_TO+ / PART_OF");
+        assertTrue(matches(plus, "RELATED_TO", "RELATED_TO", "PART_OF"));
+        assertFalse(matches(plus, "PART_OF"));
+
+        PathExpression optional = compile("RELATED_TO? / PART_OF");
+        assertTrue(matches(optional, "PART_OF"));
+        assertTrue(matches(optional, "RELATED_TO", "PART_OF"));
+        assertFalse(matches(optional, "RELATED_TO", "RELATED_TO", "PART_OF"));
+
+        PathExpression either = compile("RELATED_TO | PART_OF*");
+        assertTrue(matches(either));
+        assertTrue(matches(either, "PART_OF", "PART_OF"));
+        assertFalse(matches(either, "RELATED_TO", "RELATED_TO"));
+    }
+
+    @Test
+    void groupsOverridePrecedence() {
+        PathExpression repeated = compile("(RELATED_TO / PART_OF)*");
+        assertTrue(matches(repeated));
+        assertTrue(matches(repeated, "RELATED_TO", "PART_OF", "RELATED_TO", "PART_OF"));
+        assertFalse(matches(repeated, "RELATED_TO", "PART_OF", "PART_OF"));
+
+        PathExpression alternative = compile("RELATED_TO / (PART_OF | LOCATED_IN)");
+        assertTrue(matches(alternative, "RELATED_TO", "LOCATED_IN"));
+        assertFalse(matches(alternative, "LOCATED_IN"));
+    }
+
+    @Test
+    void boundedRepetitions() {
+        PathExpression exact = compile("RELATED_TO{2}");
+        assertFalse(matches(exact, "RELATED_TO"));
+        assertTrue(matches(exact, "RELATED_TO", "RELATED_TO"));
+        assertFalse(matches(exact, "RELATED_TO", "RELATED_TO", "RELATED_TO"));
+
+        PathExpression range = compile("(RELATED_TO / PART_OF){0,2}");
+        assertTrue(matches(range));
+        assertTrue(matches(range, "RELATED_TO", "PART_OF", "RELATED_TO", "PART_OF"));
+        assertFalse(matches(range, "RELATED_TO", "PART_OF", "RELATED_TO", "PART_OF", "RELATED_TO", "PART_OF"));
+
+        PathExpression nested = compile("(RELATED_TO{2}){2}");
+        assertTrue(matches(nested, "RELATED_TO", "RELATED_TO", "RELATED_TO", "RELATED_TO"));
+        assertFalse(matches(nested, "RELATED_TO", "RELATED_TO", "RELATED_TO"));
+    }
+
+    @Test
+    void inverseAndUndirectedSteps() {
+        PathExpression inverse = compile("WORKS_AT / ^WORKS_AT");
+        assertTrue(inverse.followsOut(inverse.start()));
+        assertFalse(inverse.followsIn(inverse.start()));
+        int middle = inverse.next(inverse.start(), EdgeType.WORKS_AT.ordinal(), false);
+        assertTrue(middle >= 0);
+        assertEquals(-1, inverse.next(inverse.start(), EdgeType.WORKS_AT.ordinal(), true));
+        assertFalse(inverse.followsOut(middle));
+        assertTrue(inverse.followsIn(middle));
+        assertEquals(-1, inverse.next(middle, EdgeType.WORKS_AT.ordinal(), false));
+        assertTrue(inverse.isAccepting(inverse.next(middle, EdgeType.WORKS_AT.ordinal(), true)));
+
+        PathExpression either = compile("~COLLABORATES_WITH");
+        assertTrue(isAccepting(either, step(either.start(), EdgeType.COLLABORATES_WITH, false, either)));
+        assertTrue(isAccepting(either, step(either.start(), EdgeType.COLLABORATES_WITH, true, either)));
+        assertEquals(-1, either.next(either.start(), EdgeType.RELATED_TO.ordinal(), false));
+
+        PathExpression anyBackward = compile("^_");
+        for (EdgeType type : EdgeType.values()) {
+            assertTrue(isAccepting(anyBackward, step(anyBackward.start(), type, true, anyBackward)));
+            assertEquals(-1, anyBackward.next(anyBackward.start(), type.ordinal(), false));
+        }
+
+        // Edges whose type is not in the enum never match, even a wildcard
+        assertEquals(-1, compile("~_").next(0, -1, false));
+    }
+
+    @Test
+    void typeNamesAreCaseInsensitiveAndSpacesAreIgnored() {
+        PathExpression expression = compile("  related_to/ ^ Part_Of  ");
+
+        assertEquals("related_to/ ^ Part_Of", expression.toString());
+        int state = step(expression.start(), EdgeType.RELATED_TO, false, expression);
+        assertTrue(isAccepting(expression, step(state, EdgeType.PART_OF, true, expression)));
+    }
+
+    @Test
+    void automatonsLargerThanTheLimitAreRejected() {
+        // A chain of n steps determinizes to n + 1 states
+        assertEquals(6, PathExpression.compile("RELATED_TO{5}", 6).stateCount());
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> PathExpression.compile("RELATED_TO{5}", 5));
+        assertTrue(error.getMessage().contains("more than 5 automaton states"), error.getMessage());
+
+        // Nested bounded repetitions are stopped while the NFA is built, before they exhaust the heap
+        error = assertThrows(IllegalArgumentException.class,
+            () -> PathExpression.compile("((((_{20}){20}){20}){20}){20}", MAX_STATES));
+        assertTrue(error.getMessage().contains("more than " + PathExpression.MAX_NFA_STATES), error.getMessage());
+    }
+
+    @Test
+    void malformedExpressionsAreIllegalArguments() {
+        String[] malformed = {
+            null, "", "   ", "RELATED_TO /", "/ RELATED_TO", "RELATED_TO |", "| RELATED_TO",
+            "(RELATED_TO", "RELATED_TO)", "()", "RELATED_TO PART_OF", "UNKNOWN_TYPE", "^", "~ /",
+            "RELATED_TO{", "RELATED_TO{2", "RELATED_TO{,2}", "RELATED_TO{3,1}", "RELATED_TO{0}",
+            "RELATED_TO{21}", "RELATED_TO{99999}", "RELATED_TO*{2}", "RELATED_TO{2}{2}", "*", "RELATED_TO/$",
+            "RELATED_TO-PART_OF", "related_to" + "/related_to".repeat(PathExpression.MAX_LENGTH / 11 + 1)
+        };
+        for (String expression : malformed) {
+            assertThrows(IllegalArgumentException.class, () -> compile(expression), String.valueOf(expression));
+        }
+    }
+
+    @Test
+    void errorsPointAtTheOffendingPosition() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> compile("RELATED_TO / NOPE"));
+        assertEquals("Unknown edge type NOPE at position 13 of path expression", error.getMessage());
+    }
+
+    private static PathExpression compile(String expression) {
+        return PathExpression.compile(expression, MAX_STATES);
+    }
+
+    /**
+     * Whether a word of forward edge types is accepted
+     */
+    private static boolean matches(PathExpression expression, String... types) {
+        int state = expression.start();
+        for (String type : types) {
+            state = expression.next(state, EdgeType.valueOf(type).ordinal(), false);
+            if (state < 0) {
+                return false;
+            }
+        }
+        return expression.isAccepting(state);
+    }
+
+    private static int step(int state, EdgeType type, boolean backward, PathExpression expression) {
+        return state < 0 ? -1 : expression.next(state, type.ordinal(), backward);
+    }
+
+    private static boolean isAccepting(PathExpression expression, int state) {
+        return state >= 0 && expression.isAccepting(state);
+    }
+}
@@ -0,0 +1,322 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternMatcherTest {
+
+    private static final NodeType[] NODE_TYPES = {NodeType.PERSON, NodeType.PLACE, NodeType.CONCEPT};
+    private static final EdgeType[] EDGE_TYPES = {EdgeType.RELATED_TO, EdgeType.PART_OF, EdgeType.LOCATED_IN};
+    private static final String[] VARIABLES = {"a", "b", "c", "d"};
+
+    @Test
+    void matchesEveryRowOfABruteForceJoin() {
+        Random random = new Random(53);
+        for (int round = 0; round < 400; round++) {
+            GraphSnapshot graph = randomGraph(random, 6, 10);
+            String text = randomQuery(random, graph);
+            PatternQuery query = PatternQuery.parse(text);
+
+            List<String> found = new ArrayList<>();
+            PatternMatcher.Outcome outcome = new PatternMatcher(graph, query, randomStatistics(random, graph))
+                .run((nodes, edges) -> found.add(row(nodes, edges)));
+
+            assertEquals(PatternMatcher.Outcome.COMPLETE, outcome, text);
+            Collections.sort(found);
+            assertEquals(bruteForce(graph, query), found, text + ", round " + round);
+        }
+    }
+
+    @Test
+    void selfLoopsAndParallelEdges() {
+        // 0 -> 1 twice, 1 -> 0 once, a loop on 0
+        GraphSnapshot graph = GraphSnapshot.builder(2, 4)
+            .addNode(new UUID(0, 0), NodeType.PERSON)
+            .addNode(new UUID(0, 1), NodeType.PERSON)
+            .addEdge(new UUID(1, 0), new UUID(0, 0), new UUID(0, 1), EdgeType.RELATED_TO, 1.0f)
+            .addEdge(new UUID(1, 1), new UUID(0, 0), new UUID(0, 1), EdgeType.RELATED_TO, 1.0f)
+            .addEdge(new UUID(1, 2), new UUID(0, 1), new UUID(0, 0), EdgeType.RELATED_TO, 1.0f)
+            .addEdge(new UUID(1, 3), new UUID(0, 0), new UUID(0, 0), EdgeType.RELATED_TO, 1.0f)
+            .build();
+
+        // Anonymous edges need one match, named ones give a row per edge
+        assertEquals(3, count(graph, "MATCH (a)-->(b)"));
+        assertEquals(4, count(graph, "MATCH (a)-[r]->(b)"));
+        assertEquals(7, count(graph, "MATCH (a)-[r]-(b)"));   // both directions, the loop once
+        assertEquals(1, count(graph, "MATCH (a)-[r]->(a)"));
+        assertEquals(1, count(graph, "MATCH (a)-[r]-(a)"));
+        // Two named relationships never bind the same edge
+        assertEquals(2, count(graph, "MATCH (a)-[r]->(b), (a)-[s]->(b) WHERE a <> b"));
+        assertEquals(0, count(graph, "MATCH (a)-[r]->(a), (a)-[s]->(a)"));
+    }
+
+    @Test
+    void stopsAtTheResultLimit() {
+        GraphSnapshot graph = randomGraph(new Random(59), 6, 10);
+        PatternQuery query = PatternQuery.parse("MATCH (a), (b)");
+        List<String> found = new ArrayList<>();
+
+        PatternMatcher.Outcome outcome = new PatternMatcher(graph, query, statistics(graph))
+            .maxResults(5)
+            .run((nodes, edges) -> found.add(row(nodes, edges)));
+
+        assertEquals(PatternMatcher.Outcome.RESULT_LIMIT, outcome);
+        assertEquals(5, found.size());
+        assertTrue(bruteForce(graph, query).containsAll(found));
+    }
+
+    @Test
+    void stopsAtTheExpansionLimit() {
+        GraphSnapshot graph = randomGraph(new Random(61), 6, 10);
+        PatternMatcher matcher = new PatternMatcher(graph, PatternQuery.parse("MATCH (a), (b), (c)"), statistics(graph))
+            .maxExpansions(20);
+        List<String> found = new ArrayList<>();
+
+        assertEquals(PatternMatcher.Outcome.EXPANSION_LIMIT, matcher.run((nodes, edges) -> found.add(row(nodes, edges))));
+        assertTrue(found.size() < 20, String.valueOf(found.size()));
+        assertTrue(matcher.getExpansions() > 20);
+    }
+
+    @Test
+    void stopsAtTheDeadline() {
+        GraphSnapshot graph = randomGraph(new Random(67), 200, 4000);
+
+        // A cross product counts one expansion per candidate
+        int[] rows = new int[1];
+        assertEquals(PatternMatcher.Outcome.TIME_LIMIT,
+            new PatternMatcher(graph, PatternQuery.parse("MATCH (a), (b)"), statistics(graph))
+                .timeout(0)
+                .run((nodes, edges) -> rows[0]++));
+        assertTrue(rows[0] < 200 * 200, String.valueOf(rows[0]));
+
+        // Binding the relationship adds the hub's whole degree, so every row advances the count
+        // by exactly 2048 and never lands on a multiple of the check interval
+        int leaves = 2047;
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(leaves + 1, leaves).addNode(new UUID(0, 0), NodeType.PERSON);
+        for (int i = 1; i <= leaves; i++) {
+            builder.addNode(new UUID(0, i), NodeType.CONCEPT)
+                .addEdge(new UUID(1, i), new UUID(0, 0), new UUID(0, i), EdgeType.RELATED_TO, 1.0f);
+        }
+        GraphSnapshot star = builder.build();
+        rows[0] = 0;
+        assertEquals(PatternMatcher.Outcome.TIME_LIMIT,
+            new PatternMatcher(star, PatternQuery.parse("MATCH (a:PERSON)-[r]->(b)"), statistics(star))
+                .timeout(0)
+                .run((nodes, edges) -> rows[0]++));
+        assertTrue(rows[0] < leaves, String.valueOf(rows[0]));
+    }
+
+    // ---- Brute force ----
+
+    /**
+     * Every row of the pattern over all node assignments, sorted
+     */
+    private static List<String> bruteForce(GraphSnapshot graph, PatternQuery query) {
+        List<String> rows = new ArrayList<>();
+        int[] nodes = new int[query.getNodes().size()];
+        assign(graph, query, nodes, 0, rows);
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static void assign(GraphSnapshot graph, PatternQuery query, int[] nodes, int v, List<String> rows) {
+        if (v == nodes.length) {
+            relate(graph, query, nodes, rows);
+            return;
+        }
+        PatternQuery.NodePattern pattern = query.getNodes().get(v);
+        for (int w = 0; w < graph.nodeCount(); w++) {
+            if (pattern.getIds() != null && !pattern.getIds().contains(graph.nodeId(w))) {
+                continue;
+            }
+            if (pattern.isTyped() && !pattern.getTypes().contains(graph.nodeType(w))) {
+                continue;
+            }
+            nodes[v] = w;
+            assign(graph, query, nodes, v + 1, rows);
+        }
+    }
+
+    private static void relate(GraphSnapshot graph, PatternQuery query, int[] nodes, List<String> rows) {
+        for (int[] pair : query.getDistinctNodes()) {
+            if (nodes[pair[0]] == nodes[pair[1]]) {
+                return;
+            }
+        }
+        List<PatternQuery.EdgePattern> patterns = query.getEdges();
+        List<List<Integer>> matches = new ArrayList<>();
+        for (PatternQuery.EdgePattern pattern : patterns) {
+            List<Integer> edges = new ArrayList<>();
+            for (int x = 0; x < graph.edgeCount(); x++) {
+                int source = graph.edgeSource(x);
+                int target = graph.edgeTarget(x);
+                boolean forward = source == nodes[pattern.getFrom()] && target == nodes[pattern.getTo()];
+                boolean backward = source == nodes[pattern.getTo()] && target == nodes[pattern.getFrom()];
+                if ((forward || (!pattern.isDirected() && backward))
+                    && (pattern.getTypes().isEmpty()
+                        || pattern.getTypes().contains(EdgeType.values()[graph.edgeTypeOrdinal(x)]))) {
+                    edges.add(x);
+                }
+            }
+            if (edges.isEmpty()) {
+                return;
+            }
+            // A pattern edge without a variable only has to exist
+            matches.add(pattern.getVariable() != null ? edges : List.of(-1));
+        }
+        combine(matches, new int[patterns.size()], 0, nodes, rows);
+    }
+
+    private static void combine(List<List<Integer>> matches, int[] edges, int e, int[] nodes, List<String> rows) {
+        if (e == edges.length) {
+            rows.add(row(nodes, edges));
+            return;
+        }
+        next:
+        for (int edge : matches.get(e)) {
+            for (int earlier = 0; earlier < e; earlier++) {
+                if (edge >= 0 && edges[earlier] == edge) {
+                    continue next;
+                }
+            }
+            edges[e] = edge;
+            combine(matches, edges, e + 1, nodes, rows);
+        }
+    }
+
+    private static String row(int[] nodes, int[] edges) {
+        return Arrays.toString(nodes) + Arrays.toString(edges);
+    }
+
+    private static int count(GraphSnapshot graph, String text) {
+        PatternQuery query = PatternQuery.parse(text);
+        int[] rows = new int[1];
+        new PatternMatcher(graph, query, statistics(graph)).run((nodes, edges) -> rows[0]++);
+        assertEquals(bruteForce(graph, query).size(), rows[0], text);
+        return rows[0];
+    }
+
+    // ---- Fixtures ----
+
+    /**
+     * Random pattern over up to four named variables and some anonymous nodes, with type, id
+     * and inequality conditions
+     */
+    private static String randomQuery(Random random, GraphSnapshot graph) {
+        int variables = 1 + random.nextInt(VARIABLES.length);
+        List<String> parts = new ArrayList<>();
+        boolean[] used = new boolean[variables];
+        int edges = random.nextInt(4);
+        for (int i = 0; i < edges; i++) {
+            String relationship = random.nextBoolean() ? "r" + i : "";
+            if (random.nextInt(3) > 0) {
+                relationship += ":" + EDGE_TYPES[random.nextInt(EDGE_TYPES.length)];
+                if (random.nextInt(3) == 0) {
+                    relationship += "|" + EDGE_TYPES[random.nextInt(EDGE_TYPES.length)];
+                }
+            }
+            String body = relationship.isEmpty() ? "--" : "-[" + relationship + "]-";
+            String arrow = switch (random.nextInt(3)) {
+                case 0 -> body + ">";
+                case 1 -> "<" + body;
+                default -> body;
+            };
+            parts.add(endpoint(random, variables, used) + arrow + endpoint(random, variables, used));
+        }
+        for (int v = 0; v < variables; v++) {
+            if (!used[v]) {
+                parts.add("(" + VARIABLES[v] + ")");
+            }
+        }
+
+        List<String> conditions = new ArrayList<>();
+        for (int v = 0; v < variables; v++) {
+            if (random.nextInt(3) == 0) {
+                conditions.add(VARIABLES[v] + ":" + NODE_TYPES[random.nextInt(NODE_TYPES.length)]
+                    + (random.nextBoolean() ? "|" + NODE_TYPES[random.nextInt(NODE_TYPES.length)] : ""));
+            }
+            if (random.nextInt(6) == 0) {
+                // One id may not exist in the graph
+                conditions.add(VARIABLES[v] + ".id IN ['" + graph.nodeId(random.nextInt(graph.nodeCount()))
+                    + "', '" + new UUID(0, random.nextInt(graph.nodeCount() + 2)) + "']");
+            }
+            for (int u = 0; u < v; u++) {
+                if (random.nextInt(4) == 0) {
+                    conditions.add(VARIABLES[u] + " <> " + VARIABLES[v]);
+                }
+            }
+        }
+        return "MATCH " + String.join(", ", parts)
+            + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions));
+    }
+
+    private static String endpoint(Random random, int variables, boolean[] used) {
+        if (random.nextInt(6) == 0) {
+            return random.nextBoolean() ? "()" : "(:" + NODE_TYPES[random.nextInt(NODE_TYPES.length)] + ")";
+        }
+        int v = random.nextInt(variables);
+        used[v] = true;
+        return "(" + VARIABLES[v] + ")";
+    }
+
+    /**
+     * Random multigraph with self-loops and parallel edges
+     */
+    private static GraphSnapshot randomGraph(Random random, int nodes, int edges) {
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(nodes, edges);
+        for (int i = 0; i < nodes; i++) {
+            builder.addNode(new UUID(0, i), NODE_TYPES[random.nextInt(NODE_TYPES.length)]);
+        }
+        for (int i = 0; i < edges; i++) {
+            builder.addEdge(new UUID(1, i), new UUID(0, random.nextInt(nodes)), new UUID(0, random.nextInt(nodes)),
+                EDGE_TYPES[random.nextInt(EDGE_TYPES.length)], 1.0f);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Exact counters of the graph
+     */
+    private static PatternMatcher.Statistics statistics(GraphSnapshot graph) {
+        long[] nodesByType = new long[NodeType.values().length];
+        long[] edgesByType = new long[EdgeType.values().length];
+        long[] outDegreeByType = new long[NodeType.values().length];
+        long[] inDegreeByType = new long[NodeType.values().length];
+        for (int i = 0; i < graph.nodeCount(); i++) {
+            int type = graph.nodeType(i).ordinal();
+            nodesByType[type]++;
+            outDegreeByType[type] += graph.outDegree(i);
+            inDegreeByType[type] += graph.inDegree(i);
+        }
+        for (int x = 0; x < graph.edgeCount(); x++) {
+            edgesByType[graph.edgeTypeOrdinal(x)]++;
+        }
+        return new PatternMatcher.Statistics(graph.nodeCount(), graph.edgeCount(), nodesByType, edgesByType,
+            outDegreeByType, inDegreeByType);
+    }
+
+    /**
+     * Exact, missing or arbitrary counters; they may change the plan but never the rows
+     */
+    private static PatternMatcher.Statistics randomStatistics(Random random, GraphSnapshot graph) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return statistics(graph);
+            case 1:
+                return new PatternMatcher.Statistics(graph.nodeCount(), graph.edgeCount(), null, null, null, null);
+            default:
+                long[][] counts = new long[4][];
+                for (int i = 0; i < counts.length; i++) {
+                    int length = i == 1 ? EdgeType.values().length : NodeType.values().length;
+                    counts[i] = random.longs(length, 0, 50).toArray();
+                }
+                return new PatternMatcher.Statistics(1 + random.nextInt(50), random.nextInt(50),
+                    counts[0], counts[1], counts[2], counts[3]);
+        }
+    }
+}
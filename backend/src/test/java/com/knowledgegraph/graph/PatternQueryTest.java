@@ -0,0 +1,142 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternQueryTest {
+
+    private static final UUID ID_1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID ID_2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID ID_3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    @Test
+    void parsesPathsWithTypesAndDirections() {
+        PatternQuery query = PatternQuery.parse(
+            "MATCH (a:PERSON)-[r:WORKS_AT]->(o:ORGANIZATION)<-[:PART_OF|LOCATED_IN]-(p)-[:RELATED_TO]-(a)");
+
+        assertEquals(List.of("a", "o", "p"), variables(query));
+        assertEquals(EnumSet.of(NodeType.PERSON), query.getNodes().get(0).getTypes());
+        assertTrue(query.getNodes().get(0).isTyped());
+        assertFalse(query.getNodes().get(2).isTyped());
+
+        assertEdge(query.getEdges().get(0), "r", 0, 1, true, EnumSet.of(EdgeType.WORKS_AT));
+        // A left arrow is stored as a directed edge from the right node
+        assertEdge(query.getEdges().get(1), null, 2, 1, true, EnumSet.of(EdgeType.PART_OF, EdgeType.LOCATED_IN));
+        assertEdge(query.getEdges().get(2), null, 2, 0, false, EnumSet.of(EdgeType.RELATED_TO));
+        assertEquals(List.of("a", "o", "p", "r"), query.getReturns());
+        assertNull(query.getLimit());
+    }
+
+    @Test
+    void parsesBareArrowsAndAnonymousNodes() {
+        PatternQuery query = PatternQuery.parse("MATCH (a)-->()<--(b)--(:CONCEPT)");
+
+        assertEquals(4, query.getNodes().size());
+        assertEquals("#1", query.getNodes().get(1).getVariable());
+        assertFalse(query.getNodes().get(1).isNamed());
+        assertEdge(query.getEdges().get(0), null, 0, 1, true, EnumSet.noneOf(EdgeType.class));
+        assertEdge(query.getEdges().get(1), null, 2, 1, true, EnumSet.noneOf(EdgeType.class));
+        assertEdge(query.getEdges().get(2), null, 2, 3, false, EnumSet.noneOf(EdgeType.class));
+        // Anonymous nodes are never returned
+        assertEquals(List.of("a", "b"), query.getReturns());
+    }
+
+    @Test
+    void aVariableUsedTwiceIsOneNode() {
+        PatternQuery query = PatternQuery.parse("MATCH (a)-[:RELATED_TO]->(b), (b)-[:RELATED_TO]->(a), (a)-->(a)");
+
+        assertEquals(2, query.getNodes().size());
+        assertEquals(3, query.getEdges().size());
+        assertEdge(query.getEdges().get(2), null, 0, 0, true, EnumSet.noneOf(EdgeType.class));
+    }
+
+    @Test
+    void whereConditionsNarrowTheNodes() {
+        PatternQuery query = PatternQuery.parse("MATCH (a:PERSON|PLACE {id: '" + ID_1 + "'})-->(b), (c) "
+            + "WHERE a:PLACE|CONCEPT AND a.id IN ['" + ID_1 + "', \"" + ID_2 + "\"] AND b.id IN ['" + ID_2 + "', '"
+            + ID_3 + "'] AND b.ID = '" + ID_3 + "' AND a <> b AND b <> c");
+
+        PatternQuery.NodePattern a = query.getNodes().get(0);
+        assertEquals(EnumSet.of(NodeType.PLACE), a.getTypes());
+        assertEquals(Set.of(ID_1), a.getIds());
+        assertEquals(Set.of(ID_3), query.getNodes().get(1).getIds());
+        assertNull(query.getNodes().get(2).getIds());
+        assertEquals(2, query.getDistinctNodes().size());
+        assertArrayEquals(new int[] {0, 1}, query.getDistinctNodes().get(0));
+        assertArrayEquals(new int[] {1, 2}, query.getDistinctNodes().get(1));
+    }
+
+    @Test
+    void contradictoryTypesLeaveAnEmptyTypedSet() {
+        PatternQuery.NodePattern node = PatternQuery.parse("MATCH (a:PERSON) WHERE a:PLACE").getNodes().get(0);
+
+        assertTrue(node.isTyped());
+        assertTrue(node.getTypes().isEmpty());
+    }
+
+    @Test
+    void returnAndLimit() {
+        assertEquals(List.of("r", "a"), PatternQuery.parse("MATCH (a)-[r]->(b) RETURN r, a").getReturns());
+        assertEquals(List.of("a", "b", "r"), PatternQuery.parse("MATCH (a)-[r]->(b) RETURN *").getReturns());
+        assertEquals(7, PatternQuery.parse("MATCH (a) LIMIT 7").getLimit());
+    }
+
+    @Test
+    void keywordsAndTypeNamesAreCaseInsensitiveButVariablesAreNot() {
+        PatternQuery query = PatternQuery.parse("match (A:person)-[:works_at]->(a) where A <> a return A limit 3");
+
+        assertEquals(List.of("A", "a"), variables(query));
+        assertEquals(EnumSet.of(NodeType.PERSON), query.getNodes().get(0).getTypes());
+        assertEquals(EnumSet.of(EdgeType.WORKS_AT), query.getEdges().get(0).getTypes());
+        assertEquals(List.of("A"), query.getReturns());
+        assertEquals(3, query.getLimit());
+    }
+
+    @Test
+    void malformedQueriesAreIllegalArguments() {
+        String[] malformed = {
+            null, "", "  ", "(a)", "MATCH", "MATCH a", "MATCH (a", "MATCH (a)-", "MATCH (a)-[r->(b)",
+            "MATCH (a)<-[r]->(b)", "MATCH (a)-[*]->(b)", "MATCH (a)-[r*2]->(b)", "MATCH (a)-[r]->(b)-[r]->(c)",
+            "MATCH (a)-[a]->(b)", "MATCH (a)-[r]->(b), (r)", "MATCH (a:UNKNOWN)", "MATCH (a)-[:UNKNOWN]->(b)",
+            "MATCH (a {name: 'x'})", "MATCH (a {id: 'not-a-uuid'})", "MATCH (a {id: 42})", "MATCH (a {id: 'x)",
+            "MATCH (a) WHERE b.id = '" + ID_1 + "'", "MATCH (a)-[r]->(b) WHERE r.id = '" + ID_1 + "'",
+            "MATCH (a) WHERE a.name = 'x'", "MATCH (a) WHERE a = a", "MATCH (a) RETURN b", "MATCH (a) RETURN",
+            "MATCH (a) LIMIT", "MATCH (a) LIMIT -1", "MATCH (a) LIMIT 1234567890", "MATCH (a) LIMIT x",
+            "MATCH (a); DROP", "MATCH (a) RETURN a a", "MATCH (a) WHERE a.id IN []",
+        };
+        for (String query : malformed) {
+            assertThrows(IllegalArgumentException.class, () -> PatternQuery.parse(query), String.valueOf(query));
+        }
+    }
+
+    @Test
+    void errorsPointAtTheOffendingToken() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> PatternQuery.parse("MATCH (a)-[:NOPE]->(b)"));
+        assertEquals("Unknown edge type NOPE at position 12 of pattern query", error.getMessage());
+
+        error = assertThrows(IllegalArgumentException.class, () -> PatternQuery.parse("MATCH (a"));
+        assertEquals("Expected ')' at end of pattern query", error.getMessage());
+    }
+
+    private static List<String> variables(PatternQuery query) {
+        return query.getNodes().stream().map(PatternQuery.NodePattern::getVariable).toList();
+    }
+
+    private static void assertEdge(PatternQuery.EdgePattern edge, String variable, int from, int to, boolean directed,
+                                   Set<EdgeType> types) {
+        assertEquals(variable, edge.getVariable());
+        assertEquals(from, edge.getFrom());
+        assertEquals(to, edge.getTo());
+        assertEquals(directed, edge.isDirected());
+        assertEquals(types, edge.getTypes());
+    }
+}
@@ -0,0 +1,211 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrunedLandmarkLabelingTest {
+
+    private static final int UNREACHABLE = LandmarkLabels.UNREACHABLE;
+
+    @Test
+    void completeLabelsGiveEveryDistance() {
+        Random random = new Random(71);
+        for (int round = 0; round < 200; round++) {
+            int nodes = 1 + random.nextInt(14);
+            List<int[]> edges = randomEdges(random, nodes, random.nextInt(2 * nodes + 1));
+            GraphSnapshot graph = snapshot(nodes, edges);
+
+            LandmarkLabels labels = new PrunedLandmarkLabeling(graph).parallelism(1 + random.nextInt(4)).build();
+
+            assertTrue(labels.isComplete());
+            int[][] expected = distances(nodes, edges);
+            for (int s = 0; s < nodes; s++) {
+                for (int t = 0; t < nodes; t++) {
+                    int source = labels.indexOf(nodeId(s));
+                    int target = labels.indexOf(nodeId(t));
+                    assertTrue(labels.isExact(source, target));
+                    assertEquals(expected[s][t], labels.labelDistance(source, target),
+                        "round " + round + ", " + s + " to " + t);
+                }
+            }
+        }
+    }
+
+    @Test
+    void partialLabelsAreUpperBoundsAndExactAtLandmarks() {
+        Random random = new Random(73);
+        for (int round = 0; round < 200; round++) {
+            int nodes = 2 + random.nextInt(14);
+            List<int[]> edges = randomEdges(random, nodes, random.nextInt(2 * nodes + 1));
+            GraphSnapshot graph = snapshot(nodes, edges);
+
+            PrunedLandmarkLabeling labeling = new PrunedLandmarkLabeling(graph).parallelism(1 + random.nextInt(4));
+            if (random.nextBoolean()) {
+                labeling.maxLandmarks(1 + random.nextInt(nodes - 1));
+            } else {
+                labeling.maxLabelEntries(1 + random.nextInt(2 * nodes));
+            }
+            LandmarkLabels labels = labeling.build();
+
+            assertAnswers(labels, distances(nodes, edges), "round " + round);
+        }
+    }
+
+    @Test
+    void landmarksAreTakenByDecreasingDegree() {
+        // A star around node 3 and a separate edge: the hub is the only landmark
+        List<int[]> edges = List.of(new int[] {3, 0}, new int[] {1, 3}, new int[] {3, 2}, new int[] {4, 5});
+        LandmarkLabels labels = new PrunedLandmarkLabeling(snapshot(6, edges)).maxLandmarks(1).build();
+
+        assertEquals(1, labels.getLandmarkCount());
+        assertFalse(labels.isComplete());
+        GraphSnapshot graph = labels.getGraph();
+        int hub = graph.indexOf(nodeId(3));
+        assertTrue(labels.isExact(hub, graph.indexOf(nodeId(5))));
+        assertFalse(labels.isExact(graph.indexOf(nodeId(0)), graph.indexOf(nodeId(1))));
+        assertEquals(2, labels.labelDistance(graph.indexOf(nodeId(0)), graph.indexOf(nodeId(1))));
+        assertEquals(UNREACHABLE, labels.labelDistance(graph.indexOf(nodeId(4)), graph.indexOf(nodeId(5))));
+        assertEquals(1, labels.searchDistance(graph.indexOf(nodeId(4)), graph.indexOf(nodeId(5)), 1));
+    }
+
+    @Test
+    void searchDistanceIsBoundedByMaxHops() {
+        Random random = new Random(79);
+        for (int round = 0; round < 100; round++) {
+            int nodes = 2 + random.nextInt(14);
+            List<int[]> edges = randomEdges(random, nodes, random.nextInt(2 * nodes + 1));
+            LandmarkLabels labels = new PrunedLandmarkLabeling(snapshot(nodes, edges)).maxLandmarks(1).build();
+            int[][] expected = distances(nodes, edges);
+
+            for (int s = 0; s < nodes; s++) {
+                for (int t = 0; t < nodes; t++) {
+                    int maxHops = random.nextInt(nodes);
+                    assertEquals(expected[s][t] <= maxHops ? expected[s][t] : UNREACHABLE,
+                        labels.searchDistance(labels.indexOf(nodeId(s)), labels.indexOf(nodeId(t)), maxHops),
+                        "round " + round + ", " + s + " to " + t);
+                }
+            }
+        }
+    }
+
+    @Test
+    void insertedEdgesKeepTheLabelsCorrect() {
+        Random random = new Random(83);
+        for (int round = 0; round < 150; round++) {
+            // Inserted edges may reach up to four nodes the snapshot does not have
+            int nodes = 1 + random.nextInt(10);
+            int allNodes = nodes + random.nextInt(5);
+            List<int[]> initial = randomEdges(random, nodes, random.nextInt(2 * nodes + 1));
+            List<int[]> inserted = randomEdges(random, allNodes, 1 + random.nextInt(allNodes + 4));
+            GraphSnapshot graph = snapshot(nodes, initial);
+
+            PrunedLandmarkLabeling labeling = new PrunedLandmarkLabeling(graph).parallelism(2);
+            if (nodes > 1 && random.nextBoolean()) {
+                labeling.maxLandmarks(1 + random.nextInt(nodes - 1));
+            }
+            LandmarkLabels labels = labeling.build();
+
+            List<int[]> edges = new ArrayList<>(initial);
+            for (int[] edge : inserted) {
+                labels.addEdge(nodeId(edge[0]), nodeId(edge[1]));
+                edges.add(edge);
+                assertAnswers(labels, distances(allNodes, edges), "round " + round + " after " + Arrays.toString(edge));
+            }
+            assertEquals(inserted.stream().filter(edge -> edge[0] != edge[1]).count(), labels.getPatchedEdges());
+        }
+    }
+
+    // ---- Checks ----
+
+    /**
+     * The label distance never undercuts the true distance and is exact wherever the labels
+     * claim so; with a search bounded below it, as ReachabilityService runs, every answer is exact
+     */
+    private static void assertAnswers(LandmarkLabels labels, int[][] expected, String message) {
+        for (int s = 0; s < expected.length; s++) {
+            for (int t = 0; t < expected.length; t++) {
+                int source = labels.indexOf(nodeId(s));
+                int target = labels.indexOf(nodeId(t));
+                if (source < 0 || target < 0) {
+                    // Not inserted yet
+                    continue;
+                }
+                int bound = labels.labelDistance(source, target);
+                String pair = message + ", " + s + " to " + t;
+                assertTrue(bound >= expected[s][t], pair);
+                if (labels.isExact(source, target)) {
+                    assertEquals(expected[s][t], bound, pair);
+                }
+                int found = bound <= 1 ? UNREACHABLE
+                    : labels.searchDistance(source, target, Math.min(LandmarkLabels.MAX_DISTANCE, bound - 1));
+                assertEquals(expected[s][t], found != UNREACHABLE ? found : bound, pair);
+            }
+        }
+    }
+
+    // ---- Fixtures ----
+
+    /**
+     * Hop distances treating edges as undirected, by BFS from every node
+     */
+    private static int[][] distances(int nodes, List<int[]> edges) {
+        List<List<Integer>> adjacency = new ArrayList<>();
+        for (int v = 0; v < nodes; v++) {
+            adjacency.add(new ArrayList<>());
+        }
+        for (int[] edge : edges) {
+            adjacency.get(edge[0]).add(edge[1]);
+            adjacency.get(edge[1]).add(edge[0]);
+        }
+        int[][] distances = new int[nodes][nodes];
+        for (int source = 0; source < nodes; source++) {
+            int[] distance = distances[source];
+            Arrays.fill(distance, UNREACHABLE);
+            distance[source] = 0;
+            Deque<Integer> queue = new ArrayDeque<>(List.of(source));
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                for (int w : adjacency.get(v)) {
+                    if (distance[w] == UNREACHABLE) {
+                        distance[w] = distance[v] + 1;
+                        queue.add(w);
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Random directed multigraph with self-loops and parallel edges, sparse enough to leave
+     * several components
+     */
+    private static List<int[]> randomEdges(Random random, int nodes, int count) {
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            edges.add(new int[] {random.nextInt(nodes), random.nextInt(nodes)});
+        }
+        return edges;
+    }
+
+    private static GraphSnapshot snapshot(int nodes, List<int[]> edges) {
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(nodes, edges.size());
+        for (int v = 0; v < nodes; v++) {
+            builder.addNode(nodeId(v), NodeType.CONCEPT);
+        }
+        for (int i = 0; i < edges.size(); i++) {
+            builder.addEdge(new UUID(1, i), nodeId(edges.get(i)[0]), nodeId(edges.get(i)[1]),
+                EdgeType.RELATED_TO, 1.0f);
+        }
+        return builder.build();
+    }
+
+    private static UUID nodeId(int node) {
+        return new UUID(0, node);
+    }
+}
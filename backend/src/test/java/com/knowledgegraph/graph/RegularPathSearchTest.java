@@ -0,0 +1,208 @@
+package com.knowledgegraph.graph;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegularPathSearchTest {
+
+    private static final EdgeType[] TYPES = {EdgeType.RELATED_TO, EdgeType.PART_OF, EdgeType.LOCATED_IN};
+    private static final String FORWARD = "rpl";   // one letter per type in TYPES
+    private static final String BACKWARD = "RPL";
+
+    /**
+     * Path expressions with the equivalent regular expression over step letters, valid on
+     * graphs that only use TYPES
+     */
+    private static final String[][] EXPRESSIONS = {
+        {"RELATED_TO / PART_OF | LOCATED_IN", "rp|l"},
+        {"RELATED_TO / (PART_OF | LOCATED_IN)", "r(p|l)"},
+        {"RELATED_TO / PART_OF*", "rp*"},
+        {"(RELATED_TO / PART_OF)+", "(rp)+"},
+        {"^LOCATED_IN / RELATED_TO?", "Lr?"},
+        {"~PART_OF{1,3}", "[pP]{1,3}"},
+        {"_ / ^_", "[rpl][RPL]"},
+        {"(RELATED_TO | ^PART_OF)* / LOCATED_IN", "(r|P)*l"},
+        {"related_to{2} | ^part_of", "r{2}|P"},
+        {"~_*", "[rplRPL]*"},
+        {"(^RELATED_TO / ~LOCATED_IN)?", "(R[lL])?"},
+    };
+
+    @Test
+    void reportsEveryMatchingNodeWithAShortestWalk() {
+        Random random = new Random(41);
+        for (int i = 0; i < 300; i++) {
+            int round = i;
+            GraphSnapshot graph = randomGraph(random, 7, 12);
+            String[] pair = EXPRESSIONS[random.nextInt(EXPRESSIONS.length)];
+            PathExpression expression = PathExpression.compile(pair[0], 256);
+            Pattern pattern = Pattern.compile(pair[1]);
+            int source = random.nextInt(7);
+            int maxLength = random.nextInt(5);
+
+            Map<Integer, Integer> expected = shortestMatches(graph, source, pattern, maxLength);
+            Map<Integer, Integer> found = new HashMap<>();
+            RegularPathSearch.Outcome outcome = new RegularPathSearch(graph, expression)
+                .maxLength(maxLength)
+                .find(source, -1, walk -> {
+                    assertNull(found.put(last(walk), walk.getEdges().length), "node reported twice");
+                    assertTrue(pattern.matcher(word(graph, walk)).matches(), pair[0] + " round " + round);
+                });
+
+            assertEquals(RegularPathSearch.Outcome.COMPLETE, outcome);
+            assertEquals(expected, found, pair[0] + " from " + source + " within " + maxLength + ", round " + round);
+        }
+    }
+
+    @Test
+    void stopsAtTheTargetWithAShortestWalk() {
+        Random random = new Random(43);
+        for (int round = 0; round < 200; round++) {
+            GraphSnapshot graph = randomGraph(random, 7, 12);
+            String[] pair = EXPRESSIONS[random.nextInt(EXPRESSIONS.length)];
+            Pattern pattern = Pattern.compile(pair[1]);
+            int source = random.nextInt(7);
+            int target = random.nextInt(7);
+
+            Integer expected = shortestMatches(graph, source, pattern, 4).get(target);
+            List<WeightedShortestPath.Result> found = new ArrayList<>();
+            new RegularPathSearch(graph, PathExpression.compile(pair[0], 256))
+                .maxLength(4)
+                .find(source, target, found::add);
+
+            assertEquals(expected == null ? 0 : 1, found.size(), pair[0] + " round " + round);
+            if (expected != null) {
+                assertEquals(target, last(found.get(0)));
+                assertEquals(expected, found.get(0).getEdges().length);
+            }
+        }
+    }
+
+    @Test
+    void inverseStepsFollowIncomingEdges() {
+        // Two people working at one organization: colleagues are WORKS_AT / ^WORKS_AT
+        GraphSnapshot graph = GraphSnapshot.builder(3, 2)
+            .addNode(new UUID(0, 0), NodeType.PERSON)
+            .addNode(new UUID(0, 1), NodeType.PERSON)
+            .addNode(new UUID(0, 2), NodeType.ORGANIZATION)
+            .addEdge(new UUID(1, 0), new UUID(0, 0), new UUID(0, 2), EdgeType.WORKS_AT, 1.0f)
+            .addEdge(new UUID(1, 1), new UUID(0, 1), new UUID(0, 2), EdgeType.WORKS_AT, 1.0f)
+            .build();
+        int alice = graph.indexOf(new UUID(0, 0));
+        int bob = graph.indexOf(new UUID(0, 1));
+
+        assertEquals(Set.of(alice, bob), reached(graph, "WORKS_AT / ^WORKS_AT", alice));
+        assertEquals(Set.of(), reached(graph, "WORKS_AT / WORKS_AT", alice));
+        assertEquals(Set.of(), reached(graph, "^WORKS_AT", alice));
+        assertEquals(Set.of(graph.indexOf(new UUID(0, 2))), reached(graph, "~WORKS_AT", bob));
+    }
+
+    @Test
+    void stopsAtTheResultLimit() {
+        GraphSnapshot graph = randomGraph(new Random(47), 7, 20);
+        List<WeightedShortestPath.Result> found = new ArrayList<>();
+
+        RegularPathSearch.Outcome outcome = new RegularPathSearch(graph, PathExpression.compile("~_*", 256))
+            .maxResults(2)
+            .find(0, -1, found::add);
+
+        assertEquals(RegularPathSearch.Outcome.RESULT_LIMIT, outcome);
+        assertEquals(2, found.size());
+    }
+
+    // ---- Brute force ----
+
+    /**
+     * Minimum length of a matching walk to each node, over every walk of at most maxLength
+     * edges from source
+     */
+    private static Map<Integer, Integer> shortestMatches(GraphSnapshot graph, int source, Pattern pattern,
+                                                         int maxLength) {
+        Map<Integer, Integer> lengths = new HashMap<>();
+        enumerate(graph, source, new StringBuilder(), pattern, maxLength, lengths);
+        return lengths;
+    }
+
+    private static void enumerate(GraphSnapshot graph, int node, StringBuilder word, Pattern pattern,
+                                  int remaining, Map<Integer, Integer> lengths) {
+        if (pattern.matcher(word).matches()) {
+            lengths.merge(node, word.length(), Math::min);
+        }
+        if (remaining == 0) {
+            return;
+        }
+        for (int j = graph.outStart(node); j < graph.outEnd(node); j++) {
+            word.append(FORWARD.charAt(typeIndex(graph, graph.outEdge(j))));
+            enumerate(graph, graph.outNeighbor(j), word, pattern, remaining - 1, lengths);
+            word.setLength(word.length() - 1);
+        }
+        for (int j = graph.inStart(node); j < graph.inEnd(node); j++) {
+            word.append(BACKWARD.charAt(typeIndex(graph, graph.inEdge(j))));
+            enumerate(graph, graph.inNeighbor(j), word, pattern, remaining - 1, lengths);
+            word.setLength(word.length() - 1);
+        }
+    }
+
+    /**
+     * Step letters of a reported walk, checking that it is connected
+     */
+    private static String word(GraphSnapshot graph, WeightedShortestPath.Result walk) {
+        StringBuilder word = new StringBuilder();
+        int[] nodes = walk.getNodes();
+        int[] edges = walk.getEdges();
+        for (int i = 0; i < edges.length; i++) {
+            int edge = edges[i];
+            if (graph.edgeSource(edge) == nodes[i] && graph.edgeTarget(edge) == nodes[i + 1]) {
+                word.append(FORWARD.charAt(typeIndex(graph, edge)));
+            } else {
+                assertEquals(nodes[i], graph.edgeTarget(edge));
+                assertEquals(nodes[i + 1], graph.edgeSource(edge));
+                word.append(BACKWARD.charAt(typeIndex(graph, edge)));
+            }
+        }
+        return word.toString();
+    }
+
+    private static int typeIndex(GraphSnapshot graph, int edge) {
+        int ordinal = graph.edgeTypeOrdinal(edge);
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].ordinal() == ordinal) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Edge type outside the test alphabet");
+    }
+
+    private static Set<Integer> reached(GraphSnapshot graph, String expression, int source) {
+        Set<Integer> nodes = new HashSet<>();
+        new RegularPathSearch(graph, PathExpression.compile(expression, 256))
+            .find(source, -1, walk -> nodes.add(last(walk)));
+        return nodes;
+    }
+
+    private static int last(WeightedShortestPath.Result walk) {
+        return walk.getNodes()[walk.getNodes().length - 1];
+    }
+
+    /**
+     * Random multigraph without self-loops, so every step of a walk has one direction
+     */
+    private static GraphSnapshot randomGraph(Random random, int nodes, int edges) {
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(nodes, edges);
+        for (int i = 0; i < nodes; i++) {
+            builder.addNode(new UUID(0, i), NodeType.CONCEPT);
+        }
+        for (int i = 0; i < edges; i++) {
+            int source = random.nextInt(nodes);
+            int target = (source + 1 + random.nextInt(nodes - 1)) % nodes;
+            builder.addEdge(new UUID(1, i), new UUID(0, source), new UUID(0, target),
+                TYPES[random.nextInt(TYPES.length)], 1.0f);
+        }
+        return builder.build();
+    }
+}
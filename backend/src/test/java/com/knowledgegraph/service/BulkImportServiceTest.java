@@ -0,0 +1,189 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.IngestionConfig;
+import com.knowledgegraph.dto.BulkImportOptions;
+import com.knowledgegraph.dto.IngestionResult;
+import com.knowledgegraph.event.GraphChangedEvent;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BulkImportServiceTest extends PostgresServiceTest {
+
+    private final IngestionConfig ingestionConfig = new IngestionConfig();
+    private final GraphStatisticsService graphStatisticsService = mock(GraphStatisticsService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private BulkImportService service;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        service = new BulkImportService(ingestionConfig, jdbcTemplate, transactionTemplate.getTransactionManager(),
+            mock(IngestionJobService.class), graphStatisticsService, eventPublisher, new ObjectMapper());
+    }
+
+    @Test
+    void csvNodesAreUpsertedByIdOrByTypeAndName() throws IOException {
+        UUID alice = insertNode("PERSON", "alice");
+        jdbcTemplate.update("UPDATE kg.nodes SET properties = '{\"a\": 1}'::jsonb WHERE id = ?", alice);
+        Path file = write("nodes.csv", """
+            type,name,properties
+            PERSON,alice,"{""b"": 2}"
+            CONCEPT,x,
+            PERSON,bob,
+            PERSON,bob,"{""last"": true}"
+            MINERAL,quartz,
+            """);
+
+        IngestionResult result = service.importFile(file.toString(), null, options(BulkImportOptions.Kind.NODES,
+            BulkImportOptions.Format.CSV));
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals(5, result.getTotalRecords());
+        assertEquals(3, result.getSuccessCount());
+        assertEquals(2, result.getSkippedCount());
+        assertEquals(3, count("SELECT count(*) FROM kg.nodes"));
+        assertEquals("{\"a\": 1, \"b\": 2}", jdbcTemplate.queryForObject(
+            "SELECT properties::text FROM kg.nodes WHERE id = ?", String.class, alice));
+        // The last of the duplicate rows wins
+        assertEquals("{\"last\": true}", jdbcTemplate.queryForObject(
+            "SELECT properties::text FROM kg.nodes WHERE name = 'bob'", String.class));
+        verify(graphStatisticsService).recordNodes(NodeType.PERSON, 1);
+        verify(graphStatisticsService).recordNodes(NodeType.CONCEPT, 1);
+        verify(eventPublisher).publishEvent(any(GraphChangedEvent.class));
+    }
+
+    @Test
+    void ndjsonEdgesResolveEndpointsAndSkipWhatCannotBeInserted() throws IOException {
+        UUID a = insertNode("PERSON", "a");
+        UUID b = insertNode("PERSON", "b");
+        insertEdge(a, b, "RELATED_TO");
+        Path file = write("edges.ndjson", String.join("\n",
+            "{\"sourceType\": \"PERSON\", \"sourceName\": \"a\", \"targetId\": \"" + b + "\", \"type\": \"RELATED_TO\"}",
+            "{\"sourceId\": \"" + a + "\", \"targetId\": \"" + b + "\", \"type\": \"PART_OF\"}",
+            "{\"source_id\": \"" + a + "\", \"target_id\": \"" + b + "\", \"type\": \"PART_OF\", \"properties\": {\"confidence\": 0.7}}",
+            "{\"sourceId\": \"" + UUID.randomUUID() + "\", \"targetId\": \"" + b + "\", \"type\": \"RELATED_TO\"}",
+            "not json",
+            "",
+            "{\"sourceId\": \"nope\", \"targetId\": \"" + b + "\", \"type\": \"RELATED_TO\"}",
+            "{\"done\": true}"));
+
+        IngestionResult result = service.importFile(file.toString(), null, options(BulkImportOptions.Kind.EDGES,
+            BulkImportOptions.Format.NDJSON));
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(2, result.getErrorCount());
+        assertEquals(List.of(5, 7), result.getErrors().stream().map(IngestionResult.ProcessingError::getLineNumber).toList());
+        assertEquals(2, count("SELECT count(*) FROM kg.edges"));
+        assertEquals("0.7", jdbcTemplate.queryForObject(
+            "SELECT properties->>'confidence' FROM kg.edges WHERE type = 'PART_OF'", String.class));
+        verify(graphStatisticsService).recordEdges(EdgeType.PART_OF, NodeType.PERSON, NodeType.PERSON, 1);
+    }
+
+    @Test
+    void wrappedLinesFromTheExportStageEveryKind() throws IOException {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID ab = UUID.randomUUID();
+        Path file = write("graph.ndjson", String.join("\n",
+            "{\"node\": {\"id\": \"" + a + "\", \"type\": \"PERSON\", \"name\": \"a\"}}",
+            "{\"node\": {\"id\": \"" + b + "\", \"type\": \"CONCEPT\", \"name\": \"b\"}}",
+            "{\"edge\": {\"id\": \"" + ab + "\", \"sourceId\": \"" + a + "\", \"targetId\": \"" + b
+                + "\", \"type\": \"RELATED_TO\"}}",
+            "{\"embedding\": {\"nodeId\": \"" + a + "\", \"vector\": \"[0.5,-0.25]\", \"modelVersion\": \"m\"}}",
+            "{\"done\": true, \"totalNodes\": 2, \"totalEdges\": 1}"));
+        BulkImportOptions options = options(BulkImportOptions.Kind.NODES, BulkImportOptions.Format.NDJSON);
+
+        IngestionResult first = service.importFile(file.toString(), null, options);
+
+        assertTrue(first.isSuccess(), first.getMessage());
+        assertEquals(4, first.getSuccessCount());
+        assertEquals(a, jdbcTemplate.queryForObject("SELECT source_id FROM kg.edges WHERE id = ?", UUID.class, ab));
+        assertEquals("{0.5,-0.25}", jdbcTemplate.queryForObject(
+            "SELECT vector::real[]::text FROM kg.embeddings WHERE node_id = ?", String.class, a));
+
+        // Importing again updates the nodes, skips the existing edge and replaces the vector
+        IngestionResult second = service.importFile(file.toString(), null, options);
+
+        assertTrue(second.isSuccess(), second.getMessage());
+        assertEquals(3, second.getSuccessCount());
+        assertEquals(2, count("SELECT count(*) FROM kg.nodes"));
+        assertEquals(1, count("SELECT count(*) FROM kg.edges"));
+        assertEquals(1, count("SELECT count(*) FROM kg.embeddings"));
+    }
+
+    @Test
+    void aFailedMergeRollsTheWholeImportBack() throws IOException {
+        UUID a = UUID.randomUUID();
+        Path file = write("broken.ndjson", String.join("\n",
+            "{\"node\": {\"id\": \"" + a + "\", \"type\": \"PERSON\", \"name\": \"a\"}}",
+            "{\"embedding\": {\"nodeId\": \"" + a + "\", \"vector\": \"not a vector\", \"modelVersion\": \"m\"}}"));
+
+        IngestionResult result = service.importFile(file.toString(), null, options(BulkImportOptions.Kind.NODES,
+            BulkImportOptions.Format.NDJSON));
+
+        assertFalse(result.isSuccess());
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(0, count("SELECT count(*) FROM kg.nodes"));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void deferredIndexesAreRebuiltBeforeCommit() throws IOException {
+        ingestionConfig.getBulk().setDeferIndexesMinRows(1);
+        String indexesSql = "SELECT string_agg(indexdef, ';' ORDER BY indexname) FROM pg_indexes "
+            + "WHERE schemaname = 'kg' AND tablename = 'nodes'";
+        String indexes = jdbcTemplate.queryForObject(indexesSql, String.class);
+        Path file = write("nodes.csv", "type,name\nPERSON,a\nPERSON,b\n");
+        BulkImportOptions options = options(BulkImportOptions.Kind.NODES, BulkImportOptions.Format.CSV);
+        options.setDeferIndexes(true);
+
+        IngestionResult result = service.importFile(file.toString(), null, options);
+
+        assertTrue(result.isSuccess(), result.getMessage());
+        assertEquals(2, count("SELECT count(*) FROM kg.nodes"));
+        assertEquals(indexes, jdbcTemplate.queryForObject(indexesSql, String.class));
+    }
+
+    @Test
+    void unknownCsvColumnsFailTheImport() throws IOException {
+        Path file = write("nodes.csv", "type,name,colour\nPERSON,a,red\n");
+
+        IngestionResult result = service.importFile(file.toString(), null, options(BulkImportOptions.Kind.NODES,
+            BulkImportOptions.Format.CSV));
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrors().get(0).getErrorMessage().contains("colour"));
+        assertEquals(0, count("SELECT count(*) FROM kg.nodes"));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content);
+    }
+
+    private static BulkImportOptions options(BulkImportOptions.Kind kind, BulkImportOptions.Format format) {
+        return BulkImportOptions.builder().kind(kind).format(format).build();
+    }
+
+    private static long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,53 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommunityServiceTest extends PostgresServiceTest {
+
+    @Test
+    void detectionSkipsNodesDeletedSinceTheSnapshot() {
+        // Two triangles joined by the edge c - d; c is deleted after the snapshot is built
+        UUID[] ids = new UUID[6];
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(6, 7);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = insertNode("CONCEPT", "n" + i);
+            builder.addNode(ids[i], NodeType.CONCEPT);
+        }
+        int[][] edges = {{0, 1}, {1, 2}, {2, 0}, {3, 4}, {4, 5}, {5, 3}, {2, 3}};
+        for (int[] edge : edges) {
+            UUID source = ids[edge[0]];
+            UUID target = ids[edge[1]];
+            builder.addEdge(insertEdge(source, target, "RELATED_TO"), source, target, EdgeType.RELATED_TO, 1.0f);
+        }
+        GraphSnapshot snapshot = builder.build();
+        jdbcTemplate.update("DELETE FROM kg.nodes WHERE id = ?", ids[2]);
+
+        GraphSnapshotService graphSnapshotService = mock(GraphSnapshotService.class);
+        when(graphSnapshotService.require()).thenReturn(snapshot);
+        GraphConfig graphConfig = new GraphConfig();
+        graphConfig.getAnalytics().setWriteBatchSize(4);
+        new CommunityService(graphConfig, jdbcTemplate, transactionTemplate, graphSnapshotService).detectCommunities();
+
+        assertEquals(5, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM kg.node_metrics WHERE community_id IS NOT NULL", Integer.class));
+        assertEquals(5, jdbcTemplate.queryForObject(
+            "SELECT SUM(size) FROM kg.graph_communities", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("""
+            SELECT COUNT(*) FROM kg.graph_communities c
+            WHERE c.size <> (SELECT COUNT(*) FROM kg.node_metrics m WHERE m.community_id = c.community_id)
+            """, Integer.class));
+        // The only edge between the triangles touched the deleted node
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM kg.community_links", Integer.class));
+    }
+}
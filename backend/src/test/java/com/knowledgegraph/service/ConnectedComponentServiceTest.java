@@ -0,0 +1,50 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ConnectedComponentServiceTest extends PostgresServiceTest {
+
+    @Test
+    void relabelSkipsNodesDeletedSinceTheSnapshot() {
+        UUID a = insertNode("PERSON", "a");
+        UUID b = insertNode("PERSON", "b");
+        UUID c = insertNode("PERSON", "c");
+        UUID d = insertNode("CONCEPT", "d");
+        GraphSnapshot snapshot = GraphSnapshot.builder(4, 2)
+            .addNode(a, NodeType.PERSON)
+            .addNode(b, NodeType.PERSON)
+            .addNode(c, NodeType.PERSON)
+            .addNode(d, NodeType.CONCEPT)
+            .addEdge(insertEdge(a, b, "RELATED_TO"), a, b, EdgeType.RELATED_TO, 1.0f)
+            .addEdge(insertEdge(b, c, "RELATED_TO"), b, c, EdgeType.RELATED_TO, 1.0f)
+            .build();
+
+        jdbcTemplate.update("DELETE FROM kg.nodes WHERE id = ?", c);
+
+        GraphConfig graphConfig = new GraphConfig();
+        graphConfig.getComponents().setWriteBatchSize(2);
+        new ConnectedComponentService(graphConfig, jdbcTemplate, transactionTemplate,
+            mock(GraphSnapshotService.class), mock(GraphTraversalService.class), new EdgeWatermarkPoller(jdbcTemplate))
+            .relabel(snapshot);
+
+        assertEquals(3, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM kg.node_metrics WHERE component_id IS NOT NULL", Integer.class));
+        UUID component = jdbcTemplate.queryForObject(
+            "SELECT component_id FROM kg.node_metrics WHERE node_id = ?", UUID.class, a);
+        assertEquals(component, jdbcTemplate.queryForObject(
+            "SELECT component_id FROM kg.node_metrics WHERE node_id = ?", UUID.class, b));
+        assertEquals(2L, jdbcTemplate.queryForObject(
+            "SELECT size FROM kg.graph_components WHERE component_id = ?", Long.class, component));
+        assertEquals(1L, jdbcTemplate.queryForObject(
+            "SELECT size FROM kg.graph_components WHERE component_id = ?", Long.class, d));
+    }
+}
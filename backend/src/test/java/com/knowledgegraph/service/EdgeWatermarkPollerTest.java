@@ -0,0 +1,72 @@
+package com.knowledgegraph.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeWatermarkPollerTest extends PostgresServiceTest {
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    private UUID a;
+    private UUID b;
+    private UUID c;
+
+    /**
+     * a -> b two hours ago, b -> c 30 seconds ago, c -> a now
+     */
+    @BeforeEach
+    void edgesOfDifferentAges() {
+        a = insertNode("CONCEPT", "a");
+        b = insertNode("CONCEPT", "b");
+        c = insertNode("CONCEPT", "c");
+        createdAt(insertEdge(a, b, "RELATED_TO"), now.minusHours(2));
+        createdAt(insertEdge(b, c, "RELATED_TO"), now.minusSeconds(30));
+        createdAt(insertEdge(c, a, "RELATED_TO"), now);
+    }
+
+    @Test
+    void rereadsTheOverlapWindowBeforeTheWatermark() {
+        EdgeWatermarkPoller.NewEdges newEdges =
+            new EdgeWatermarkPoller(jdbcTemplate).poll(now.minusSeconds(10), 60_000, 10);
+
+        assertEquals(List.of(List.of(b, c), List.of(c, a)), pairs(newEdges));
+        assertEquals(now.minusSeconds(70), newEdges.getSince());
+        assertEquals(now, newEdges.getNewest());
+        assertFalse(newEdges.isOverflow());
+    }
+
+    @Test
+    void keepsTheWatermarkWhenNothingIsNewer() {
+        LocalDateTime watermark = now.plusMinutes(5);
+        EdgeWatermarkPoller.NewEdges newEdges = new EdgeWatermarkPoller(jdbcTemplate).poll(watermark, 60_000, 10);
+
+        assertTrue(newEdges.isEmpty());
+        assertEquals(watermark, newEdges.getNewest());
+    }
+
+    @Test
+    void reportsOverflowOneEdgePastTheCap() {
+        EdgeWatermarkPoller poller = new EdgeWatermarkPoller(jdbcTemplate);
+
+        EdgeWatermarkPoller.NewEdges overflow = poller.poll(now.minusDays(1), 0, 2);
+        assertTrue(overflow.isOverflow());
+        assertEquals(3, overflow.getEdges().size());
+
+        assertFalse(poller.poll(now.minusDays(1), 0, 3).isOverflow());
+    }
+
+    private static void createdAt(UUID edgeId, LocalDateTime createdAt) {
+        jdbcTemplate.update("UPDATE kg.edges SET created_at = ? WHERE id = ?", Timestamp.valueOf(createdAt), edgeId);
+    }
+
+    private static List<List<UUID>> pairs(EdgeWatermarkPoller.NewEdges newEdges) {
+        return newEdges.getEdges().stream().map(List::of).toList();
+    }
+}
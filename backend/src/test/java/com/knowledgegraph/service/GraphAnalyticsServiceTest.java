@@ -0,0 +1,68 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GraphAnalyticsServiceTest extends PostgresServiceTest {
+
+    private UUID a;
+    private UUID b;
+    private UUID c;
+    private GraphAnalyticsService service;
+
+    /**
+     * Path a - b - c in the snapshot, with c deleted from the database afterwards
+     */
+    @BeforeEach
+    void snapshotWithDeletedNode() {
+        a = insertNode("PERSON", "a");
+        b = insertNode("PERSON", "b");
+        c = insertNode("PERSON", "c");
+        GraphSnapshot snapshot = GraphSnapshot.builder(3, 2)
+            .addNode(a, NodeType.PERSON)
+            .addNode(b, NodeType.PERSON)
+            .addNode(c, NodeType.PERSON)
+            .addEdge(insertEdge(a, b, "RELATED_TO"), a, b, EdgeType.RELATED_TO, 1.0f)
+            .addEdge(insertEdge(b, c, "RELATED_TO"), b, c, EdgeType.RELATED_TO, 1.0f)
+            .build();
+        jdbcTemplate.update("DELETE FROM kg.nodes WHERE id = ?", c);
+
+        GraphSnapshotService graphSnapshotService = mock(GraphSnapshotService.class);
+        when(graphSnapshotService.require()).thenReturn(snapshot);
+        GraphConfig graphConfig = new GraphConfig();
+        graphConfig.getAnalytics().setWriteBatchSize(2);
+        service = new GraphAnalyticsService(graphConfig, jdbcTemplate, transactionTemplate,
+            graphSnapshotService, mock(GraphTraversalService.class));
+    }
+
+    @Test
+    void pageRankSkipsNodesDeletedSinceTheSnapshot() {
+        service.computePageRank();
+
+        assertEquals(2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM kg.node_metrics WHERE pagerank IS NOT NULL", Integer.class));
+        assertEquals(Set.of(a, b), service.getPageRank(List.of(a, b, c)).keySet());
+    }
+
+    @Test
+    void betweennessSkipsNodesDeletedSinceTheSnapshot() {
+        service.computeBetweenness();
+
+        assertEquals(2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM kg.node_metrics WHERE betweenness IS NOT NULL", Integer.class));
+        assertTrue(jdbcTemplate.queryForObject(
+            "SELECT betweenness FROM kg.node_metrics WHERE node_id = ?", Double.class, b) > 0.0);
+    }
+}
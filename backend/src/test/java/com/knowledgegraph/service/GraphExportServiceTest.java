@@ -0,0 +1,190 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.ExportFormat;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphExportServiceTest extends PostgresServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private GraphExportService service;
+    private UUID a;
+    private UUID b;
+    private UUID c;
+    private UUID ab;
+
+    /**
+     * People a and b, concept c; a -> b (confidence 0.5), b -> c, a -> a. b's name needs escaping
+     * and holds a control character XML cannot carry.
+     */
+    @BeforeEach
+    void setUp() {
+        GraphConfig graphConfig = new GraphConfig();
+        graphConfig.getExport().setFetchSize(2);
+        service = new GraphExportService(graphConfig, jdbcTemplate, transactionTemplate.getTransactionManager(),
+            objectMapper);
+
+        a = insertNode("PERSON", "a");
+        b = insertNode("PERSON", "b <&> \u0001");
+        c = insertNode("CONCEPT", "c");
+        jdbcTemplate.update("UPDATE kg.nodes SET properties = '{\"age\": 3}'::jsonb WHERE id = ?", a);
+        ab = insertEdge(a, b, "RELATED_TO");
+        jdbcTemplate.update("UPDATE kg.edges SET properties = '{\"confidence\": 0.5}'::jsonb WHERE id = ?", ab);
+        insertEdge(b, c, "PART_OF");
+        insertEdge(a, a, "RELATED_TO");
+    }
+
+    @Test
+    void ndjsonHasOneLinePerRowAndASummary() throws Exception {
+        List<JsonNode> lines = ndjson(Set.of(), Set.of());
+
+        assertEquals(7, lines.size());
+        Map<String, JsonNode> nodes = new HashMap<>();
+        lines.stream().filter(line -> line.has("node"))
+            .forEach(line -> nodes.put(line.get("node").get("id").asText(), line.get("node")));
+        assertEquals(Set.of(a.toString(), b.toString(), c.toString()), nodes.keySet());
+        assertEquals(3, nodes.get(a.toString()).get("properties").get("age").asInt());
+        assertEquals("b <&> \u0001", nodes.get(b.toString()).get("name").asText());
+
+        // Nodes come before edges
+        assertTrue(lines.subList(0, 3).stream().allMatch(line -> line.has("node")));
+        JsonNode edge = lines.stream().filter(line -> line.has("edge") && line.get("edge").get("id").asText()
+            .equals(ab.toString())).findFirst().orElseThrow().get("edge");
+        assertEquals(a.toString(), edge.get("sourceId").asText());
+        assertEquals(b.toString(), edge.get("targetId").asText());
+        assertEquals("RELATED_TO", edge.get("type").asText());
+
+        JsonNode summary = lines.get(6);
+        assertTrue(summary.get("done").asBoolean());
+        assertEquals(3, summary.get("totalNodes").asLong());
+        assertEquals(3, summary.get("totalEdges").asLong());
+    }
+
+    @Test
+    void filtersKeepEdgesBetweenExportedNodesOnly() throws Exception {
+        List<JsonNode> people = ndjson(Set.of(NodeType.PERSON), Set.of());
+        assertEquals(2, people.stream().filter(line -> line.has("node")).count());
+        assertEquals(2, people.stream().filter(line -> line.has("edge")).count());
+
+        List<JsonNode> partOf = ndjson(Set.of(), Set.of(EdgeType.PART_OF));
+        assertEquals(3, partOf.stream().filter(line -> line.has("node")).count());
+        assertEquals(List.of("PART_OF"), partOf.stream().filter(line -> line.has("edge"))
+            .map(line -> line.get("edge").get("type").asText()).toList());
+    }
+
+    @Test
+    void graphmlIsWellFormedWithTypedData() throws Exception {
+        byte[] bytes = export(ExportFormat.GRAPHML, Set.of(), Set.of());
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+            .parse(new ByteArrayInputStream(bytes));
+        assertEquals("graphml", document.getDocumentElement().getTagName());
+        NodeList nodes = document.getElementsByTagName("node");
+        NodeList edges = document.getElementsByTagName("edge");
+        assertEquals(3, nodes.getLength());
+        assertEquals(3, edges.getLength());
+
+        Map<String, String> names = new HashMap<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element node = (Element) nodes.item(i);
+            names.put(node.getAttribute("id"), data(node, "node_name"));
+        }
+        assertEquals("b <&> ", names.get(b.toString()));
+        for (int i = 0; i < edges.getLength(); i++) {
+            Element edge = (Element) edges.item(i);
+            if (edge.getAttribute("id").equals(ab.toString())) {
+                assertEquals(a.toString(), edge.getAttribute("source"));
+                assertEquals("RELATED_TO", data(edge, "edge_type"));
+            }
+        }
+    }
+
+    @Test
+    void binaryEdgeListNumbersNodesInIdOrder() throws Exception {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(
+            export(ExportFormat.EDGELIST, Set.of(), Set.of())));
+
+        assertEquals(0x4B47454C, data.readInt());
+        assertEquals(1, data.readInt());
+        List<String> nodeTypes = names(data);
+        List<String> edgeTypes = names(data);
+        assertEquals(NodeType.values().length, nodeTypes.size());
+
+        // PostgreSQL orders uuids bytewise, as their text; UUID.compareTo compares signed longs
+        List<UUID> ordered = new ArrayList<>(List.of(a, b, c));
+        ordered.sort(Comparator.comparing(UUID::toString));
+        for (UUID expected : ordered) {
+            assertEquals(1, data.readByte());
+            assertEquals(expected, new UUID(data.readLong(), data.readLong()));
+            assertEquals(expected.equals(c) ? "CONCEPT" : "PERSON", nodeTypes.get(data.readByte()));
+        }
+
+        Map<List<Integer>, Float> confidences = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(2, data.readByte());
+            List<Integer> pair = List.of(data.readInt(), data.readInt());
+            String type = edgeTypes.get(data.readByte());
+            confidences.put(pair, data.readFloat());
+            assertEquals(pair.equals(List.of(ordered.indexOf(b), ordered.indexOf(c))) ? "PART_OF" : "RELATED_TO", type);
+        }
+        assertEquals(0.5f, confidences.get(List.of(ordered.indexOf(a), ordered.indexOf(b))));
+        assertTrue(Float.isNaN(confidences.get(List.of(ordered.indexOf(a), ordered.indexOf(a)))));
+
+        assertEquals(0, data.readByte());
+        assertEquals(3, data.readLong());
+        assertEquals(3, data.readLong());
+        assertEquals(-1, data.read());
+    }
+
+    private byte[] export(ExportFormat format, Set<NodeType> nodeTypes, Set<EdgeType> edgeTypes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.prepareExport(format, nodeTypes, edgeTypes).writeTo(out);
+        return out.toByteArray();
+    }
+
+    private List<JsonNode> ndjson(Set<NodeType> nodeTypes, Set<EdgeType> edgeTypes) throws Exception {
+        String text = new String(export(ExportFormat.NDJSON, nodeTypes, edgeTypes), StandardCharsets.UTF_8);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private static List<String> names(DataInputStream data) throws Exception {
+        int count = data.readInt();
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(data.readUTF());
+        }
+        return names;
+    }
+
+    private static String data(Element element, String key) {
+        NodeList data = element.getElementsByTagName("data");
+        for (int i = 0; i < data.getLength(); i++) {
+            Element item = (Element) data.item(i);
+            if (item.getAttribute("key").equals(key)) {
+                return item.getTextContent();
+            }
+        }
+        return null;
+    }
+}
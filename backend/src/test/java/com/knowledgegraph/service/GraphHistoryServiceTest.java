@@ -0,0 +1,73 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.model.Node;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphHistoryServiceTest extends PostgresServiceTest {
+
+    private GraphConfig graphConfig;
+    private GraphHistoryService service;
+
+    @BeforeEach
+    void createService() {
+        graphConfig = new GraphConfig();
+        service = new GraphHistoryService(graphConfig, jdbcTemplate, new ObjectMapper());
+    }
+
+    @Test
+    void findNodesAtLeavesTypesNoLongerDefinedNull() {
+        UUID renamed = UUID.randomUUID();
+        UUID known = UUID.randomUUID();
+        insertVersion(renamed, "TOPIC", "2020-01-01T00:00:00Z", "2021-01-01T00:00:00Z");
+        insertVersion(known, "PERSON", "2020-01-01T00:00:00Z", "2021-01-01T00:00:00Z");
+
+        Map<UUID, Node> nodes = service.findNodesAt(List.of(renamed, known), Instant.parse("2020-06-01T00:00:00Z"))
+            .stream()
+            .collect(Collectors.toMap(Node::getId, Function.identity()));
+
+        assertEquals(2, nodes.size());
+        assertNull(nodes.get(renamed).getType());
+        assertEquals(NodeType.PERSON, nodes.get(known).getType());
+    }
+
+    @Test
+    void findNodesAtReturnsTheVersionValidThen() {
+        UUID node = insertNode("PERSON", "before");
+        Instant beforeRename = jdbcTemplate.queryForObject("SELECT clock_timestamp()", Timestamp.class).toInstant();
+        jdbcTemplate.update("UPDATE kg.nodes SET name = 'after' WHERE id = ?", node);
+
+        assertEquals("before", service.findNodesAt(List.of(node), beforeRename).get(0).getName());
+        assertEquals("after", service.findNodesAt(List.of(node), Instant.now()).get(0).getName());
+    }
+
+    @Test
+    void instantsBeforeTheRetentionWindowAreRefused() {
+        graphConfig.getHistory().setRetentionDays(30);
+        Instant expired = Instant.now().minus(31, ChronoUnit.DAYS);
+
+        assertThrows(IllegalArgumentException.class, () -> service.findNodesAt(List.of(UUID.randomUUID()), expired));
+        assertThrows(IllegalArgumentException.class, () -> service.requireRetained(expired));
+        service.requireRetained(Instant.now().minus(29, ChronoUnit.DAYS));
+    }
+
+    private static void insertVersion(UUID id, String type, String validFrom, String validTo) {
+        jdbcTemplate.update("INSERT INTO kg.node_history (id, type, name, valid_from, valid_to) VALUES (?, ?, ?, ?, ?)",
+            id, type, type.toLowerCase(),
+            Timestamp.from(Instant.parse(validFrom)), Timestamp.from(Instant.parse(validTo)));
+    }
+}
@@ -0,0 +1,233 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.GraphNeighborhoodDTO;
+import com.knowledgegraph.dto.NeighborhoodQuery;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.NeighborRanking;
+import com.knowledgegraph.model.Edge;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.Node;
+import com.knowledgegraph.model.NodeType;
+import com.knowledgegraph.repository.EdgeRepository;
+import com.knowledgegraph.repository.NodeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Neighborhood expansion over the in-memory snapshot: fan-out caps, type filters, the node
+ * budget and multi-seed expansion
+ */
+class GraphNeighborhoodTest {
+
+    private static final UUID HUB = new UUID(0, 1);
+    private static final UUID P1 = new UUID(0, 2);
+    private static final UUID P2 = new UUID(0, 3);
+    private static final UUID P3 = new UUID(0, 4);
+    private static final UUID P4 = new UUID(0, 5);
+    private static final UUID Q1 = new UUID(0, 6);
+    private static final UUID SEED = new UUID(0, 7);
+    private static final UUID Z1 = new UUID(0, 8);
+    private static final UUID Z2 = new UUID(0, 9);
+
+    private final NodeRepository nodeRepository = mock(NodeRepository.class);
+    private final EdgeRepository edgeRepository = mock(EdgeRepository.class);
+    private final GraphSnapshotService graphSnapshotService = mock(GraphSnapshotService.class);
+    private final GraphConfig graphConfig = new GraphConfig();
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private final Map<UUID, Edge> edges = new HashMap<>();
+    private GraphTraversalService service;
+
+    /**
+     * HUB - P1 (RELATED_TO, 0.9), P2 (RELATED_TO, 0.5), P3 (PART_OF, 0.8), P4 (LOCATED_IN, 0.1);
+     * P2 - Q1 - SEED; SEED - Z1, Z2
+     */
+    @BeforeEach
+    void setUp() {
+        node(HUB, NodeType.PERSON);
+        node(P1, NodeType.PERSON);
+        node(P2, NodeType.PERSON);
+        node(P3, NodeType.CONCEPT);
+        node(P4, NodeType.LOCATION);
+        node(Q1, NodeType.CONCEPT);
+        node(SEED, NodeType.PERSON);
+        node(Z1, NodeType.CONCEPT);
+        node(Z2, NodeType.CONCEPT);
+
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(nodes.size(), 9);
+        nodes.values().stream()
+            .sorted(Comparator.comparing(Node::getId))
+            .forEach(node -> builder.addNode(node.getId(), node.getType()));
+        edge(builder, HUB, P1, EdgeType.RELATED_TO, 0.9f);
+        edge(builder, HUB, P2, EdgeType.RELATED_TO, 0.5f);
+        edge(builder, P3, HUB, EdgeType.PART_OF, 0.8f);
+        edge(builder, HUB, P4, EdgeType.LOCATED_IN, 0.1f);
+        edge(builder, P2, Q1, EdgeType.RELATED_TO, 1.0f);
+        edge(builder, SEED, Q1, EdgeType.RELATED_TO, 1.0f);
+        edge(builder, SEED, Z1, EdgeType.RELATED_TO, 1.0f);
+        edge(builder, Z2, SEED, EdgeType.PART_OF, 1.0f);
+        when(graphSnapshotService.current()).thenReturn(Optional.of(builder.build()));
+
+        when(nodeRepository.findAllById(any())).thenAnswer(invocation -> find(invocation.getArgument(0), nodes));
+        when(edgeRepository.findAllById(any())).thenAnswer(invocation -> find(invocation.getArgument(0), edges));
+
+        service = new GraphTraversalService(nodeRepository, edgeRepository, null, graphSnapshotService, graphConfig,
+            new ObjectMapper(), mock(PlatformTransactionManager.class), mock(NeighborhoodCacheIndex.class),
+            mock(GraphHistoryService.class), mock(SupernodeService.class), mock(CompressedGraphService.class));
+    }
+
+    @Test
+    void fanOutKeepsTheMostConfidentNeighbors() {
+        GraphNeighborhoodDTO neighborhood = service.getNeighborhood(HUB,
+            NeighborhoodQuery.builder().hops(1).fanOut(2).build());
+
+        assertEquals(Set.of(HUB, P1, P3), nodeIds(neighborhood));
+        assertEquals(2, neighborhood.getTruncatedByFanOut());
+        assertEquals(0, neighborhood.getTruncatedByBudget());
+        assertTrue(neighborhood.isTruncated());
+        assertEquals(2, node(neighborhood, HUB).getHiddenEdges());
+    }
+
+    @Test
+    void fanOutCanRankByNeighborDegree() {
+        GraphNeighborhoodDTO neighborhood = service.getNeighborhood(HUB,
+            NeighborhoodQuery.builder().hops(1).fanOut(1).rankBy(NeighborRanking.DEGREE).build());
+
+        assertEquals(Set.of(HUB, P2), nodeIds(neighborhood));
+        assertEquals(3, neighborhood.getTruncatedByFanOut());
+    }
+
+    @Test
+    void typeFiltersApplyToEdgesAndNeighbors() {
+        assertEquals(Set.of(HUB, P1, P2, Q1), nodeIds(service.getNeighborhood(HUB,
+            NeighborhoodQuery.builder().hops(2).edgeTypes(Set.of(EdgeType.RELATED_TO)).build())));
+        assertEquals(Set.of(HUB, P3, P4), nodeIds(service.getNeighborhood(HUB,
+            NeighborhoodQuery.builder().hops(2).excludeNodeTypes(Set.of(NodeType.PERSON)).build())));
+
+        GraphNeighborhoodDTO neighborhood = service.getNeighborhood(HUB, NeighborhoodQuery.builder().hops(1)
+            .nodeTypes(Set.of(NodeType.PERSON, NodeType.CONCEPT)).excludeEdgeTypes(Set.of(EdgeType.PART_OF)).build());
+        assertEquals(Set.of(HUB, P1, P2), nodeIds(neighborhood));
+        assertFalse(neighborhood.isTruncated());
+    }
+
+    @Test
+    void nodeBudgetCountsTheEdgesItLeftOut() {
+        GraphNeighborhoodDTO neighborhood = service.getNeighborhood(HUB,
+            NeighborhoodQuery.builder().hops(1).maxNodes(3).build());
+
+        assertEquals(3, neighborhood.getNodes().size());
+        assertTrue(nodeIds(neighborhood).contains(HUB));
+        assertEquals(2, neighborhood.getTruncatedByBudget());
+        assertEquals(2, node(neighborhood, HUB).getHiddenEdges());
+        // Only edges between kept nodes are returned
+        Set<UUID> kept = nodeIds(neighborhood);
+        neighborhood.getEdges().forEach(edge -> {
+            assertTrue(kept.contains(edge.getSourceId()));
+            assertTrue(kept.contains(edge.getTargetId()));
+        });
+    }
+
+    @Test
+    void queriesOutsideTheLimitsAreRejected() {
+        graphConfig.getTraversal().setMaxNodes(100);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> service.getNeighborhood(HUB, NeighborhoodQuery.ofHops(0)));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.getNeighborhood(HUB, NeighborhoodQuery.builder().hops(1).fanOut(0).build()));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.getNeighborhood(HUB, NeighborhoodQuery.builder().hops(1).maxNodes(101).build()));
+    }
+
+    @Test
+    void seedsExpandTogetherAndShareNodesOnce() {
+        GraphNeighborhoodDTO neighborhood = service.getNeighborhood(List.of(HUB, SEED), NeighborhoodQuery.ofHops(2));
+
+        assertNull(neighborhood.getCenterNodeId());
+        assertEquals(List.of(HUB, SEED), neighborhood.getSeedIds());
+        assertEquals(nodes.keySet(), nodeIds(neighborhood));
+        assertEquals(nodes.size(), neighborhood.getNodes().size());
+        assertEquals(edges.size(), neighborhood.getEdges().size());
+
+        // Q1 is one hop from SEED and two from HUB
+        assertEquals(1, node(neighborhood, Q1).getHopLevel());
+        assertEquals(SEED, node(neighborhood, Q1).getNearestSeedId());
+        assertEquals(HUB, node(neighborhood, P4).getNearestSeedId());
+        assertEquals(SEED, node(neighborhood, Z2).getNearestSeedId());
+        assertEquals(0, node(neighborhood, SEED).getHopLevel());
+    }
+
+    @Test
+    void theNodeBudgetIsSpreadOverTheSeeds() {
+        GraphNeighborhoodDTO neighborhood = service.getNeighborhood(List.of(HUB, SEED),
+            NeighborhoodQuery.builder().hops(1).maxNodes(4).build());
+
+        Map<UUID, Long> perSeed = neighborhood.getNodes().stream()
+            .collect(Collectors.groupingBy(GraphNeighborhoodDTO.GraphNode::getNearestSeedId, Collectors.counting()));
+        assertEquals(Map.of(HUB, 2L, SEED, 2L), perSeed);
+    }
+
+    @Test
+    void seedListsAreValidated() {
+        graphConfig.getTraversal().setMaxSeeds(2);
+
+        assertThrows(IllegalArgumentException.class, () -> service.getNeighborhood(List.of(), NeighborhoodQuery.ofHops(1)));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.getNeighborhood(Arrays.asList(HUB, null), NeighborhoodQuery.ofHops(1)));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.getNeighborhood(List.of(HUB, SEED, P1), NeighborhoodQuery.ofHops(1)));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.getNeighborhood(List.of(HUB, SEED), NeighborhoodQuery.builder().hops(1).maxNodes(1).build()));
+
+        // Duplicates collapse into one seed
+        GraphNeighborhoodDTO neighborhood = service.getNeighborhood(List.of(HUB, HUB), NeighborhoodQuery.ofHops(1));
+        assertEquals(HUB, neighborhood.getCenterNodeId());
+        assertEquals(Set.of(HUB, P1, P2, P3, P4), nodeIds(neighborhood));
+    }
+
+    private void node(UUID id, NodeType type) {
+        Node node = new Node();
+        node.setId(id);
+        node.setType(type);
+        node.setName(type.name().toLowerCase() + "-" + id.getLeastSignificantBits());
+        nodes.put(id, node);
+    }
+
+    private void edge(GraphSnapshot.Builder builder, UUID source, UUID target, EdgeType type, float confidence) {
+        Edge edge = new Edge();
+        edge.setId(new UUID(1, edges.size()));
+        edge.setSource(nodes.get(source));
+        edge.setTarget(nodes.get(target));
+        edge.setType(type);
+        edges.put(edge.getId(), edge);
+        builder.addEdge(edge.getId(), source, target, type, confidence);
+    }
+
+    private static <T> List<T> find(Iterable<UUID> ids, Map<UUID, T> entities) {
+        return StreamSupport.stream(ids.spliterator(), false)
+            .map(entities::get)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    private static GraphNeighborhoodDTO.GraphNode node(GraphNeighborhoodDTO neighborhood, UUID id) {
+        return neighborhood.getNodes().stream().filter(node -> node.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static Set<UUID> nodeIds(GraphNeighborhoodDTO neighborhood) {
+        return neighborhood.getNodes().stream()
+            .map(GraphNeighborhoodDTO.GraphNode::getId)
+            .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,87 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.GraphSnapshotFile;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class GraphSnapshotServiceTest extends PostgresServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private UUID a;
+    private UUID b;
+    private UUID ab;
+    private UUID purged;
+    private GraphConfig graphConfig;
+
+    /**
+     * Snapshot file from 40 days ago holding a - b and an edge deleted since, whose history
+     * row is already gone, as after a purge
+     */
+    @BeforeEach
+    void staleSnapshotFile() throws IOException {
+        a = insertNode("PERSON", "a");
+        b = insertNode("PERSON", "b");
+        ab = insertEdge(a, b, "RELATED_TO");
+        purged = UUID.randomUUID();
+
+        Path file = directory.resolve("graph-snapshot.bin");
+        GraphSnapshotFile.write(GraphSnapshot.builder(2, 2)
+            .addNode(a, NodeType.PERSON)
+            .addNode(b, NodeType.PERSON)
+            .addEdge(ab, a, b, EdgeType.RELATED_TO, 1.0f)
+            .addEdge(purged, b, a, EdgeType.RELATED_TO, 1.0f)
+            .scannedAt(LocalDateTime.now().minusDays(40))
+            .build(), file);
+
+        graphConfig = new GraphConfig();
+        graphConfig.getSnapshot().setFile(file.toString());
+    }
+
+    @Test
+    void fileOlderThanTheHistoryRetentionIsRebuilt() {
+        graphConfig.getHistory().setRetentionDays(30);
+
+        GraphSnapshot snapshot = service().require();
+
+        assertEquals(Set.of(ab), edgeIds(snapshot));
+        assertTrue(snapshot.getScannedAt().isAfter(LocalDateTime.now().minusDays(1)));
+    }
+
+    @Test
+    void fileIsReplayedWhenHistoryIsKept() {
+        GraphSnapshot snapshot = service().require();
+
+        // Nothing recorded the removal, so only a rebuild could have dropped it
+        assertEquals(Set.of(ab, purged), edgeIds(snapshot));
+    }
+
+    private GraphSnapshotService service() {
+        return new GraphSnapshotService(graphConfig, jdbcTemplate.getDataSource(),
+            transactionTemplate.getTransactionManager(), mock(ApplicationEventPublisher.class));
+    }
+
+    private static Set<UUID> edgeIds(GraphSnapshot snapshot) {
+        Set<UUID> ids = new HashSet<>();
+        IntStream.range(0, snapshot.edgeCount()).forEach(edge -> ids.add(snapshot.edgeId(edge)));
+        return ids;
+    }
+}
@@ -0,0 +1,117 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphStatisticsServiceTest extends PostgresServiceTest {
+
+    private GraphStatisticsService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM kg.graph_statistics");
+        service = new GraphStatisticsService(jdbcTemplate, transactionTemplate);
+    }
+
+    @Test
+    void changesOutsideTransactionsCountRightAway() {
+        service.recordNodes(NodeType.PERSON, 2);
+        service.recordNodes(NodeType.CONCEPT, 1);
+        service.recordEdges(EdgeType.RELATED_TO, NodeType.PERSON, NodeType.CONCEPT, 2);
+        service.recordEdges(EdgeType.RELATED_TO, NodeType.PERSON, NodeType.CONCEPT, -1);
+
+        Map<String, Object> stats = service.getStatistics();
+        assertEquals(3L, stats.get("totalNodes"));
+        assertEquals(1L, stats.get("totalEdges"));
+        assertEquals(Map.of("PERSON", 2L, "CONCEPT", 1L), stats.get("nodeTypes"));
+        assertEquals(Map.of("RELATED_TO", 1L), stats.get("edgeTypes"));
+        assertEquals(Map.of("PERSON", Map.of("out", 1L, "in", 0L), "CONCEPT", Map.of("out", 0L, "in", 1L)),
+            stats.get("degreeSums"));
+        assertEquals(2.0 / 3, (Double) stats.get("avgConnectionsPerNode"), 1e-9);
+    }
+
+    @Test
+    void transactionsCountOnlyOnceCommitted() {
+        transactionTemplate.executeWithoutResult(status -> {
+            service.recordNodes(NodeType.PERSON, 1);
+            assertEquals(0L, service.getStatistics().get("totalNodes"));
+        });
+        assertEquals(1L, service.getStatistics().get("totalNodes"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            service.recordNodes(NodeType.PERSON, 5);
+            status.setRollbackOnly();
+        });
+        assertEquals(1L, service.getStatistics().get("totalNodes"));
+    }
+
+    @Test
+    void reconcileRecountsTheTables() {
+        UUID a = insertNode("PERSON", "a");
+        UUID b = insertNode("CONCEPT", "b");
+        UUID c = insertNode("CONCEPT", "c");
+        insertNode("CONCEPT", "isolated");
+        insertEdge(a, b, "RELATED_TO");
+        insertEdge(a, c, "PART_OF");
+        service.recordNodes(NodeType.EVENT, 7);
+
+        service.reconcile();
+
+        Map<String, Object> stats = service.getStatistics();
+        assertEquals(4L, stats.get("totalNodes"));
+        assertEquals(Map.of("PERSON", 1L, "CONCEPT", 3L), stats.get("nodeTypes"));
+        assertEquals(Map.of("RELATED_TO", 1L, "PART_OF", 1L), stats.get("edgeTypes"));
+        assertEquals(Map.of("PERSON", Map.of("out", 2L, "in", 0L), "CONCEPT", Map.of("out", 0L, "in", 2L)),
+            stats.get("degreeSums"));
+        // Degrees 2, 1, 1 and 0
+        assertEquals(Map.of("0", 1L, "1", 2L, "2-3", 1L), stats.get("degreeHistogram"));
+        assertNotNull(stats.get("reconciledAt"));
+    }
+
+    @Test
+    void reconcileCheckpointsEveryCounter() {
+        insertNode("PERSON", "a");
+        service.reconcile();
+
+        Map<String, Long> checkpoint = checkpoint();
+        assertEquals(1L, checkpoint.get("nodes.PERSON"));
+        assertEquals(0L, checkpoint.get("edges.RELATED_TO"));
+        assertEquals(0L, checkpoint.get("out_degree.PERSON"));
+        assertEquals(1L, checkpoint.get("degree_histogram.0"));
+        assertTrue(checkpoint.containsKey("reconciled_at"));
+    }
+
+    @Test
+    void scheduledTickCheckpointsChangesAndReconcilesWhenStale() {
+        service.reconcile();
+        service.recordNodes(NodeType.PERSON, 1);
+
+        service.scheduledCheckpoint();
+        assertEquals(1L, checkpoint().get("nodes.PERSON"));
+
+        // An edge whose source type is unknown leaves the counters unreliable
+        service.recordEdges(EdgeType.RELATED_TO, null, NodeType.PERSON, 1);
+        assertEquals(1L, service.getStatistics().get("totalEdges"));
+
+        service.scheduledCheckpoint();
+        assertEquals(0L, service.getStatistics().get("totalEdges"));
+        assertEquals(0L, service.getStatistics().get("totalNodes"));
+        assertEquals(0L, checkpoint().get("nodes.PERSON"));
+    }
+
+    private static Map<String, Long> checkpoint() {
+        Map<String, Long> values = new HashMap<>();
+        jdbcTemplate.query("SELECT name, value FROM kg.graph_statistics", rs -> {
+            values.put(rs.getString("name"), rs.getLong("value"));
+        });
+        return values;
+    }
+}
@@ -0,0 +1,156 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.GraphNeighborhoodDTO;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.model.Edge;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.Node;
+import com.knowledgegraph.model.NodeType;
+import com.knowledgegraph.repository.EdgeRepository;
+import com.knowledgegraph.repository.NodeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Subgraph extraction from the snapshot, from the database and streamed
+ */
+class GraphSubgraphTest extends PostgresServiceTest {
+
+    private final NodeRepository nodeRepository = mock(NodeRepository.class);
+    private final EdgeRepository edgeRepository = mock(EdgeRepository.class);
+    private final GraphSnapshotService graphSnapshotService = mock(GraphSnapshotService.class);
+    private final GraphConfig graphConfig = new GraphConfig();
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private final Map<UUID, Edge> edges = new HashMap<>();
+    private UUID a;
+    private UUID b;
+    private UUID c;
+    private UUID d;
+    private GraphTraversalService service;
+
+    /**
+     * a -> b -> c -> d, b -> a, a -> a; only d is outside the extracted set
+     */
+    @BeforeEach
+    void setUp() {
+        a = node("a");
+        b = node("b");
+        c = node("c");
+        d = node("d");
+        edge(a, b);
+        edge(b, c);
+        edge(c, d);
+        edge(b, a);
+        edge(a, a);
+
+        when(nodeRepository.findAllById(any())).thenAnswer(invocation -> find(invocation.getArgument(0), nodes));
+        when(edgeRepository.findAllById(any())).thenAnswer(invocation -> find(invocation.getArgument(0), edges));
+        service = new GraphTraversalService(nodeRepository, edgeRepository, jdbcTemplate, graphSnapshotService,
+            graphConfig, new ObjectMapper(), transactionTemplate.getTransactionManager(),
+            mock(NeighborhoodCacheIndex.class), mock(GraphHistoryService.class), mock(SupernodeService.class),
+            mock(CompressedGraphService.class));
+    }
+
+    @Test
+    void databaseExtractionKeepsOnlyEdgesInsideTheSet() {
+        when(graphSnapshotService.current()).thenReturn(Optional.empty());
+
+        GraphNeighborhoodDTO subgraph = service.extractSubgraph(Set.of(a, b, c));
+
+        assertEquals(Set.of(a, b, c), nodeIds(subgraph.getNodes()));
+        assertEquals(expectedEdges(), edgeIds(subgraph.getEdges()));
+        assertEquals(3L, subgraph.getTotalNodes());
+        assertEquals(4L, subgraph.getTotalEdges());
+    }
+
+    @Test
+    void snapshotExtractionMatchesTheDatabase() {
+        GraphSnapshotService snapshots = new GraphSnapshotService(new GraphConfig(), jdbcTemplate.getDataSource(),
+            transactionTemplate.getTransactionManager(), mock(ApplicationEventPublisher.class));
+        GraphSnapshot snapshot = snapshots.refresh();
+        when(graphSnapshotService.current()).thenReturn(Optional.of(snapshot));
+
+        GraphNeighborhoodDTO subgraph = service.extractSubgraph(Set.of(a, b, c, UUID.randomUUID()));
+
+        assertEquals(Set.of(a, b, c), nodeIds(subgraph.getNodes()));
+        assertEquals(expectedEdges(), edgeIds(subgraph.getEdges()));
+    }
+
+    @Test
+    void streamingSendsNodesThenEdges() {
+        List<Object> sent = new ArrayList<>();
+
+        Map<String, Object> summary = service.prepareSubgraphStream(Set.of(a, b, c)).stream(sent::add, sent::add);
+
+        assertEquals(Map.of("done", true, "totalNodes", 3L, "totalEdges", 4L), summary);
+        assertTrue(sent.subList(0, 3).stream().allMatch(GraphNeighborhoodDTO.GraphNode.class::isInstance));
+        assertEquals(Set.of(a, b, c), nodeIds(sent.subList(0, 3).stream()
+            .map(GraphNeighborhoodDTO.GraphNode.class::cast).toList()));
+        assertEquals(expectedEdges(), edgeIds(sent.subList(3, 7).stream()
+            .map(GraphNeighborhoodDTO.GraphEdge.class::cast).toList()));
+    }
+
+    @Test
+    void setSizesAreValidated() {
+        graphConfig.getSubgraph().setMaxNodes(2);
+        graphConfig.getSubgraph().setMaxStreamedNodes(3);
+
+        assertThrows(IllegalArgumentException.class, () -> service.extractSubgraph(Set.of()));
+        assertThrows(IllegalArgumentException.class, () -> service.extractSubgraph(Set.of(a, b, c)));
+        assertThrows(IllegalArgumentException.class, () -> service.prepareSubgraphStream(Set.of()));
+        assertThrows(IllegalArgumentException.class, () -> service.prepareSubgraphStream(Set.of(a, b, c, d)));
+    }
+
+    private Set<UUID> expectedEdges() {
+        return edges.values().stream()
+            .filter(edge -> !edge.getTarget().getId().equals(d))
+            .map(Edge::getId)
+            .collect(Collectors.toSet());
+    }
+
+    private UUID node(String name) {
+        Node node = new Node();
+        node.setId(insertNode("CONCEPT", name));
+        node.setType(NodeType.CONCEPT);
+        node.setName(name);
+        nodes.put(node.getId(), node);
+        return node.getId();
+    }
+
+    private UUID edge(UUID source, UUID target) {
+        Edge edge = new Edge();
+        edge.setId(insertEdge(source, target, "RELATED_TO"));
+        edge.setSource(nodes.get(source));
+        edge.setTarget(nodes.get(target));
+        edge.setType(EdgeType.RELATED_TO);
+        edges.put(edge.getId(), edge);
+        return edge.getId();
+    }
+
+    private static <T> List<T> find(Iterable<UUID> ids, Map<UUID, T> entities) {
+        return StreamSupport.stream(ids.spliterator(), false)
+            .map(entities::get)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    private static Set<UUID> nodeIds(List<GraphNeighborhoodDTO.GraphNode> nodes) {
+        return nodes.stream().map(GraphNeighborhoodDTO.GraphNode::getId).collect(Collectors.toSet());
+    }
+
+    private static Set<UUID> edgeIds(List<GraphNeighborhoodDTO.GraphEdge> edges) {
+        return edges.stream().map(GraphNeighborhoodDTO.GraphEdge::getId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,90 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.GraphNeighborhoodDTO;
+import com.knowledgegraph.dto.NeighborhoodQuery;
+import com.knowledgegraph.graph.NeighborRanking;
+import com.knowledgegraph.repository.EdgeRepository;
+import com.knowledgegraph.repository.NodeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class GraphTraversalServiceTest extends PostgresServiceTest {
+
+    private UUID a;
+    private UUID b;
+    private UUID c;
+    private UUID bc;
+    private Instant before;
+    private GraphTraversalService service;
+
+    /**
+     * Path a - b - c, then b - c replaced by a - c; before is the instant between the two
+     */
+    @BeforeEach
+    void graphWithReplacedEdge() {
+        a = insertNode("PERSON", "a");
+        b = insertNode("PERSON", "b");
+        c = insertNode("PERSON", "c");
+        insertEdge(a, b, "RELATED_TO");
+        bc = insertEdge(b, c, "RELATED_TO");
+        before = jdbcTemplate.queryForObject("SELECT clock_timestamp()", Timestamp.class).toInstant();
+        jdbcTemplate.update("DELETE FROM kg.edges WHERE id = ?", bc);
+        insertEdge(a, c, "RELATED_TO");
+
+        GraphConfig graphConfig = new GraphConfig();
+        ObjectMapper objectMapper = new ObjectMapper();
+        service = new GraphTraversalService(mock(NodeRepository.class), mock(EdgeRepository.class), jdbcTemplate,
+            mock(GraphSnapshotService.class), graphConfig, objectMapper, mock(PlatformTransactionManager.class),
+            mock(NeighborhoodCacheIndex.class), new GraphHistoryService(graphConfig, jdbcTemplate, objectMapper),
+            mock(SupernodeService.class), mock(CompressedGraphService.class));
+    }
+
+    @Test
+    void shortestPathAsOfUsesTheEdgesValidThen() {
+        assertEquals(List.of(a, b, c), service.findShortestPath(a, c, 3, before));
+        assertEquals(List.of(a, c), service.findShortestPath(a, c, 3, Instant.now()));
+    }
+
+    @Test
+    void neighborhoodAsOfUsesTheEdgesValidThen() {
+        GraphNeighborhoodDTO neighborhood = service.getNeighborhood(a,
+            NeighborhoodQuery.builder().hops(1).asOf(before).build());
+
+        assertEquals(Set.of(a, b), nodeIds(neighborhood));
+        assertEquals(1, neighborhood.getEdges().size());
+
+        neighborhood = service.getNeighborhood(a, NeighborhoodQuery.builder().hops(2).asOf(before).build());
+        assertEquals(Set.of(a, b, c), nodeIds(neighborhood));
+        assertTrue(neighborhood.getEdges().stream().anyMatch(edge -> edge.getId().equals(bc)));
+    }
+
+    @Test
+    void frontierExpansionAsOfUsesTheEdgesValidThen() {
+        for (NeighborRanking rankBy : NeighborRanking.values()) {
+            NeighborhoodQuery query = NeighborhoodQuery.builder().hops(1).fanOut(10).rankBy(rankBy).asOf(before).build();
+            assertEquals(Set.of(a, b), nodeIds(service.getNeighborhood(a, query)));
+
+            query = NeighborhoodQuery.builder().hops(1).fanOut(10).rankBy(rankBy).asOf(Instant.now()).build();
+            assertEquals(Set.of(a, b, c), nodeIds(service.getNeighborhood(a, query)));
+        }
+    }
+
+    private static Set<UUID> nodeIds(GraphNeighborhoodDTO neighborhood) {
+        return neighborhood.getNodes().stream()
+            .map(GraphNeighborhoodDTO.GraphNode::getId)
+            .collect(Collectors.toSet());
+    }
+}
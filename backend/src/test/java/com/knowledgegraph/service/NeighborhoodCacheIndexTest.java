@@ -0,0 +1,154 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.dto.GraphNeighborhoodDTO;
+import com.knowledgegraph.dto.NeighborhoodQuery;
+import com.knowledgegraph.event.GraphChangedEvent;
+import com.knowledgegraph.event.GraphSnapshotRefreshedEvent;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.graph.NeighborRanking;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NeighborhoodCacheIndexTest {
+
+    // A hub with four neighbors; the last two are only reachable through it
+    private static final UUID HUB = new UUID(0, 0);
+    private static final UUID[] LEAVES = {new UUID(0, 1), new UUID(0, 2), new UUID(0, 3), new UUID(0, 4)};
+    private static final UUID OTHER = new UUID(0, 5);
+
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager(NeighborhoodCacheIndex.CACHE_NAME);
+    private final GraphSnapshotService graphSnapshotService = mock(GraphSnapshotService.class);
+    private NeighborhoodCacheIndex index;
+    private Cache cache;
+
+    @BeforeEach
+    void setUp() {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("cacheManager", cacheManager);
+        beans.registerSingleton("graphSnapshotService", graphSnapshotService);
+        index = new NeighborhoodCacheIndex(beans.getBeanProvider(CacheManager.class),
+            beans.getBeanProvider(GraphSnapshotService.class));
+        cache = cacheManager.getCache(NeighborhoodCacheIndex.CACHE_NAME);
+
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(6, 4).addNode(HUB, NodeType.PERSON);
+        for (int i = 0; i < LEAVES.length; i++) {
+            builder.addNode(LEAVES[i], NodeType.CONCEPT)
+                .addEdge(new UUID(1, i), HUB, LEAVES[i], EdgeType.RELATED_TO, 1.0f);
+        }
+        when(graphSnapshotService.current()).thenReturn(Optional.of(builder.addNode(OTHER, NodeType.CONCEPT).build()));
+    }
+
+    @Test
+    void evictsOnlyEntriesHoldingAChangedNode() {
+        cache("hub", NeighborRanking.CONFIDENCE, 0, HUB, LEAVES[0]);
+        cache("other", NeighborRanking.CONFIDENCE, 0, OTHER);
+
+        index.onGraphChanged(GraphChangedEvent.of(LEAVES[0]));
+
+        assertNull(cache.get("hub"));
+        assertNotNull(cache.get("other"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void cappedDegreeRankingIsEvictedWhenALeftOutNeighborChanges() {
+        // The cap kept two of the hub's four neighbors by degree
+        cache("degree", NeighborRanking.DEGREE, 2, HUB, LEAVES[0], LEAVES[1]);
+        cache("confidence", NeighborRanking.CONFIDENCE, 2, HUB, LEAVES[0], LEAVES[1]);
+        cache("uncapped", NeighborRanking.DEGREE, 0, HUB, LEAVES[0], LEAVES[1], LEAVES[2], LEAVES[3]);
+        cache("other", NeighborRanking.DEGREE, 1, OTHER);
+
+        // An edge between the two left-out neighbors raises their degree above the kept ones
+        index.onGraphChanged(GraphChangedEvent.of(LEAVES[2], LEAVES[3]));
+
+        assertNull(cache.get("degree"));
+        assertNotNull(cache.get("confidence"));
+        assertNull(cache.get("uncapped"));   // holds the changed nodes themselves
+        assertNotNull(cache.get("other"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void everyCappedDegreeRankingIsEvictedWithoutASnapshot() {
+        when(graphSnapshotService.current()).thenReturn(Optional.empty());
+        cache("degree", NeighborRanking.DEGREE, 2, HUB, LEAVES[0], LEAVES[1]);
+        cache("confidence", NeighborRanking.CONFIDENCE, 2, HUB, LEAVES[0], LEAVES[1]);
+
+        index.onGraphChanged(GraphChangedEvent.of(OTHER));
+
+        assertNull(cache.get("degree"));
+        assertNotNull(cache.get("confidence"));
+    }
+
+    @Test
+    void snapshotRebuildsEvictChangedNodesForTwoGenerations() {
+        index.onGraphChanged(GraphChangedEvent.of(LEAVES[0]));
+
+        // Computed from the snapshot that does not have the change yet
+        cache("stale", NeighborRanking.CONFIDENCE, 0, HUB, LEAVES[0]);
+        index.onSnapshotRefreshed(new GraphSnapshotRefreshedEvent(null));
+        assertNull(cache.get("stale"));
+
+        cache("stale", NeighborRanking.CONFIDENCE, 0, HUB, LEAVES[0]);
+        index.onSnapshotRefreshed(new GraphSnapshotRefreshedEvent(null));
+        assertNull(cache.get("stale"));
+
+        cache("fresh", NeighborRanking.CONFIDENCE, 0, HUB, LEAVES[0]);
+        index.onSnapshotRefreshed(new GraphSnapshotRefreshedEvent(null));
+        assertNotNull(cache.get("fresh"));
+    }
+
+    @Test
+    void forgettingAnOldValueKeepsTheNewRegistration() {
+        GraphNeighborhoodDTO old = cache("key", NeighborRanking.CONFIDENCE, 0, HUB);
+        cache("key", NeighborRanking.CONFIDENCE, 0, OTHER);
+
+        index.forget("key", old);
+        assertEquals(1, index.size());
+
+        // Only the new value's nodes evict it
+        index.onGraphChanged(GraphChangedEvent.of(HUB));
+        assertNotNull(cache.get("key"));
+        index.onGraphChanged(GraphChangedEvent.of(OTHER));
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    void unknownScopeClearsEverything() {
+        cache("hub", NeighborRanking.CONFIDENCE, 0, HUB);
+        cache("degree", NeighborRanking.DEGREE, 2, HUB, LEAVES[0]);
+
+        index.onGraphChanged(GraphChangedEvent.everything());
+
+        assertNull(cache.get("hub"));
+        assertNull(cache.get("degree"));
+        assertEquals(0, index.size());
+    }
+
+    /**
+     * Register and cache a neighborhood as GraphTraversalService does
+     */
+    private GraphNeighborhoodDTO cache(String key, NeighborRanking rankBy, long truncatedByFanOut, UUID... nodeIds) {
+        GraphNeighborhoodDTO neighborhood = GraphNeighborhoodDTO.builder()
+            .nodes(Arrays.stream(nodeIds).map(id -> GraphNeighborhoodDTO.GraphNode.builder().id(id).build()).toList())
+            .truncatedByFanOut(truncatedByFanOut)
+            .build();
+        index.register(key, NeighborhoodQuery.builder().hops(1).rankBy(rankBy).build(), neighborhood);
+        cache.put(key, neighborhood);
+        return neighborhood;
+    }
+}
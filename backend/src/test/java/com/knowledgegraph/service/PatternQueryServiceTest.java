@@ -0,0 +1,127 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.dto.PatternMatchDTO;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PatternQueryServiceTest {
+
+    private static final int NODES = 60;
+
+    private final GraphConfig graphConfig = new GraphConfig();
+    private final GraphSnapshotService graphSnapshotService = mock(GraphSnapshotService.class);
+    private final GraphStatisticsService graphStatisticsService = mock(GraphStatisticsService.class);
+    private final PatternQueryService service =
+        new PatternQueryService(graphConfig, graphSnapshotService, graphStatisticsService);
+
+    @BeforeEach
+    void setUp() {
+        // A path of people, each related to the next
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(NODES, NODES - 1);
+        for (int i = 0; i < NODES; i++) {
+            builder.addNode(new UUID(0, i), NodeType.PERSON);
+        }
+        for (int i = 1; i < NODES; i++) {
+            builder.addEdge(new UUID(1, i), new UUID(0, i - 1), new UUID(0, i), EdgeType.RELATED_TO, 1.0f);
+        }
+        when(graphSnapshotService.require()).thenReturn(builder.build());
+        when(graphStatisticsService.getStatistics()).thenReturn(Map.of(
+            "totalNodes", (long) NODES,
+            "totalEdges", (long) NODES - 1,
+            "nodeTypes", Map.of("PERSON", (long) NODES),
+            "edgeTypes", Map.of("RELATED_TO", (long) NODES - 1),
+            "degreeSums", Map.of("PERSON", Map.of("out", (long) NODES - 1, "in", (long) NODES - 1))));
+    }
+
+    @Test
+    void returnsRowsOfTheRequestedColumns() {
+        PatternMatchDTO result = service.query(
+            "MATCH (a)-[r:RELATED_TO]->(b) WHERE a.id = '" + new UUID(0, 3) + "' RETURN b, r", false);
+
+        assertEquals(List.of("b", "r"), result.getColumns());
+        assertEquals(List.of(Map.of("b", new UUID(0, 4), "r", new UUID(1, 4))), result.getRows());
+        assertEquals("COMPLETE", result.getOutcome());
+        assertFalse(result.isTruncated());
+        assertEquals(3, result.getPlan().size());   // a, b and the relationship
+    }
+
+    @Test
+    void explainOnlyReturnsThePlanWithoutRows() {
+        PatternMatchDTO result = service.query("MATCH (a)-->(b)-->(c)", true);
+
+        assertTrue(result.getRows().isEmpty());
+        assertNull(result.getOutcome());
+        assertNull(result.getExpandedEntries());
+        assertEquals(3, result.getPlan().size());
+        result.getPlan().forEach(step -> assertNull(step.getActualRows()));
+    }
+
+    @Test
+    void rejectsPatternsWithTooManyNodes() {
+        graphConfig.getQuery().setMaxPatternNodes(2);
+
+        assertThrows(IllegalArgumentException.class, () -> service.query("MATCH (a)-->(b)-->(c)", false));
+        assertEquals(NODES - 1, service.query("MATCH (a)-->(b)", false).getRowCount());
+    }
+
+    @Test
+    void rejectsLimitsOutsideTheMaximum() {
+        graphConfig.getQuery().setMaxResults(10);
+
+        assertThrows(IllegalArgumentException.class, () -> service.query("MATCH (a) LIMIT 0", false));
+        assertThrows(IllegalArgumentException.class, () -> service.query("MATCH (a) LIMIT 11", false));
+        PatternMatchDTO result = service.query("MATCH (a) LIMIT 10", false);
+        assertEquals(10, result.getRowCount());
+        assertEquals("RESULT_LIMIT", result.getOutcome());
+        assertTrue(result.isTruncated());
+    }
+
+    @Test
+    void unlimitedQueriesUseTheDefaultLimit() {
+        graphConfig.getQuery().setDefaultLimit(5);
+
+        assertEquals(5, service.query("MATCH (a)", false).getRowCount());
+    }
+
+    @Test
+    void stopsAtTheExpansionBudget() {
+        graphConfig.getQuery().setMaxExpansions(50);
+
+        PatternMatchDTO result = service.query("MATCH (a), (b)", false);
+
+        assertEquals("EXPANSION_LIMIT", result.getOutcome());
+        assertTrue(result.isTruncated());
+        assertTrue(result.getRowCount() < 50, String.valueOf(result.getRowCount()));
+    }
+
+    @Test
+    void stopsAtTheTimeout() {
+        graphConfig.getQuery().setTimeoutMs(0);
+        graphConfig.getQuery().setMaxResults(NODES * NODES * NODES);
+
+        PatternMatchDTO result = service.query("MATCH (a), (b), (c) LIMIT " + NODES * NODES * NODES, false);
+
+        assertEquals("TIME_LIMIT", result.getOutcome());
+        assertTrue(result.isTruncated());
+        assertTrue(result.getRowCount() < NODES * NODES * NODES, String.valueOf(result.getRowCount()));
+    }
+
+    @Test
+    void fallsBackToSnapshotTotalsBeforeTheCountersAreLoaded() {
+        when(graphStatisticsService.getStatistics()).thenReturn(Map.of());
+
+        assertEquals(NODES - 2, service.query("MATCH (a)-->(b)-->(c)", false).getRowCount());
+    }
+}
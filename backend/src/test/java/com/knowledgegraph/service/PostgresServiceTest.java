@@ -0,0 +1,82 @@
+package com.knowledgegraph.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Base for service tests against a real PostgreSQL with pgvector, set up from database/init.sql
+ * and the migrations in version order. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresServiceTest {
+
+    private static final Path DATABASE_SCRIPTS = Path.of("..", "database");
+
+    @Container
+    protected static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+        DockerImageName.parse("pgvector/pgvector:pg16").asCompatibleSubstituteFor("postgres"));
+
+    protected static JdbcTemplate jdbcTemplate;
+    protected static TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void createSchema() throws IOException {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+            POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword(), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+        jdbcTemplate.execute(Files.readString(DATABASE_SCRIPTS.resolve("init.sql")));
+        jdbcTemplate.execute("SET search_path TO public");
+        try (Stream<Path> files = Files.list(DATABASE_SCRIPTS.resolve("migrations"))) {
+            List<Path> migrations = files
+                .sorted(Comparator.comparingInt(PostgresServiceTest::version))
+                .toList();
+            for (Path migration : migrations) {
+                jdbcTemplate.execute(Files.readString(migration));
+            }
+        }
+    }
+
+    @BeforeEach
+    void clearGraph() {
+        jdbcTemplate.execute("TRUNCATE kg.nodes, kg.node_history, kg.edge_history, kg.graph_components, "
+            + "kg.graph_communities, kg.community_links CASCADE");
+    }
+
+    protected static UUID insertNode(String type, String name) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO kg.nodes (type, name) VALUES (?, ?) RETURNING id", UUID.class, type, name);
+    }
+
+    protected static UUID insertEdge(UUID source, UUID target, String type) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO kg.edges (source_id, target_id, type) VALUES (?, ?, ?) RETURNING id",
+            UUID.class, source, target, type);
+    }
+
+    /**
+     * V10__add_temporal_history.sql -> 10
+     */
+    private static int version(Path migration) {
+        String name = migration.getFileName().toString();
+        return Integer.parseInt(name.substring(1, name.indexOf("__")));
+    }
+}
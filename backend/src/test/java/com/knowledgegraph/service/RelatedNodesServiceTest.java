@@ -0,0 +1,95 @@
+package com.knowledgegraph.service;
+
+import com.knowledgegraph.config.GraphConfig;
+import com.knowledgegraph.event.GraphSnapshotRefreshedEvent;
+import com.knowledgegraph.graph.GraphSnapshot;
+import com.knowledgegraph.model.EdgeType;
+import com.knowledgegraph.model.NodeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RelatedNodesServiceTest {
+
+    private static final UUID SOURCE = new UUID(0, 1);
+    private static final UUID FIRST = new UUID(0, 2);
+    private static final UUID SECOND = new UUID(0, 3);
+
+    private final GraphSnapshotService graphSnapshotService = mock(GraphSnapshotService.class);
+    private AnnotationConfigApplicationContext context;
+    private RelatedNodesService service;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(GraphConfig.class);
+        context.registerBean(GraphSnapshotService.class, () -> graphSnapshotService);
+        context.register(Caching.class, RelatedNodesService.class);
+        context.refresh();
+        service = context.getBean(RelatedNodesService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void rankingsAreCachedUntilTheNextSnapshot() {
+        when(graphSnapshotService.current()).thenReturn(Optional.of(snapshot(FIRST)));
+        assertEquals(Set.of(FIRST), service.getRelatedNodes(SOURCE).keySet());
+
+        GraphSnapshot rebuilt = snapshot(SECOND);
+        when(graphSnapshotService.current()).thenReturn(Optional.of(rebuilt));
+        assertEquals(Set.of(FIRST), service.getRelatedNodes(SOURCE).keySet());
+
+        context.publishEvent(new GraphSnapshotRefreshedEvent(rebuilt));
+
+        assertEquals(Set.of(SECOND), service.getRelatedNodes(SOURCE).keySet());
+    }
+
+    @Test
+    void nodesMissingFromTheSnapshotAreNotCached() {
+        when(graphSnapshotService.current()).thenReturn(Optional.empty());
+        assertTrue(service.getRelatedNodes(SOURCE).isEmpty());
+
+        when(graphSnapshotService.current()).thenReturn(Optional.of(snapshot(FIRST)));
+        assertEquals(Set.of(FIRST), service.getRelatedNodes(SOURCE).keySet());
+    }
+
+    /**
+     * The source and both candidates, with a single edge from the source to the given one
+     */
+    private static GraphSnapshot snapshot(UUID related) {
+        return GraphSnapshot.builder(3, 1)
+            .addNode(SOURCE, NodeType.CONCEPT)
+            .addNode(FIRST, NodeType.CONCEPT)
+            .addNode(SECOND, NodeType.CONCEPT)
+            .addEdge(new UUID(1, 1), SOURCE, related, EdgeType.RELATED_TO, 1.0f)
+            .build();
+    }
+
+    @Configuration
+    @EnableCaching
+    static class Caching {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(RelatedNodesService.CACHE_NAME);
+        }
+    }
+}
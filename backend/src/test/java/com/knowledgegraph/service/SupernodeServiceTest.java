@@ -0,0 +1,80 @@
+package com.knowledgegraph.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowledgegraph.config.GraphConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SupernodeServiceTest extends PostgresServiceTest {
+
+    private SupernodeService service;
+    private UUID hub;
+
+    @BeforeEach
+    void setUp() {
+        GraphConfig graphConfig = new GraphConfig();
+        graphConfig.getSupernodes().setDegreeThreshold(3);
+        service = new SupernodeService(graphConfig, jdbcTemplate, transactionTemplate, new ObjectMapper(),
+            new EdgeWatermarkPoller(jdbcTemplate));
+        hub = insertNode("DOCUMENT", "hub");
+    }
+
+    @Test
+    void newEdgesPromoteAndTriggersKeepTheCounts() {
+        insertEdge(hub, insertNode("CONCEPT", "x1"), "RELATED_TO");
+        insertEdge(insertNode("CONCEPT", "x2"), hub, "PART_OF");
+        service.recount();
+        assertFalse(service.hasSupernodes());
+
+        UUID x3 = insertNode("CONCEPT", "x3");
+        insertEdge(hub, x3, "RELATED_TO");
+        service.promoteNewHubs();
+
+        assertTrue(service.isSupernode(hub));
+        assertEquals(Map.of(
+            SupernodeService.OUTGOING, Map.of("RELATED_TO", 2L),
+            SupernodeService.INCOMING, Map.of("PART_OF", 1L)), service.getEdgeCounts(hub));
+
+        // From here on the statement triggers maintain the buckets
+        insertEdge(hub, insertNode("CONCEPT", "x4"), "CONNECTED_TO");
+        jdbcTemplate.update("DELETE FROM kg.edges WHERE target_id = ?", x3);
+        assertEquals(Map.of(
+            SupernodeService.OUTGOING, Map.of("RELATED_TO", 1L, "CONNECTED_TO", 1L),
+            SupernodeService.INCOMING, Map.of("PART_OF", 1L)), service.getEdgeCounts(hub));
+        assertEquals(1, service.listSupernodes(0, 10).size());
+        assertEquals(3L, service.listSupernodes(0, 10).get(0).getDegree());
+    }
+
+    @Test
+    void recountDemotesHubsThatLostEdges() {
+        for (int i = 0; i < 3; i++) {
+            insertEdge(hub, insertNode("CONCEPT", "x" + i), "RELATED_TO");
+        }
+        service.recount();
+        assertTrue(service.isSupernode(hub));
+
+        jdbcTemplate.update("DELETE FROM kg.edges WHERE id = (SELECT id FROM kg.edges LIMIT 1)");
+        service.recount();
+
+        assertFalse(service.isSupernode(hub));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM kg.supernode_edge_counts", Integer.class));
+    }
+
+    @Test
+    void nodesBelowTheThresholdAreNotPromoted() {
+        service.recount();
+        insertEdge(hub, insertNode("CONCEPT", "x1"), "RELATED_TO");
+        insertEdge(hub, insertNode("CONCEPT", "x2"), "RELATED_TO");
+
+        service.promoteNewHubs();
+
+        assertFalse(service.hasSupernodes());
+        assertEquals(Map.of(SupernodeService.OUTGOING, Map.of(), SupernodeService.INCOMING, Map.of()),
+            service.getEdgeCounts(hub));
+    }
+}
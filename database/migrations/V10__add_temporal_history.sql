@@ -0,0 +1,142 @@
+-- Migration V10: Validity intervals for nodes and edges, for point-in-time (asOf) queries
+--
+-- The current tables keep only the live version of each row, with the instant it became valid.
+-- Versions replaced by an update or removed by a delete are moved to history tables with the
+-- interval [valid_from, valid_to) in which they were current, so nothing is lost and traversal
+-- of the current graph is unchanged. kg.nodes_at / kg.edges_at return the rows valid at an
+-- instant; they are plain SQL functions, so the planner inlines them and pushes join keys
+-- into both branches.
+
+-- Rows that exist already are taken to have been valid since they were created
+ALTER TABLE kg.nodes ADD COLUMN IF NOT EXISTS valid_from TIMESTAMPTZ;
+UPDATE kg.nodes SET valid_from = COALESCE(created_at, captured_at, NOW()) WHERE valid_from IS NULL;
+ALTER TABLE kg.nodes ALTER COLUMN valid_from SET DEFAULT NOW();
+ALTER TABLE kg.nodes ALTER COLUMN valid_from SET NOT NULL;
+
+ALTER TABLE kg.edges ADD COLUMN IF NOT EXISTS valid_from TIMESTAMPTZ;
+UPDATE kg.edges SET valid_from = COALESCE(created_at, captured_at, NOW()) WHERE valid_from IS NULL;
+ALTER TABLE kg.edges ALTER COLUMN valid_from SET DEFAULT NOW();
+ALTER TABLE kg.edges ALTER COLUMN valid_from SET NOT NULL;
+
+CREATE TABLE IF NOT EXISTS kg.node_history (
+    id UUID NOT NULL,
+    type VARCHAR(50) NOT NULL,
+    name VARCHAR(500) NOT NULL,
+    properties JSONB,
+    source_uri TEXT,
+    valid_from TIMESTAMPTZ NOT NULL,
+    valid_to TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (id, valid_from)
+);
+
+CREATE TABLE IF NOT EXISTS kg.edge_history (
+    id UUID NOT NULL,
+    source_id UUID NOT NULL,
+    target_id UUID NOT NULL,
+    type VARCHAR(50) NOT NULL,
+    properties JSONB,
+    source_uri TEXT,
+    valid_from TIMESTAMPTZ NOT NULL,
+    valid_to TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (id, valid_from)
+);
+
+-- As-of adjacency probes history by endpoint, like idx_edges_source_type / idx_edges_target_type
+-- do for the current table; the interval columns let the index discard other versions
+CREATE INDEX IF NOT EXISTS idx_edge_history_source
+ON kg.edge_history(source_id, valid_from, valid_to);
+
+CREATE INDEX IF NOT EXISTS idx_edge_history_target
+ON kg.edge_history(target_id, valid_from, valid_to);
+
+-- Retention purges by end of validity
+CREATE INDEX IF NOT EXISTS idx_node_history_valid_to
+ON kg.node_history(valid_to);
+
+CREATE INDEX IF NOT EXISTS idx_edge_history_valid_to
+ON kg.edge_history(valid_to);
+
+-- Close the old version on update or delete. Versions shorter than a transaction (several
+-- updates in one transaction) are not kept; updates that only touch timestamps keep the version.
+CREATE OR REPLACE FUNCTION kg.record_node_version()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        IF (NEW.type, NEW.name, NEW.properties, NEW.source_uri)
+           IS NOT DISTINCT FROM (OLD.type, OLD.name, OLD.properties, OLD.source_uri) THEN
+            RETURN NEW;
+        END IF;
+        NEW.valid_from := NOW();
+    END IF;
+    IF OLD.valid_from < NOW() THEN
+        INSERT INTO kg.node_history (id, type, name, properties, source_uri, valid_from, valid_to)
+        VALUES (OLD.id, OLD.type, OLD.name, OLD.properties, OLD.source_uri, OLD.valid_from, NOW())
+        ON CONFLICT DO NOTHING;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION kg.record_edge_version()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        IF (NEW.source_id, NEW.target_id, NEW.type, NEW.properties, NEW.source_uri)
+           IS NOT DISTINCT FROM (OLD.source_id, OLD.target_id, OLD.type, OLD.properties, OLD.source_uri) THEN
+            RETURN NEW;
+        END IF;
+        NEW.valid_from := NOW();
+    END IF;
+    IF OLD.valid_from < NOW() THEN
+        INSERT INTO kg.edge_history (id, source_id, target_id, type, properties, source_uri, valid_from, valid_to)
+        VALUES (OLD.id, OLD.source_id, OLD.target_id, OLD.type, OLD.properties, OLD.source_uri, OLD.valid_from, NOW())
+        ON CONFLICT DO NOTHING;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS record_node_version_trigger ON kg.nodes;
+CREATE TRIGGER record_node_version_trigger
+BEFORE UPDATE OR DELETE ON kg.nodes
+FOR EACH ROW
+EXECUTE FUNCTION kg.record_node_version();
+
+-- Edges removed by ON DELETE CASCADE fire this too, so node deletes close their edges
+DROP TRIGGER IF EXISTS record_edge_version_trigger ON kg.edges;
+CREATE TRIGGER record_edge_version_trigger
+BEFORE UPDATE OR DELETE ON kg.edges
+FOR EACH ROW
+EXECUTE FUNCTION kg.record_edge_version();
+
+CREATE OR REPLACE FUNCTION kg.nodes_at(as_of TIMESTAMPTZ)
+RETURNS TABLE (id UUID, type TEXT, name TEXT, properties JSONB, source_uri TEXT,
+               valid_from TIMESTAMPTZ, valid_to TIMESTAMPTZ)
+LANGUAGE sql STABLE AS $$
+    SELECT n.id, n.type::text, n.name::text, n.properties, n.source_uri::text, n.valid_from, NULL::timestamptz
+    FROM kg.nodes n
+    WHERE n.valid_from <= as_of
+    UNION ALL
+    SELECT h.id, h.type::text, h.name::text, h.properties, h.source_uri, h.valid_from, h.valid_to
+    FROM kg.node_history h
+    WHERE h.valid_from <= as_of AND h.valid_to > as_of
+$$;
+
+CREATE OR REPLACE FUNCTION kg.edges_at(as_of TIMESTAMPTZ)
+RETURNS TABLE (id UUID, source_id UUID, target_id UUID, type TEXT, properties JSONB, source_uri TEXT,
+               valid_from TIMESTAMPTZ, valid_to TIMESTAMPTZ)
+LANGUAGE sql STABLE AS $$
+    SELECT e.id, e.source_id, e.target_id, e.type::text, e.properties, e.source_uri::text, e.valid_from, NULL::timestamptz
+    FROM kg.edges e
+    WHERE e.valid_from <= as_of
+    UNION ALL
+    SELECT h.id, h.source_id, h.target_id, h.type::text, h.properties, h.source_uri, h.valid_from, h.valid_to
+    FROM kg.edge_history h
+    WHERE h.valid_from <= as_of AND h.valid_to > as_of
+$$;
@@ -0,0 +1,121 @@
+-- Migration V11: Supernodes (hub nodes with very many edges) and per-type edge buckets
+--
+-- Section and document hubs collect tens of thousands of PART_OF / CONTAINS edges. Their edges
+-- are read a page of one type at a time, in (endpoint, type, id) order, so "edges of type X from
+-- hub H" is a range scan of one bucket. Nodes at or above the degree threshold are tracked in
+-- kg.supernodes by the backend; per-type counts for them are kept current by the statement
+-- triggers below, so a hub's size is known without counting its edges.
+
+-- Keyset paging within a bucket; these replace the (source_id, type) / (target_id, type)
+-- indexes from V3, which are prefixes of them
+CREATE INDEX IF NOT EXISTS idx_edges_source_type_id
+ON kg.edges(source_id, type, id);
+
+CREATE INDEX IF NOT EXISTS idx_edges_target_type_id
+ON kg.edges(target_id, type, id);
+
+DROP INDEX IF EXISTS kg.idx_edges_source_type;
+DROP INDEX IF EXISTS kg.idx_edges_target_type;
+
+CREATE TABLE IF NOT EXISTS kg.supernodes (
+    node_id UUID PRIMARY KEY REFERENCES kg.nodes(id) ON DELETE CASCADE,
+    promoted_at TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS kg.supernode_edge_counts (
+    node_id UUID NOT NULL REFERENCES kg.supernodes(node_id) ON DELETE CASCADE,
+    direction VARCHAR(8) NOT NULL,          -- 'outgoing' or 'incoming'
+    type VARCHAR(50) NOT NULL,
+    edge_count BIGINT NOT NULL,
+    updated_at TIMESTAMP,
+    PRIMARY KEY (node_id, direction, type)
+);
+
+-- Apply +1 / -1 per edge to the buckets of the endpoints that are supernodes
+CREATE OR REPLACE FUNCTION kg.add_supernode_edge_counts(sources UUID[], targets UUID[], types TEXT[], deltas INT[])
+RETURNS VOID AS $$
+    WITH changes AS (
+        SELECT * FROM unnest(sources, targets, types, deltas) AS u(source_id, target_id, type, delta)
+    ),
+    buckets AS (
+        SELECT source_id AS node_id, 'outgoing' AS direction, type, SUM(delta) AS delta
+        FROM changes GROUP BY source_id, type
+        UNION ALL
+        SELECT target_id, 'incoming', type, SUM(delta)
+        FROM changes GROUP BY target_id, type
+    )
+    INSERT INTO kg.supernode_edge_counts AS c (node_id, direction, type, edge_count, updated_at)
+    SELECT b.node_id, b.direction, b.type, b.delta, NOW()
+    FROM buckets b
+    WHERE b.delta <> 0 AND b.node_id IN (SELECT node_id FROM kg.supernodes)
+    ON CONFLICT (node_id, direction, type) DO UPDATE
+    SET edge_count = c.edge_count + EXCLUDED.edge_count, updated_at = EXCLUDED.updated_at;
+$$ LANGUAGE sql;
+
+-- Statement-level, so a bulk insert updates each hub bucket once. Only edges touching a
+-- supernode are aggregated; with no supernodes this is a single probe.
+CREATE OR REPLACE FUNCTION kg.count_supernode_edges()
+RETURNS TRIGGER AS $$
+DECLARE
+    sources UUID[];
+    targets UUID[];
+    types TEXT[];
+    deltas INT[];
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM kg.supernodes) THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(e.source_id), array_agg(e.target_id), array_agg(e.type::text), array_agg(1)
+        INTO sources, targets, types, deltas
+        FROM new_edges e
+        WHERE e.source_id IN (SELECT node_id FROM kg.supernodes)
+           OR e.target_id IN (SELECT node_id FROM kg.supernodes);
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT array_agg(e.source_id), array_agg(e.target_id), array_agg(e.type::text), array_agg(-1)
+        INTO sources, targets, types, deltas
+        FROM old_edges e
+        WHERE e.source_id IN (SELECT node_id FROM kg.supernodes)
+           OR e.target_id IN (SELECT node_id FROM kg.supernodes);
+    ELSE
+        SELECT array_agg(e.source_id), array_agg(e.target_id), array_agg(e.type::text), array_agg(e.delta)
+        INTO sources, targets, types, deltas
+        FROM (
+            SELECT source_id, target_id, type, 1 AS delta FROM new_edges
+            UNION ALL
+            SELECT source_id, target_id, type, -1 FROM old_edges
+        ) e
+        WHERE e.source_id IN (SELECT node_id FROM kg.supernodes)
+           OR e.target_id IN (SELECT node_id FROM kg.supernodes);
+    END IF;
+    IF sources IS NOT NULL THEN
+        PERFORM kg.add_supernode_edge_counts(sources, targets, types, deltas);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables need one trigger per event
+DROP TRIGGER IF EXISTS count_supernode_edges_insert ON kg.edges;
+CREATE TRIGGER count_supernode_edges_insert
+AFTER INSERT ON kg.edges
+REFERENCING NEW TABLE AS new_edges
+FOR EACH STATEMENT
+EXECUTE FUNCTION kg.count_supernode_edges();
+
+DROP TRIGGER IF EXISTS count_supernode_edges_delete ON kg.edges;
+CREATE TRIGGER count_supernode_edges_delete
+AFTER DELETE ON kg.edges
+REFERENCING OLD TABLE AS old_edges
+FOR EACH STATEMENT
+EXECUTE FUNCTION kg.count_supernode_edges();
+
+DROP TRIGGER IF EXISTS count_supernode_edges_update ON kg.edges;
+CREATE TRIGGER count_supernode_edges_update
+AFTER UPDATE ON kg.edges
+REFERENCING OLD TABLE AS old_edges NEW TABLE AS new_edges
+FOR EACH STATEMENT
+EXECUTE FUNCTION kg.count_supernode_edges();
+
+COMMENT ON TABLE kg.supernodes IS
+'Nodes whose degree reached graph.supernodes.degree-threshold. Promoted incrementally and recounted in bulk by the backend.';
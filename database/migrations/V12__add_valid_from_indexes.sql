@@ -0,0 +1,12 @@
+-- Migration V12: Find rows changed since an instant
+--
+-- The backend keeps its graph snapshot in a file and, on restart, replays only the nodes and
+-- edges inserted or updated since that snapshot was scanned (valid_from after it) plus the
+-- versions closed since then (kg.node_history / kg.edge_history, already indexed by valid_to).
+-- These indexes keep that replay a range scan instead of a pass over both tables.
+
+CREATE INDEX IF NOT EXISTS idx_nodes_valid_from
+ON kg.nodes(valid_from);
+
+CREATE INDEX IF NOT EXISTS idx_edges_valid_from
+ON kg.edges(valid_from);
@@ -0,0 +1,25 @@
+-- Migration V4: Persisted graph analytics
+-- Per-node metrics live in their own table so bulk writes never touch kg.nodes
+
+CREATE TABLE IF NOT EXISTS kg.node_metrics (
+    node_id UUID PRIMARY KEY REFERENCES kg.nodes(id) ON DELETE CASCADE,
+    component_id UUID,
+    updated_at TIMESTAMP
+);
+
+-- Component membership lookups page through members in id order
+CREATE INDEX IF NOT EXISTS idx_node_metrics_component
+ON kg.node_metrics(component_id, node_id);
+
+CREATE TABLE IF NOT EXISTS kg.graph_components (
+    component_id UUID PRIMARY KEY,
+    size BIGINT NOT NULL,
+    updated_at TIMESTAMP
+);
+
+-- Incremental maintenance scans edges created since the last pass
+CREATE INDEX IF NOT EXISTS idx_edges_created_at
+ON kg.edges(created_at);
+
+COMMENT ON TABLE kg.node_metrics IS
+'Graph analytics per node (connected component, ...). Recomputed in bulk and patched incrementally by the backend.';
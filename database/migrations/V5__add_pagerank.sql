@@ -0,0 +1,8 @@
+-- Migration V5: Stored PageRank per node
+
+ALTER TABLE kg.node_metrics
+ADD COLUMN IF NOT EXISTS pagerank DOUBLE PRECISION;
+
+-- Supports top-ranked node listings
+CREATE INDEX IF NOT EXISTS idx_node_metrics_pagerank
+ON kg.node_metrics(pagerank DESC NULLS LAST);
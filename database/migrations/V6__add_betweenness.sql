@@ -0,0 +1,8 @@
+-- Migration V6: Stored approximate betweenness per node
+
+ALTER TABLE kg.node_metrics
+ADD COLUMN IF NOT EXISTS betweenness DOUBLE PRECISION;
+
+-- Supports bridge-entity listings
+CREATE INDEX IF NOT EXISTS idx_node_metrics_betweenness
+ON kg.node_metrics(betweenness DESC NULLS LAST);
@@ -0,0 +1,28 @@
+-- Migration V7: Community detection results
+
+ALTER TABLE kg.node_metrics
+ADD COLUMN IF NOT EXISTS community_id UUID;
+
+CREATE INDEX IF NOT EXISTS idx_node_metrics_community
+ON kg.node_metrics(community_id, node_id);
+
+CREATE TABLE IF NOT EXISTS kg.graph_communities (
+    community_id UUID PRIMARY KEY,
+    size BIGINT NOT NULL,
+    updated_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_graph_communities_size
+ON kg.graph_communities(size DESC);
+
+-- One row per unordered community pair, smaller id first
+CREATE TABLE IF NOT EXISTS kg.community_links (
+    source_community_id UUID NOT NULL,
+    target_community_id UUID NOT NULL,
+    edge_count BIGINT NOT NULL,
+    weight DOUBLE PRECISION NOT NULL,
+    PRIMARY KEY (source_community_id, target_community_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_community_links_target
+ON kg.community_links(target_community_id);
@@ -0,0 +1,7 @@
+-- Migration V8: Checkpointed graph statistics counters
+
+CREATE TABLE IF NOT EXISTS kg.graph_statistics (
+    name VARCHAR(255) PRIMARY KEY,
+    value BIGINT NOT NULL,
+    updated_at TIMESTAMP
+);
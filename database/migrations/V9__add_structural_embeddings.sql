@@ -0,0 +1,18 @@
+-- Migration V9: Structural (node2vec) embeddings stored next to text embeddings
+
+-- Structural vectors have their own dimension, so the column must accept any dimension
+-- and the text vector index must not cover them
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'vector') THEN
+        EXECUTE 'DROP INDEX IF EXISTS kg.idx_embeddings_vector';
+        EXECUTE 'ALTER TABLE kg.embeddings ALTER COLUMN vector TYPE vector';
+        EXECUTE 'CREATE INDEX IF NOT EXISTS idx_embeddings_vector 
+                 ON kg.embeddings USING ivfflat ((vector::vector(384)) vector_cosine_ops) 
+                 WITH (lists = 100)
+                 WHERE model_version <> ''structural-node2vec''';
+    END IF;
+END $$;
+
+CREATE INDEX IF NOT EXISTS idx_embeddings_model_node
+ON kg.embeddings(model_version, node_id);
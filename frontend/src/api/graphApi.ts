@@ -8,6 +8,8 @@ export interface GraphNode {
   properties: Record<string, any>
   hopLevel: number
   centrality?: number
+  hiddenEdges?: number
+  nearestSeedId?: string  // set in a multi-seed neighborhood
 }
 
 export interface GraphEdge {
@@ -20,7 +22,8 @@ export interface GraphEdge {
 }
 
 export interface GraphNeighborhoodDTO {
-  centerNodeId: string
+  centerNodeId: string | null  // null for a multi-seed neighborhood
+  seedIds?: string[]
   requestedHops: number
   actualHops: number
   nodes: GraphNode[]
@@ -28,6 +31,20 @@ export interface GraphNeighborhoodDTO {
   nodesPerHop: Record<number, number>
   totalNodes: number
   totalEdges: number
+  truncated: boolean
+  truncatedByFanOut: number
+  truncatedByBudget: number
+}
+
+export interface NeighborhoodOptions {
+  fanOut?: number
+  rankBy?: 'CONFIDENCE' | 'DEGREE'
+  edgeTypes?: string[]
+  excludeEdgeTypes?: string[]
+  nodeTypes?: string[]
+  excludeNodeTypes?: string[]
+  maxNodes?: number
+  asOf?: string  // ISO-8601 instant; the graph as it was then
 }
 
 export interface PathResult {
@@ -40,8 +57,44 @@ export interface PathResult {
 
 export interface ComponentResult {
   nodeId: string
+  componentId: string | null
   componentSize: number
+  page: number
+  size: number
   nodeIds: string[]
+  labelled: boolean
+}
+
+export interface ReachabilityResult {
+  from: string
+  to: string
+  maxHops: number
+  reachable: boolean
+  distance: number | null
+  indexed: boolean
+}
+
+export interface Supernode {
+  nodeId: string
+  name: string
+  type: string
+  degree: number
+  edgeCounts: Record<'outgoing' | 'incoming', Record<string, number>>
+}
+
+export interface Community {
+  communityId: string
+  size: number
+  page?: number
+  pageSize?: number
+  nodeIds?: string[]
+}
+
+export interface CommunityLink {
+  sourceCommunityId: string
+  targetCommunityId: string
+  edgeCount: number
+  weight: number
 }
 
 export interface GraphStats {
@@ -49,26 +102,56 @@ export interface GraphStats {
   totalEdges: number
   nodeTypes: Record<string, number>
   edgeTypes: Record<string, number>
-  avgConnectionsPerNode: number
+  avgConnectionsPerNode: number | null
+  degreeSums: Record<string, { out: number; in: number }>
+  degreeHistogram?: Record<string, number>
+  reconciledAt?: string | null
+  asOf?: string
 }
 
 export const graphApi = {
   // Get node neighborhood
-  getNeighborhood: (nodeId: string, hops = 1) => {
+  getNeighborhood: (nodeId: string, hops = 1, options: NeighborhoodOptions = {}) => {
     const params = new URLSearchParams({
       hops: hops.toString()
     })
+    Object.entries(options).forEach(([key, value]) => {
+      if (Array.isArray(value)) {
+        value.forEach(item => params.append(key, item))
+      } else if (value !== undefined) {
+        params.append(key, value.toString())
+      }
+    })
     
     return apiCall<GraphNeighborhoodDTO>('GET', `/graph/neighborhood/${nodeId}?${params}`)
   },
 
+  // Get the merged neighborhood of several seed nodes in one traversal
+  getMultiNeighborhood: (seedIds: string[], hops = 1, options: NeighborhoodOptions = {}) => {
+    const params = new URLSearchParams({
+      hops: hops.toString()
+    })
+    Object.entries(options).forEach(([key, value]) => {
+      if (Array.isArray(value)) {
+        value.forEach(item => params.append(key, item))
+      } else if (value !== undefined) {
+        params.append(key, value.toString())
+      }
+    })
+    
+    return apiCall<GraphNeighborhoodDTO>('POST', `/graph/neighborhood?${params}`, seedIds)
+  },
+
   // Find path between nodes
-  findPath: (fromId: string, toId: string, maxHops = 5) => {
+  findPath: (fromId: string, toId: string, maxHops = 5, asOf?: string) => {
     const params = new URLSearchParams({
       from: fromId,
       to: toId,
       maxHops: maxHops.toString()
     })
+    if (asOf) {
+      params.set('asOf', asOf)
+    }
     
     return apiCall<PathResult>('GET', `/graph/path?${params}`)
   },
@@ -79,8 +162,71 @@ export const graphApi = {
   },
 
   // Get connected component
-  getConnectedComponent: (nodeId: string) => {
-    return apiCall<ComponentResult>('GET', `/graph/component/${nodeId}`)
+  getConnectedComponent: (nodeId: string, page = 0, size = 100) => {
+    const params = new URLSearchParams({
+      page: page.toString(),
+      size: size.toString()
+    })
+    
+    return apiCall<ComponentResult>('GET', `/graph/component/${nodeId}?${params}`)
+  },
+
+  // Hub nodes at or above the supernode degree threshold, largest first
+  getSupernodes: (page = 0, size = 50) => {
+    const params = new URLSearchParams({
+      page: page.toString(),
+      size: size.toString()
+    })
+    
+    return apiCall<Supernode[]>('GET', `/graph/supernodes?${params}`)
+  },
+
+  // Whether two nodes are connected within maxHops, ignoring direction
+  isReachable: (fromId: string, toId: string, maxHops = 5) => {
+    const params = new URLSearchParams({
+      from: fromId,
+      to: toId,
+      maxHops: maxHops.toString()
+    })
+    
+    return apiCall<ReachabilityResult>('GET', `/graph/reachable?${params}`)
+  },
+
+  // Reachability for many pairs, in request order
+  areReachable: (pairs: { from: string; to: string }[], maxHops = 5) => {
+    return apiCall<ReachabilityResult[]>('POST', `/graph/reachable?maxHops=${maxHops}`, pairs)
+  },
+
+  // List communities, largest first
+  getCommunities: (page = 0, size = 50) => {
+    const params = new URLSearchParams({
+      page: page.toString(),
+      size: size.toString()
+    })
+    
+    return apiCall<Community[]>('GET', `/graph/communities?${params}`)
+  },
+
+  // Get the community containing a node
+  getCommunityOf: (nodeId: string, page = 0, size = 100) => {
+    const params = new URLSearchParams({
+      page: page.toString(),
+      size: size.toString()
+    })
+    
+    return apiCall<Community>('GET', `/graph/community/${nodeId}?${params}`)
+  },
+
+  // Get edge counts between communities
+  getCommunityLinks: (communityId?: string, limit = 50) => {
+    const params = new URLSearchParams({
+      limit: limit.toString()
+    })
+    if (communityId) {
+      params.set('communityId', communityId)
+    }
+    
+    return apiCall<CommunityLink[]>('GET', `/graph/communities/links?${params}`)
   },
 
   // Calculate centrality
@@ -89,7 +235,8 @@ export const graphApi = {
   },
 
   // Get graph statistics
-  getStatistics: () => {
-    return apiCall<GraphStats>('GET', '/graph/stats')
+  getStatistics: (asOf?: string) => {
+    const query = asOf ? `?${new URLSearchParams({ asOf })}` : ''
+    return apiCall<GraphStats>('GET', `/graph/stats${query}`)
   }
 }
\ No newline at end of file
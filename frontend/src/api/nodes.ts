@@ -16,6 +16,25 @@ export interface NodeDetailDTO {
   embeddings: EmbeddingDTO[]
   totalConnections: number
   connectionsByType: Record<string, number>
+  edgesPaged?: boolean
+}
+
+// Supernodes return one page per direction; pass a cursor with its direction for the next
+export interface NodeEdges {
+  nodeId: string
+  supernode: boolean
+  outgoing?: EdgeDTO[]
+  incoming?: EdgeDTO[]
+  outgoingCursor?: string | null
+  incomingCursor?: string | null
+  edgeCounts?: Record<'outgoing' | 'incoming', Record<string, number>> | null
+}
+
+export interface EdgePageOptions {
+  direction?: 'outgoing' | 'incoming'
+  type?: string
+  cursor?: string
+  size?: number
 }
 
 export interface EdgeDTO {
@@ -76,9 +95,17 @@ export const nodesApi = {
   getCitations: (nodeId: string) =>
     apiCall<CitationDTO[]>('GET', `/nodes/${nodeId}/citations`),
 
-  // Get node edges
-  getEdges: (nodeId: string) =>
-    apiCall<{ outgoing: EdgeDTO[], incoming: EdgeDTO[] }>('GET', `/nodes/${nodeId}/edges`),
+  // Get node edges, paged for supernodes
+  getEdges: (nodeId: string, options: EdgePageOptions = {}) => {
+    const params = new URLSearchParams()
+    if (options.direction) params.append('direction', options.direction)
+    if (options.type) params.append('type', options.type)
+    if (options.cursor) params.append('cursor', options.cursor)
+    if (options.size) params.append('size', options.size.toString())
+    const query = params.toString()
+    
+    return apiCall<NodeEdges>('GET', `/nodes/${nodeId}/edges${query ? `?${query}` : ''}`)
+  },
 
   // Create node
   create: (node: Omit<Node, 'id' | 'createdAt' | 'updatedAt'>) =>
@@ -16,6 +16,8 @@ export interface SearchResultDTO {
   connectionCount?: number
 }
 
+export type SimilarityMode = 'SEMANTIC' | 'STRUCTURAL' | 'HYBRID'
+
 export interface SearchResponseDTO {
   results: SearchResultDTO[]
   totalElements: number
@@ -86,11 +88,15 @@ export const searchApi = {
     return apiCall<SearchResponseDTO>('GET', `/search/adaptive?${params}`)
   },
 
-  // Find similar nodes
-  findSimilar: (nodeId: string, limit = 10) => {
+  // Find similar nodes by text, graph structure or a blend of both
+  findSimilar: (nodeId: string, limit = 10, mode: SimilarityMode = 'SEMANTIC', structuralWeight?: number) => {
     const params = new URLSearchParams({
-      limit: limit.toString()
+      limit: limit.toString(),
+      mode
     })
+    if (structuralWeight !== undefined) {
+      params.append('structuralWeight', structuralWeight.toString())
+    }
     
     return apiCall<SearchResponseDTO>('GET', `/search/similar/${nodeId}?${params}`)
   },